@@ -0,0 +1,78 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tyndalehouse.step.core.data.analyzers.DefinitionAnalyzer;
+
+/**
+ * Tokenizes typical input for each of the analyzers used on the lexicon, as is done both when indexing and when
+ * parsing a query. The analyzers need no index, so this benchmark does not depend on the STEP home.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AnalyzerBenchmark {
+    @Param({ "stepGloss", "stepGlossStem", "accentedUnicode", "betaAccented", "simplifiedStepTransliteration",
+            "relatedNumbers" })
+    private String field;
+
+    private Analyzer analyzer;
+    private String input;
+
+    /**
+     * Each thread has its own analyzer, as the analyzers keep their token streams per thread
+     */
+    @Setup
+    public void setUp() {
+        this.analyzer = new DefinitionAnalyzer();
+        if ("accentedUnicode".equals(this.field)) {
+            this.input = "ἀγαπάω ἀγάπη ἀγαπητός";
+        } else if ("betaAccented".equals(this.field)) {
+            this.input = "a)gapa/w a)ga/ph a)gaphto/s";
+        } else if ("simplifiedStepTransliteration".equals(this.field)) {
+            this.input = "agapao agape agapetos";
+        } else if ("relatedNumbers".equals(this.field)) {
+            this.input = "G0025,G0026,G0027,G0028";
+        } else {
+            this.input = "For God so loved the world, that he gave his only begotten Son";
+        }
+    }
+
+    /**
+     * @param blackhole consumes the terms, so that they are not optimised away
+     * @throws IOException if the input cannot be read
+     */
+    @Benchmark
+    public void tokenize(final Blackhole blackhole) throws IOException {
+        final TokenStream tokens = this.analyzer.reusableTokenStream(this.field, new StringReader(this.input));
+        final TermAttribute term = tokens.addAttribute(TermAttribute.class);
+        tokens.reset();
+        while (tokens.incrementToken()) {
+            blackhole.consume(term.term());
+        }
+        tokens.end();
+    }
+}
@@ -0,0 +1,105 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.EntityManager;
+import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
+import com.tyndalehouse.step.core.utils.StringConversionUtils;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
+
+/**
+ * The queries the services run most often against the lexicon
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EntityIndexReaderBenchmark {
+    private static final int MAX_TERMS = 50;
+    private static final int MAX_POPULAR_TERMS = 5;
+
+    @Param({ "G0025" })
+    private String strongNumber;
+
+    @Param({ "lov" })
+    private String gloss;
+
+    @Param({ "agap" })
+    private String transliteration;
+
+    private EntityIndexReader definitions;
+    private TransliterationAutomaton greekTransliterations;
+    private String adaptedTransliteration;
+
+    /**
+     * @param state the STEP services
+     */
+    @Setup
+    public void setUp(final StepState state) {
+        this.definitions = state.getInstance(EntityManager.class).getReader("definition");
+        this.greekTransliterations = StringConversionUtils.getTransliterationAutomaton(true);
+        this.adaptedTransliteration = StringConversionUtils.adaptForTransliterationForIndexing(
+                this.transliteration, true);
+    }
+
+    /**
+     * @return the definition of a Strong number
+     */
+    @Benchmark
+    public EntityDoc[] searchExactTermBySingleField() {
+        return this.definitions.searchExactTermBySingleField("strongNumber", 1, this.strongNumber);
+    }
+
+    /**
+     * @return the definitions whose gloss matches a word
+     */
+    @Benchmark
+    public EntityDoc[] searchSingleColumn() {
+        return this.definitions.searchSingleColumn("stepGloss", this.gloss + "*");
+    }
+
+    /**
+     * @return the glosses and translations completing what has been typed so far
+     */
+    @Benchmark
+    public TermsAndMaxCount findSetOfTermsWithCounts() {
+        return this.definitions.findSetOfTermsWithCounts(false, true, this.gloss, MAX_TERMS, "stepGloss",
+                "translations");
+    }
+
+    /**
+     * @return the most popular glosses completing what has been typed so far
+     */
+    @Benchmark
+    public TermsAndMaxCount findPopularTermsWithCounts() {
+        return this.definitions.findPopularTermsWithCounts(this.gloss, MAX_POPULAR_TERMS, "stepGloss");
+    }
+
+    /**
+     * @return the transliterations that are a spelling of what has been typed so far
+     */
+    @Benchmark
+    public Set<String> findTermsAcceptedBy() {
+        return this.definitions.findTermsAcceptedBy("simplifiedStepTransliteration", this.greekTransliterations,
+                this.adaptedTransliteration, true);
+    }
+}
@@ -0,0 +1,93 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tyndalehouse.step.core.models.InterlinearMode;
+import com.tyndalehouse.step.core.models.LookupOption;
+import com.tyndalehouse.step.core.models.OsisWrapper;
+import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
+
+/**
+ * Reads a passage, as a single version, as an interlinear and interleaved with a second version. The second
+ * version needs to be installed and tagged with Strong numbers, and can be changed with -p secondVersion=...
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PassageBenchmark {
+    /**
+     * The ways of displaying a passage that are measured
+     */
+    public enum Display {
+        PLAIN,
+        INTERLINEAR,
+        INTERLEAVED
+    }
+
+    @Param
+    private Display display;
+
+    @Param({ StepState.BUNDLED_VERSION })
+    private String version;
+
+    @Param({ "KJV" })
+    private String secondVersion;
+
+    @Param({ "John.3", "Rom.1-2" })
+    private String reference;
+
+    private JSwordPassageService passages;
+    private List<LookupOption> options;
+
+    /**
+     * @param state the STEP services
+     */
+    @Setup
+    public void setUp(final StepState state) {
+        this.passages = state.getInstance(JSwordPassageService.class);
+        this.options = Arrays.asList(LookupOption.HEADINGS, LookupOption.VERSE_NUMBERS, LookupOption.NOTES);
+        if (this.display == Display.INTERLINEAR) {
+            this.options = new ArrayList<LookupOption>(this.options);
+            this.options.add(LookupOption.ENGLISH_VOCAB);
+            this.options.add(LookupOption.TRANSLITERATION);
+        }
+    }
+
+    /**
+     * @return the passage, returned so that its construction is not optimised away
+     */
+    @Benchmark
+    public OsisWrapper getOsisText() {
+        switch (this.display) {
+            case INTERLINEAR:
+                return this.passages.getOsisText(this.version, this.reference,
+                        new ArrayList<LookupOption>(this.options), this.secondVersion, InterlinearMode.INTERLINEAR);
+            case INTERLEAVED:
+                return this.passages.getInterleavedVersions(new String[] { this.version, this.secondVersion },
+                        this.reference, new ArrayList<LookupOption>(this.options), InterlinearMode.INTERLEAVED);
+            default:
+                return this.passages.getOsisText(this.version, this.reference,
+                        new ArrayList<LookupOption>(this.options), null, InterlinearMode.NONE);
+        }
+    }
+}
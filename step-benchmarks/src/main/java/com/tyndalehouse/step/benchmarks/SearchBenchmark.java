@@ -0,0 +1,81 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tyndalehouse.step.core.models.search.SearchResult;
+import com.tyndalehouse.step.core.service.SearchService;
+import com.tyndalehouse.step.core.service.impl.IndividualSearch;
+import com.tyndalehouse.step.core.service.impl.SearchQuery;
+import com.tyndalehouse.step.core.service.impl.SearchType;
+
+/**
+ * Runs a typical search of each kind, against a version which needs to be installed and indexed. The version can
+ * be changed with -p version=...
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    private static final Map<SearchType, String> QUERIES = new EnumMap<SearchType, String>(SearchType.class);
+
+    static {
+        QUERIES.put(SearchType.TEXT, "elijah");
+        QUERIES.put(SearchType.SUBJECT_SIMPLE, "elijah");
+        QUERIES.put(SearchType.SUBJECT_FULL, "elijah");
+        QUERIES.put(SearchType.ORIGINAL_GREEK_FORMS, "G0025");
+        QUERIES.put(SearchType.ORIGINAL_GREEK_RELATED, "G0025");
+        QUERIES.put(SearchType.ORIGINAL_HEBREW_FORMS, "H0157");
+        QUERIES.put(SearchType.ORIGINAL_MEANING, "love");
+        QUERIES.put(SearchType.TIMELINE_DESCRIPTION, "elijah");
+        QUERIES.put(SearchType.RELATED_VERSES, "John.3.16");
+    }
+
+    @Param({ "TEXT", "SUBJECT_SIMPLE", "SUBJECT_FULL", "ORIGINAL_GREEK_FORMS", "ORIGINAL_GREEK_RELATED",
+            "ORIGINAL_HEBREW_FORMS", "ORIGINAL_MEANING", "TIMELINE_DESCRIPTION", "RELATED_VERSES" })
+    private SearchType searchType;
+
+    @Param({ "KJV" })
+    private String version;
+
+    private SearchService search;
+    private String query;
+
+    /**
+     * @param state the STEP services
+     */
+    @Setup
+    public void setUp(final StepState state) {
+        this.search = state.getInstance(SearchService.class);
+        this.query = QUERIES.get(this.searchType);
+    }
+
+    /**
+     * @return the first page of results
+     */
+    @Benchmark
+    public SearchResult search() {
+        // the service amends the search as it runs it, so a new one is needed each time
+        return this.search.search(new SearchQuery(1, 0, null, null, new IndividualSearch(this.searchType,
+                Arrays.asList(this.version), this.query, null, null)));
+    }
+}
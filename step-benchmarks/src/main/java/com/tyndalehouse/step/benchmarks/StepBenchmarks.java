@@ -0,0 +1,73 @@
+package com.tyndalehouse.step.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks twice, first on a single thread, then on as many threads as there are processors, so that
+ * both the cost of a single request and the contention between requests can be compared before and after a
+ * change. The allocation rate of each benchmark is reported alongside its time, and the results are written to
+ * step-benchmarks-1.json and step-benchmarks-n.json.
+ * <p>
+ * Any of the usual JMH options may be given, for example a pattern to only run some of the benchmarks, or a number
+ * of threads to only run once on that many threads:
+ * <pre>
+ *     java -jar target/step-benchmarks.jar Passage -p display=INTERLEAVED
+ * </pre>
+ * The benchmarks read the lexicon and other data from the STEP home of the user, so the application should have
+ * been started at least once beforehand.
+ *
+ * @author agent
+ */
+public final class StepBenchmarks {
+    /**
+     * no-op
+     */
+    private StepBenchmarks() {
+        // no-op
+    }
+
+    /**
+     * @param args the JMH command line options
+     * @throws CommandLineOptionException if the options cannot be parsed
+     * @throws RunnerException            if a benchmark fails
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.getThreads().hasValue()) {
+            run(commandLine, commandLine.getThreads().get(), "step-benchmarks.json");
+            return;
+        }
+
+        run(commandLine, 1, "step-benchmarks-1.json");
+        run(commandLine, Runtime.getRuntime().availableProcessors(), "step-benchmarks-n.json");
+    }
+
+    /**
+     * @param commandLine the options given on the command line
+     * @param threads     the number of threads to run each benchmark on
+     * @param results     the file the results are written to
+     * @throws RunnerException if a benchmark fails
+     */
+    private static void run(final CommandLineOptions commandLine, final int threads, final String results)
+            throws RunnerException {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .threads(threads)
+                .addProfiler(GCProfiler.class);
+
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(StepBenchmarks.class.getPackage().getName() + ".*Benchmark");
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON).result(results);
+        }
+        new Runner(options.build()).run();
+    }
+}
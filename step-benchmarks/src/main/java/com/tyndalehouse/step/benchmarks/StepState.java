@@ -0,0 +1,190 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.crosswire.common.util.CWProject;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.SwordBookPath;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.tyndalehouse.step.core.exceptions.StepInternalException;
+import com.tyndalehouse.step.core.guice.StepCoreModule;
+import com.tyndalehouse.step.core.models.ClientSession;
+import com.tyndalehouse.step.core.utils.IOUtils;
+
+/**
+ * The STEP services, wired up as they are in the application, and shared by all the threads of a benchmark.
+ * <p>
+ * The entity indexes (lexicon, subjects, timeline, etc.) are read from the STEP home of the user running the
+ * benchmarks, as built by the application on its first start. On top of the installed modules, the small test
+ * module bundled with the step-core tests is unpacked and added to the book path, so that the passage benchmarks
+ * always have the same text to read, whatever else is installed.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+public class StepState {
+    /**
+     * The version bundled with the step-core tests, which only holds the New Testament
+     */
+    public static final String BUNDLED_VERSION = "ESVTemp";
+    private static final String BUNDLED_MODULES = "/com/tyndalehouse/step/core/data/ESVTemp.zip";
+    private Injector injector;
+    private File modules;
+
+    /**
+     * Unpacks the bundled modules, and creates the services
+     *
+     * @throws IOException   if the bundled modules cannot be unpacked
+     * @throws BookException if the bundled modules cannot be added to the book path
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, BookException {
+        CWProject.instance().setFrontendName("step");
+        this.modules = unpack(BUNDLED_MODULES);
+        SwordBookPath.setAugmentPath(new File[] { this.modules });
+
+        this.injector = Guice.createInjector(new StepCoreModule(), new Module() {
+            @Override
+            public void configure(final Binder binder) {
+                binder.bind(ClientSession.class).toProvider(new Provider<ClientSession>() {
+                    @Override
+                    public ClientSession get() {
+                        return BenchmarkSession.INSTANCE;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Removes the unpacked modules
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        delete(this.modules);
+    }
+
+    /**
+     * @param type the type of service
+     * @param <T>  the type of service
+     * @return the service, as the application would have it
+     */
+    public <T> T getInstance(final Class<T> type) {
+        return this.injector.getInstance(type);
+    }
+
+    /**
+     * @param resource a zip file on the classpath, laid out as a SWORD module directory
+     * @return the directory the zip was unpacked into
+     * @throws IOException if the zip cannot be read, or written out
+     */
+    private static File unpack(final String resource) throws IOException {
+        final InputStream zip = StepState.class.getResourceAsStream(resource);
+        if (zip == null) {
+            throw new StepInternalException("Unable to find the bundled modules: " + resource);
+        }
+
+        final File directory = File.createTempFile("step-benchmarks", "");
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new StepInternalException("Unable to create " + directory.getAbsolutePath());
+        }
+
+        final ZipInputStream entries = new ZipInputStream(zip);
+        try {
+            final byte[] buffer = new byte[8192];
+            ZipEntry entry;
+            while ((entry = entries.getNextEntry()) != null) {
+                final File file = new File(directory, entry.getName());
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+
+                file.getParentFile().mkdirs();
+                final OutputStream out = new FileOutputStream(file);
+                try {
+                    int read;
+                    while ((read = entries.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(out);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(entries);
+        }
+        return directory;
+    }
+
+    /**
+     * @param file the file or directory to delete
+     */
+    private static void delete(final File file) {
+        if (file == null) {
+            return;
+        }
+
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * A session for an English speaking user, with no request behind it
+     */
+    private static final class BenchmarkSession implements ClientSession {
+        private static final BenchmarkSession INSTANCE = new BenchmarkSession();
+
+        @Override
+        public String getSessionId() {
+            return "benchmarks";
+        }
+
+        @Override
+        public String getIpAddress() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public String getLanguage() {
+            return Locale.ENGLISH.getLanguage();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.ENGLISH;
+        }
+
+        @Override
+        public String getParam(final String name) {
+            return null;
+        }
+
+        @Override
+        public InputStream getAttachment(final String filePartName) {
+            return null;
+        }
+    }
+}
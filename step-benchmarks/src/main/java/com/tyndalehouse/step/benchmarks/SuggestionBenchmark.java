@@ -0,0 +1,59 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tyndalehouse.step.core.models.SuggestionsSummary;
+import com.tyndalehouse.step.core.service.SuggestionService;
+import com.tyndalehouse.step.core.service.helpers.SuggestionContext;
+
+/**
+ * Suggests searches from what the user has typed so far, as the search box does on each keystroke
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SuggestionBenchmark {
+    @Param({ "l", "lov", "elij", "agap", "Gen" })
+    private String input;
+
+    @Param({ "KJV" })
+    private String masterBook;
+
+    private SuggestionService suggestions;
+
+    /**
+     * @param state the STEP services
+     */
+    @Setup
+    public void setUp(final StepState state) {
+        this.suggestions = state.getInstance(SuggestionService.class);
+    }
+
+    /**
+     * @return the top suggestions across all kinds of search
+     */
+    @Benchmark
+    public SuggestionsSummary getTopSuggestions() {
+        final SuggestionContext context = new SuggestionContext();
+        context.setMasterBook(this.masterBook);
+        context.setInput(this.input);
+        return this.suggestions.getTopSuggestions(context);
+    }
+}
@@ -0,0 +1,58 @@
+package com.tyndalehouse.step.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tyndalehouse.step.core.models.VocabResponse;
+import com.tyndalehouse.step.core.service.VocabularyService;
+
+/**
+ * Looks up the definitions shown when hovering over, or clicking on, a word
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VocabularyBenchmark {
+    @Param({ "G0025", "H0157", "G0025 G0026 G0027" })
+    private String vocabIdentifiers;
+
+    @Param({ "KJV" })
+    private String version;
+
+    @Param({ "John.3.16" })
+    private String reference;
+
+    private VocabularyService vocabulary;
+
+    /**
+     * @param state the STEP services
+     */
+    @Setup
+    public void setUp(final StepState state) {
+        this.vocabulary = state.getInstance(VocabularyService.class);
+    }
+
+    /**
+     * @return the definitions
+     */
+    @Benchmark
+    public VocabResponse getDefinitions() {
+        return this.vocabulary.getDefinitions(this.version, this.reference, this.vocabIdentifiers);
+    }
+}
@@ -1,8 +1,7 @@
 package com.tyndalehouse.step.core.data;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
@@ -10,12 +9,33 @@ import org.apache.lucene.search.Scorer;
 
 /**
  * Simply accepts all results into a list
- * 
+ * <p>
+ * If a maximum is given, only the first few results are accepted. The list is kept as primitive document ids,
+ * offset by the base of each segment so that they are valid against the top-level reader.
+ *
  * @author chrisburrell
- * 
+ *
  */
 public class AllResultsCollector extends Collector {
-    private final List<Integer> docIds = new ArrayList<Integer>(32);
+    private static final int INITIAL_CAPACITY = 32;
+    private final int maxResults;
+    private int[] docIds = new int[INITIAL_CAPACITY];
+    private int size;
+    private int docBase;
+
+    /**
+     * Collects all results
+     */
+    public AllResultsCollector() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxResults the number of results after which collection stops
+     */
+    public AllResultsCollector(final int maxResults) {
+        this.maxResults = maxResults;
+    }
 
     @Override
     public void setScorer(final Scorer scorer) throws IOException {
@@ -24,12 +44,19 @@ public class AllResultsCollector extends Collector {
 
     @Override
     public void collect(final int doc) throws IOException {
-        this.docIds.add(doc);
+        if (this.size == this.maxResults) {
+            throw CollectionTerminatedException.INSTANCE;
+        }
+
+        if (this.size == this.docIds.length) {
+            this.docIds = Arrays.copyOf(this.docIds, this.size << 1);
+        }
+        this.docIds[this.size++] = this.docBase + doc;
     }
 
     @Override
     public void setNextReader(final IndexReader reader, final int docBase) throws IOException {
-        // not implemented
+        this.docBase = docBase;
     }
 
     @Override
@@ -38,9 +65,40 @@ public class AllResultsCollector extends Collector {
     }
 
     /**
-     * @return the docIds
+     * @return the number of documents collected
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @param index the index of the hit, between 0 and {@link #getSize()}
+     * @return the document id of that hit
+     */
+    public int getDocId(final int index) {
+        return this.docIds[index];
+    }
+
+    /**
+     * @return a copy of the docIds
      */
-    public List<Integer> getDocIds() {
-        return this.docIds;
+    public int[] getDocIds() {
+        return Arrays.copyOf(this.docIds, this.size);
+    }
+
+    /**
+     * Thrown to stop the searcher once enough results have been collected. Callers running a search with a
+     * maximum should catch it and carry on with what has been collected.
+     */
+    public static final class CollectionTerminatedException extends RuntimeException {
+        private static final long serialVersionUID = -4350979447164390394L;
+        private static final CollectionTerminatedException INSTANCE = new CollectionTerminatedException();
+
+        /**
+         * No stack trace is needed, so the one instance is shared.
+         */
+        private CollectionTerminatedException() {
+            super("Enough results have been collected", null, false, false);
+        }
     }
 }
@@ -0,0 +1,26 @@
+package com.tyndalehouse.step.core.data;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Caches lexicon definitions by (augmented) strong number, shared by all the services that look them up
+ *
+ * @author agent
+ *
+ */
+public interface DefinitionCache {
+    /**
+     * @param strongNumber the strong number, e.g. G0025 or H0001a
+     * @return the definition, or null if there isn't one
+     */
+    EntityDoc get(String strongNumber);
+
+    /**
+     * Looks up all the strong numbers that aren't in the cache at once
+     *
+     * @param strongNumbers the strong numbers
+     * @return the definitions keyed by strong number. Strong numbers without a definition are left out.
+     */
+    Map<String, EntityDoc> getAll(Collection<String> strongNumbers);
+}
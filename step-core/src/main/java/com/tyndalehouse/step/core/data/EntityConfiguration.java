@@ -66,10 +66,13 @@ import com.tyndalehouse.step.core.utils.IOUtils;
 public class EntityConfiguration {
     private static final String UNABLE_TO_PARSE_CONFIGURATION_FILE = "Unable to parse configuration file";
     private static final String ENTITY_FIELDS_PREFIX = "entity.fields.";
+    private static final String[] NO_FIELDS = new String[0];
     private final String name;
     private Map<String, FieldConfig> luceneFieldConfiguration;
     private Analyzer analyzerInstance;
     private PostProcessor postProcessorInstance;
+    private String[] offHeapFields;
+    private String[] completionFields;
     private String path;
     private final String entityHome;
     private final Injector injector;
@@ -130,6 +133,12 @@ public class EntityConfiguration {
         }
 
         parseFieldConfigs(properties);
+
+        final String offHeap = properties.getProperty("entity.offHeapFields");
+        this.offHeapFields = isNotBlank(offHeap) ? split(offHeap, ",") : NO_FIELDS;
+
+        final String completions = properties.getProperty("entity.completionFields");
+        this.completionFields = isNotBlank(completions) ? split(completions, ",") : NO_FIELDS;
     }
 
     /**
@@ -243,6 +252,21 @@ public class EntityConfiguration {
         return this.analyzerInstance;
     }
 
+    /**
+     * @return the stored fields that are read often enough to be kept outside of the heap, when indexes are
+     *         memory mapped
+     */
+    public String[] getOffHeapFields() {
+        return this.offHeapFields;
+    }
+
+    /**
+     * @return the fields whose terms are held in memory, to complete what the user is typing
+     */
+    public String[] getCompletionFields() {
+        return this.completionFields;
+    }
+
     /**
      * @return the postProcessorInstance
      */
@@ -1,31 +1,59 @@
 package com.tyndalehouse.step.core.data;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.document.Fieldable;
-import org.codehaus.jackson.annotate.JsonAnyGetter;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.map.JsonSerializable;
+import org.codehaus.jackson.map.SerializerProvider;
 
 /**
- * 
+ * A single entity. Only the fields in the projection (if any) are read from the index, and fields held in the
+ * off-heap store are read from there instead. The rest of the document is read up front, so that the entity can
+ * still be read once the index it came from has been refreshed and closed.
+ *
  * @author chrisburrell
- * 
+ *
  */
-public class EntityDoc implements Serializable {
+public class EntityDoc implements Serializable, JsonSerializable {
     private static final long serialVersionUID = -8509022678959062751L;
+    private static final int FIELD_OVERHEAD = 64;
     private final Document doc;
+    private final transient StoredFieldStore store;
+    private final transient FieldSelector fields;
+    private final int docId;
 
     /**
      * If not otherwised specified, then we get all the fields
-     * 
+     *
      * @param doc the underlying document
      */
     public EntityDoc(final Document doc) {
+        this(null, -1, doc, null);
+    }
+
+    /**
+     * Reads fields from the off-heap store where possible, and the rest from a document that was read without them
+     *
+     * @param store the store holding some of the fields, or null
+     * @param docId the lucene document id
+     * @param doc the fields that are not held in the store
+     * @param fields the fields that were read, or null for all of them
+     */
+    public EntityDoc(final StoredFieldStore store, final int docId, final Document doc, final FieldSelector fields) {
+        this.store = store;
+        this.docId = docId;
         this.doc = doc;
+        this.fields = fields;
     }
 
     /**
@@ -34,15 +62,65 @@ public class EntityDoc implements Serializable {
      */
     @JsonIgnore
     public String get(final String fieldName) {
+        if (this.store != null && this.store.hasField(fieldName)) {
+            return isSelected(fieldName) ? this.store.get(this.docId, fieldName) : null;
+        }
         return this.doc.get(fieldName);
     }
 
+    /**
+     * @param fieldName the name of the field
+     * @return true if the field is in the projection
+     */
+    private boolean isSelected(final String fieldName) {
+        return this.fields == null || this.fields.accept(fieldName) != FieldSelectorResult.NO_LOAD;
+    }
+
+    /**
+     * @return the names and values of the fields in the projection that are held in the off-heap store
+     */
+    private Map<String, String> getStoredFields() {
+        if (this.store == null) {
+            return new HashMap<String, String>(0);
+        }
+
+        final Map<String, String> storedFields = new HashMap<String, String>(this.store.getFieldNames().size() * 2);
+        for (final String fieldName : this.store.getFieldNames()) {
+            final String value = get(fieldName);
+            if (value != null) {
+                storedFields.put(fieldName, value);
+            }
+        }
+        return storedFields;
+    }
+
+    /**
+     * Copies the fields held in the off-heap store into the document before the entity is serialized, since the
+     * store itself is not
+     *
+     * @return the entity to serialize
+     */
+    private Object writeReplace() {
+        if (this.store == null) {
+            return this;
+        }
+
+        final Document copy = new Document();
+        for (final Fieldable field : this.doc.getFields()) {
+            copy.add(field);
+        }
+        for (final Map.Entry<String, String> storedField : getStoredFields().entrySet()) {
+            copy.add(new Field(storedField.getKey(), storedField.getValue(), Field.Store.YES, Field.Index.NO));
+        }
+        return new EntityDoc(copy);
+    }
+
     /**
      * Returns all fields as a map
-     * 
+     *
      * @return the map of values
      */
-    @JsonAnyGetter
+    @JsonIgnore
     public Map<String, String> getAllFields() {
         final List<Fieldable> fields = this.doc.getFields();
         final Map<String, String> allFields = new HashMap<String, String>(fields.size());
@@ -50,6 +128,42 @@ public class EntityDoc implements Serializable {
             allFields.put(field.name(), field.stringValue());
 
         }
+        allFields.putAll(getStoredFields());
         return allFields;
     }
+
+    /**
+     * Estimates the memory taken by the entity from the lengths of the fields it holds, without copying them. Fields
+     * held in the off-heap store are not counted.
+     *
+     * @return the approximate number of bytes taken by the fields held on the heap
+     */
+    @JsonIgnore
+    public int getHeapSize() {
+        int size = 0;
+        for (final Fieldable field : this.doc.getFields()) {
+            final String value = field.stringValue();
+            size += FIELD_OVERHEAD + (field.name().length() + (value != null ? value.length() : 0)) * 2;
+        }
+        return size;
+    }
+
+    /**
+     * Writes each field straight out, rather than going through {@link #getAllFields()}
+     *
+     * @param jgen the generator
+     * @param provider the serializer provider
+     * @throws IOException if the json cannot be written
+     */
+    @Override
+    public void serialize(final JsonGenerator jgen, final SerializerProvider provider) throws IOException {
+        jgen.writeStartObject();
+        for (final Fieldable field : this.doc.getFields()) {
+            jgen.writeStringField(field.name(), field.stringValue());
+        }
+        for (final Map.Entry<String, String> storedField : getStoredFields().entrySet()) {
+            jgen.writeStringField(storedField.getKey(), storedField.getValue());
+        }
+        jgen.writeEndObject();
+    }
 }
@@ -6,7 +6,9 @@ import java.util.List;
 import java.util.Set;
 
 import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.queryParser.QueryParser;
 import org.apache.lucene.queryParser.QueryParser.Operator;
 import org.apache.lucene.search.BooleanQuery;
@@ -15,6 +17,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopFieldCollector;
+import org.crosswire.jsword.passage.Key;
 
 /**
  * Interface to read an index
@@ -33,6 +36,12 @@ public interface EntityIndexReader extends Closeable {
      */
     void refresh();
 
+    /**
+     * @return a number that changes each time the index is closed or refreshed, so that anything built from the
+     *         contents of the index can tell that it needs building again
+     */
+    int getGeneration();
+
     /**
      * closes without throwing an exception
      */
@@ -57,6 +66,16 @@ public interface EntityIndexReader extends Closeable {
      */
     EntityDoc[] searchUniqueBySingleField(String fieldName, String... values);
 
+    /**
+     * Finds the entities referring to any of the given verses, without building a query. The field should hold one
+     * OSIS id per term, in the versification of the key.
+     *
+     * @param fieldName the field holding the references
+     * @param key       the verses
+     * @return the entities, in index order
+     */
+    EntityDoc[] searchByReference(String fieldName, Key key);
+
     /**
      * Searches for a particular value across multiple fields
      *
@@ -160,6 +179,15 @@ public interface EntityIndexReader extends Closeable {
      */
     EntityDoc[] search(Query query);
 
+    /**
+     * Searches for all documents given by a query, only reading the fields that are asked for
+     *
+     * @param query  the query
+     * @param fields the fields to read from each document
+     * @return the list of all docs
+     */
+    EntityDoc[] search(Query query, FieldSelector fields);
+
     /**
      * Searches with a given query
      *
@@ -171,6 +199,18 @@ public interface EntityIndexReader extends Closeable {
      */
     EntityDoc[] search(Query query, int max, Sort sortField, Filter filter);
 
+    /**
+     * Searches with a given query, only reading the fields that are asked for
+     *
+     * @param query     the query
+     * @param max       the max number of results
+     * @param sortField the field to sort by
+     * @param filter    the filter to search with
+     * @param fields    the fields to read from each document
+     * @return the entity documents that have been found
+     */
+    EntityDoc[] search(Query query, int max, Sort sortField, Filter filter, FieldSelector fields);
+
     /**
      * Searches with a given query
      *
@@ -290,6 +330,29 @@ public interface EntityIndexReader extends Closeable {
      */
     TermsAndMaxCount findSetOfTermsWithCounts(boolean exact, boolean trackMax, String searchTerm, int maxReturned, String... fieldNames);
 
+    /**
+     * Finds the most popular terms starting with the search term, i.e. those appearing in the most documents. The
+     * total count covers all matching terms.
+     *
+     * @param searchTerm  the search term
+     * @param maxReturned the maximum number of terms to return for each field
+     * @param fieldNames  the fields to look in
+     * @return the terms and the count of matching terms
+     */
+    TermsAndMaxCount findPopularTermsWithCounts(String searchTerm, int maxReturned, String... fieldNames);
+
+    /**
+     * Finds the terms of a field that are spellings of a transliteration allowed by a set of rules, by walking the
+     * rules alongside the terms of the field rather than listing every possible spelling
+     *
+     * @param fieldName the field
+     * @param automaton the transliteration rules
+     * @param word      the transliteration, without any mark-up
+     * @param prefix    true to find the terms starting with one of the spellings
+     * @return the matching terms
+     */
+    Set<String> findTermsAcceptedBy(String fieldName, TransliterationAutomaton automaton, String word, boolean prefix);
+
     /**
      * Give a querySyntax and get results back
      *
@@ -316,6 +379,14 @@ public interface EntityIndexReader extends Closeable {
      */
     EntityDoc[] search(BooleanQuery query, Filter filter, TopFieldCollector collector);
 
+    /**
+     * @param query     the query to be run
+     * @param collector the collector that collects the data
+     * @param filter    the filter to search with
+     * @param fields    the fields to read from each document
+     */
+    EntityDoc[] search(BooleanQuery query, Filter filter, TopFieldCollector collector, FieldSelector fields);
+
     /**
      * Returns a query parser using the right analyzer.
      *
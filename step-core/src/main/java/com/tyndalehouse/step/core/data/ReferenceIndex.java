@@ -0,0 +1,234 @@
+package com.tyndalehouse.step.core.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.NoSuchVerseException;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.VerseFactory;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.Versification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tyndalehouse.step.core.utils.IOUtils;
+
+/**
+ * An in-memory index of the verses each entity refers to, read from a field holding one OSIS id per term. The verses
+ * of each entity are held as runs of consecutive verse ordinals, sorted by their first verse, so that finding the
+ * entities of a passage is a range intersection rather than a query with a clause for each verse.
+ * <p>
+ * Immutable once built, and safe to read from several threads.
+ *
+ * @author agent
+ */
+public final class ReferenceIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceIndex.class);
+    private final Versification versification;
+    private final int maxDoc;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    private final int[] docIds;
+
+    /**
+     * @param versification the versification of the ordinals
+     * @param maxDoc        the number of documents in the index
+     * @param starts        the first ordinal of each run, in ascending order
+     * @param ends          the last ordinal of each run
+     * @param docIds        the document each run belongs to
+     */
+    private ReferenceIndex(final Versification versification, final int maxDoc, final int[] starts,
+            final int[] ends, final int[] docIds) {
+        this.versification = versification;
+        this.maxDoc = maxDoc;
+        this.starts = starts;
+        this.ends = ends;
+        this.docIds = docIds;
+
+        // the furthest any run reaches, up to and including each run
+        this.maxEnds = new int[ends.length];
+        int maxEnd = -1;
+        for (int ii = 0; ii < ends.length; ii++) {
+            maxEnd = Math.max(maxEnd, ends[ii]);
+            this.maxEnds[ii] = maxEnd;
+        }
+    }
+
+    /**
+     * Reads the verses of every document
+     *
+     * @param reader        the reader to the index
+     * @param fieldName     the field holding the OSIS ids
+     * @param versification the versification the OSIS ids were written in
+     * @return the reference index
+     * @throws IOException if the index cannot be read
+     */
+    public static ReferenceIndex build(final IndexReader reader, final String fieldName,
+            final Versification versification) throws IOException {
+        final int maxDoc = reader.maxDoc();
+        final int[][] ordinalsByDoc = new int[maxDoc][];
+        final int[] sizes = new int[maxDoc];
+
+        final TermEnum termEnum = reader.terms(new Term(fieldName, ""));
+        final TermDocs termDocs = reader.termDocs();
+        try {
+            Term term = termEnum.term();
+            while (term != null && fieldName.equals(term.field())) {
+                final int ordinal = getOrdinal(versification, term.text());
+                if (ordinal != -1) {
+                    termDocs.seek(termEnum);
+                    while (termDocs.next()) {
+                        final int doc = termDocs.doc();
+                        if (ordinalsByDoc[doc] == null) {
+                            ordinalsByDoc[doc] = new int[4];
+                        } else if (sizes[doc] == ordinalsByDoc[doc].length) {
+                            ordinalsByDoc[doc] = Arrays.copyOf(ordinalsByDoc[doc], sizes[doc] << 1);
+                        }
+                        ordinalsByDoc[doc][sizes[doc]++] = ordinal;
+                    }
+                }
+                term = termEnum.next() ? termEnum.term() : null;
+            }
+        } finally {
+            IOUtils.closeQuietly(termDocs);
+            IOUtils.closeQuietly(termEnum);
+        }
+
+        // collapse the verses of each document into runs, each run keyed by its start and position
+        long[] runs = new long[1024];
+        int[] runEnds = new int[1024];
+        int[] runDocs = new int[1024];
+        int numRuns = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (sizes[doc] == 0) {
+                continue;
+            }
+
+            final int[] ordinals = ordinalsByDoc[doc];
+            Arrays.sort(ordinals, 0, sizes[doc]);
+            int ii = 0;
+            while (ii < sizes[doc]) {
+                final int start = ordinals[ii];
+                int end = start;
+                while (++ii < sizes[doc] && ordinals[ii] <= end + 1) {
+                    end = ordinals[ii];
+                }
+
+                if (numRuns == runs.length) {
+                    runs = Arrays.copyOf(runs, numRuns << 1);
+                    runEnds = Arrays.copyOf(runEnds, numRuns << 1);
+                    runDocs = Arrays.copyOf(runDocs, numRuns << 1);
+                }
+                runs[numRuns] = ((long) start << 32) | numRuns;
+                runEnds[numRuns] = end;
+                runDocs[numRuns] = doc;
+                numRuns++;
+            }
+        }
+
+        Arrays.sort(runs, 0, numRuns);
+        final int[] starts = new int[numRuns];
+        final int[] ends = new int[numRuns];
+        final int[] docIds = new int[numRuns];
+        for (int ii = 0; ii < numRuns; ii++) {
+            final int run = (int) runs[ii];
+            starts[ii] = (int) (runs[ii] >>> 32);
+            ends[ii] = runEnds[run];
+            docIds[ii] = runDocs[run];
+        }
+
+        LOGGER.debug("Read [{}] runs of verses from [{}]", numRuns, fieldName);
+        return new ReferenceIndex(versification, maxDoc, starts, ends, docIds);
+    }
+
+    /**
+     * @param versification the versification
+     * @param osisId        the OSIS id of a verse
+     * @return the ordinal of the verse, or -1 if it isn't a verse of the versification
+     */
+    private static int getOrdinal(final Versification versification, final String osisId) {
+        try {
+            return VerseFactory.fromString(versification, osisId).getOrdinal();
+        } catch (final NoSuchVerseException e) {
+            LOGGER.trace("Ignoring [{}] as it is not a verse", osisId);
+            return -1;
+        }
+    }
+
+    /**
+     * @return the versification of the verses held here
+     */
+    public Versification getVersification() {
+        return this.versification;
+    }
+
+    /**
+     * Finds all the documents that refer to at least one of the verses given. The verses are expected to be in the
+     * versification of this index.
+     *
+     * @param key the verses
+     * @return the document ids, in ascending order
+     */
+    public int[] getDocIds(final Key key) {
+        final BitSet matches = new BitSet(this.maxDoc);
+        final Passage passage = KeyUtil.getPassage(key);
+        final Iterator<VerseRange> ranges = passage.rangeIterator(RestrictionType.NONE);
+        while (ranges.hasNext()) {
+            final VerseRange range = ranges.next();
+            collect(range.getStart().getOrdinal(), range.getEnd().getOrdinal(), matches);
+        }
+
+        final int[] results = new int[matches.cardinality()];
+        int ii = 0;
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            results[ii++] = doc;
+        }
+        return results;
+    }
+
+    /**
+     * Marks the documents with a run overlapping the given verses
+     *
+     * @param start   the first ordinal
+     * @param end     the last ordinal
+     * @param matches the documents found so far
+     */
+    private void collect(final int start, final int end, final BitSet matches) {
+        // runs starting after the end can't overlap, and earlier runs can be skipped once none reach the start
+        int ii = upperBound(end) - 1;
+        while (ii >= 0 && this.maxEnds[ii] >= start) {
+            if (this.ends[ii] >= start) {
+                matches.set(this.docIds[ii]);
+            }
+            ii--;
+        }
+    }
+
+    /**
+     * @param ordinal the ordinal
+     * @return the index of the first run starting after the ordinal
+     */
+    private int upperBound(final int ordinal) {
+        int low = 0;
+        int high = this.starts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (this.starts[middle] <= ordinal) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,154 @@
+package com.tyndalehouse.step.core.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * Holds a copy of a few stored fields of an index outside of the heap, one column per field. Documents that
+ * only need those fields can then be read without Lucene decoding the whole stored document.
+ * <p>
+ * Each column is a direct buffer of UTF-8 bytes, alongside a direct buffer holding the start and length of
+ * each document's value. The store is immutable once built and safe to read from several threads.
+ *
+ * @author agent
+ */
+public final class StoredFieldStore {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int NO_VALUE = -1;
+    private final Map<String, Column> columns;
+    private final int maxDoc;
+    private final long sizeInBytes;
+
+    /**
+     * @param columns the columns, keyed by field name
+     * @param maxDoc  the number of documents covered by the store
+     */
+    private StoredFieldStore(final Map<String, Column> columns, final int maxDoc) {
+        this.columns = columns;
+        this.maxDoc = maxDoc;
+
+        long size = 0;
+        for (final Column c : columns.values()) {
+            size += c.values.capacity() + c.positions.capacity() * 4L;
+        }
+        this.sizeInBytes = size;
+    }
+
+    /**
+     * Copies the given stored fields of every document in the index
+     *
+     * @param reader     the reader to the index
+     * @param fieldNames the fields to copy
+     * @return the store
+     * @throws IOException if the index cannot be read
+     */
+    public static StoredFieldStore build(final IndexReader reader, final String... fieldNames) throws IOException {
+        final int maxDoc = reader.maxDoc();
+        final MapFieldSelector selector = new MapFieldSelector(fieldNames);
+
+        final ByteArrayOutputStream[] values = new ByteArrayOutputStream[fieldNames.length];
+        final IntBuffer[] positions = new IntBuffer[fieldNames.length];
+        for (int ii = 0; ii < fieldNames.length; ii++) {
+            values[ii] = new ByteArrayOutputStream(maxDoc * 16);
+            positions[ii] = ByteBuffer.allocateDirect(maxDoc * 2 * 4).asIntBuffer();
+        }
+
+        for (int doc = 0; doc < maxDoc; doc++) {
+            final Document document = reader.isDeleted(doc) ? null : reader.document(doc, selector);
+            for (int ii = 0; ii < fieldNames.length; ii++) {
+                final String value = document == null ? null : document.get(fieldNames[ii]);
+                if (value == null) {
+                    positions[ii].put(NO_VALUE).put(NO_VALUE);
+                } else {
+                    final byte[] bytes = value.getBytes(UTF8);
+                    positions[ii].put(values[ii].size()).put(bytes.length);
+                    values[ii].write(bytes, 0, bytes.length);
+                }
+            }
+        }
+
+        final Map<String, Column> columns = new HashMap<String, Column>(fieldNames.length * 2);
+        for (int ii = 0; ii < fieldNames.length; ii++) {
+            final byte[] bytes = values[ii].toByteArray();
+            final ByteBuffer offHeap = ByteBuffer.allocateDirect(bytes.length);
+            offHeap.put(bytes);
+            offHeap.flip();
+            positions[ii].flip();
+            columns.put(fieldNames[ii], new Column(offHeap, positions[ii]));
+        }
+        return new StoredFieldStore(columns, maxDoc);
+    }
+
+    /**
+     * @param fieldName the name of the field
+     * @return true if the field is held in this store
+     */
+    public boolean hasField(final String fieldName) {
+        return this.columns.containsKey(fieldName);
+    }
+
+    /**
+     * @return the names of all fields held in this store
+     */
+    public Set<String> getFieldNames() {
+        return Collections.unmodifiableSet(this.columns.keySet());
+    }
+
+    /**
+     * @param docId     the lucene document id
+     * @param fieldName the name of the field, which must be held in this store
+     * @return the value of the field, or null if the document does not have one
+     */
+    public String get(final int docId, final String fieldName) {
+        final Column column = this.columns.get(fieldName);
+        if (column == null || docId < 0 || docId >= this.maxDoc) {
+            return null;
+        }
+
+        final int start = column.positions.get(docId * 2);
+        if (start == NO_VALUE) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[column.positions.get(docId * 2 + 1)];
+        final ByteBuffer values = column.values.duplicate();
+        values.position(start);
+        values.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * @return the number of bytes held outside of the heap
+     */
+    public long getSizeInBytes() {
+        return this.sizeInBytes;
+    }
+
+    /**
+     * The values of one field, and where each document's value starts
+     */
+    private static final class Column {
+        private final ByteBuffer values;
+        private final IntBuffer positions;
+
+        /**
+         * @param values    the UTF-8 bytes of all the values
+         * @param positions the start and length of each document's value
+         */
+        private Column(final ByteBuffer values, final IntBuffer positions) {
+            this.values = values;
+            this.positions = positions;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.tyndalehouse.step.core.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+
+import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
+import com.tyndalehouse.step.core.utils.IOUtils;
+import com.tyndalehouse.step.core.utils.LuceneUtils;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
+
+/**
+ * An in-memory copy of the terms of a few fields, used to complete what the user is typing without enumerating
+ * the terms of the index on every keystroke. Each field keeps its terms in index order, alongside the number of
+ * documents each one appears in, which serves as its popularity.
+ * <p>
+ * Immutable once built, and safe to read from several threads.
+ *
+ * @author agent
+ */
+public final class TermCompletions {
+    private final Map<String, FieldTerms> fields;
+
+    /**
+     * @param fields the terms of each field
+     */
+    private TermCompletions(final Map<String, FieldTerms> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Reads all the terms of the given fields
+     *
+     * @param reader     the reader to the index
+     * @param fieldNames the fields to read
+     * @return the completions
+     * @throws IOException if the index cannot be read
+     */
+    public static TermCompletions build(final IndexReader reader, final String... fieldNames) throws IOException {
+        final Map<String, FieldTerms> fields = new HashMap<String, FieldTerms>(fieldNames.length * 2);
+        for (final String fieldName : fieldNames) {
+            final List<String> terms = new ArrayList<String>(1024);
+            int[] weights = new int[1024];
+
+            final TermEnum termEnum = reader.terms(new Term(fieldName, ""));
+            try {
+                // terms() is already positioned on the first term of the field, if there is one
+                Term term = termEnum.term();
+                while (term != null && fieldName.equals(term.field())) {
+                    if (terms.size() == weights.length) {
+                        weights = Arrays.copyOf(weights, weights.length << 1);
+                    }
+                    weights[terms.size()] = termEnum.docFreq();
+                    terms.add(term.text());
+                    term = termEnum.next() ? termEnum.term() : null;
+                }
+            } finally {
+                IOUtils.closeQuietly(termEnum);
+            }
+
+            fields.put(fieldName, new FieldTerms(terms.toArray(new String[terms.size()]),
+                    Arrays.copyOf(weights, terms.size())));
+        }
+        return new TermCompletions(fields);
+    }
+
+    /**
+     * @param fieldName the name of the field
+     * @return true if the terms of this field are held here
+     */
+    public boolean hasField(final String fieldName) {
+        return this.fields.containsKey(fieldName);
+    }
+
+    /**
+     * Same as {@link LuceneUtils#getAllTermsPrefixedWith(boolean, boolean,
+     * org.apache.lucene.search.IndexSearcher, String, String, int)}, returning the same terms and counts.
+     *
+     * @param exact      indicates we want 'exact' matches only
+     * @param trackMax   true to count all matching terms, rather than stopping soon after max
+     * @param fieldName  the name of the field, which must be held here
+     * @param searchTerm the search term
+     * @param max        the maximum number of terms to return
+     * @return the terms matching searchTerm as a prefix, in index order
+     */
+    public TermsAndMaxCount getAllTermsPrefixedWith(final boolean exact, final boolean trackMax,
+            final String fieldName, final String searchTerm, final int max) {
+        final FieldTerms field = this.fields.get(fieldName);
+        final String prefix = LuceneUtils.getPrefixText(searchTerm);
+        final int start = prefix == null ? 0 : field.getStart(prefix);
+        final int end = prefix == null ? 0 : exact ? field.getExactEnd(prefix, start) : field.getPrefixEnd(prefix,
+                start);
+        if (start == end) {
+            return LuceneUtils.getBlankTermsAndMaxCount();
+        }
+
+        final Set<String> terms = new HashSet<String>();
+        int count = 0;
+        int ii = start;
+        do {
+            if (count < max) {
+                //when inexact, don't include exact terms
+                final String termValue = field.terms[ii];
+                if (!exact && termValue.equalsIgnoreCase(searchTerm)) {
+                    count--;
+                } else {
+                    terms.add(termValue);
+                }
+            }
+            count++;
+            ii++;
+        } while (ii < end && (count < max || trackMax || count < LuceneUtils.MAX_TRACK));
+
+        final TermsAndMaxCount termsAndMaxCount = new TermsAndMaxCount();
+        termsAndMaxCount.setTotalCount(count);
+        termsAndMaxCount.setTerms(terms);
+        return termsAndMaxCount;
+    }
+
+    /**
+     * Finds the most popular terms starting with what the user has typed so far. The term equal to the search
+     * term is left out, as it is not a completion.
+     *
+     * @param fieldName  the name of the field, which must be held here
+     * @param searchTerm the search term
+     * @param max        the maximum number of terms to return
+     * @return the most popular terms, and the total number of completions
+     */
+    public TermsAndMaxCount getPopularTermsPrefixedWith(final String fieldName, final String searchTerm,
+            final int max) {
+        final FieldTerms field = this.fields.get(fieldName);
+        final String prefix = LuceneUtils.getPrefixText(searchTerm);
+        if (prefix == null) {
+            return LuceneUtils.getBlankTermsAndMaxCount();
+        }
+
+        final int start = field.getStart(prefix);
+        final int end = field.getPrefixEnd(prefix, start);
+
+        // keep the best 'max' terms, ordered by weight, in a small insertion-sorted array
+        final int[] best = new int[Math.max(0, max)];
+        int found = 0;
+        int count = 0;
+        for (int ii = start; ii < end; ii++) {
+            if (field.terms[ii].equalsIgnoreCase(searchTerm)) {
+                continue;
+            }
+            count++;
+
+            if (best.length == 0) {
+                continue;
+            }
+            if (found == best.length && field.weights[ii] <= field.weights[best[found - 1]]) {
+                continue;
+            }
+
+            int position = found < best.length ? found++ : found - 1;
+            while (position > 0 && field.weights[best[position - 1]] < field.weights[ii]) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = ii;
+        }
+
+        final Set<String> terms = new HashSet<String>(found * 2);
+        for (int ii = 0; ii < found; ii++) {
+            terms.add(field.terms[best[ii]]);
+        }
+
+        final TermsAndMaxCount termsAndMaxCount = new TermsAndMaxCount();
+        termsAndMaxCount.setTotalCount(count);
+        termsAndMaxCount.setTerms(terms);
+        return termsAndMaxCount;
+    }
+
+    /**
+     * @param fieldName the name of the field, which must be held here
+     * @param automaton the transliteration rules
+     * @param word      the transliteration, without any mark-up
+     * @param prefix    true to find the terms starting with a spelling of the word
+     * @return the terms that are a spelling of the word allowed by the rules
+     */
+    public Set<String> getTermsAcceptedBy(final String fieldName, final TransliterationAutomaton automaton,
+            final String word, final boolean prefix) {
+        return automaton.intersect(word, this.fields.get(fieldName).terms, prefix);
+    }
+
+    /**
+     * The terms of a single field, in index order, and how many documents each one appears in
+     */
+    private static final class FieldTerms {
+        private final String[] terms;
+        private final int[] weights;
+
+        /**
+         * @param terms   the terms, in index order
+         * @param weights the document frequency of each term
+         */
+        private FieldTerms(final String[] terms, final int[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        /**
+         * @param prefix the prefix
+         * @return the index of the first term that is not before the prefix
+         */
+        private int getStart(final String prefix) {
+            final int position = Arrays.binarySearch(this.terms, prefix);
+            return position < 0 ? -position - 1 : position;
+        }
+
+        /**
+         * @param prefix the prefix
+         * @param start  the index of the first term that is not before the prefix
+         * @return the index after the last term starting with the prefix
+         */
+        private int getPrefixEnd(final String prefix, final int start) {
+            int low = start;
+            int high = this.terms.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.terms[middle].startsWith(prefix)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @param term  the term
+         * @param start the index of the first term that is not before the term
+         * @return the index after the term, if present, or start otherwise
+         */
+        private int getExactEnd(final String term, final int start) {
+            return start < this.terms.length && this.terms[start].equals(term) ? start + 1 : start;
+        }
+    }
+}
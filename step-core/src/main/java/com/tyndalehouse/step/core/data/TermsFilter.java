@@ -0,0 +1,60 @@
+package com.tyndalehouse.step.core.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * Accepts the documents holding any one of a set of terms in a field. Unlike a boolean query with one clause per
+ * term, there is no limit on the number of terms, and no scoring.
+ *
+ * @author agent
+ *
+ */
+public class TermsFilter extends Filter {
+    private static final long serialVersionUID = 2937462057613748231L;
+    private final String fieldName;
+    private final String[] terms;
+
+    /**
+     * @param fieldName the name of the field
+     * @param terms the terms to look for
+     */
+    public TermsFilter(final String fieldName, final Collection<String> terms) {
+        this.fieldName = fieldName;
+        this.terms = terms.toArray(new String[terms.size()]);
+
+        // looking the terms up in order keeps the term dictionary moving forwards
+        Arrays.sort(this.terms);
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(final IndexReader reader) throws IOException {
+        final OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+        final Term base = new Term(this.fieldName, "");
+        final TermDocs termDocs = reader.termDocs();
+        try {
+            for (final String term : this.terms) {
+                termDocs.seek(base.createTerm(term));
+                while (termDocs.next()) {
+                    bits.fastSet(termDocs.doc());
+                }
+            }
+        } finally {
+            termDocs.close();
+        }
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        return this.fieldName + ':' + Arrays.toString(this.terms);
+    }
+}
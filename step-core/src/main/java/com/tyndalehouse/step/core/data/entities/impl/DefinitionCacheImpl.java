@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.data.entities.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.lucene.document.Document;
+
+import com.tyndalehouse.step.core.data.DefinitionCache;
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.EntityManager;
+import com.tyndalehouse.step.core.utils.StripedLruCache;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+
+/**
+ * A bounded cache of definitions, keyed by strong number, held in a {@link StripedLruCache} bounded by the
+ * approximate number of bytes the definitions take. Strong numbers that have no definition are cached too. The
+ * cache is emptied once the definition index has been refreshed.
+ *
+ * @author agent
+ *
+ */
+@Singleton
+public class DefinitionCacheImpl implements DefinitionCache {
+    private static final String STRONG_NUMBER_FIELD = "strongNumber";
+    private static final int MAX_TERMS_PER_QUERY = 512;
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final EntityDoc NO_DEFINITION = new EntityDoc(new Document());
+    private final EntityIndexReader definitions;
+    private final StripedLruCache<String, EntityDoc> cache;
+    private volatile int generation;
+
+    /**
+     * @param manager        the entity manager
+     * @param maxBytes       the approximate number of bytes the cache may take
+     * @param numberOfStripes the number of stripes, each with its own lock
+     */
+    @Inject
+    public DefinitionCacheImpl(final EntityManager manager,
+                               @Named("app.cache.definitions.maxBytes") final long maxBytes,
+                               @Named("app.cache.definitions.stripes") final int numberOfStripes) {
+        this.definitions = manager.getReader("definition");
+        this.generation = this.definitions.getGeneration();
+        this.cache = new StripedLruCache<String, EntityDoc>(DefinitionCacheImpl.class, maxBytes, numberOfStripes);
+
+        Metrics.newGauge(DefinitionCacheImpl.class, "size", new Gauge<Integer>() {
+            @Override
+            public Integer value() {
+                return getSize();
+            }
+        });
+        Metrics.newGauge(DefinitionCacheImpl.class, "bytes", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return getWeight();
+            }
+        });
+    }
+
+    @Override
+    public EntityDoc get(final String strongNumber) {
+        final int lookupGeneration = checkGeneration();
+        final EntityDoc cached = this.cache.get(strongNumber);
+        if (cached != null) {
+            return cached == NO_DEFINITION ? null : cached;
+        }
+
+        final EntityDoc[] docs = this.definitions.searchExactTermBySingleField(STRONG_NUMBER_FIELD, 1, strongNumber);
+        final EntityDoc definition = docs.length > 0 ? docs[0] : null;
+        put(lookupGeneration, strongNumber, definition);
+        return definition;
+    }
+
+    @Override
+    public Map<String, EntityDoc> getAll(final Collection<String> strongNumbers) {
+        final int lookupGeneration = checkGeneration();
+        final Map<String, EntityDoc> found = new HashMap<String, EntityDoc>(strongNumbers.size() * 2);
+        final List<String> missing = new ArrayList<String>();
+        for (final String strongNumber : strongNumbers) {
+            final EntityDoc cached = this.cache.get(strongNumber);
+            if (cached == null) {
+                missing.add(strongNumber);
+            } else {
+                found.put(strongNumber, cached);
+            }
+        }
+
+        final String[] toLookup = missing.toArray(new String[missing.size()]);
+        for (int start = 0; start < toLookup.length; start += MAX_TERMS_PER_QUERY) {
+            final String[] batch = Arrays.copyOfRange(toLookup, start,
+                    Math.min(toLookup.length, start + MAX_TERMS_PER_QUERY));
+            for (final EntityDoc d : this.definitions.searchUniqueBySingleField(STRONG_NUMBER_FIELD, batch)) {
+                found.put(d.get(STRONG_NUMBER_FIELD), d);
+            }
+
+            for (final String strongNumber : batch) {
+                put(lookupGeneration, strongNumber, found.get(strongNumber));
+            }
+        }
+
+        // keep the order in which the strong numbers were asked for
+        final Map<String, EntityDoc> results = new LinkedHashMap<String, EntityDoc>(found.size() * 2);
+        for (final String strongNumber : strongNumbers) {
+            final EntityDoc definition = found.get(strongNumber);
+            if (definition != null && definition != NO_DEFINITION) {
+                results.put(strongNumber, definition);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of strong numbers held in the cache
+     */
+    public int getSize() {
+        return this.cache.getSize();
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the cache
+     */
+    public long getWeight() {
+        return this.cache.getWeight();
+    }
+
+    /**
+     * Empties the cache if the definition index has been refreshed since the definitions were cached
+     *
+     * @return the generation of the definition index that is about to be read
+     */
+    private int checkGeneration() {
+        final int current = this.definitions.getGeneration();
+        if (current > this.generation) {
+            synchronized (this) {
+                if (current > this.generation) {
+                    this.cache.clear();
+                    this.generation = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Caches the definition, unless the index has been refreshed since it was looked up
+     *
+     * @param lookupGeneration the generation of the definition index it was looked up in
+     * @param strongNumber     the strong number
+     * @param definition       the definition, or null if there isn't one
+     */
+    private void put(final int lookupGeneration, final String strongNumber, final EntityDoc definition) {
+        if (lookupGeneration != this.generation) {
+            return;
+        }
+
+        final EntityDoc value = definition != null ? definition : NO_DEFINITION;
+        this.cache.put(strongNumber, value, ENTRY_OVERHEAD + strongNumber.length() * 2 + value.getHeapSize());
+    }
+}
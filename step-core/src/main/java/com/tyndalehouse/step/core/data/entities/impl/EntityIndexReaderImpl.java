@@ -10,12 +10,17 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
 import com.tyndalehouse.step.core.utils.LuceneUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.MultiFieldQueryParser;
 import org.apache.lucene.queryParser.ParseException;
@@ -26,6 +31,9 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.MMapDirectory;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.versification.Versification;
 import org.slf4j.Logger;
 
 import com.tyndalehouse.step.core.data.AllResultsCollector;
@@ -33,8 +41,13 @@ import com.tyndalehouse.step.core.data.AnalyzedPrefixSearchQueryParser;
 import com.tyndalehouse.step.core.data.EntityConfiguration;
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.ReferenceIndex;
+import com.tyndalehouse.step.core.data.StoredFieldStore;
+import com.tyndalehouse.step.core.data.TermCompletions;
 import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.utils.IOUtils;
+import com.tyndalehouse.step.core.utils.RequestTrace;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
 
 /**
  * Reads an entity
@@ -45,6 +58,11 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
     private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(EntityIndexReaderImpl.class);
     private IndexSearcher searcher;
     private Directory directory;
+    // replaced and cleared by a refresh, so each read takes a single copy of them
+    private volatile StoredFieldStore fieldStore;
+    private volatile TermCompletions completions;
+    private final ConcurrentMap<String, ReferenceIndex> referenceIndexes = new ConcurrentHashMap<String, ReferenceIndex>();
+    private final AtomicInteger generation = new AtomicInteger();
     private final EntityConfiguration config;
     private boolean memoryMapped;
 
@@ -82,6 +100,8 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
             openDirectory(this.config, this.memoryMapped);
             if (this.directory != null) {
                 this.searcher = new IndexSearcher(this.directory, true);
+                openFieldStore();
+                openCompletions();
             }
         } catch (final IOException e) {
             LOGGER.warn("Index not readable - it may not yet have been created.");
@@ -89,16 +109,54 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
         }
     }
 
+    /**
+     * Copies the hot stored fields outside of the heap, if the index is memory mapped and the entity asks for it
+     *
+     * @throws IOException if the index cannot be read
+     */
+    private void openFieldStore() throws IOException {
+        final String[] offHeapFields = this.config.getOffHeapFields();
+        if (!this.memoryMapped || offHeapFields.length == 0) {
+            return;
+        }
+
+        final StoredFieldStore store = StoredFieldStore.build(this.searcher.getIndexReader(), offHeapFields);
+        LOGGER.debug("Stored [{}] bytes outside of the heap for [{}]", store.getSizeInBytes(),
+                this.config.getName());
+        this.fieldStore = store;
+    }
+
+    /**
+     * Reads the terms used for completing user input into memory, if the entity asks for it
+     *
+     * @throws IOException if the index cannot be read
+     */
+    private void openCompletions() throws IOException {
+        final String[] completionFields = this.config.getCompletionFields();
+        if (completionFields.length != 0) {
+            this.completions = TermCompletions.build(this.searcher.getIndexReader(), completionFields);
+        }
+    }
+
     @Override
     public void refresh() {
         close();
         initialise();
     }
 
+    @Override
+    public int getGeneration() {
+        return this.generation.get();
+    }
+
     @Override
     public void close() {
+        this.generation.incrementAndGet();
         IOUtils.closeQuietly(this.searcher);
         IOUtils.closeQuietly(this.directory);
+        this.fieldStore = null;
+        this.completions = null;
+        this.referenceIndexes.clear();
     }
 
     /**
@@ -116,10 +174,13 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
             }
 
             if (memoryMapDirectory) {
-                this.directory = MMapDirectory.open(path);
+                // MMapDirectory.open is inherited from FSDirectory and picks the platform default instead.
+                // Unmapping is left off: a refresh closes the old directory while a search that started before
+                // it may still be reading, so the old mappings are released by the GC once nothing refers to them.
+                this.directory = new MMapDirectory(path);
+            } else {
+                this.directory = FSDirectory.open(path);
             }
-
-            this.directory = FSDirectory.open(path);
         } catch (final IOException e) {
             throw new StepInternalException("Unable to read directory", e);
         }
@@ -189,7 +250,8 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
                               final Sort sort, final boolean analyzePrefix, final String queryRemainder,
                               final Integer maxResults, final boolean useOrOperatorBetweenValues) {
         // CHECKSTYLE:ON
-        final AllResultsCollector collector = new AllResultsCollector();
+        final AllResultsCollector collector = new AllResultsCollector(
+                maxResults == null ? Integer.MAX_VALUE : maxResults);
         Query parsed = null;
         QueryParser parser;
         if (analyzePrefix) {
@@ -215,13 +277,19 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
             LOGGER.debug("Search query is [{}]", parsed);
 
             if (sort != null) {
-                final TopFieldDocs search = this.searcher.search(parsed, filter,
-                        maxResults == null ? Integer.MAX_VALUE : maxResults, sort);
+                final TopFieldDocs search;
+                final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.ENTITIES);
+                try {
+                    search = this.searcher.search(parsed, filter,
+                            maxResults == null ? Integer.MAX_VALUE : maxResults, sort);
+                } finally {
+                    span.end();
+                }
 
                 return extractDocIds(search);
 
             } else {
-                this.searcher.search(parsed, filter, collector);
+                collect(parsed, filter, collector);
                 return extractDocIds(collector);
             }
         } catch (final ParseException e) {
@@ -232,6 +300,44 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
         }
     }
 
+    @Override
+    public EntityDoc[] searchByReference(final String fieldName, final Key key) {
+        final int[] docIds = getReferenceIndex(fieldName, KeyUtil.getPassage(key).getVersification()).getDocIds(key);
+        final EntityDoc[] docs = new EntityDoc[docIds.length];
+        for (int ii = 0; ii < docIds.length; ii++) {
+            docs[ii] = getEntityDoc(docIds[ii], null);
+        }
+        return docs;
+    }
+
+    /**
+     * Reads the references of a field into memory the first time they are asked for in a versification
+     *
+     * @param fieldName     the field holding the references
+     * @param versification the versification of the references
+     * @return the reference index
+     */
+    private ReferenceIndex getReferenceIndex(final String fieldName, final Versification versification) {
+        final String indexKey = fieldName + '/' + versification.getName();
+        ReferenceIndex index = this.referenceIndexes.get(indexKey);
+        if (index == null) {
+            final int builtFrom = this.generation.get();
+            try {
+                index = ReferenceIndex.build(this.searcher.getIndexReader(), fieldName, versification);
+            } catch (final IOException e) {
+                throw new StepInternalException("Unable to read references of " + fieldName, e);
+            }
+            final ReferenceIndex existing = this.referenceIndexes.putIfAbsent(indexKey, index);
+            if (existing != null) {
+                index = existing;
+            } else if (this.generation.get() != builtFrom) {
+                // the index was refreshed while we were reading it, so the doc ids may belong to the old reader
+                this.referenceIndexes.remove(indexKey, index);
+            }
+        }
+        return index;
+    }
+
     @Override
     public Set<String> findSetOfTerms(final boolean exact, String searchTerm, int maxReturned, final String... fieldNames) {
         return findSetOfTermsWithCounts(exact, false, searchTerm, maxReturned, fieldNames).getTerms();
@@ -239,6 +345,40 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
 
     @Override
     public TermsAndMaxCount findSetOfTermsWithCounts(final boolean exact, final boolean trackMax, String searchTerm, int maxReturned, final String... fieldNames) {
+        return findTermsWithCounts(exact, trackMax, false, searchTerm, maxReturned, fieldNames);
+    }
+
+    @Override
+    public TermsAndMaxCount findPopularTermsWithCounts(final String searchTerm, final int maxReturned, final String... fieldNames) {
+        return findTermsWithCounts(false, true, true, searchTerm, maxReturned, fieldNames);
+    }
+
+    @Override
+    public Set<String> findTermsAcceptedBy(final String fieldName, final TransliterationAutomaton automaton,
+                                           final String word, final boolean prefix) {
+        try {
+            final TermCompletions loaded = this.completions;
+            final TermCompletions terms = loaded != null && loaded.hasField(fieldName)
+                    ? loaded : TermCompletions.build(this.searcher.getIndexReader(), fieldName);
+            return terms.getTermsAcceptedBy(fieldName, automaton, word, prefix);
+        } catch (final IOException e) {
+            throw new StepInternalException("Unable to read the terms of " + fieldName, e);
+        }
+    }
+
+    /**
+     * Finds the terms starting with the search term, across several fields
+     *
+     * @param exact       true to only find the search term itself
+     * @param trackMax    true to count all matching terms
+     * @param popular     true to return the most popular terms, rather than the first ones in index order
+     * @param searchTerm  the search term
+     * @param maxReturned the maximum number of terms to return for each field
+     * @param fieldNames  the fields to look in
+     * @return the terms and the count of matching terms
+     */
+    private TermsAndMaxCount findTermsWithCounts(final boolean exact, final boolean trackMax, final boolean popular,
+                                                 final String searchTerm, final int maxReturned, final String... fieldNames) {
         TermsAndMaxCount hits = new TermsAndMaxCount();
         if (fieldNames.length == 0) {
             hits.setTerms(new HashSet<String>(0));
@@ -246,12 +386,12 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
         }
 
         if (fieldNames.length == 1) {
-            return LuceneUtils.getAllTermsPrefixedWith(exact, trackMax, this.searcher, fieldNames[0], searchTerm, maxReturned);
+            return getTermsPrefixedWith(exact, trackMax, popular, fieldNames[0], searchTerm, maxReturned);
         }
 
         hits.setTerms(new HashSet<String>(32));
         for (int ii = 0; ii < fieldNames.length; ii++) {
-            final TermsAndMaxCount termsByField = LuceneUtils.getAllTermsPrefixedWith(exact, trackMax, this.searcher, fieldNames[ii], searchTerm, maxReturned);
+            final TermsAndMaxCount termsByField = getTermsPrefixedWith(exact, trackMax, popular, fieldNames[ii], searchTerm, maxReturned);
             hits.getTerms().addAll(termsByField.getTerms());
             hits.setTotalCount(hits.getTotalCount() + termsByField.getTotalCount());
         }
@@ -261,6 +401,27 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
         return hits;
     }
 
+    /**
+     * Finds the terms of a single field, from memory if the field's terms were loaded, or from the index otherwise
+     *
+     * @param exact      true to only find the search term itself
+     * @param trackMax   true to count all matching terms
+     * @param popular    true to return the most popular terms
+     * @param fieldName  the field
+     * @param searchTerm the search term
+     * @param max        the maximum number of terms to return
+     * @return the terms and the count of matching terms
+     */
+    private TermsAndMaxCount getTermsPrefixedWith(final boolean exact, final boolean trackMax, final boolean popular,
+                                                  final String fieldName, final String searchTerm, final int max) {
+        final TermCompletions loaded = this.completions;
+        if (loaded != null && loaded.hasField(fieldName)) {
+            return popular ? loaded.getPopularTermsPrefixedWith(fieldName, searchTerm, max)
+                    : loaded.getAllTermsPrefixedWith(exact, trackMax, fieldName, searchTerm, max);
+        }
+        return LuceneUtils.getAllTermsPrefixedWith(exact, trackMax, this.searcher, fieldName, searchTerm, max);
+    }
+
     /**
      * Extracts all the results
      *
@@ -268,17 +429,23 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
      * @return the results
      */
     private EntityDoc[] extractDocIds(final TopDocs results) {
-        try {
-            final ScoreDoc[] scoreDocs = results.scoreDocs;
-            final EntityDoc[] docs = new EntityDoc[scoreDocs.length];
-            for (int ii = 0; ii < scoreDocs.length; ii++) {
-                docs[ii] = new EntityDoc(this.searcher.doc(scoreDocs[ii].doc));
-            }
-            return docs;
-        } catch (final IOException e) {
-            throw new StepInternalException("Unable to extract results", e);
-        }
+        return extractDocIds(results, null);
+    }
 
+    /**
+     * Extracts all the results
+     *
+     * @param results the results that have been collected
+     * @param fields  the fields to read, or null for all of them
+     * @return the results
+     */
+    private EntityDoc[] extractDocIds(final TopDocs results, final FieldSelector fields) {
+        final ScoreDoc[] scoreDocs = results.scoreDocs;
+        final EntityDoc[] docs = new EntityDoc[scoreDocs.length];
+        for (int ii = 0; ii < scoreDocs.length; ii++) {
+            docs[ii] = getEntityDoc(scoreDocs[ii].doc, fields);
+        }
+        return docs;
     }
 
     @Override
@@ -298,16 +465,41 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
 
     @Override
     public EntityDoc[] search(final Query query) {
+        return search(query, (FieldSelector) null);
+    }
+
+    @Override
+    public EntityDoc[] search(final Query query, final FieldSelector fields) {
         final AllResultsCollector collector = new AllResultsCollector();
         try {
             LOGGER.debug("Search query is [{}], with filter [{}]", query);
-            this.searcher.search(query, collector);
-            return extractDocIds(collector);
+            collect(query, null, collector);
+            return extractDocIds(collector, fields);
         } catch (final IOException e) {
             throw new StepInternalException("Unable to search", e);
         }
     }
 
+    /**
+     * Runs the query, stopping early if the collector has all the results it wants
+     *
+     * @param query     the query
+     * @param filter    the filter, or null
+     * @param collector the collector
+     * @throws IOException if the index cannot be read
+     */
+    private void collect(final Query query, final Filter filter, final AllResultsCollector collector)
+            throws IOException {
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.ENTITIES);
+        try {
+            this.searcher.search(query, filter, collector);
+        } catch (final AllResultsCollector.CollectionTerminatedException e) {
+            LOGGER.trace("Stopped collecting after [{}] results", collector.getSize());
+        } finally {
+            span.end();
+        }
+    }
+
     /**
      * Extracts the query results into an entity doc
      *
@@ -315,40 +507,74 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
      * @return all the entity documents
      */
     private EntityDoc[] extractDocIds(final AllResultsCollector collector) {
-        try {
-            final List<Integer> docIds = collector.getDocIds();
-            final EntityDoc[] docs = new EntityDoc[docIds.size()];
-            for (int ii = 0; ii < docIds.size(); ii++) {
-                docs[ii] = new EntityDoc(this.searcher.doc(docIds.get(ii)));
-            }
-            return docs;
-        } catch (final IOException e) {
-            throw new StepInternalException("Unable to extract results from query", e);
+        return extractDocIds(collector, null);
+    }
+
+    /**
+     * Extracts the query results into an entity doc
+     *
+     * @param collector the collector with the results
+     * @param fields    the fields to read, or null for all of them
+     * @return all the entity documents
+     */
+    private EntityDoc[] extractDocIds(final AllResultsCollector collector, final FieldSelector fields) {
+        final EntityDoc[] docs = new EntityDoc[collector.getSize()];
+        for (int ii = 0; ii < docs.length; ii++) {
+            docs[ii] = getEntityDoc(collector.getDocId(ii), fields);
         }
+        return docs;
     }
 
     @Override
     public EntityDoc[] search(final Query query, final int max, final Sort sortField, final Filter filter) {
+        return search(query, max, sortField, filter, null);
+    }
+
+    @Override
+    public EntityDoc[] search(final Query query, final int max, final Sort sortField, final Filter filter,
+                              final FieldSelector fields) {
         LOGGER.debug("Search query is [{}]", query);
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.ENTITIES);
         try {
             final TopDocs search;
-            if (sortField != null) {
-                search = this.searcher.search(query, filter, max, sortField);
-            } else {
-                search = this.searcher.search(query, filter, max);
-            }
-
-            final EntityDoc[] results = new EntityDoc[search.scoreDocs.length];
-            for (int ii = 0; ii < search.scoreDocs.length; ii++) {
-                results[ii] = new EntityDoc(this.searcher.doc(search.scoreDocs[ii].doc));
+            try {
+                if (sortField != null) {
+                    search = this.searcher.search(query, filter, max, sortField);
+                } else {
+                    search = this.searcher.search(query, filter, max);
+                }
+            } finally {
+                span.end();
             }
 
-            return results;
+            return extractDocIds(search, fields);
         } catch (final IOException e) {
             throw new StepInternalException("Failed to search", e);
         }
     }
 
+    /**
+     * Reads a single result. Only the fields that are wanted are read, and fields held in the off-heap store are
+     * left out of the read. The document is read now rather than when a field is asked for, since a refresh
+     * closes the searcher it came from.
+     *
+     * @param docId  the lucene document id
+     * @param fields the fields to read, or null for all of them
+     * @return the entity document
+     */
+    private EntityDoc getEntityDoc(final int docId, final FieldSelector fields) {
+        final StoredFieldStore store = this.fieldStore;
+        try {
+            if (store == null) {
+                return new EntityDoc(fields == null ? this.searcher.doc(docId) : this.searcher.doc(docId, fields));
+            }
+            return new EntityDoc(store, docId,
+                    this.searcher.doc(docId, new IndexedFieldSelector(store, fields)), fields);
+        } catch (final IOException e) {
+            throw new StepInternalException("Unable to extract results", e);
+        }
+    }
+
     /**
      * Returns a query that matches the provided terms
      *
@@ -456,9 +682,20 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
 
     @Override
     public EntityDoc[] search(BooleanQuery query, Filter filter, TopFieldCollector collector) {
+        return search(query, filter, collector, null);
+    }
+
+    @Override
+    public EntityDoc[] search(final BooleanQuery query, final Filter filter, final TopFieldCollector collector,
+                              final FieldSelector fields) {
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.ENTITIES);
         try {
-            this.searcher.search(query, filter, collector);
-            return extractDocIds(collector.topDocs());
+            try {
+                this.searcher.search(query, filter, collector);
+            } finally {
+                span.end();
+            }
+            return extractDocIds(collector.topDocs(), fields);
         } catch (IOException e) {
             throw new StepInternalException(e.getMessage(), e);
         }
@@ -485,4 +722,30 @@ public class EntityIndexReaderImpl implements EntityIndexReader {
     void setSearcher(final IndexSearcher searcher) {
         this.searcher = searcher;
     }
+
+    /**
+     * Selects the wanted fields that are not held in the off-heap store
+     */
+    private static final class IndexedFieldSelector implements FieldSelector {
+        private static final long serialVersionUID = 6107438356512357460L;
+        private final transient StoredFieldStore fieldStore;
+        private final FieldSelector fields;
+
+        /**
+         * @param fieldStore the store holding some of the fields
+         * @param fields     the fields wanted, or null for all of them
+         */
+        private IndexedFieldSelector(final StoredFieldStore fieldStore, final FieldSelector fields) {
+            this.fieldStore = fieldStore;
+            this.fields = fields;
+        }
+
+        @Override
+        public FieldSelectorResult accept(final String fieldName) {
+            if (this.fieldStore.hasField(fieldName)) {
+                return FieldSelectorResult.NO_LOAD;
+            }
+            return this.fields == null ? FieldSelectorResult.LOAD : this.fields.accept(fieldName);
+        }
+    }
 }
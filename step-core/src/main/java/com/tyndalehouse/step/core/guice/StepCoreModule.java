@@ -34,8 +34,10 @@ package com.tyndalehouse.step.core.guice;
 
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
+import com.tyndalehouse.step.core.data.DefinitionCache;
 import com.tyndalehouse.step.core.data.EntityManager;
 import com.tyndalehouse.step.core.data.create.Loader;
+import com.tyndalehouse.step.core.data.entities.impl.DefinitionCacheImpl;
 import com.tyndalehouse.step.core.data.entities.impl.EntityManagerImpl;
 import com.tyndalehouse.step.core.guice.providers.DefaultInstallersProvider;
 import com.tyndalehouse.step.core.guice.providers.DefaultVersionsProvider;
@@ -62,6 +64,8 @@ import com.tyndalehouse.step.core.service.search.impl.SearchServiceImpl;
 import com.tyndalehouse.step.core.service.search.impl.SubjectEntryServiceImpl;
 import com.tyndalehouse.step.core.service.search.impl.SubjectSearchServiceImpl;
 import com.tyndalehouse.step.core.utils.AbstractStepGuiceModule;
+import com.tyndalehouse.step.core.xsl.XslTemplatesRegistry;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 import org.crosswire.jsword.book.install.Installer;
 import org.crosswire.jsword.book.sword.ConfigValueInterceptor;
 
@@ -93,6 +97,7 @@ public class StepCoreModule extends AbstractStepGuiceModule {
         bind(AppManagerService.class).to(AppManagerImpl.class).asEagerSingleton();
         bind(SearchService.class).to(SearchServiceImpl.class).asEagerSingleton();
         bind(LanguageService.class).to(LanguageServiceImpl.class).asEagerSingleton();
+        bind(XslTemplatesRegistry.class).to(XslTemplatesRegistryImpl.class).asEagerSingleton();
         bind(JSwordPassageService.class).to(JSwordPassageServiceImpl.class).asEagerSingleton();
         bind(JSwordModuleService.class).to(JSwordModuleServiceImpl.class).asEagerSingleton();
         bind(JSwordMetadataService.class).to(JSwordMetadataServiceImpl.class).asEagerSingleton();
@@ -142,5 +147,8 @@ public class StepCoreModule extends AbstractStepGuiceModule {
         }).annotatedWith(Names.named("offlineInstallers")).toProvider(OfflineInstallersProvider.class);
 
         bind(EntityManager.class).to(EntityManagerImpl.class).asEagerSingleton();
+        bind(DefinitionCache.class).to(DefinitionCacheImpl.class);
+        bind(OsisCache.class).to(OsisCacheImpl.class);
+        bind(MappedBookCache.class).to(MappedBookCacheImpl.class);
     }
 }
@@ -8,6 +8,7 @@ import java.util.List;
  */
 public class SuggestionsSummary {
     private List<SingleSuggestionsSummary> suggestionsSummaries;
+    private boolean partial;
 
     public List<SingleSuggestionsSummary> getSuggestionsSummaries() {
         return suggestionsSummaries;
@@ -16,4 +17,18 @@ public class SuggestionsSummary {
     public void setSuggestionsSummaries(final List<SingleSuggestionsSummary> suggestionsSummaries) {
         this.suggestionsSummaries = suggestionsSummaries;
     }
+
+    /**
+     * @return true if some of the providers did not answer in time, and so were left out
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @param partial true if some of the providers did not answer in time
+     */
+    public void setPartial(final boolean partial) {
+        this.partial = partial;
+    }
 }
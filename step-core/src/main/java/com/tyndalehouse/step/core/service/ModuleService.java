@@ -46,7 +46,10 @@ import com.tyndalehouse.step.core.models.BibleVersion;
  */
 public interface ModuleService {
     /**
-     * @return all installed modules
+     * The same list is returned until a module is installed or removed, so that callers may hold on to whatever
+     * they derive from it for as long as they keep getting the same instance back.
+     *
+     * @return all installed modules, sorted for the user's locale, which must not be modified
      */
     List<BibleVersion> getAvailableModules();
 
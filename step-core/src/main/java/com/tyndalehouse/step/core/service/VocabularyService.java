@@ -32,6 +32,9 @@
  ******************************************************************************/
 package com.tyndalehouse.step.core.service;
 
+import java.util.Map;
+import java.util.Set;
+
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.models.VocabResponse;
 
@@ -109,4 +112,14 @@ public interface VocabularyService {
      * @return the lexicon definitions that were found
      */
     EntityDoc[] getLexiconDefinitions(String vocabIdentifiers, String version, String reference);
+
+    /**
+     * returns the lexicon definitions of all the words of a passage, looked up together rather than word by word
+     *
+     * @param version the version that ancors the references
+     * @param vocabIdentifiersByReference the identifiers of the words found at each reference
+     * @return the lexicon definitions that were found, keyed by reference and then by identifiers
+     */
+    Map<String, Map<String, EntityDoc[]>> getLexiconDefinitions(String version,
+                                                              Map<String, Set<String>> vocabIdentifiersByReference);
 }
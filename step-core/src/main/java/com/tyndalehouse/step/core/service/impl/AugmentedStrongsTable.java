@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.exceptions.StepInternalException;
+import com.tyndalehouse.step.core.service.jsword.helpers.VerseBitSet;
+
+/**
+ * An in-memory copy of the augmented strongs index. Each augmented strong number is held alongside the verses it
+ * is used in, as a set of ordinals, and the augmented strongs are grouped by the strong number they augment, so
+ * that resolving the strong numbers of a passage is a few bitset intersections rather than a query.
+ * <p>
+ * Each entity is read in full when the table is built, so that it no longer goes back to the index. The table is
+ * then immutable, and safe to read from several threads. It is built again once the index is refreshed.
+ *
+ * @author agent
+ */
+final class AugmentedStrongsTable {
+    private static final String AUGMENTED_STRONG_FIELD = "augmentedStrong";
+    private final Versification versification;
+    private final Map<String, Entry[]> entriesByStrong;
+    private final Map<String, Entry> entriesByAugmentedStrong;
+    private final int generation;
+
+    /**
+     * @param versification            the versification of the verses
+     * @param entriesByStrong          the augmented strongs of each strong number, keyed by lower case strong
+     * @param entriesByAugmentedStrong each augmented strong, keyed by lower case augmented strong
+     * @param generation               the generation of the index the entries were read from
+     */
+    private AugmentedStrongsTable(final Versification versification, final Map<String, Entry[]> entriesByStrong,
+            final Map<String, Entry> entriesByAugmentedStrong, final int generation) {
+        this.generation = generation;
+        this.versification = versification;
+        this.entriesByStrong = entriesByStrong;
+        this.entriesByAugmentedStrong = entriesByAugmentedStrong;
+    }
+
+    /**
+     * Reads all the augmented strongs. Where an augmented strong appears more than once, the first one is kept.
+     *
+     * @param augmentedStrongs the augmented strongs index
+     * @param versification    the versification the references are in
+     * @param generation       the generation of the index, read before the entries are
+     * @return the table
+     */
+    static AugmentedStrongsTable build(final EntityIndexReader augmentedStrongs, final Versification versification,
+            final int generation) {
+        final EntityDoc[] docs = augmentedStrongs.search(new MatchAllDocsQuery());
+        final Map<String, List<Entry>> entries = new HashMap<String, List<Entry>>(docs.length);
+        final Map<String, Entry> entriesByAugmentedStrong = new HashMap<String, Entry>(docs.length * 2);
+        for (final EntityDoc d : docs) {
+            // reads all the fields, so that the entity no longer needs the index
+            final String augmentedStrong = d.getAllFields().get(AUGMENTED_STRONG_FIELD);
+            if (augmentedStrong == null || augmentedStrong.length() < 2) {
+                continue;
+            }
+
+            final String key = augmentedStrong.toLowerCase();
+            if (entriesByAugmentedStrong.containsKey(key)) {
+                continue;
+            }
+
+            final Entry entry = new Entry(augmentedStrong, getVerses(versification,
+                    d.get(StrongAugmentationServiceImpl.AS_REFERENCES)), d);
+            entriesByAugmentedStrong.put(key, entry);
+
+            final String strong = key.substring(0, key.length() - 1);
+            List<Entry> strongEntries = entries.get(strong);
+            if (strongEntries == null) {
+                strongEntries = new ArrayList<Entry>(4);
+                entries.put(strong, strongEntries);
+            }
+            strongEntries.add(entry);
+        }
+
+        final Map<String, Entry[]> entriesByStrong = new HashMap<String, Entry[]>(entries.size() * 2);
+        for (final Map.Entry<String, List<Entry>> strongEntries : entries.entrySet()) {
+            final List<Entry> value = strongEntries.getValue();
+            entriesByStrong.put(strongEntries.getKey(), value.toArray(new Entry[value.size()]));
+        }
+        return new AugmentedStrongsTable(versification, entriesByStrong, entriesByAugmentedStrong, generation);
+    }
+
+    /**
+     * @param versification the versification of the references
+     * @param references    the references, as stored in the index
+     * @return the verses
+     */
+    private static VerseBitSet getVerses(final Versification versification, final String references) {
+        final VerseBitSet verses = new VerseBitSet(versification);
+        if (references == null) {
+            return verses;
+        }
+
+        try {
+            verses.addAll(PassageKeyFactory.instance().getKey(versification, references));
+        } catch (final NoSuchKeyException e) {
+            throw new StepInternalException(
+                    "Unable to parse references for some of the entries in the augmented strongs data", e);
+        }
+        return verses;
+    }
+
+    /**
+     * @return true if there are no augmented strongs
+     */
+    boolean isEmpty() {
+        return this.entriesByAugmentedStrong.isEmpty();
+    }
+
+    /**
+     * @return the generation of the index the entries were read from
+     */
+    int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * @return the versification of the verses
+     */
+    Versification getVersification() {
+        return this.versification;
+    }
+
+    /**
+     * @param strong the strong number, padded and in lower case
+     * @param verses the verses, in the versification of the table
+     * @return the augmented strongs of the strong number that are used in at least one of the verses, in index
+     *         order
+     */
+    List<Entry> find(final String strong, final VerseBitSet verses) {
+        final Entry[] strongEntries = this.entriesByStrong.get(strong);
+        if (strongEntries == null) {
+            return new ArrayList<Entry>(0);
+        }
+
+        final List<Entry> found = new ArrayList<Entry>(2);
+        for (final Entry entry : strongEntries) {
+            if (entry.verses.intersects(verses)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param augmentedStrong the augmented strong number, in any case
+     * @return the augmented strong, or null if there is none
+     */
+    Entry get(final String augmentedStrong) {
+        return this.entriesByAugmentedStrong.get(augmentedStrong.toLowerCase());
+    }
+
+    /**
+     * An augmented strong number, the verses it is used in and the entity it was read from
+     */
+    static final class Entry {
+        private final String augmentedStrong;
+        private final VerseBitSet verses;
+        private final EntityDoc doc;
+
+        /**
+         * @param augmentedStrong the augmented strong number
+         * @param verses          the verses it is used in
+         * @param doc             the entity it was read from
+         */
+        private Entry(final String augmentedStrong, final VerseBitSet verses, final EntityDoc doc) {
+            this.augmentedStrong = augmentedStrong;
+            this.verses = verses;
+            this.doc = doc;
+        }
+
+        /**
+         * @return the augmented strong number
+         */
+        String getAugmentedStrong() {
+            return this.augmentedStrong;
+        }
+
+        /**
+         * @return the verses it is used in, which must not be changed
+         */
+        VerseBitSet getVerses() {
+            return this.verses;
+        }
+
+        /**
+         * @return the entity it was read from
+         */
+        EntityDoc getDoc() {
+            return this.doc;
+        }
+    }
+}
@@ -54,6 +54,7 @@ import com.tyndalehouse.step.core.service.jsword.JSwordModuleService;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.service.jsword.helpers.JSwordStrongNumberHelper;
 import com.tyndalehouse.step.core.utils.StringUtils;
 import com.yammer.metrics.annotation.Timed;
@@ -102,6 +103,7 @@ public class BibleInformationServiceImpl implements BibleInformationService {
     private final JSwordVersificationService jswordVersification;
     private final VersionResolver resolver;
     private final StrongAugmentationService strongAugmentationService;
+    private final OsisCache osisCache;
 
     /**
      * The bible information service, retrieving content and meta data.
@@ -115,6 +117,7 @@ public class BibleInformationServiceImpl implements BibleInformationService {
      * @param entityManager             the entity manager
      * @param jswordVersification       the jsword versification
      * @param strongAugmentationService to augment strong numbers
+     * @param osisCache                 the parsed OSIS of recently read passages
      */
     @Inject
     public BibleInformationServiceImpl(@Named("defaultVersions") final List<String> defaultVersions,
@@ -123,7 +126,7 @@ public class BibleInformationServiceImpl implements BibleInformationService {
                                        final JSwordMetadataService jswordMetadata, final JSwordSearchService jswordSearch,
                                        final EntityManager entityManager, final JSwordVersificationService jswordVersification,
                                        final StrongAugmentationService strongAugmentationService,
-                                       final VersionResolver resolver) {
+                                       final VersionResolver resolver, final OsisCache osisCache) {
         this.optionsValidationService = optionsValidationService;
         this.jswordPassage = jswordPassage;
         this.defaultVersions = defaultVersions;
@@ -134,6 +137,7 @@ public class BibleInformationServiceImpl implements BibleInformationService {
         this.jswordVersification = jswordVersification;
         this.strongAugmentationService = strongAugmentationService;
         this.resolver = resolver;
+        this.osisCache = osisCache;
     }
 
     /**
@@ -267,7 +271,8 @@ public class BibleInformationServiceImpl implements BibleInformationService {
         }
 
         final StrongCountsAndSubjects verseStrongs = new JSwordStrongNumberHelper(this.entityManager,
-                key, this.jswordVersification, this.jswordSearch, this.strongAugmentationService).getVerseStrongs();
+                key, this.jswordVersification, this.jswordSearch, this.strongAugmentationService,
+                this.osisCache).getVerseStrongs();
         verseStrongs.setVerse(key.getName());
         verseStrongs.setMultipleVerses(true);
         return verseStrongs;
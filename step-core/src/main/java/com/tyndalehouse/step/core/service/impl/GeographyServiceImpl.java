@@ -35,7 +35,7 @@ package com.tyndalehouse.step.core.service.impl;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.apache.lucene.queryParser.QueryParser.Operator;
+import org.crosswire.jsword.passage.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,7 +74,7 @@ public class GeographyServiceImpl implements GeographyService {
     public EntityDoc[] getPlaces(final String reference) {
         LOG.debug("Returning places for reference [{}]", reference);
 
-        final String allReferences = this.jsword.getAllReferences(reference, OPEN_BIBLE_VERSION);
-        return this.openBiblePlaces.searchSingleColumn("references", allReferences, Operator.OR, false);
+        final Key allReferences = this.jsword.getAllReferencesKey(reference, OPEN_BIBLE_VERSION);
+        return this.openBiblePlaces.searchByReference("references", allReferences);
     }
 }
@@ -8,6 +8,7 @@ import com.tyndalehouse.step.core.service.jsword.JSwordMetadataService;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.utils.JSwordUtils;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
@@ -46,14 +47,17 @@ public class JSwordRelatedVersesServiceImpl implements JSwordRelatedVersesServic
     private final JSwordSearchService jSwordSearchService;
     private final JSwordVersificationService jSwordVersificationService;
     private final JSwordMetadataService jSwordMetadataService;
+    private final OsisCache osisCache;
 
     @Inject
     public JSwordRelatedVersesServiceImpl(final JSwordSearchService jSwordSearchService,
                                           final JSwordVersificationService jSwordVersificationService,
-                                          final JSwordMetadataService jSwordMetadataService) {
+                                          final JSwordMetadataService jSwordMetadataService,
+                                          final OsisCache osisCache) {
         this.jSwordSearchService = jSwordSearchService;
         this.jSwordVersificationService = jSwordVersificationService;
         this.jSwordMetadataService = jSwordMetadataService;
+        this.osisCache = osisCache;
     }
 
 
@@ -153,15 +157,13 @@ public class JSwordRelatedVersesServiceImpl implements JSwordRelatedVersesServic
     private String[] getStrongsFromKey(BookData strongBookData) {
         final StringBuilder strongs = new StringBuilder(256);
         try {
-            final List<Element> elements = JSwordUtils.getOsisElements(strongBookData);
+            final List<Element> elements = JSwordUtils.getOsisElements(this.osisCache.getOsisFragment(strongBookData));
             for (final Element e : elements) {
                 if (strongs.length() != 0) {
                     strongs.append(' ');
                 }
                 strongs.append(OSISUtil.getStrongsNumbers(e));
             }
-        } catch (final NoSuchKeyException ex) {
-            LOG.warn("Unable to enhance verse numbers.", ex);
         } catch (final BookException ex) {
             LOG.warn("Unable to enhance verse number", ex);
         }
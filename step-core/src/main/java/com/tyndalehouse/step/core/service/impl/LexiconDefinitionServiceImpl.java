@@ -2,13 +2,13 @@ package com.tyndalehouse.step.core.service.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.inject.Inject;
 
+import com.tyndalehouse.step.core.data.DefinitionCache;
 import com.tyndalehouse.step.core.data.EntityDoc;
-import com.tyndalehouse.step.core.data.EntityIndexReader;
-import com.tyndalehouse.step.core.data.EntityManager;
 import com.tyndalehouse.step.core.models.LexiconSuggestion;
 import com.tyndalehouse.step.core.models.search.SuggestionType;
 import com.tyndalehouse.step.core.service.LexiconDefinitionService;
@@ -17,14 +17,14 @@ import com.tyndalehouse.step.core.service.LexiconDefinitionService;
  * @author chrisburrell
  */
 public class LexiconDefinitionServiceImpl implements LexiconDefinitionService {
-    private final EntityIndexReader definitions;
+    private final DefinitionCache definitions;
 
     /**
-     * @param entityManager the entity manager
+     * @param definitions the cache of lexicon definitions
      */
     @Inject
-    public LexiconDefinitionServiceImpl(final EntityManager entityManager) {
-        this.definitions = entityManager.getReader("definition");
+    public LexiconDefinitionServiceImpl(final DefinitionCache definitions) {
+        this.definitions = definitions;
     }
 
     @Override
@@ -38,18 +38,10 @@ public class LexiconDefinitionServiceImpl implements LexiconDefinitionService {
             return results;
         }
 
-        final StringBuilder query = new StringBuilder(strongNumbers.size() * 7);
-        for (final String strong : strongNumbers) {
-            query.append(strong);
-            query.append(' ');
-        }
-
-        final EntityDoc[] lexiconDefitions = this.definitions.searchSingleColumn("strongNumber",
-                query.toString());
-        for (final EntityDoc lexiconDefinition : lexiconDefitions) {
-            final String strongNumber = lexiconDefinition.get("strongNumber");
+        for (final Entry<String, EntityDoc> lexiconDefinition : this.definitions.getAll(strongNumbers).entrySet()) {
+            final String strongNumber = lexiconDefinition.getKey();
 
-            final LexiconSuggestion suggestion = getLexiconSuggestion(lexiconDefinition, strongNumber);
+            final LexiconSuggestion suggestion = getLexiconSuggestion(lexiconDefinition.getValue(), strongNumber);
             results.put(strongNumber, suggestion);
         }
 
@@ -58,12 +50,11 @@ public class LexiconDefinitionServiceImpl implements LexiconDefinitionService {
 
     @Override
     public LexiconSuggestion lookup(final String strongNumber) {
-        final EntityDoc[] lexiconDefinitions = this.definitions.searchSingleColumn("strongNumber",
-                strongNumber.toString());
-        if(lexiconDefinitions == null || lexiconDefinitions.length == 0) {
+        final EntityDoc lexiconDefinition = this.definitions.get(strongNumber);
+        if(lexiconDefinition == null) {
             return null;
         }
-        return getLexiconSuggestion(lexiconDefinitions[0], strongNumber);
+        return getLexiconSuggestion(lexiconDefinition, strongNumber);
     }
     
     /**
@@ -35,6 +35,8 @@ package com.tyndalehouse.step.core.service.impl;
 import static com.tyndalehouse.step.core.utils.JSwordUtils.getSortedSerialisableList;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -42,6 +44,9 @@ import javax.inject.Singleton;
 
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookCategory;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +68,8 @@ public class ModuleServiceImpl implements ModuleService {
     private final JSwordModuleService jswordModuleService;
     private final Provider<ClientSession> clientSession;
     private final VersionResolver resolver;
+    private volatile ConcurrentMap<Locale, List<BibleVersion>> availableModules =
+            new ConcurrentHashMap<Locale, List<BibleVersion>>();
 
     /**
      * constructs a service to give module information and content.
@@ -76,14 +83,46 @@ public class ModuleServiceImpl implements ModuleService {
         this.jswordModuleService = jswordModuleService;
         this.clientSession = clientSession;
         this.resolver = resolver;
+
+        Books.installed().addBooksListener(new BooksListener() {
+            @Override
+            public void bookAdded(final BooksEvent ev) {
+                LOGGER.debug("Module added, discarding the list of available modules");
+                clearAvailableModules();
+            }
+
+            @Override
+            public void bookRemoved(final BooksEvent ev) {
+                LOGGER.debug("Module removed, discarding the list of available modules");
+                clearAvailableModules();
+            }
+        });
     }
 
     @Override
     public List<BibleVersion> getAvailableModules() {
+        final Locale locale = this.clientSession.get().getLocale();
+
+        // a list built while modules are being installed ends up in the map that is being discarded
+        final ConcurrentMap<Locale, List<BibleVersion>> snapshots = this.availableModules;
+        final List<BibleVersion> versions = snapshots.get(locale);
+        if (versions != null) {
+            return versions;
+        }
+
         LOGGER.debug("Getting bible versions");
-        return getSortedSerialisableList(this.jswordModuleService.getInstalledModules(BookCategory.BIBLE,
-                BookCategory.COMMENTARY), this.clientSession.get().getLocale(),
-                this.resolver);
+        final List<BibleVersion> sortedVersions = Collections.unmodifiableList(getSortedSerialisableList(
+                this.jswordModuleService.getInstalledModules(BookCategory.BIBLE, BookCategory.COMMENTARY),
+                locale, this.resolver));
+        final List<BibleVersion> existing = snapshots.putIfAbsent(locale, sortedVersions);
+        return existing != null ? existing : sortedVersions;
+    }
+
+    /**
+     * Discards the lists of available modules, so that they are rebuilt on the next request
+     */
+    private void clearAvailableModules() {
+        this.availableModules = new ConcurrentHashMap<Locale, List<BibleVersion>>();
     }
 
     @Override
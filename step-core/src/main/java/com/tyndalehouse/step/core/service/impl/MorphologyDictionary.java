@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+
+/**
+ * An in-memory copy of the morphology index, keyed by code. The codes are held in a sorted array, alongside the
+ * fully loaded morphology items and their html, so that looking up the morphology of a word does not go to the
+ * index. There are only a few thousand codes, so this is small.
+ * <p>
+ * Immutable once built, and safe to read from several threads.
+ *
+ * @author agent
+ */
+final class MorphologyDictionary {
+    private static final String CODE_FIELD = "code";
+    private static final String INLINE_HTML_FIELD = "inlineHtml";
+    private final String[] codes;
+    private final EntityDoc[] morphologies;
+    private final String[] inlineHtml;
+    private final int generation;
+
+    /**
+     * @param codes        the sorted codes
+     * @param morphologies the morphology item of each code
+     * @param inlineHtml   the html of each code
+     * @param generation   the generation of the index the items were read from
+     */
+    private MorphologyDictionary(final String[] codes, final EntityDoc[] morphologies, final String[] inlineHtml,
+                                 final int generation) {
+        this.generation = generation;
+        this.codes = codes;
+        this.morphologies = morphologies;
+        this.inlineHtml = inlineHtml;
+    }
+
+    /**
+     * Reads all the morphology items. Where a code appears more than once, the first item is kept, as it would be
+     * when searching the index for it.
+     *
+     * @param morphology the morphology index
+     * @param generation the generation of the index, read before the items are
+     * @return the dictionary
+     */
+    static MorphologyDictionary build(final EntityIndexReader morphology, final int generation) {
+        final EntityDoc[] docs = morphology.search(new MatchAllDocsQuery());
+        final Map<String, EntityDoc> docsByCode = new HashMap<String, EntityDoc>(docs.length * 2);
+        for (final EntityDoc d : docs) {
+            // reads all the fields, so that the item no longer needs the index
+            final String code = d.getAllFields().get(CODE_FIELD);
+            if (code != null && !docsByCode.containsKey(code)) {
+                docsByCode.put(code.intern(), d);
+            }
+        }
+
+        final String[] codes = docsByCode.keySet().toArray(new String[docsByCode.size()]);
+        Arrays.sort(codes);
+        final EntityDoc[] morphologies = new EntityDoc[codes.length];
+        final String[] inlineHtml = new String[codes.length];
+        for (int ii = 0; ii < codes.length; ii++) {
+            morphologies[ii] = docsByCode.get(codes[ii]);
+            inlineHtml[ii] = morphologies[ii].get(INLINE_HTML_FIELD);
+        }
+        return new MorphologyDictionary(codes, morphologies, inlineHtml, generation);
+    }
+
+    /**
+     * @return the generation of the index the items were read from
+     */
+    int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * @return true if there were no morphology items, for example because the index hasn't been written yet
+     */
+    boolean isEmpty() {
+        return this.codes.length == 0;
+    }
+
+    /**
+     * @param code the code, without its scheme
+     * @return the morphology item, or null if the code is not known
+     */
+    EntityDoc get(final String code) {
+        final int position = Arrays.binarySearch(this.codes, code);
+        return position < 0 ? null : this.morphologies[position];
+    }
+
+    /**
+     * @param code the code, without its scheme
+     * @return the html to display for the code, or null if the code is not known
+     */
+    String getInlineHtml(final String code) {
+        final int position = Arrays.binarySearch(this.codes, code);
+        return position < 0 ? null : this.inlineHtml[position];
+    }
+}
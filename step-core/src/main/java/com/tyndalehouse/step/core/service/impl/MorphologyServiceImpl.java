@@ -35,14 +35,14 @@ package com.tyndalehouse.step.core.service.impl;
 import static com.tyndalehouse.step.core.utils.StringUtils.split;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.data.EntityIndexReader;
 import com.tyndalehouse.step.core.data.EntityManager;
@@ -57,11 +57,11 @@ import com.tyndalehouse.step.core.service.MorphologyService;
 @Singleton
 public class MorphologyServiceImpl implements MorphologyService {
     private static final String SPACE_SEPARATOR = " ";
-    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologyServiceImpl.class);
     private static final String ROBINSON_PREFIX = "robinson:";
     private static final int ROBINSON_PREFIX_LENGTH = ROBINSON_PREFIX.length();
     private static final String NON_BREAKING_SPACE = "&nbsp;";
     private final EntityIndexReader morphology;
+    private volatile MorphologyDictionary dictionary;
 
     /**
      * @param manager the entity manager
@@ -77,7 +77,6 @@ public class MorphologyServiceImpl implements MorphologyService {
         final String[] codes = split(code, SPACE_SEPARATOR);
         final List<EntityDoc> morphs = new ArrayList<EntityDoc>(codes.length);
         for (final String c : codes) {
-            // check cache for key, otherwise obtain from database
             final EntityDoc item = retrieveMorphologyByLongName(c);
 
             if (item != null) {
@@ -94,19 +93,44 @@ public class MorphologyServiceImpl implements MorphologyService {
     }
 
     /**
-     * Cache-based method, retrieves morphology information
+     * Retrieves morphology information from memory
      * 
      * @param code long code including scheme (e.g. robinson:) to the morphology item
      * @return the morphology of interest
      */
-    @SuppressWarnings("PMD")
     private EntityDoc retrieveMorphologyByLongName(final String code) {
-        final String key = code.startsWith(ROBINSON_PREFIX) ? code.substring(ROBINSON_PREFIX_LENGTH) : code;
+        return getDictionary().get(getShortCode(code));
+    }
 
-        final long currentTimeNanos = System.nanoTime();
-        final EntityDoc[] entry = this.morphology.searchExactTermBySingleField("code", 1, key);
-        LOGGER.debug("Took [{}] nano-seconds", System.nanoTime() - currentTimeNanos);
-        return entry.length > 0 ? entry[0] : null;
+    /**
+     * Reads the morphology index into memory the first time it is needed, and again once the index has been
+     * refreshed. If the index is empty, for example because it is still being written, it is read again next time.
+     *
+     * @return the dictionary of all morphology items
+     */
+    private MorphologyDictionary getDictionary() {
+        final int generation = this.morphology.getGeneration();
+        MorphologyDictionary current = this.dictionary;
+        if (current == null || current.getGeneration() != generation) {
+            synchronized (this) {
+                current = this.dictionary;
+                if (current == null || current.getGeneration() != generation) {
+                    current = MorphologyDictionary.build(this.morphology, generation);
+                    if (!current.isEmpty()) {
+                        this.dictionary = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param code long code including scheme (e.g. robinson:) to the morphology item
+     * @return the code as it is held in the index
+     */
+    private String getShortCode(final String code) {
+        return code.startsWith(ROBINSON_PREFIX) ? code.substring(ROBINSON_PREFIX_LENGTH) : code;
     }
 
     /**
@@ -114,11 +138,37 @@ public class MorphologyServiceImpl implements MorphologyService {
      * @return the string to be displayed to the user
      */
     public String getDisplayMorphology(final String code) {
-        final List<EntityDoc> morphologies = getMorphology(code);
+        return getDisplayMorphology(getDictionary(), code);
+    }
+
+    /**
+     * Same as {@link #getDisplayMorphology(String)} for many codes at once
+     *
+     * @param codes the codes encountered in a passage
+     * @return the string to be displayed to the user, keyed by code
+     */
+    public Map<String, String> getDisplayMorphologies(final Collection<String> codes) {
+        final MorphologyDictionary morphologies = getDictionary();
+        final Map<String, String> displayMorphologies = new HashMap<String, String>(codes.size() * 2);
+        for (final String code : codes) {
+            displayMorphologies.put(code, getDisplayMorphology(morphologies, code));
+        }
+        return displayMorphologies;
+    }
+
+    /**
+     * @param morphologies the dictionary of morphology items
+     * @param code         the code encountered during the xsl transformation
+     * @return the string to be displayed to the user
+     */
+    private String getDisplayMorphology(final MorphologyDictionary morphologies, final String code) {
         final StringBuilder sb = new StringBuilder(128);
-        for (final EntityDoc m : morphologies) {
-            sb.append(m.get("inlineHtml"));
-            sb.append(NON_BREAKING_SPACE);
+        for (final String c : split(code, SPACE_SEPARATOR)) {
+            final String shortCode = getShortCode(c);
+            if (morphologies.get(shortCode) != null) {
+                sb.append(morphologies.getInlineHtml(shortCode));
+                sb.append(NON_BREAKING_SPACE);
+            }
         }
         return sb.toString();
     }
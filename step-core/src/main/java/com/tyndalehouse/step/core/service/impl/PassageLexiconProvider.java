@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.service.VocabularyService;
+
+/**
+ * Provides the vocabulary and morphology of the words of a single passage to the interlinear stylesheet. Every word
+ * of the passage is looked up in one go before the stylesheet runs, rather than the stylesheet querying the indexes
+ * word by word. Anything that wasn't found beforehand is looked up as it is asked for.
+ *
+ * @author agent
+ */
+public class PassageLexiconProvider {
+    private static final String WORD_ELEMENT = "w";
+    private static final String OSIS_ID_ATTRIBUTE = "osisID";
+    private static final String LEMMA_ATTRIBUTE = "lemma";
+    private static final String MORPH_ATTRIBUTE = "morph";
+    private final VocabularyService vocabulary;
+    private final MorphologyServiceImpl morphology;
+    private final Map<String, Map<String, EntityDoc[]>> definitions;
+    private final Map<String, String> morphologies;
+
+    /**
+     * @param vocabulary   the vocabulary service
+     * @param morphology   the morphology service
+     * @param definitions  the definitions that have been looked up, keyed by reference and then by lemma
+     * @param morphologies the morphology to display, keyed by morphology code
+     */
+    private PassageLexiconProvider(final VocabularyService vocabulary, final MorphologyServiceImpl morphology,
+                                   final Map<String, Map<String, EntityDoc[]>> definitions,
+                                   final Map<String, String> morphologies) {
+        this.vocabulary = vocabulary;
+        this.morphology = morphology;
+        this.definitions = definitions != null ? definitions : Collections.<String, Map<String, EntityDoc[]>> emptyMap();
+        this.morphologies = morphologies != null ? morphologies : Collections.<String, String> emptyMap();
+    }
+
+    /**
+     * Reads through the passage, and looks up the vocabulary and/or morphology of every word in it
+     *
+     * @param osis                the passage
+     * @param version             the version of the passage, as passed to the stylesheet
+     * @param vocabulary          the vocabulary service
+     * @param morphology          the morphology service
+     * @param prefetchVocabulary  true to look up the definitions of the words
+     * @param prefetchMorphology  true to look up the morphology of the words
+     * @return the provider to pass to the stylesheet
+     * @throws SAXException if the passage cannot be read
+     */
+    public static PassageLexiconProvider prefetch(final SAXEventProvider osis, final String version,
+                                                  final VocabularyService vocabulary,
+                                                  final MorphologyServiceImpl morphology,
+                                                  final boolean prefetchVocabulary,
+                                                  final boolean prefetchMorphology) throws SAXException {
+        if (!prefetchVocabulary && !prefetchMorphology) {
+            return new PassageLexiconProvider(vocabulary, morphology, null, null);
+        }
+
+        final WordCollector words = new WordCollector();
+        osis.provideSAXEvents(words);
+
+        final Map<String, Map<String, EntityDoc[]>> definitions = prefetchVocabulary && !words.lemmas.isEmpty()
+                ? vocabulary.getLexiconDefinitions(version, words.lemmas) : null;
+        final Map<String, String> morphologies = prefetchMorphology && !words.morphs.isEmpty()
+                ? morphology.getDisplayMorphologies(words.morphs) : null;
+        return new PassageLexiconProvider(vocabulary, morphology, definitions, morphologies);
+    }
+
+    /**
+     * @param originalText the original text
+     * @return the transliterated text
+     * @see VocabularyService#getTransliteration(String)
+     */
+    public String getTransliteration(final String originalText) {
+        return this.vocabulary.getTransliteration(originalText);
+    }
+
+    /**
+     * @param version          the version that anchors the reference
+     * @param reference        the reference in which the strongs can be found
+     * @param vocabIdentifiers the vocab identifiers
+     * @return the string to be displayed
+     * @see VocabularyService#getEnglishVocab(String, String, String)
+     */
+    public String getEnglishVocab(final String version, final String reference, final String vocabIdentifiers) {
+        return getData(version, reference, vocabIdentifiers, VocabularyServiceImpl.ENGLISH_VOCAB_PROVIDER);
+    }
+
+    /**
+     * @param version          the version that anchors the reference
+     * @param reference        the reference in which the strongs can be found
+     * @param vocabIdentifiers the vocab identifiers
+     * @return the string to be displayed
+     * @see VocabularyService#getGreekVocab(String, String, String)
+     */
+    public String getGreekVocab(final String version, final String reference, final String vocabIdentifiers) {
+        return getData(version, reference, vocabIdentifiers, VocabularyServiceImpl.GREEK_VOCAB_PROVIDER);
+    }
+
+    /**
+     * @param version          the version that anchors the reference
+     * @param reference        the reference in which the strongs can be found
+     * @param vocabIdentifiers the vocab identifiers
+     * @return the string to be displayed
+     * @see VocabularyService#getDefaultTransliteration(String, String, String)
+     */
+    public String getDefaultTransliteration(final String version, final String reference,
+                                            final String vocabIdentifiers) {
+        return getData(version, reference, vocabIdentifiers, VocabularyServiceImpl.TRANSLITERATION_PROVIDER);
+    }
+
+    /**
+     * @param code the code encountered during the xsl transformation
+     * @return the string to be displayed to the user
+     * @see MorphologyServiceImpl#getDisplayMorphology(String)
+     */
+    public String getDisplayMorphology(final String code) {
+        final String displayMorphology = this.morphologies.get(code);
+        return displayMorphology != null ? displayMorphology : this.morphology.getDisplayMorphology(code);
+    }
+
+    /**
+     * gets data from the definitions of the word, looking them up if they haven't been already
+     *
+     * @param version          the version that anchors the reference
+     * @param reference        the reference in which the strongs can be found
+     * @param vocabIdentifiers the vocab identifiers
+     * @param provider         the provider used to get data from the definitions
+     * @return the data in String form
+     */
+    private String getData(final String version, final String reference, final String vocabIdentifiers,
+                           final LexiconDataProvider provider) {
+        final Map<String, EntityDoc[]> definitionsAtReference = this.definitions.get(reference);
+        EntityDoc[] lds = definitionsAtReference != null ? definitionsAtReference.get(vocabIdentifiers) : null;
+        if (lds == null) {
+            lds = this.vocabulary.getLexiconDefinitions(vocabIdentifiers, version, reference);
+        }
+        return VocabularyServiceImpl.getDataFromLexiconDefinitions(lds, vocabIdentifiers, provider);
+    }
+
+    /**
+     * Collects the lemmas and morphology codes of every word of a passage. The reference of a word is the osisID
+     * of its outermost ancestor that has one, as that is what the stylesheet passes through.
+     */
+    private static final class WordCollector extends DefaultHandler {
+        private final Map<String, Set<String>> lemmas = new HashMap<String, Set<String>>(64);
+        private final Set<String> morphs = new HashSet<String>(256);
+        private final LinkedList<String> osisIds = new LinkedList<String>();
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName,
+                                 final Attributes attributes) throws SAXException {
+            final String osisId = attributes.getValue(OSIS_ID_ATTRIBUTE);
+            this.osisIds.push(osisId != null ? osisId : "");
+
+            if (!WORD_ELEMENT.equals(localName) && !WORD_ELEMENT.equals(qName)) {
+                return;
+            }
+
+            final String lemma = attributes.getValue(LEMMA_ATTRIBUTE);
+            if (lemma != null) {
+                final String reference = getReference();
+                Set<String> lemmasAtReference = this.lemmas.get(reference);
+                if (lemmasAtReference == null) {
+                    lemmasAtReference = new HashSet<String>(32);
+                    this.lemmas.put(reference, lemmasAtReference);
+                }
+                lemmasAtReference.add(lemma);
+            }
+
+            final String morph = attributes.getValue(MORPH_ATTRIBUTE);
+            if (morph != null) {
+                this.morphs.add(morph);
+            }
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            this.osisIds.pop();
+        }
+
+        /**
+         * @return the osisID of the outermost element that has one, excluding the word itself
+         */
+        private String getReference() {
+            // the last element pushed is the word itself
+            final int ancestors = this.osisIds.size() - 1;
+            int ii = 0;
+            final Iterator<String> outermostFirst = this.osisIds.descendingIterator();
+            while (outermostFirst.hasNext() && ii++ < ancestors) {
+                final String osisId = outermostFirst.next();
+                if (!osisId.isEmpty()) {
+                    return osisId;
+                }
+            }
+            return "";
+        }
+    }
+}
@@ -5,8 +5,8 @@ import com.tyndalehouse.step.core.data.EntityIndexReader;
 import com.tyndalehouse.step.core.data.EntityManager;
 import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.service.StrongAugmentationService;
-import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.helpers.VerseBitSet;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
@@ -14,21 +14,22 @@ import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.NoSuchKeyException;
 import org.crosswire.jsword.passage.PassageKeyFactory;
 import org.crosswire.jsword.versification.Versification;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Strong augmentation service to provide better context/definitions to the end user.
+ * Strong augmentation service to provide better context/definitions to the end user. The augmented strongs are
+ * read into memory the first time they are needed, along with the verses each is used in.
  */
 public class StrongAugmentationServiceImpl implements StrongAugmentationService {
     public static final String AS_REFERENCES = "references";
-    private static final Logger LOGGER = LoggerFactory.getLogger(StrongAugmentationServiceImpl.class);
     private final EntityIndexReader augmentedStrongs;
     private final JSwordVersificationService versificationService;
+    private volatile AugmentedStrongsTable table;
 
     @Inject
     public StrongAugmentationServiceImpl(final EntityManager manager, final JSwordVersificationService versificationService) {
@@ -53,62 +54,35 @@ public class StrongAugmentationServiceImpl implements StrongAugmentationService
         }
 
         //for each key, we see if there is an augment strong number
-        final StringBuilder query = new StringBuilder(keys.length * 10 + 16);
-        query.append("(");
+        final List<EntityDoc> docs = new ArrayList<>();
+        VerseBitSet verses = null;
+        AugmentedStrongsTable strongsTable = null;
         for (int i = 0; i < keys.length; i++) {
             //if Hebrew and not augmented
             if (isNonAugmentedHebrew(keys[i])) {
-                //then we're looking at Hebrew, so look up the augmentedStrongs data
-                //and we're looking for the first of any strong number
-                //build the lucene query...
-                query.append(StringConversionUtils.getStrongPaddedKey(keys[i]));
-                query.append("? ");
-            } else {
-                //add directly to the augmented list
-                augmentedStrongs.put(keys[i], keys[i]);
-            }
-        }
-
-        final EntityDoc[] docs;
-        if (query.length() > 1) {
-
-            //add the reference in the query. We may have several due to versifications mapping, so we're going to look for documents where at least 1 of the verses is in the doc
-            query.append(") AND (");
-            String[] individualVerses = StringUtils.split(this.versificationService.convertReference(reference, version, JSwordPassageService.OT_BOOK).getKey().getOsisID());
-            //a single chapter can be optimized, also JSword returns the key as Gen.1 rather than expanded
-            boolean queryAppended = false;
-            if(individualVerses.length == 1) {
-                int countSeparators = 0;
-                for(int ii = 0; ii < individualVerses[0].length() && countSeparators < 2; ii++) {
-                    if(individualVerses[0].charAt(ii) == '.') {
-                        countSeparators++;
-                    }
+                //then we're looking at Hebrew, so look up the augmented strongs used in at least one of the verses.
+                //We may have several verses due to versifications mapping
+                if (verses == null) {
+                    strongsTable = getTable();
+                    verses = getVerses(reference, version, strongsTable.getVersification());
                 }
-                if(countSeparators < 2) {
-                    query.append("references:");
-                    query.append(individualVerses[0]);
-                    query.append(".*");
-                    query.append(' ');
-                    queryAppended = true;
-                }
-            }
 
-            if(!queryAppended) {
-                for (String v : individualVerses) {
-                    query.append("references:");
-                    query.append(v);
-                    query.append(' ');
+                final String keyingStrong = StringConversionUtils.getStrongPaddedKey(keys[i]).toLowerCase();
+                if (augmentedStrongs.containsKey(keyingStrong)) {
+                    continue;
                 }
-            }
-            query.append(")");
 
-            //run the query for the hebrew words and add them to the list
-            docs = this.augmentedStrongs.search("augmentedStrong", query.toString());
-            for (EntityDoc d : docs) {
-                final String augmentedStrong = d.get("augmentedStrong");
-                augmentedStrongs.put(augmentedStrong.substring(0, augmentedStrong.length() - 1).toLowerCase(), augmentedStrong);
+                for (AugmentedStrongsTable.Entry entry : strongsTable.find(keyingStrong, verses)) {
+                    docs.add(entry.getDoc());
+                    augmentedStrongs.put(keyingStrong, entry.getAugmentedStrong());
+                }
+            } else {
+                //add directly to the augmented list
+                augmentedStrongs.put(keys[i], keys[i]);
             }
+        }
 
+        if (verses != null) {
             //now we need to work out which strongs were not augmented and add them to the list
             //check which strongs didn't make it
             for (String k : keys) {
@@ -117,11 +91,9 @@ public class StrongAugmentationServiceImpl implements StrongAugmentationService
                     augmentedStrongs.put(keyingStrong, k);
                 }
             }
-        } else {
-            docs = new EntityDoc[0];
         }
         final String[] augmented = new String[augmentedStrongs.size()];
-        return new AugmentedStrongs(augmentedStrongs.values().toArray(augmented), docs);
+        return new AugmentedStrongs(augmentedStrongs.values().toArray(augmented), docs.toArray(new EntityDoc[docs.size()]));
     }
 
     private boolean isNonAugmentedHebrew(final String key) {
@@ -136,21 +108,11 @@ public class StrongAugmentationServiceImpl implements StrongAugmentationService
 
     @Override
     public Key getVersesForAugmentedStrong(final String augmentedStrong) {
-        final EntityDoc[] entityDocs = this.augmentedStrongs.searchExactTermBySingleField("augmentedStrong", 1, augmentedStrong);
-        if (entityDocs.length == 0) {
+        final AugmentedStrongsTable.Entry entry = getTable().get(augmentedStrong);
+        if (entry == null) {
             return PassageKeyFactory.instance().createEmptyKeyList(getOTBookVersification());
         }
-
-        //otherwise we have some
-        if (entityDocs.length > 1) {
-            LOGGER.warn("Too many augmented strongs in the index for strong: [{}]", augmentedStrong);
-        }
-
-        try {
-            return PassageKeyFactory.instance().getKey(getOTBookVersification(), entityDocs[0].get(AS_REFERENCES));
-        } catch (NoSuchKeyException e) {
-            throw new StepInternalException("Unable to parse references for some of the entries in the augmented strongs data", e);
-        }
+        return entry.getVerses().toPassage();
     }
 
     @Override
@@ -162,6 +124,46 @@ public class StrongAugmentationServiceImpl implements StrongAugmentationService
         return augmentedStrong;
     }
 
+    /**
+     * @param reference the reference
+     * @param version   the version the reference is in
+     * @param target    the versification the verses are wanted in
+     * @return the verses of the reference
+     */
+    private VerseBitSet getVerses(final String reference, final String version, final Versification target) {
+        try {
+            final VerseBitSet verses = new VerseBitSet(target);
+            verses.addAll(PassageKeyFactory.instance().getKey(this.versificationService.getVersificationForVersion(version), reference));
+            return verses;
+        } catch (NoSuchKeyException e) {
+            throw new StepInternalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the table the first time it is needed, as the index may not have been created when the service is,
+     * and again once the index has been refreshed.
+     *
+     * @return the table of all augmented strongs
+     */
+    private AugmentedStrongsTable getTable() {
+        final int generation = this.augmentedStrongs.getGeneration();
+        AugmentedStrongsTable current = this.table;
+        if (current == null || current.getGeneration() != generation) {
+            synchronized (this) {
+                current = this.table;
+                if (current == null || current.getGeneration() != generation) {
+                    current = AugmentedStrongsTable.build(this.augmentedStrongs, getOTBookVersification(),
+                            generation);
+                    if (!current.isEmpty()) {
+                        this.table = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
     /**
      * @return * @return the versification for the OT OSMHB book
      */
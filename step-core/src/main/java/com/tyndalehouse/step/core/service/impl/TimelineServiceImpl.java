@@ -47,6 +47,7 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.NumericRangeQuery;
+import org.crosswire.jsword.passage.Key;
 import org.joda.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -157,15 +158,15 @@ public class TimelineServiceImpl implements TimelineService {
     @Override
     public EntityDoc[] lookupEventsMatchingReference(final String reference) {
         // first get the kjv reference
-        final String allReferences = this.jsword.getAllReferences(reference, "ESV_th");
+        final Key allReferences = this.jsword.getAllReferencesKey(reference, "ESV_th");
 
-        if (isBlank(allReferences)) {
+        if (allReferences == null || allReferences.isEmpty()) {
             return new EntityDoc[0];
         }
 
         // let's assume for now we look up all references
-        LOGGER.debug("Finding events for [{}]", allReferences);
-        return this.timelineEvents.searchSingleColumn("references", allReferences);
+        LOGGER.debug("Finding events for [{}]", reference);
+        return this.timelineEvents.searchByReference("references", allReferences);
     }
 
     @Override
@@ -32,9 +32,8 @@
  ******************************************************************************/
 package com.tyndalehouse.step.core.service.impl;
 
+import com.tyndalehouse.step.core.data.DefinitionCache;
 import com.tyndalehouse.step.core.data.EntityDoc;
-import com.tyndalehouse.step.core.data.EntityIndexReader;
-import com.tyndalehouse.step.core.data.EntityManager;
 import com.tyndalehouse.step.core.exceptions.UserExceptionType;
 import com.tyndalehouse.step.core.models.LexiconSuggestion;
 import com.tyndalehouse.step.core.models.VocabResponse;
@@ -44,17 +43,21 @@ import com.tyndalehouse.step.core.service.helpers.OriginalWordUtils;
 import com.tyndalehouse.step.core.utils.SortingUtils;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
-import org.codehaus.jackson.map.util.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -75,38 +78,37 @@ public class VocabularyServiceImpl implements VocabularyService {
     private static final String HIGHER_STRONG = "STRONG:";
     private static final String LOWER_STRONG = "strong:";
     private static final int START_STRONG_KEY = HIGHER_STRONG.length();
-    private static final LRUMap<String, EntityDoc[]> DEFINITIION_CACHE = new LRUMap<>(128, 256);
-    private final EntityIndexReader definitions;
 
     // define a few extraction methods
-    private final LexiconDataProvider transliterationProvider = new LexiconDataProvider() {
+    static final LexiconDataProvider TRANSLITERATION_PROVIDER = new LexiconDataProvider() {
         @Override
         public String getData(final EntityDoc l) {
             return l.get("stepTransliteration");
         }
     };
-    private final LexiconDataProvider englishVocabProvider = new LexiconDataProvider() {
+    static final LexiconDataProvider ENGLISH_VOCAB_PROVIDER = new LexiconDataProvider() {
         @Override
         public String getData(final EntityDoc l) {
             return l.get("stepGloss");
         }
     };
-    private final LexiconDataProvider greekVocabProvider = new LexiconDataProvider() {
+    static final LexiconDataProvider GREEK_VOCAB_PROVIDER = new LexiconDataProvider() {
         @Override
         public String getData(final EntityDoc l) {
             return l.get("accentedUnicode");
         }
     };
+    private final DefinitionCache definitions;
     private final StrongAugmentationService strongAugmentationService;
 
     /**
-     * @param manager the entity manager
+     * @param definitions the cache of lexicon definitions
      */
     @Inject
-    public VocabularyServiceImpl(final EntityManager manager,
+    public VocabularyServiceImpl(final DefinitionCache definitions,
                                  final StrongAugmentationService strongAugmentationService) {
         this.strongAugmentationService = strongAugmentationService;
-        this.definitions = manager.getReader("definition");
+        this.definitions = definitions;
     }
 
     /**
@@ -149,10 +151,7 @@ public class VocabularyServiceImpl implements VocabularyService {
         final String[] strongList = this.strongAugmentationService.augment(version, reference, getKeys(vocabIdentifiers)).getStrongList();
 
         if (strongList.length != 0) {
-            final EntityDoc[] strongDefs = this.definitions.searchUniqueBySingleField("strongNumber",
-                    strongList);
-
-            final EntityDoc[] definitions = reOrder(strongList, strongDefs);
+            final EntityDoc[] definitions = lookupDefinitions(strongList);
             final Map<String, List<LexiconSuggestion>> relatedWords = readRelatedWords(definitions);
             return new VocabResponse(definitions, relatedWords);
         }
@@ -172,27 +171,22 @@ public class VocabularyServiceImpl implements VocabularyService {
         final Map<String, SortedSet<LexiconSuggestion>> relatedWords = new HashMap<String, SortedSet<LexiconSuggestion>>(
                 defs.length * 2);
 
-        // to avoid doing lookups twice, we key each short definition by its code as well
-        final Map<String, LexiconSuggestion> lookedUpWords = new HashMap<>(
-                defs.length * 2);
+        // look up all the related words at once, and key each short definition by its code
+        final Set<String> allRelatedNumbers = new LinkedHashSet<>();
+        for (final EntityDoc doc : defs) {
+            Collections.addAll(allRelatedNumbers, split(doc.get("relatedNumbers"), "[ ,]+"));
+        }
+        final Map<String, LexiconSuggestion> lookedUpWords = new HashMap<>(allRelatedNumbers.size() * 2);
+        for (final Entry<String, EntityDoc> relatedDoc : this.definitions.getAll(allRelatedNumbers).entrySet()) {
+            lookedUpWords.put(relatedDoc.getKey(), OriginalWordUtils.convertToSuggestion(relatedDoc.getValue()));
+        }
 
         for (final EntityDoc doc : defs) {
             final String sourceNumber = doc.get("strongNumber");
             final String relatedWordNumbers = doc.get("relatedNumbers");
             final String[] allRelatedWords = split(relatedWordNumbers, "[ ,]+");
             for (final String relatedWord : allRelatedWords) {
-                LexiconSuggestion shortLexiconDefinition = lookedUpWords.get(relatedWord);
-
-                // look up related word from index
-                if (shortLexiconDefinition == null) {
-                    final EntityDoc[] relatedDoc = this.definitions.searchUniqueBySingleField("strongNumber",
-                            relatedWord);
-                    // assume first doc
-                    if (relatedDoc.length > 0) {
-                        shortLexiconDefinition = OriginalWordUtils.convertToSuggestion(relatedDoc[0]);
-                        lookedUpWords.put(relatedWord, shortLexiconDefinition);
-                    }
-                }
+                final LexiconSuggestion shortLexiconDefinition = lookedUpWords.get(relatedWord);
 
                 // store as a link to its source number
                 if (shortLexiconDefinition != null) {
@@ -226,28 +220,14 @@ public class VocabularyServiceImpl implements VocabularyService {
     }
 
     /**
-     * Re-orders based on the input.
+     * Looks up the definitions, in the order of the strong numbers given.
      *
      * @param strongList the order list of stongs
-     * @param strongDefs the definitions that have been found
-     * @return the entity doc[]
+     * @return the definitions that have been found
      */
-    private EntityDoc[] reOrder(final String[] strongList, final EntityDoc[] strongDefs) {
-        final Map<String, EntityDoc> entitiesByStrong = new HashMap<>(strongList.length * 2);
-        for (final EntityDoc def : strongDefs) {
-            entitiesByStrong.put(def.get("strongNumber"), def);
-        }
-
-        final EntityDoc[] results = new EntityDoc[strongDefs.length];
-        int current = 0;
-        for (final String strong : strongList) {
-            final EntityDoc entityDoc = entitiesByStrong.get(strong);
-            if (entityDoc != null) {
-                results[current++] = entityDoc;
-            }
-        }
-
-        return results;
+    private EntityDoc[] lookupDefinitions(final String[] strongList) {
+        final Collection<EntityDoc> definitions = this.definitions.getAll(Arrays.asList(strongList)).values();
+        return definitions.toArray(new EntityDoc[definitions.size()]);
     }
 
     @Override
@@ -256,8 +236,7 @@ public class VocabularyServiceImpl implements VocabularyService {
         final String[] strongList = this.strongAugmentationService.augment(version, reference, getKeys(vocabIdentifiers)).getStrongList();
 
         if (strongList.length != 0) {
-            EntityDoc[] strongNumbers = this.definitions.searchUniqueBySingleField("strongNumber", strongList);
-            return new VocabResponse(strongNumbers);
+            return new VocabResponse(lookupDefinitions(strongList));
         }
         return new VocabResponse();
     }
@@ -269,17 +248,17 @@ public class VocabularyServiceImpl implements VocabularyService {
 
     @Override
     public String getEnglishVocab(final String version, final String reference, final String vocabIdentifiers) {
-        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, this.englishVocabProvider);
+        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, ENGLISH_VOCAB_PROVIDER);
     }
 
     @Override
     public String getGreekVocab(final String version, final String reference, final String vocabIdentifiers) {
-        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, this.greekVocabProvider);
+        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, GREEK_VOCAB_PROVIDER);
     }
 
     @Override
     public String getDefaultTransliteration(final String version, final String reference, final String vocabIdentifiers) {
-        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, this.transliterationProvider);
+        return getDataFromLexiconDefinition(version, reference, vocabIdentifiers, TRANSLITERATION_PROVIDER);
     }
 
     /**
@@ -294,8 +273,20 @@ public class VocabularyServiceImpl implements VocabularyService {
                                                 final LexiconDataProvider provider) {
 
         // else we lookup and concatenate
-        final EntityDoc[] lds = getLexiconDefinitions(vocabIdentifiers, version, reference);
+        return getDataFromLexiconDefinitions(getLexiconDefinitions(vocabIdentifiers, version, reference),
+                vocabIdentifiers, provider);
+    }
 
+    /**
+     * gets data from lexicon definitions that have already been looked up
+     *
+     * @param lds              the lexicon definitions
+     * @param vocabIdentifiers the identifiers, returned if there are no definitions
+     * @param provider         the provider used to get data from it
+     * @return the data in String form
+     */
+    static String getDataFromLexiconDefinitions(final EntityDoc[] lds, final String vocabIdentifiers,
+                                                final LexiconDataProvider provider) {
         if (lds.length == 0) {
             return vocabIdentifiers;
         }
@@ -326,28 +317,75 @@ public class VocabularyServiceImpl implements VocabularyService {
             return new EntityDoc[0];
         }
 
-        final String cacheKey = getCacheKey(version, reference, vocabIdentifiers);
+        return lookupDefinitions(keys);
+    }
 
-        final EntityDoc[] entityDocs = DEFINITIION_CACHE.get(cacheKey);
-        if (entityDocs != null) {
-            return entityDocs;
+    @Override
+    public Map<String, Map<String, EntityDoc[]>> getLexiconDefinitions(final String version,
+                                                                     final Map<String, Set<String>> vocabIdentifiersByReference) {
+        // work out the strong numbers of each word. All the words of a verse are augmented together
+        final Map<String, Map<String, String[]>> keysByReference = new HashMap<>(vocabIdentifiersByReference.size() * 2);
+        final Set<String> allKeys = new LinkedHashSet<>();
+        for (final Entry<String, Set<String>> identifiersAtReference : vocabIdentifiersByReference.entrySet()) {
+            final Map<String, String[]> keysByIdentifiers = new HashMap<>(identifiersAtReference.getValue().size() * 2);
+            final Set<String> keysAtReference = new LinkedHashSet<>();
+            for (final String vocabIdentifiers : identifiersAtReference.getValue()) {
+                final String[] keys = getKeys(vocabIdentifiers);
+                keysByIdentifiers.put(vocabIdentifiers, keys);
+                Collections.addAll(keysAtReference, keys);
+            }
+
+            if (!keysAtReference.isEmpty()) {
+                final EntityDoc[] augmentedDocs = this.strongAugmentationService.augment(version,
+                        identifiersAtReference.getKey(), keysAtReference.toArray(new String[keysAtReference.size()]))
+                        .getEntityDocs();
+                final Map<String, String> augmentedByStrong = new HashMap<>(augmentedDocs.length * 2);
+                for (final EntityDoc d : augmentedDocs) {
+                    final String augmentedStrong = d.get("augmentedStrong");
+                    augmentedByStrong.put(augmentedStrong.substring(0, augmentedStrong.length() - 1).toLowerCase(), augmentedStrong);
+                }
+
+                for (final Entry<String, String[]> identifierKeys : keysByIdentifiers.entrySet()) {
+                    final Set<String> augmentedKeys = new LinkedHashSet<>();
+                    for (final String key : identifierKeys.getValue()) {
+                        final String augmentedKey = isNonAugmentedHebrew(key) ? augmentedByStrong.get(
+                                StringConversionUtils.getStrongPaddedKey(key).toLowerCase()) : null;
+                        augmentedKeys.add(augmentedKey != null ? augmentedKey : key);
+                    }
+                    identifierKeys.setValue(augmentedKeys.toArray(new String[augmentedKeys.size()]));
+                    allKeys.addAll(augmentedKeys);
+                }
+            }
+            keysByReference.put(identifiersAtReference.getKey(), keysByIdentifiers);
         }
 
-        final EntityDoc[] strongNumbers = this.definitions.searchUniqueBySingleField("strongNumber", keys);
-        DEFINITIION_CACHE.put(cacheKey, strongNumbers);
-        return strongNumbers;
+        // then look up all their definitions at once
+        final Map<String, EntityDoc> definitionsByStrong = this.definitions.getAll(allKeys);
+
+        final Map<String, Map<String, EntityDoc[]>> results = new HashMap<>(keysByReference.size() * 2);
+        for (final Entry<String, Map<String, String[]>> keysAtReference : keysByReference.entrySet()) {
+            final Map<String, EntityDoc[]> definitionsAtReference = new HashMap<>(keysAtReference.getValue().size() * 2);
+            for (final Entry<String, String[]> identifierKeys : keysAtReference.getValue().entrySet()) {
+                final List<EntityDoc> docs = new ArrayList<>(identifierKeys.getValue().length);
+                for (final String key : identifierKeys.getValue()) {
+                    final EntityDoc d = definitionsByStrong.get(key);
+                    if (d != null) {
+                        docs.add(d);
+                    }
+                }
+                definitionsAtReference.put(identifierKeys.getKey(), docs.toArray(new EntityDoc[docs.size()]));
+            }
+            results.put(keysAtReference.getKey(), definitionsAtReference);
+        }
+        return results;
     }
 
     /**
-     * Simple cache key that concatenates all the variables passed in
-     *
-     * @param version          the version
-     * @param reference        the reference
-     * @param vocabIdentifiers the vocabulary identifiers
-     * @return the cache key
+     * @param key the strong number
+     * @return true if the strong number is Hebrew and may have been augmented for the verse it is in
      */
-    private String getCacheKey(final String version, final String reference, final String vocabIdentifiers) {
-        return new StringBuilder(32).append(version).append('-').append(reference).append('-').append(vocabIdentifiers).toString();
+    private boolean isNonAugmentedHebrew(final String key) {
+        return key.length() > 1 && key.charAt(0) == 'H' && Character.isDigit(key.charAt(key.length() - 1));
     }
 
     /**
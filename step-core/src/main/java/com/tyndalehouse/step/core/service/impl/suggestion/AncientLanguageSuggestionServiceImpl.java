@@ -1,13 +1,11 @@
 package com.tyndalehouse.step.core.service.impl.suggestion;
 
 import com.tyndalehouse.step.core.data.EntityManager;
-import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.service.helpers.OriginalWordUtils;
 import com.tyndalehouse.step.core.service.search.impl.OriginalWordSuggestionServiceImpl;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.language.GreekUtils;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Sort;
@@ -47,14 +45,9 @@ public abstract class AncientLanguageSuggestionServiceImpl extends AbstractAncie
                     greek);
             addAncientMatchClauses(exact, masterQuery, unmarkedUpTranslit);
 
-            try {
-                // assume transliteration - at this point suggestionType is not going to be MEANING
-                final String simplifiedTransliterationClause = OriginalWordSuggestionServiceImpl.getSimplifiedTransliterationClause(
-                        greek, form, !exact);
-                masterQuery.add(getReader().getQueryParser("strongNumber").parse(simplifiedTransliterationClause), BooleanClause.Occur.SHOULD);
-            } catch (ParseException ex) {
-                throw new StepInternalException(ex.getMessage(), ex);
-            }
+            // assume transliteration - at this point suggestionType is not going to be MEANING
+            masterQuery.add(OriginalWordSuggestionServiceImpl.getSimplifiedTransliterationQuery(getReader(), greek,
+                    form, !exact), BooleanClause.Occur.SHOULD);
         }
         return masterQuery;
     }
@@ -37,7 +37,7 @@ public class MeaningSuggestionServiceImpl implements SingleTypeSuggestionService
     public String[] collectNonExactMatches(final TermsAndMaxCount<String> collector,
                                            final SuggestionContext context,
                                            final String[] alreadyRetrieved, final int leftToCollect) {
-        TermsAndMaxCount countsAndResults = this.definitions.findSetOfTermsWithCounts(false, true, context.getInput(), collector.getTotalCount(), ANCIENT_MEANING_FIELDS);
+        TermsAndMaxCount countsAndResults = this.definitions.findPopularTermsWithCounts(context.getInput(), collector.getTotalCount(), ANCIENT_MEANING_FIELDS);
         final Set<String> resultTerms = countsAndResults.getTerms();
 
         collector.setTotalCount(countsAndResults.getTotalCount());
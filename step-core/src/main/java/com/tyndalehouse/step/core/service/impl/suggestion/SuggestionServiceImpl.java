@@ -10,16 +10,25 @@ import com.tyndalehouse.step.core.models.search.PopularSuggestion;
 import com.tyndalehouse.step.core.service.SingleTypeSuggestionService;
 import com.tyndalehouse.step.core.service.SuggestionService;
 import com.tyndalehouse.step.core.service.helpers.SuggestionContext;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
+import com.tyndalehouse.step.core.utils.RequestTrace;
 import org.apache.lucene.search.TopFieldCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Suggestion service, helping the auto suggestion search dropdown.
@@ -36,7 +45,17 @@ public class SuggestionServiceImpl implements SuggestionService {
     private final Map<String, SingleTypeSuggestionService> queryProviders = new LinkedHashMap<String, SingleTypeSuggestionService>();
     private final Map<String, String[]> dependencies = new HashMap<String, String[]>(8);
     private final Map<String, Integer> extraSlots = new HashMap<String, Integer>(4);
+    private final List<List<String>> providerGroups;
+    private final List<String> callingThreadGroup;
+    private final ExecutorService executor;
+    private final long deadlineMillis;
 
+    /**
+     * @param executors    creates the pool used to query providers in parallel
+     * @param threads      the number of threads used to query providers in parallel, or 0 to query them one
+     *                     after the other on the calling thread
+     * @param deadlineMillis how long to wait for the providers before returning whatever has been found
+     */
     @Inject
     public SuggestionServiceImpl(final HebrewAncientMeaningServiceImpl hebrewAncientMeaningService,
                                  final GreekAncientMeaningServiceImpl greekAncientMeaningService,
@@ -45,7 +64,10 @@ public class SuggestionServiceImpl implements SuggestionService {
                                  final MeaningSuggestionServiceImpl meaningSuggestionService,
                                  final SubjectSuggestionServiceImpl subjectSuggestionService,
                                  final ReferenceSuggestionServiceImpl referenceSuggestionService,
-                                 final TextSuggestionServiceImpl textSuggestionService
+                                 final TextSuggestionServiceImpl textSuggestionService,
+                                 final BoundedExecutors executors,
+                                 @Named("app.suggestions.threads") final int threads,
+                                 @Named("app.suggestions.deadlineMs") final long deadlineMillis
     ) {
         queryProviders.put(SearchToken.REFERENCE, referenceSuggestionService);
         queryProviders.put(SearchToken.GREEK_MEANINGS, greekAncientMeaningService);
@@ -72,20 +94,162 @@ public class SuggestionServiceImpl implements SuggestionService {
         // for GREEK and Hebrew, we can attempt to retrieve one more, but these won't show if the slots have been taken above
         extraSlots.put(SearchToken.GREEK, 1);
         extraSlots.put(SearchToken.HEBREW, 1);
+
+        this.providerGroups = getProviderGroups();
+        // the reference provider relies on the request-scoped client session, so its group stays on the
+        // calling thread
+        this.callingThreadGroup = getGroupOf(SearchToken.REFERENCE);
+        this.deadlineMillis = deadlineMillis;
+        this.executor = executors.create("step-suggestions", threads);
+    }
+
+    /**
+     * @param searchType the search type of a provider
+     * @return the group holding the provider
+     */
+    private List<String> getGroupOf(final String searchType) {
+        for (final List<String> group : this.providerGroups) {
+            if (group.contains(searchType)) {
+                return group;
+            }
+        }
+        throw new StepInternalException("No provider for " + searchType);
+    }
+
+    /**
+     * Splits the providers into groups that can run independently of each other. A provider is in the same group
+     * as the providers it depends on, and comes after them.
+     *
+     * @return the groups, in the order of their first provider
+     */
+    private List<List<String>> getProviderGroups() {
+        final List<List<String>> groups = new ArrayList<List<String>>();
+        final Map<String, List<String>> groupsByProvider = new HashMap<String, List<String>>();
+        for (final String searchType : this.queryProviders.keySet()) {
+            List<String> group = null;
+            final String[] dependents = this.dependencies.get(searchType);
+            if (dependents != null) {
+                for (final String d : dependents) {
+                    final List<String> dependentGroup = groupsByProvider.get(d);
+                    if (group == null) {
+                        group = dependentGroup;
+                    } else if (dependentGroup != group) {
+                        group.addAll(dependentGroup);
+                        groups.remove(dependentGroup);
+                        for (final String moved : dependentGroup) {
+                            groupsByProvider.put(moved, group);
+                        }
+                    }
+                }
+            }
+
+            if (group == null) {
+                group = new ArrayList<String>(4);
+                groups.add(group);
+            }
+            group.add(searchType);
+            groupsByProvider.put(searchType, group);
+        }
+        return groups;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public SuggestionsSummary getTopSuggestions(final SuggestionContext context) {
+        // the deadline runs from the start of the request, including the providers run on this thread
+        final long deadline = System.currentTimeMillis() + this.deadlineMillis;
+        final Map<String, SingleSuggestionsSummary> results = new ConcurrentHashMap<String, SingleSuggestionsSummary>();
+
+        boolean complete = true;
+        if (this.executor == null) {
+            for (final List<String> group : this.providerGroups) {
+                collectSuggestions(group, context, results);
+            }
+        } else {
+            final List<Future<?>> pending = new ArrayList<Future<?>>(this.providerGroups.size());
+            final RequestTrace trace = RequestTrace.current();
+            for (final List<String> group : this.providerGroups) {
+                if (group == this.callingThreadGroup) {
+                    continue;
+                }
+                pending.add(this.executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        final RequestTrace previous = RequestTrace.attach(trace);
+                        try {
+                            collectSuggestions(group, context, results);
+                        } finally {
+                            RequestTrace.attach(previous);
+                        }
+                    }
+                }));
+            }
+
+            collectSuggestions(this.callingThreadGroup, context, results);
+            complete = awaitSuggestions(pending, deadline);
+        }
+
+        //return results, in the order of the providers
+        final List<SingleSuggestionsSummary> summaries = new ArrayList<SingleSuggestionsSummary>(results.size());
+        for (final String searchType : this.queryProviders.keySet()) {
+            final SingleSuggestionsSummary singleTypeSummary = results.get(searchType);
+            if (singleTypeSummary != null) {
+                summaries.add(singleTypeSummary);
+            }
+        }
+
         final SuggestionsSummary summary = new SuggestionsSummary();
-        final Map<String, SingleSuggestionsSummary> results = new LinkedHashMap<String, SingleSuggestionsSummary>();
+        summary.setSuggestionsSummaries(summaries);
+        summary.setPartial(!complete);
+        return summary;
+    }
+
+    /**
+     * Waits for the providers running on other threads, until the deadline passes. Providers that have not
+     * finished by then are left out of the results.
+     *
+     * @param pending the groups of providers still running
+     * @param deadline the time by which the suggestions are returned
+     * @return true if all providers finished in time
+     */
+    private boolean awaitSuggestions(final List<Future<?>> pending, final long deadline) {
+        boolean complete = true;
+        for (final Future<?> future : pending) {
+            try {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException e) {
+                // a running provider is left to finish
+                future.cancel(false);
+                complete = false;
+                LOGGER.debug("Suggestions took longer than [{}] ms, returning partial results", this.deadlineMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new StepInternalException(e.getMessage(), e);
+            }
+        }
+        return complete;
+    }
 
-        //go through each search type
-        for (Map.Entry<String, SingleTypeSuggestionService> query : queryProviders.entrySet()) {
-            final SingleTypeSuggestionService searchService = query.getValue();
+    /**
+     * Runs each provider of a group in turn, each one taking into account how many results the previous ones
+     * found.
+     *
+     * @param group    the search types in the group
+     * @param context  the context of the suggestion
+     * @param results  the results so far, to which these results are added
+     */
+    @SuppressWarnings("unchecked")
+    private void collectSuggestions(final List<String> group, final SuggestionContext context,
+                                    final Map<String, SingleSuggestionsSummary> results) {
+        for (final String searchType : group) {
+            final SingleTypeSuggestionService searchService = this.queryProviders.get(searchType);
 
             //run exact query against index
-            final int groupTotal = this.getGroupTotal(query.getKey(), results);
+            final int groupTotal = this.getGroupTotal(searchType, results);
             final int totalGroupLeftToRetrieve = MAX_RESULTS - groupTotal + PREVIEW_GROUP;
             Object[] docs = totalGroupLeftToRetrieve > 0 ? searchService.getExactTerms(context, totalGroupLeftToRetrieve, true) : null;
             int docLength = docs != null ? docs.length : 0;
@@ -102,13 +266,9 @@ public class SuggestionServiceImpl implements SuggestionService {
             setSuggestionsAndExamples(singleTypeSummary, suggestions, groupTotal);
             fillInTotalHits(o, extraDocs.length, singleTypeSummary);
 
-            singleTypeSummary.setSearchType(query.getKey());
-            results.put(query.getKey(), singleTypeSummary);
+            singleTypeSummary.setSearchType(searchType);
+            results.put(searchType, singleTypeSummary);
         }
-
-        //return results
-        summary.setSuggestionsSummaries(new ArrayList<SingleSuggestionsSummary>(results.values()));
-        return summary;
     }
 
     /**
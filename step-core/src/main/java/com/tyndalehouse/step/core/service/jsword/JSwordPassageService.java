@@ -108,6 +108,19 @@ public interface JSwordPassageService {
      * @return the right passage
      */
     OsisWrapper peakOsisText(String[] versions, Key lookupKey, List<LookupOption> options, String interlinearMode);
+
+    /**
+     * Looks up several short passages at once, such as a page of search results. The display mode and options
+     * are resolved once for the whole page, and the OSIS for all passages is read in a single pass.
+     *
+     * @param versions the list of versions to retrieve
+     * @param lookupKeys the key of each passage, in the order they should be returned
+     * @param options the options to use
+     * @param interlinearMode the interlinear mode requested
+     * @return one passage per key, in the same order as the keys
+     */
+    List<OsisWrapper> peakOsisTexts(String[] versions, List<Key> lookupKeys, List<LookupOption> options,
+                                    String interlinearMode);
     
     /**
      * Looks up a very short starter for ten
@@ -177,6 +190,15 @@ public interface JSwordPassageService {
      */
     StringAndCount getAllReferencesAndCounts(String references, String version);
 
+    /**
+     * Parses a list of references, rather than expanding them into a String.
+     *
+     * @param references the list of references
+     * @param version the version
+     * @return the key holding all the references, in the versification of the version
+     */
+    Key getAllReferencesKey(String references, String version);
+
     /**
      * @param key the big key
      * @param book the book
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword;
+
+import org.crosswire.jsword.book.Book;
+
+/**
+ * Keeps, for each installed zText and zCom module, a copy of the book that reads the module through memory-mapped
+ * files rather than through JSword's pool of open files. Verses are read without taking any lock, and the blocks
+ * they are decompressed from are shared between all threads, so that reading passages scales with the number of
+ * threads reading them.
+ * <p/>
+ * The copy is equal to the installed book, and only differs in the way its text is read.
+ *
+ * @author agent
+ */
+public interface MappedBookCache {
+    /**
+     * @param book the installed book
+     * @return a copy of the book reading its text from memory-mapped files, or the book itself if its text can't be
+     *         read that way (e.g. a dictionary, or a module that is enciphered or not compressed with zip)
+     */
+    Book getBook(Book book);
+
+    /**
+     * Drops the mapped copy of a module, and stops it being read, before the module's files are changed or deleted.
+     * Anyone still holding the copy fails to read from it, rather than reading the files as they change. The module
+     * is then read through JSword, rather than mapped again, until it has been installed or removed.
+     *
+     * @param initials the initials of the module
+     */
+    void evict(String initials);
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.book.BookException;
+import org.jdom2.Element;
+
+/**
+ * Keeps the OSIS of recently read passages, parsed, so that rendering a passage, its interlinear versions, its
+ * stats and the strong numbers of its verses all share the one read of the module. Passages are grouped by book and
+ * chapter: only passages that sit within a single chapter of a single book are kept, any other passage is read
+ * from JSword every time.
+ * <p/>
+ * The OSIS that is returned is shared between threads, and must not be modified: callers that need to change it
+ * must clone it first.
+ *
+ * @author agent
+ */
+public interface OsisCache {
+    /**
+     * @param bookData the book and passage
+     * @return the OSIS fragment, as {@link BookData#getOsisFragment()} would return it
+     * @throws BookException if the passage cannot be read
+     */
+    Element getOsisFragment(BookData bookData) throws BookException;
+
+    /**
+     * @param bookData the book and passage
+     * @return the whole OSIS document, as {@link BookData#getSAXEventProvider()} would return it
+     * @throws BookException if the passage cannot be read
+     */
+    SAXEventProvider getSAXEventProvider(BookData bookData) throws BookException;
+}
@@ -43,21 +43,17 @@ import com.tyndalehouse.step.core.service.StrongAugmentationService;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.utils.JSwordUtils;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.search.IndexSearcher;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookData;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.Books;
 import org.crosswire.jsword.book.OSISUtil;
-import org.crosswire.jsword.index.lucene.LuceneIndex;
 import org.crosswire.jsword.passage.Key;
-import org.crosswire.jsword.passage.NoSuchKeyException;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.versification.BibleBook;
 import org.crosswire.jsword.versification.DivisionName;
@@ -68,11 +64,14 @@ import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides each strong number given a verse.
@@ -87,9 +86,11 @@ public class JSwordStrongNumberHelper {
     private static final Book STRONG_OT_VERSION_BOOK = Books.installed().getBook(JSwordPassageService.OT_BOOK);
     private static volatile Versification ntV11n;
     private static volatile Versification otV11n;
+    private static final ConcurrentMap<String, StrongCountTable> COUNT_TABLES = new ConcurrentHashMap<>();
     private final JSwordVersificationService versification;
     private final JSwordSearchService jSwordSearchService;
     private final StrongAugmentationService strongAugmentationService;
+    private final OsisCache osisCache;
     private final EntityIndexReader definitions;
     private final Verse reference;
     private Map<String, List<LexiconSuggestion>> verseStrongs;
@@ -103,14 +104,17 @@ public class JSwordStrongNumberHelper {
      * @param reference                 the reference in the KJV versification equivalent
      * @param versification             the versification service to lookup the versification of the reference book
      * @param strongAugmentationService the strong augmentation service
+     * @param osisCache                 the parsed OSIS of recently read passages
      */
     public JSwordStrongNumberHelper(final EntityManager manager, final Verse reference,
                                     final JSwordVersificationService versification,
                                     final JSwordSearchService jSwordSearchService,
-                                    final StrongAugmentationService strongAugmentationService) {
+                                    final StrongAugmentationService strongAugmentationService,
+                                    final OsisCache osisCache) {
         this.versification = versification;
         this.jSwordSearchService = jSwordSearchService;
         this.strongAugmentationService = strongAugmentationService;
+        this.osisCache = osisCache;
         this.definitions = manager.getReader("definition");
         this.reference = reference;
         initReferenceVersification();
@@ -153,7 +157,8 @@ public class JSwordStrongNumberHelper {
             this.allStrongs = new HashMap<>(256);
 
             final Book preferredCountBook = getPreferredCountBook(this.isOT);
-            final List<Element> elements = JSwordUtils.getOsisElements(new BookData(preferredCountBook, key));
+            final List<Element> elements = JSwordUtils.getOsisElements(
+                    this.osisCache.getOsisFragment(new BookData(preferredCountBook, key)));
             Map<String, EntityDoc> augmentedReferences = new HashMap<>(16);
             for (final Element e : elements) {
                 final String verseRef = e.getAttributeValue(OSISUtil.OSIS_ATTR_OSISID);
@@ -178,8 +183,6 @@ public class JSwordStrongNumberHelper {
 
             // now get counts in the relevant portion of text
             applySearchCounts(getBookFromKey(key), augmentedReferences);
-        } catch (final NoSuchKeyException ex) {
-            LOG.warn("Unable to enhance verse numbers.", ex);
         } catch (final BookException ex) {
             LOG.warn("Unable to enhance verse number", ex);
         }
@@ -209,50 +212,69 @@ public class JSwordStrongNumberHelper {
      * @param augmentedByStrong the augmented strongs found in the original augmentation querys
      */
     private void applySearchCounts(final String bookName, final Map<String, EntityDoc> augmentedByStrong) {
+        final Book countBook = getPreferredCountBook(this.isOT);
+        final Versification v11n = this.isOT ? otV11n : ntV11n;
+        final StrongCountTable counts = getCountTable(countBook, v11n);
 
-        try {
-            final IndexSearcher is = jSwordSearchService.getIndexSearcher(
-                    this.isOT ? STRONG_OT_VERSION_BOOK.getInitials() : STRONG_NT_VERSION_BOOK.getInitials());
-            final TermDocs termDocs = is.getIndexReader().termDocs();
-            for (final Entry<String, BookAndBibleCount> strong : this.allStrongs.entrySet()) {
-                final String strongKey = strong.getKey();
-                termDocs.seek(new Term(LuceneIndex.FIELD_STRONG, this.strongAugmentationService.reduce(strongKey)));
-                final EntityDoc entityDoc = augmentedByStrong.get(strongKey);
-                final String references = entityDoc != null ? entityDoc.get("references") : null;
+        final BibleBook book = BibleBook.fromExactOSIS(bookName);
+        final int lastChapter = v11n.getLastChapter(book);
+        final int bookStart = new Verse(v11n, book, 1, 0).getOrdinal();
+        final int bookEnd = new Verse(v11n, book, lastChapter, v11n.getLastVerse(book, lastChapter)).getOrdinal();
 
-                // we'll never need more than 200 documents as this is the cut off point
-                int bible = 0;
-                int book = 0;
-                while (termDocs.next()) {
-                    final int freq = termDocs.freq();
+        for (final Entry<String, BookAndBibleCount> strong : this.allStrongs.entrySet()) {
+            final String strongKey = strong.getKey();
+            final EntityDoc entityDoc = augmentedByStrong.get(strongKey);
+            final String references = entityDoc != null ? entityDoc.get("references") : null;
 
-                    final Document doc = is.doc(termDocs.doc());
-                    final String docRef = doc.get(LuceneIndex.FIELD_KEY);
-                    if ((references == null || augmentedVersionInVerse(docRef, references))) {
-                        if (docRef != null && docRef.startsWith(bookName)) {
-                            book += freq;
-                        }
-                        bible += freq;
-                    }
-                }
+            counts.applyCounts(this.strongAugmentationService.reduce(strongKey), bookStart, bookEnd,
+                    references == null ? null : getOrdinals(v11n, references), strong.getValue());
+        }
+    }
+
+    /**
+     * Reads the occurrences of all strong numbers in the count book the first time they are needed, and again if
+     * the book has been re-indexed since.
+     *
+     * @param countBook the book the counts are taken from
+     * @param v11n      the versification of the book
+     * @return the table of occurrences
+     */
+    private StrongCountTable getCountTable(final Book countBook, final Versification v11n) {
+        final IndexSearcher is = jSwordSearchService.getIndexSearcher(countBook.getInitials());
+        final StrongCountTable table = COUNT_TABLES.get(countBook.getInitials());
+        if (table != null && table.isReadFrom(is.getIndexReader())) {
+            return table;
+        }
 
-                final BookAndBibleCount value = strong.getValue();
-                value.setBible(bible);
-                value.setBook(book);
+        synchronized (COUNT_TABLES) {
+            final StrongCountTable current = COUNT_TABLES.get(countBook.getInitials());
+            if (current != null && current.isReadFrom(is.getIndexReader())) {
+                return current;
+            }
+
+            try {
+                final StrongCountTable newTable = StrongCountTable.build(is.getIndexReader(), v11n);
+                COUNT_TABLES.put(countBook.getInitials(), newTable);
+                return newTable;
+            } catch (final IOException e) {
+                throw new StepInternalException(e.getMessage(), e);
             }
-        } catch (final IOException e) {
-            throw new StepInternalException(e.getMessage(), e);
         }
     }
 
     /**
-     * A simple 'contains' but that takes count of the bounds, rather than doing a regular expression
-     * @param docRef
-     * @param references
-     * @return
+     * @param v11n       the versification
+     * @param references the OSIS ids of the verses an augmented strong number applies to
+     * @return the ordinals of the verses, in ascending order
      */
-    private boolean augmentedVersionInVerse(final String docRef, final String references) {
-        return references.endsWith(docRef) || references.contains(docRef + ' ');
+    private int[] getOrdinals(final Versification v11n, final String references) {
+        final String[] osisIds = StringUtils.split(references);
+        final int[] ordinals = new int[osisIds.length];
+        for (int ii = 0; ii < osisIds.length; ii++) {
+            ordinals[ii] = StrongCountTable.getOrdinal(v11n, osisIds[ii]);
+        }
+        Arrays.sort(ordinals);
+        return ordinals;
     }
 
     /**
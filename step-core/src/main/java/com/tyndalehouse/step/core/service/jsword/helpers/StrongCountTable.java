@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.crosswire.jsword.index.lucene.LuceneIndex;
+import org.crosswire.jsword.passage.NoSuchVerseException;
+import org.crosswire.jsword.passage.VerseFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tyndalehouse.step.core.models.search.BookAndBibleCount;
+import com.tyndalehouse.step.core.utils.IOUtils;
+
+/**
+ * The occurrences of every strong number of a Bible, read once from its index. For each strong number, the verses
+ * it appears in are held in order of their ordinal, alongside a running total of its occurrences, so that the count
+ * in a book or in the whole Bible is found with a couple of binary searches, without loading any document.
+ * <p>
+ * The verses and running totals are held outside of the heap. The table is immutable once built and safe to read
+ * from several threads.
+ *
+ * @author agent
+ */
+final class StrongCountTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StrongCountTable.class);
+    private final IndexReader reader;
+    private final String[] strongs;
+    private final IntBuffer starts;
+    private final IntBuffer ordinals;
+    private final IntBuffer runningTotals;
+
+    /**
+     * @param reader        the reader the table was read from
+     * @param strongs       the strong numbers, in index order
+     * @param starts        where the verses of each strong number start, and where the last one ends
+     * @param ordinals      the ordinals of the verses of each strong number, in ascending order
+     * @param runningTotals the number of occurrences before each verse, and in total
+     */
+    private StrongCountTable(final IndexReader reader, final String[] strongs, final IntBuffer starts,
+            final IntBuffer ordinals, final IntBuffer runningTotals) {
+        this.reader = reader;
+        this.strongs = strongs;
+        this.starts = starts;
+        this.ordinals = ordinals;
+        this.runningTotals = runningTotals;
+    }
+
+    /**
+     * Reads the verse of every document, then the occurrences of every strong number
+     *
+     * @param reader        the reader to the index of the Bible
+     * @param versification the versification of the Bible
+     * @return the table
+     * @throws IOException if the index cannot be read
+     */
+    static StrongCountTable build(final IndexReader reader, final Versification versification) throws IOException {
+        final int maxDoc = reader.maxDoc();
+        final MapFieldSelector keyOnly = new MapFieldSelector(LuceneIndex.FIELD_KEY);
+        final int[] ordinalsByDoc = new int[maxDoc];
+        for (int doc = 0; doc < maxDoc; doc++) {
+            final Document document = reader.isDeleted(doc) ? null : reader.document(doc, keyOnly);
+            ordinalsByDoc[doc] = document == null ? -1 : getOrdinal(versification, document.get(LuceneIndex.FIELD_KEY));
+        }
+
+        final List<String> strongs = new ArrayList<String>(16384);
+        int[] starts = new int[16384];
+        int[] ordinals = new int[65536];
+        int[] runningTotals = new int[65536];
+        int size = 0;
+        int total = 0;
+        long[] postings = new long[1024];
+
+        final TermEnum termEnum = reader.terms(new Term(LuceneIndex.FIELD_STRONG, ""));
+        final TermDocs termDocs = reader.termDocs();
+        try {
+            Term term = termEnum.term();
+            while (term != null && LuceneIndex.FIELD_STRONG.equals(term.field())) {
+                // order the postings of the strong number by verse
+                int numPostings = 0;
+                termDocs.seek(termEnum);
+                while (termDocs.next()) {
+                    final int ordinal = ordinalsByDoc[termDocs.doc()];
+                    if (ordinal != -1) {
+                        if (numPostings == postings.length) {
+                            postings = Arrays.copyOf(postings, numPostings << 1);
+                        }
+                        postings[numPostings++] = ((long) ordinal << 32) | termDocs.freq();
+                    }
+                }
+                Arrays.sort(postings, 0, numPostings);
+
+                if (strongs.size() == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length << 1);
+                }
+                starts[strongs.size()] = size;
+                strongs.add(term.text());
+
+                if (size + numPostings > ordinals.length) {
+                    final int capacity = Math.max(ordinals.length << 1, size + numPostings);
+                    ordinals = Arrays.copyOf(ordinals, capacity);
+                    runningTotals = Arrays.copyOf(runningTotals, capacity);
+                }
+                for (int ii = 0; ii < numPostings; ii++) {
+                    ordinals[size] = (int) (postings[ii] >>> 32);
+                    runningTotals[size] = total;
+                    total += (int) postings[ii];
+                    size++;
+                }
+                term = termEnum.next() ? termEnum.term() : null;
+            }
+        } finally {
+            IOUtils.closeQuietly(termDocs);
+            IOUtils.closeQuietly(termEnum);
+        }
+
+        final IntBuffer startsOffHeap = allocate(strongs.size() + 1);
+        startsOffHeap.put(starts, 0, strongs.size()).put(size).flip();
+        final IntBuffer ordinalsOffHeap = allocate(size);
+        ordinalsOffHeap.put(ordinals, 0, size).flip();
+        final IntBuffer runningTotalsOffHeap = allocate(size + 1);
+        runningTotalsOffHeap.put(runningTotals, 0, size).put(total).flip();
+
+        LOGGER.debug("Read [{}] occurrences of [{}] strong numbers", total, strongs.size());
+        return new StrongCountTable(reader, strongs.toArray(new String[strongs.size()]), startsOffHeap,
+                ordinalsOffHeap, runningTotalsOffHeap);
+    }
+
+    /**
+     * @param capacity the number of ints
+     * @return a buffer outside of the heap
+     */
+    private static IntBuffer allocate(final int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+    }
+
+    /**
+     * @param versification the versification
+     * @param osisId        the OSIS id of a verse
+     * @return the ordinal of the verse, or -1 if it isn't one
+     */
+    static int getOrdinal(final Versification versification, final String osisId) {
+        if (osisId == null) {
+            return -1;
+        }
+
+        try {
+            return VerseFactory.fromString(versification, osisId).getOrdinal();
+        } catch (final NoSuchVerseException e) {
+            LOGGER.trace("Ignoring [{}] as it is not a verse", osisId);
+            return -1;
+        }
+    }
+
+    /**
+     * @param reader the reader to the index
+     * @return true if the table was read from this reader
+     */
+    boolean isReadFrom(final IndexReader reader) {
+        return this.reader == reader;
+    }
+
+    /**
+     * Counts the occurrences of a strong number in the whole Bible and in one of its books
+     *
+     * @param strong the strong number, as held in the index
+     * @param from   the ordinal of the first verse of the book
+     * @param to     the ordinal of the last verse of the book
+     * @param verses the ordinals of the only verses to count, in ascending order, or null to count all of them
+     * @param counts receives the counts
+     */
+    void applyCounts(final String strong, final int from, final int to, final int[] verses,
+            final BookAndBibleCount counts) {
+        final int strongIndex = Arrays.binarySearch(this.strongs, strong);
+        if (strongIndex < 0) {
+            counts.setBible(0);
+            counts.setBook(0);
+            return;
+        }
+
+        final int start = this.starts.get(strongIndex);
+        final int end = this.starts.get(strongIndex + 1);
+        if (verses == null) {
+            counts.setBible(this.runningTotals.get(end) - this.runningTotals.get(start));
+            counts.setBook(this.runningTotals.get(lowerBound(start, end, to + 1))
+                    - this.runningTotals.get(lowerBound(start, end, from)));
+            return;
+        }
+
+        int bible = 0;
+        int book = 0;
+        int previous = -1;
+        for (final int verse : verses) {
+            if (verse == previous) {
+                continue;
+            }
+            previous = verse;
+
+            final int position = lowerBound(start, end, verse);
+            if (position < end && this.ordinals.get(position) == verse) {
+                final int occurrences = this.runningTotals.get(position + 1) - this.runningTotals.get(position);
+                bible += occurrences;
+                if (verse >= from && verse <= to) {
+                    book += occurrences;
+                }
+            }
+        }
+        counts.setBible(bible);
+        counts.setBook(book);
+    }
+
+    /**
+     * @param start   the first position of the strong number's verses
+     * @param end     the position after its last verse
+     * @param ordinal the ordinal
+     * @return the first position holding a verse that is not before the ordinal
+     */
+    private int lowerBound(final int start, final int end, final int ordinal) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (this.ordinals.get(middle) < ordinal) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.helpers;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseKey;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.VersificationsMapper;
+
+/**
+ * A set of verses, held as a bitset of verse ordinals in a single versification. Search results are combined
+ * here, rather than through {@link Key#retainAll(Key)} and {@link Key#addAll(Key)}, and only turned back into a
+ * {@link Passage} once all searches have been combined.
+ * <p/>
+ * Keys from other versifications are mapped verse by verse, through a table of ordinals that is worked out once
+ * per pair of versifications and then shared.
+ * <p/>
+ * Not thread-safe.
+ *
+ * @author agent
+ */
+public final class VerseBitSet {
+    private static final ConcurrentMap<String, OrdinalMapping> MAPPINGS = new ConcurrentHashMap<String, OrdinalMapping>();
+    private final Versification versification;
+    private final BitSet ordinals;
+
+    /**
+     * @param versification the versification of the ordinals
+     */
+    public VerseBitSet(final Versification versification) {
+        this.versification = versification;
+        this.ordinals = new BitSet(versification.maximumOrdinal() + 1);
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is a set of verses that can be held here without losing anything. The ranks of a
+     *         {@link PassageTally} would be lost.
+     */
+    public static boolean canCombine(final Key key) {
+        return key instanceof VerseKey && !(key instanceof PassageTally);
+    }
+
+    /**
+     * @param key the verses, which need to be a {@link VerseKey}
+     * @return the verses of the key, in the key's versification
+     */
+    public static VerseBitSet fromKey(final Key key) {
+        final VerseBitSet verses = new VerseBitSet(((VerseKey) key).getVersification());
+        verses.addAll(key);
+        return verses;
+    }
+
+    /**
+     * Adds all the verses of the key, mapping them into this versification if need be
+     *
+     * @param key the verses to add, which need to be a {@link VerseKey}
+     */
+    public void addAll(final Key key) {
+        this.ordinals.or(toOrdinals(key));
+    }
+
+    /**
+     * Adds all the verses of another set
+     *
+     * @param other the verses to add, which need to be in the same versification
+     */
+    public void addAll(final VerseBitSet other) {
+        this.ordinals.or(other.ordinals);
+    }
+
+    /**
+     * Keeps only the verses that are also in the key. A null key has no verses, and so empties the set.
+     *
+     * @param key the verses to keep, which need to be a {@link VerseKey}
+     */
+    public void retainAll(final Key key) {
+        if (key == null) {
+            this.ordinals.clear();
+            return;
+        }
+        this.ordinals.and(toOrdinals(key));
+    }
+
+    /**
+     * @param other the other verses, which need to be in the same versification
+     * @return true if at least one verse is in both sets
+     */
+    public boolean intersects(final VerseBitSet other) {
+        return this.ordinals.intersects(other.ordinals);
+    }
+
+    /**
+     * @return the number of verses in the set
+     */
+    public int getCardinality() {
+        return this.ordinals.cardinality();
+    }
+
+    /**
+     * Builds the passage, adding each run of consecutive verses as a single range
+     *
+     * @return the verses as a passage, in the versification of the set
+     */
+    public Passage toPassage() {
+        final Passage passage = (Passage) PassageKeyFactory.instance().createEmptyKeyList(this.versification);
+        int start = this.ordinals.nextSetBit(0);
+        while (start >= 0) {
+            final int end = this.ordinals.nextClearBit(start) - 1;
+            passage.add(new VerseRange(this.versification, this.versification.decodeOrdinal(start),
+                    this.versification.decodeOrdinal(end)));
+            start = this.ordinals.nextSetBit(end + 1);
+        }
+        return passage;
+    }
+
+    /**
+     * @param key the verses
+     * @return the ordinals of the verses, in this versification
+     */
+    private BitSet toOrdinals(final Key key) {
+        final Passage passage = KeyUtil.getPassage(key);
+        final Versification keyVersification = passage.getVersification();
+        final BitSet keyOrdinals = new BitSet(this.versification.maximumOrdinal() + 1);
+
+        final OrdinalMapping mapping = this.versification.equals(keyVersification) ? null : getMapping(
+                keyVersification, this.versification);
+        final Iterator<VerseRange> ranges = passage.rangeIterator(RestrictionType.NONE);
+        while (ranges.hasNext()) {
+            final VerseRange range = ranges.next();
+            final int start = range.getStart().getOrdinal();
+            final int end = range.getEnd().getOrdinal();
+            if (mapping == null) {
+                keyOrdinals.set(start, end + 1);
+            } else {
+                for (int ordinal = start; ordinal <= end; ordinal++) {
+                    mapping.map(ordinal, keyOrdinals);
+                }
+            }
+        }
+        return keyOrdinals;
+    }
+
+    /**
+     * @param source the versification the ordinals come from
+     * @param target the versification the ordinals are wanted in
+     * @return the mapping between the two, worked out if it hasn't been already
+     */
+    private static OrdinalMapping getMapping(final Versification source, final Versification target) {
+        final String mappingKey = source.getName() + '>' + target.getName();
+        OrdinalMapping mapping = MAPPINGS.get(mappingKey);
+        if (mapping == null) {
+            // two threads may both work it out, but they'll come to the same answer
+            mapping = new OrdinalMapping(source, target);
+            MAPPINGS.putIfAbsent(mappingKey, mapping);
+        }
+        return mapping;
+    }
+
+    /**
+     * The ordinals in one versification that each ordinal of another versification maps to. The targets of
+     * ordinal i are held in targets[starts[i]] to targets[starts[i + 1] - 1], as most verses map to a single
+     * verse.
+     */
+    private static final class OrdinalMapping {
+        private final int[] starts;
+        private final int[] targets;
+
+        /**
+         * @param source the versification the ordinals come from
+         * @param target the versification the ordinals are wanted in
+         */
+        private OrdinalMapping(final Versification source, final Versification target) {
+            final VersificationsMapper mapper = VersificationsMapper.instance();
+            final int sourceOrdinals = source.maximumOrdinal() + 1;
+            this.starts = new int[sourceOrdinals + 1];
+            int[] mappedOrdinals = new int[sourceOrdinals];
+            int size = 0;
+            for (int ordinal = 0; ordinal < sourceOrdinals; ordinal++) {
+                this.starts[ordinal] = size;
+                final VerseKey mapped = mapper.mapVerse(source.decodeOrdinal(ordinal), target);
+                for (final Key verse : mapped) {
+                    if (size == mappedOrdinals.length) {
+                        mappedOrdinals = Arrays.copyOf(mappedOrdinals, size << 1);
+                    }
+                    mappedOrdinals[size++] = ((Verse) verse).getOrdinal();
+                }
+            }
+            this.starts[sourceOrdinals] = size;
+            this.targets = Arrays.copyOf(mappedOrdinals, size);
+        }
+
+        /**
+         * @param ordinal the ordinal in the source versification
+         * @param into    the ordinals in the target versification, to which the mapped ordinals are added
+         */
+        private void map(final int ordinal, final BitSet into) {
+            for (int ii = this.starts[ordinal]; ii < this.starts[ordinal + 1]; ii++) {
+                into.set(this.targets[ii]);
+            }
+        }
+    }
+}
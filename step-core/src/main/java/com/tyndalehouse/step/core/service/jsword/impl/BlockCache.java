@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import com.tyndalehouse.step.core.utils.StripedLruCache;
+
+/**
+ * The decompressed blocks of the memory-mapped modules, shared by all the threads reading them, held in a
+ * {@link StripedLruCache} bounded by the number of bytes the blocks take.
+ *
+ * @author agent
+ */
+final class BlockCache {
+    private static final int ENTRY_OVERHEAD = 64;
+    private final StripedLruCache<BlockKey, byte[]> blocks;
+
+    /**
+     * @param maxBytes        the approximate number of bytes the cache may take
+     * @param numberOfStripes the number of stripes, each with its own lock
+     */
+    BlockCache(final long maxBytes, final int numberOfStripes) {
+        this.blocks = new StripedLruCache<BlockKey, byte[]>(BlockCache.class, maxBytes, numberOfStripes);
+    }
+
+    /**
+     * @param key the module, testament and number of the block
+     * @return the decompressed block, or null if not cached
+     */
+    byte[] get(final BlockKey key) {
+        return this.blocks.get(key);
+    }
+
+    /**
+     * @param key   the module, testament and number of the block
+     * @param block the decompressed block
+     */
+    void put(final BlockKey key, final byte[] block) {
+        this.blocks.put(key, block, block.length + ENTRY_OVERHEAD);
+    }
+
+    /**
+     * Discards the blocks of a testament whose files are no longer read
+     *
+     * @param testament      the mapped files of the testament
+     * @param numberOfBlocks the number of blocks in the testament
+     */
+    void remove(final Object testament, final int numberOfBlocks) {
+        for (int blockNumber = 0; blockNumber < numberOfBlocks; blockNumber++) {
+            this.blocks.remove(new BlockKey(testament, blockNumber));
+        }
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the cache
+     */
+    long getWeight() {
+        return this.blocks.getWeight();
+    }
+
+    /**
+     * Discards all the blocks
+     */
+    void clear() {
+        this.blocks.clear();
+    }
+
+    /**
+     * Identifies a block by the testament of the module it belongs to, and its number
+     */
+    static final class BlockKey {
+        private final Object testament;
+        private final int blockNumber;
+
+        /**
+         * @param testament   the mapped files of the testament
+         * @param blockNumber the number of the block
+         */
+        BlockKey(final Object testament, final int blockNumber) {
+            this.testament = testament;
+            this.blockNumber = blockNumber;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof BlockKey)) {
+                return false;
+            }
+            final BlockKey other = (BlockKey) obj;
+            return this.testament == other.testament && this.blockNumber == other.blockNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.testament) + this.blockNumber;
+        }
+    }
+}
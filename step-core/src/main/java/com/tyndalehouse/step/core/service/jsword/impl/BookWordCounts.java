@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The number of times each word appears in each chapter of a book. The words of the book are held once, and
+ * each chapter keeps the ids of its words alongside their counts, so that the stats of a few chapters, or of the
+ * whole book, are worked out by adding up the counts rather than reading the text again.
+ * <p>
+ * Immutable once built, and safe to read from several threads.
+ *
+ * @author agent
+ */
+final class BookWordCounts {
+    private static final int[] NO_WORDS = new int[0];
+    private final String[] words;
+    private final int[][] wordIds;
+    private final int[][] counts;
+
+    /**
+     * @param words   the words of the book
+     * @param wordIds the ids of the words of each chapter
+     * @param counts  the counts of the words of each chapter
+     */
+    private BookWordCounts(final String[] words, final int[][] wordIds, final int[][] counts) {
+        this.words = words;
+        this.wordIds = wordIds;
+        this.counts = counts;
+    }
+
+    /**
+     * Adds the counts of a range of chapters. Chapters that are not part of the book are ignored.
+     *
+     * @param firstChapter the first chapter
+     * @param lastChapter  the last chapter, included
+     * @param into         the counts so far, keyed by word, to which the counts of the chapters are added
+     */
+    void addCounts(final int firstChapter, final int lastChapter, final Map<String, Integer> into) {
+        final int[] totals = new int[this.words.length];
+        for (int chapter = Math.max(0, firstChapter); chapter <= lastChapter && chapter < this.wordIds.length; chapter++) {
+            final int[] chapterWordIds = this.wordIds[chapter];
+            final int[] chapterCounts = this.counts[chapter];
+            for (int ii = 0; ii < chapterWordIds.length; ii++) {
+                totals[chapterWordIds[ii]] += chapterCounts[ii];
+            }
+        }
+
+        for (int id = 0; id < totals.length; id++) {
+            if (totals[id] != 0) {
+                final Integer previous = into.get(this.words[id]);
+                into.put(this.words[id], previous == null ? totals[id] : previous + totals[id]);
+            }
+        }
+    }
+
+    /**
+     * Gathers the counts of a book, one chapter at a time
+     */
+    static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<String, Integer>(1024);
+        private final List<String> words = new ArrayList<String>(1024);
+        private final int[][] wordIds;
+        private final int[][] counts;
+
+        /**
+         * @param lastChapter the last chapter of the book
+         */
+        Builder(final int lastChapter) {
+            this.wordIds = new int[lastChapter + 1][];
+            this.counts = new int[lastChapter + 1][];
+        }
+
+        /**
+         * @param chapter       the chapter
+         * @param chapterCounts the number of times each word appears in the chapter
+         */
+        void addChapter(final int chapter, final Map<String, Integer> chapterCounts) {
+            final int[] chapterWordIds = new int[chapterCounts.size()];
+            final int[] counts = new int[chapterCounts.size()];
+            int ii = 0;
+            for (final Map.Entry<String, Integer> count : chapterCounts.entrySet()) {
+                Integer id = this.ids.get(count.getKey());
+                if (id == null) {
+                    id = this.words.size();
+                    this.ids.put(count.getKey(), id);
+                    this.words.add(count.getKey());
+                }
+                chapterWordIds[ii] = id;
+                counts[ii] = count.getValue();
+                ii++;
+            }
+            this.wordIds[chapter] = chapterWordIds;
+            this.counts[chapter] = counts;
+        }
+
+        /**
+         * @return the counts of the book, where chapters that were not added have no words
+         */
+        BookWordCounts build() {
+            for (int chapter = 0; chapter < this.wordIds.length; chapter++) {
+                if (this.wordIds[chapter] == null) {
+                    this.wordIds[chapter] = NO_WORDS;
+                    this.counts[chapter] = NO_WORDS;
+                }
+            }
+            return new BookWordCounts(this.words.toArray(new String[this.words.size()]), this.wordIds, this.counts);
+        }
+    }
+}
@@ -41,6 +41,7 @@ import com.tyndalehouse.step.core.models.stats.ScopeType;
 import com.tyndalehouse.step.core.service.StrongAugmentationService;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
 import org.crosswire.jsword.book.Book;
@@ -52,6 +53,7 @@ import org.crosswire.jsword.passage.*;
 import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.models.stats.PassageStat;
 import com.tyndalehouse.step.core.service.jsword.JSwordAnalysisService;
+import org.crosswire.jsword.versification.BibleBook;
 import org.crosswire.jsword.versification.Versification;
 
 import java.util.*;
@@ -71,31 +73,56 @@ public class JSwordAnalysisServiceImpl implements JSwordAnalysisService {
     private final Book strongsBook;
     private final Properties stopWordsProperties;
     private StrongAugmentationService strongAugmentationService;
+    private final Map<String, BookWordCounts> bookCounts;
+    private final OsisCache osisCache;
 
     /**
      * Instantiates a new jsword analysis service impl.
      *
      * @param versification the versification
+     * @param cachedBooks   the number of books for which the counts of each chapter are kept, or 0 to read the
+     *                      text of the passage on every request
+     * @param osisCache     the parsed OSIS of recently read passages
      */
     @Inject
     public JSwordAnalysisServiceImpl(final JSwordVersificationService versification,
                                      @Named("StepCoreProperties") final Properties stopWordsProperties,
                                      @Named("analysis.stopStrongs") final String configuredStopStrongs,
-                                     final StrongAugmentationService strongAugmentationService) {
+                                     final StrongAugmentationService strongAugmentationService,
+                                     @Named("analysis.cachedBooks") final int cachedBooks,
+                                     final OsisCache osisCache) {
         this.versification = versification;
         this.stopWordsProperties = stopWordsProperties;
         this.strongAugmentationService = strongAugmentationService;
+        this.osisCache = osisCache;
         stopStrongs = StringUtils.createSet(configuredStopStrongs);
         strongsBook = this.versification.getBookFromVersion(JSwordPassageService.REFERENCE_BOOK);
         strongsV11n = this.versification.getVersificationForVersion(strongsBook);
+        this.bookCounts = cachedBooks > 0 ? new LinkedHashMap<String, BookWordCounts>(cachedBooks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, BookWordCounts> eldest) {
+                return size() > cachedBooks;
+            }
+        } : null;
     }
 
     @Override
     public PassageStat getWordStats(final Key reference, final ScopeType scopeType) {
+        //change the reference to match what we need
+        final BookData expandedBook = getExpandedBookData(reference, scopeType, strongsV11n, strongsBook);
+        if (scopeType != ScopeType.PASSAGE && this.bookCounts != null) {
+            return getStatsFromChapters(true, strongsBook, strongsV11n, expandedBook.getKey());
+        }
+        return getWordStats(expandedBook);
+    }
+
+    /**
+     * @param bookData the passage
+     * @return the strong numbers of the passage, and how many times each one appears
+     */
+    private PassageStat getWordStats(final BookData bookData) {
         try {
-            //change the reference to match what we need
-            final BookData expandedBook = getExpandedBookData(reference, scopeType, strongsV11n, strongsBook);
-            return getStatsFromStrongArray(expandedBook.getFirstBook().getInitials(), expandedBook.getKey(), split(OSISUtil.getStrongsNumbers(expandedBook.getOsisFragment())));
+            return getStatsFromStrongArray(bookData.getFirstBook().getInitials(), bookData.getKey(), split(OSISUtil.getStrongsNumbers(this.osisCache.getOsisFragment(bookData))));
         } catch (final BookException e) {
             throw new StepInternalException("Unable to read passage text", e);
         }
@@ -103,15 +130,26 @@ public class JSwordAnalysisServiceImpl implements JSwordAnalysisService {
 
     @Override
     public PassageStat getTextStats(final String version, final Key reference, final ScopeType scopeType) {
-        try {
-            final Book book = this.versification.getBookFromVersion(version);
-            final Versification av11n = this.versification.getVersificationForVersion(book);
-            final BookData bookData = getExpandedBookData(reference, scopeType, av11n, book);
+        final Book book = this.versification.getBookFromVersion(version);
+        final Versification av11n = this.versification.getVersificationForVersion(book);
+        final BookData bookData = getExpandedBookData(reference, scopeType, av11n, book);
+        if (scopeType != ScopeType.PASSAGE && this.bookCounts != null) {
+            return getStatsFromChapters(false, book, av11n, bookData.getKey());
+        }
+        return getTextStats(bookData);
+    }
 
-            final String canonicalText = OSISUtil.getCanonicalText(bookData.getOsisFragment());
+    /**
+     * @param bookData the passage
+     * @return the words of the passage that are not in the stop list of its language, and how many times each
+     *         one appears
+     */
+    private PassageStat getTextStats(final BookData bookData) {
+        try {
+            final String canonicalText = OSISUtil.getCanonicalText(this.osisCache.getOsisFragment(bookData));
             final String[] words = split(canonicalText, WORD_SPLIT);
 
-            Set<String> languageStopWords = getLanguageStopList(book);
+            Set<String> languageStopWords = getLanguageStopList(bookData.getFirstBook());
 
             final PassageStat stat = new PassageStat();
             for (final String word : words) {
@@ -126,6 +164,74 @@ public class JSwordAnalysisServiceImpl implements JSwordAnalysisService {
         }
     }
 
+    /**
+     * Adds up the counts of each chapter of the expanded passage, which always starts and ends on a chapter
+     * boundary, reading the counts of each book the first time they are needed.
+     *
+     * @param strongs       true for the strong numbers of the passage, false for its words
+     * @param book          the book containing the text
+     * @param v11n          the versification of the book
+     * @param expandedKey   the expanded passage
+     * @return the stats of the passage
+     */
+    private PassageStat getStatsFromChapters(final boolean strongs, final Book book, final Versification v11n,
+                                             final Key expandedKey) {
+        final PassageStat stat = new PassageStat();
+        if (!(expandedKey instanceof VerseRange)) {
+            //there is no data
+            return stat;
+        }
+
+        final VerseRange range = (VerseRange) expandedKey;
+        final Verse end = range.getEnd();
+        Verse chapterStart = range.getStart();
+        while (true) {
+            final BibleBook bibleBook = chapterStart.getBook();
+            final int lastChapter = bibleBook == end.getBook() ? end.getChapter() : v11n.getLastChapter(bibleBook);
+            getBookCounts(strongs, book, v11n, bibleBook).addCounts(chapterStart.getChapter(), lastChapter, stat.getStats());
+
+            final int nextOrdinal = new Verse(v11n, bibleBook, lastChapter, v11n.getLastVerse(bibleBook, lastChapter)).getOrdinal() + 1;
+            if (nextOrdinal > end.getOrdinal()) {
+                return stat;
+            }
+            chapterStart = v11n.decodeOrdinal(nextOrdinal);
+        }
+    }
+
+    /**
+     * @param strongs   true for the strong numbers of the book, false for its words
+     * @param book      the book containing the text
+     * @param v11n      the versification of the book
+     * @param bibleBook the book of the bible
+     * @return the counts of each chapter of the book, read and kept the first time they are needed
+     */
+    private BookWordCounts getBookCounts(final boolean strongs, final Book book, final Versification v11n,
+                                         final BibleBook bibleBook) {
+        final String key = (strongs ? "strongs/" : "text/") + book.getInitials() + '/' + bibleBook.getOSIS();
+        BookWordCounts counts;
+        synchronized (this.bookCounts) {
+            counts = this.bookCounts.get(key);
+        }
+
+        if (counts == null) {
+            // two threads may both count the same book, but they'll come to the same answer
+            final int lastChapter = v11n.getLastChapter(bibleBook);
+            final BookWordCounts.Builder builder = new BookWordCounts.Builder(lastChapter);
+            for (int chapter = 0; chapter <= lastChapter; chapter++) {
+                final BookData chapterData = new BookData(book, new VerseRange(v11n,
+                        new Verse(v11n, bibleBook, chapter, 0),
+                        new Verse(v11n, bibleBook, chapter, v11n.getLastVerse(bibleBook, chapter))));
+                builder.addChapter(chapter, (strongs ? getWordStats(chapterData) : getTextStats(chapterData)).getStats());
+            }
+            counts = builder.build();
+
+            synchronized (this.bookCounts) {
+                this.bookCounts.put(key, counts);
+            }
+        }
+        return counts;
+    }
+
     /**
      * Lazily obtains the stop list for the specific language of a book
      *
@@ -240,9 +346,15 @@ public class JSwordAnalysisServiceImpl implements JSwordAnalysisService {
         final PassageStat stat = new PassageStat();
         //slight annoyance that we are deserializing the key to re-serialise later
         final String ref = reference.getOsisRef();
+        //the same word is augmented the same way throughout the passage
+        final Map<String, String[]> augmentedWords = new HashMap<String, String[]>(words.length);
         for (final String unaugmentedWord : words) {
-            StrongAugmentationService.AugmentedStrongs strongs = this.strongAugmentationService.augment(version, ref, unaugmentedWord);
-            for(String word : strongs.getStrongList()) {
+            String[] strongs = augmentedWords.get(unaugmentedWord);
+            if (strongs == null) {
+                strongs = this.strongAugmentationService.augment(version, ref, unaugmentedWord).getStrongList();
+                augmentedWords.put(unaugmentedWord, strongs);
+            }
+            for(String word : strongs) {
                 final String paddedStrongNumber = StringConversionUtils.getStrongPaddedKey(word);
                 if (!this.stopStrongs.contains(paddedStrongNumber.toUpperCase())) {
                     stat.addWord(paddedStrongNumber);
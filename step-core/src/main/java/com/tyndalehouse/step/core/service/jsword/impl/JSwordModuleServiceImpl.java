@@ -7,6 +7,7 @@ import com.tyndalehouse.step.core.models.BibleInstaller;
 import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.jsword.JSwordModuleService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.MappedBookCache;
 import com.tyndalehouse.step.core.utils.JSwordUtils;
 import com.tyndalehouse.step.core.utils.ValidateUtils;
 import org.crosswire.common.progress.JobManager;
@@ -53,22 +54,26 @@ public class JSwordModuleServiceImpl implements JSwordModuleService {
     private final List<Installer> offlineInstallers;
     private final JSwordVersificationService versificationService;
     private final VersionResolver versionResolver;
+    private final MappedBookCache mappedBooks;
     private boolean offline = false;
 
 
     /**
      * @param installers        a list of installers to use to download books
      * @param offlineInstallers the set of installers to use offline, rather than online
+     * @param mappedBooks       the copies of the installed books that read their text from memory-mapped files
      */
     @Inject
     public JSwordModuleServiceImpl(@Named("onlineInstallers") final List<Installer> installers,
                                    @Named("offlineInstallers") final List<Installer> offlineInstallers,
                                    final JSwordVersificationService versificationService,
-                                   final VersionResolver versionResolver) {
+                                   final VersionResolver versionResolver,
+                                   final MappedBookCache mappedBooks) {
         this.bookInstallers = installers;
         this.offlineInstallers = offlineInstallers;
         this.versificationService = versificationService;
         this.versionResolver = versionResolver;
+        this.mappedBooks = mappedBooks;
 
         // add a handler to be notified of all job progresses
         JobManager.addWorkListener(new WorkListener() {
@@ -175,6 +180,9 @@ public class JSwordModuleServiceImpl implements JSwordModuleService {
                 if (bookToBeInstalled != null) {
                     // then we can kick off installation and return
                     try {
+                        // nothing may read the module's files through a mapping while they are written, which
+                        // carries on after install returns, so it is read through JSword until it is installed
+                        this.mappedBooks.evict(bookToBeInstalled.getInitials());
                         i.install(bookToBeInstalled);
                         return;
                     } catch (final InstallException e) {
@@ -392,6 +400,8 @@ public class JSwordModuleServiceImpl implements JSwordModuleService {
             }
 
             try {
+                // the mapped copy is dropped first, so that nothing reads the files as they are deleted
+                this.mappedBooks.evict(deadBook.getInitials());
                 deadBook.getDriver().delete(deadBook);
             } catch (final Exception e) {
                 // book wasn't found probably
@@ -45,20 +45,23 @@ import com.tyndalehouse.step.core.service.PassageOptionsValidationService;
 import com.tyndalehouse.step.core.service.VocabularyService;
 import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.impl.MorphologyServiceImpl;
+import com.tyndalehouse.step.core.service.impl.PassageLexiconProvider;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
 import com.tyndalehouse.step.core.utils.JSwordUtils;
+import com.tyndalehouse.step.core.utils.RequestTrace;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
 import com.tyndalehouse.step.core.xsl.MultiInterlinearProvider;
 import com.tyndalehouse.step.core.xsl.XslConversionType;
+import com.tyndalehouse.step.core.xsl.XslTemplatesRegistry;
+import com.tyndalehouse.step.core.xsl.impl.TemplatesSAXEventProvider;
 import com.tyndalehouse.step.core.xsl.impl.ColorCoderProviderImpl;
 import com.tyndalehouse.step.core.xsl.impl.InterleavingProviderImpl;
 import com.tyndalehouse.step.core.xsl.impl.MultiInterlinearProviderImpl;
-import org.crosswire.common.xml.Converter;
 import org.crosswire.common.xml.JDOMSAXEventProvider;
 import org.crosswire.common.xml.SAXEventProvider;
-import org.crosswire.common.xml.TransformingSAXEventProvider;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookData;
 import org.crosswire.jsword.book.BookException;
@@ -90,8 +93,6 @@ import org.xml.sax.SAXException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.xml.transform.TransformerException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -132,6 +133,8 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
     private final ColorCoderProviderImpl colorCoder;
     private final VersionResolver resolver;
     private final PassageOptionsValidationService optionsValidationService;
+    private final XslTemplatesRegistry stylesheets;
+    private final OsisCache osisCache;
     private final Book kjvaBook;
     private final Book esvBook;
 
@@ -144,18 +147,23 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param colorCoder               the service to color code a passage
      * @param resolver                 the resolver
      * @param optionsValidationService
+     * @param stylesheets              the compiled stylesheets used to render passages
+     * @param osisCache                the parsed OSIS of recently read passages
      */
     @Inject
     public JSwordPassageServiceImpl(final JSwordVersificationService versificationService,
                                     final MorphologyServiceImpl morphologyProvider, final VocabularyService vocabProvider,
                                     final ColorCoderProviderImpl colorCoder, final VersionResolver resolver,
-                                    final PassageOptionsValidationService optionsValidationService) {
+                                    final PassageOptionsValidationService optionsValidationService,
+                                    final XslTemplatesRegistry stylesheets, final OsisCache osisCache) {
         this.versificationService = versificationService;
         this.morphologyProvider = morphologyProvider;
         this.vocabProvider = vocabProvider;
         this.colorCoder = colorCoder;
         this.resolver = resolver;
         this.optionsValidationService = optionsValidationService;
+        this.stylesheets = stylesheets;
+        this.osisCache = osisCache;
 
         kjvaBook = Books.installed().getBook("KJVA");
         esvBook = Books.installed().getBook(JSwordPassageService.REFERENCE_BOOK);
@@ -432,7 +440,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
             }
 
             final BookData data = new BookData(book, key);
-            return OSISUtil.getCanonicalText(data.getOsisFragment());
+            return OSISUtil.getCanonicalText(this.osisCache.getOsisFragment(data));
         } catch (final BookException e) {
             throw new LocalisedException(e, e.getMessage());
         } catch (final NoSuchKeyException e) {
@@ -520,6 +528,146 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
         return this.getPassageByDisplayMode(Arrays.asList(versions), lookupKey, lookupOptions, interlinearMode);
     }
 
+    @Override
+    public List<OsisWrapper> peakOsisTexts(final String[] versions, final List<Key> lookupKeys,
+                                           final List<LookupOption> options, final String interlinearMode) {
+        if (versions.length == 0) {
+            throw new StepInternalException("No versions specified - app error?");
+        }
+
+        final List<LookupOption> lookupOptions = new ArrayList<LookupOption>(options);
+        lookupOptions.add(LookupOption.HIDE_XGEN);
+
+        final String masterVersion = versions[0];
+        final List<String> extraVersions = this.getExtras(Arrays.asList(versions));
+        final InterlinearMode desiredModeOfDisplay = this.optionsValidationService.getDisplayMode(interlinearMode, masterVersion, extraVersions);
+
+        // only plain passages can share a single read, interlinears and interleaved versions each need their own.
+        // Headings sit between verses rather than in them, so those passages are also read on their own
+        if (desiredModeOfDisplay != NONE || lookupKeys.size() < 2 || lookupOptions.contains(LookupOption.HEADINGS)) {
+            return peakOsisTextsIndividually(versions, lookupKeys, lookupOptions, interlinearMode);
+        }
+
+        final InterlinearMode realModeOfDisplay = this.optionsValidationService.determineDisplayMode(lookupOptions, desiredModeOfDisplay, true);
+        final Set<LookupOption> trimmedOptions = this.optionsValidationService.trim(
+                lookupOptions, masterVersion, extraVersions, desiredModeOfDisplay, null);
+        final String availableOptions = this.optionsValidationService.optionsToString(
+                this.optionsValidationService.getAvailableFeaturesForVersion(masterVersion, extraVersions, interlinearMode, realModeOfDisplay).getOptions());
+        final String selectedOptions = this.optionsValidationService.optionsToString(trimmedOptions);
+        final String extraVersionsAsString = this.getVersionsAsStrings(extraVersions);
+
+        final Book book = this.versificationService.getBookFromVersion(masterVersion);
+        final Versification v11n = this.versificationService.getVersificationForVersion(book);
+        final Map<String, Element> verses = getVerseElements(book, v11n, lookupKeys);
+
+        final List<OsisWrapper> passages = new ArrayList<OsisWrapper>(lookupKeys.size());
+        for (final Key lookupKey : lookupKeys) {
+            final OsisWrapper passage = getPassageFromVerses(book, v11n, lookupKey, verses,
+                    new ArrayList<LookupOption>(trimmedOptions), extraVersionsAsString);
+
+            if (passage == null) {
+                passages.add(this.peakOsisText(versions, lookupKey, options, interlinearMode));
+            } else {
+                passage.setOptions(availableOptions);
+                passage.setSelectedOptions(selectedOptions);
+                passages.add(passage);
+            }
+        }
+        return passages;
+    }
+
+    /**
+     * Looks up each passage on its own
+     *
+     * @param versions        the list of versions to retrieve
+     * @param lookupKeys      the key of each passage
+     * @param options         the options to use
+     * @param interlinearMode the interlinear mode requested
+     * @return one passage per key, in the same order as the keys
+     */
+    List<OsisWrapper> peakOsisTextsIndividually(final String[] versions, final List<Key> lookupKeys,
+                                                final List<LookupOption> options, final String interlinearMode) {
+        final List<OsisWrapper> passages = new ArrayList<OsisWrapper>(lookupKeys.size());
+        final List<LookupOption> lookupOptions = new ArrayList<LookupOption>(options);
+        for (int ii = 0; ii < lookupKeys.size(); ii++) {
+            // compare headers are only needed above the first passage
+            if (ii == 1) {
+                lookupOptions.add(LookupOption.HIDE_COMPARE_HEADERS);
+            }
+            passages.add(this.getPassageByDisplayMode(Arrays.asList(versions), lookupKeys.get(ii),
+                    new ArrayList<LookupOption>(lookupOptions), interlinearMode));
+        }
+        return passages;
+    }
+
+    /**
+     * Reads the OSIS for all the keys in one pass
+     *
+     * @param book       the book to read from
+     * @param v11n       the versification of the book
+     * @param lookupKeys the keys of all the passages
+     * @return the verse elements, keyed by lower-cased osisID
+     */
+    private Map<String, Element> getVerseElements(final Book book, final Versification v11n, final List<Key> lookupKeys) {
+        final Key allKeys = PassageKeyFactory.instance().createEmptyKeyList(v11n);
+        for (final Key lookupKey : lookupKeys) {
+            allKeys.addAll(lookupKey);
+        }
+
+        final Map<String, Element> verses = new HashMap<String, Element>(allKeys.getCardinality() * 2);
+        try {
+            final Element fragment = new BookData(book, allKeys).getOsisFragment();
+            final Iterator<Element> verseIterator = fragment.getDescendants(new ElementFilter(OSIS_ELEMENT_VERSE));
+            while (verseIterator.hasNext()) {
+                final Element verse = verseIterator.next();
+                final String osisID = verse.getAttributeValue(OSIS_ATTR_OSISID);
+                if (osisID != null) {
+                    verses.put(osisID.toLowerCase(), verse);
+                }
+            }
+        } catch (final BookException e) {
+            // each passage will be looked up individually instead
+            LOGGER.warn("Unable to read passages in one pass: {}", e.getMessage());
+            LOGGER.trace(e.getMessage(), e);
+        }
+        return verses;
+    }
+
+    /**
+     * Renders a single passage from verses that have already been read
+     *
+     * @param book               the book the verses came from
+     * @param v11n               the versification of the book
+     * @param lookupKey          the key to the passage
+     * @param verses             the verse elements that have been read, keyed by lower-cased osisID
+     * @param options            the options to use
+     * @param interlinearVersion the extra versions, if any
+     * @return the passage, or null if one of its verses had not been read, in which case it should be looked up
+     * on its own
+     */
+    OsisWrapper getPassageFromVerses(final Book book, final Versification v11n, final Key lookupKey,
+                                     final Map<String, Element> verses, final List<LookupOption> options,
+                                     final String interlinearVersion) {
+        final Key key;
+        try {
+            key = normalize(lookupKey, v11n);
+        } catch (final NoSuchKeyException e) {
+            return null;
+        }
+
+        final Element div = OSISUtil.factory().createDiv();
+        for (final Key verse : key) {
+            final Element verseElement = verses.get(verse.getOsisID().toLowerCase());
+            if (verseElement == null) {
+                return null;
+            }
+            div.addContent(verseElement.clone());
+        }
+
+        return getTextForBookData(options, interlinearVersion, new BookData(book, key),
+                new JDOMSAXEventProvider(new Document(div)), NONE);
+    }
+
     public OsisWrapper getPassageByDisplayMode(List<String> versionsInput, Key reference, List<LookupOption> options, final String interlinearMode) {
         if (versionsInput.size() == 0) {
             throw new StepInternalException("No versions specified - app error?");
@@ -776,6 +924,22 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      */
     private OsisWrapper getTextForBookData(final List<LookupOption> options, final String interlinearVersion,
                                            final BookData bookData, final InterlinearMode displayMode) {
+        return getTextForBookData(options, interlinearVersion, bookData, null, displayMode);
+    }
+
+    /**
+     * Gets the osis text
+     *
+     * @param options            the list of lookup options
+     * @param interlinearVersion the interlinear version if applicable
+     * @param bookData           the bookdata to use to look up the required version/reference combo
+     * @param osisProvider       the OSIS that has already been read for the bookdata, or null to read it now
+     * @param displayMode        the mode to display the text with
+     * @return the html text
+     */
+    private OsisWrapper getTextForBookData(final List<LookupOption> options, final String interlinearVersion,
+                                           final BookData bookData, final SAXEventProvider osisProvider,
+                                           final InterlinearMode displayMode) {
 
         // check we have a book in mind and a reference
         notNull(bookData, "An internal error occurred", UserExceptionType.SERVICE_VALIDATION_ERROR);
@@ -792,12 +956,27 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
         try {
             // first check whether the key is contained in the book
             key = normalize(key, versification);
-            final SAXEventProvider osissep = bookData.getSAXEventProvider();
+            final SAXEventProvider osissep;
+            final RequestTrace.Span osisSpan = RequestTrace.startSpan(RequestTrace.OSIS);
+            try {
+                osissep = osisProvider != null ? osisProvider : this.osisCache.getSAXEventProvider(bookData);
+            } finally {
+                osisSpan.end();
+            }
 
-            final TransformingSAXEventProvider htmlsep = executeStyleSheet(versification, options, interlinearVersion,
-                    bookData, osissep, displayMode);
+            // the stylesheets run as the html is written out
+            final TemplatesSAXEventProvider htmlsep;
+            final String html;
+            final RequestTrace.Span xsltSpan = RequestTrace.startSpan(RequestTrace.XSLT);
+            try {
+                htmlsep = executeStyleSheet(versification, options, interlinearVersion, bookData, osissep,
+                        displayMode);
+                html = writeToString(htmlsep);
+            } finally {
+                xsltSpan.end();
+            }
 
-            final OsisWrapper osisWrapper = new OsisWrapper(writeToString(htmlsep), key,
+            final OsisWrapper osisWrapper = new OsisWrapper(html, key,
                     getLanguages(book, displayMode, htmlsep, options), versification,
                     resolver.getShortName(bookData.getFirstBook().getInitials()), displayMode,
                     interlinearVersion);
@@ -859,7 +1038,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param mode     the mode of interlinear used
      * @param htmlsep  the transformer
      */
-    private String[] getLanguages(final Book mainBook, final InterlinearMode mode, final TransformingSAXEventProvider htmlsep, List<LookupOption> options) {
+    private String[] getLanguages(final Book mainBook, final InterlinearMode mode, final TemplatesSAXEventProvider htmlsep, List<LookupOption> options) {
         if (mode == InterlinearMode.INTERLINEAR) {
             return getLanguagesForInterlinear(mainBook, htmlsep);
         } else {
@@ -873,7 +1052,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param htmlsep the transformer
      * @return the list of language codes
      */
-    private String[] getLanguagesForInterleaved(final Book mainBook, final TransformingSAXEventProvider htmlsep) {
+    private String[] getLanguagesForInterleaved(final Book mainBook, final TemplatesSAXEventProvider htmlsep) {
         final InterleavingProviderImpl interleavingProvider = (InterleavingProviderImpl) htmlsep.getParameter("interleavingProvider");
         if (interleavingProvider == null) {
             return new String[]{mainBook.getLanguage().getCode()};
@@ -894,7 +1073,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param transformer the transforer
      * @return the array of languages
      */
-    private String[] getLanguagesForInterlinear(final Book mainBook, final TransformingSAXEventProvider transformer) {
+    private String[] getLanguagesForInterlinear(final Book mainBook, final TemplatesSAXEventProvider transformer) {
         final String interlinearVersion = (String) transformer.getParameter("interlinearVersion");
         final String[] versions = StringUtils.split(interlinearVersion, ", ?");
         final String[] totalVersions = new String[versions.length + 1];
@@ -947,7 +1126,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
         try {
             setUnaccenter(data, displayMode);
 
-            final TransformingSAXEventProvider transformer = executeStyleSheet(v11n, options, null, data,
+            final TemplatesSAXEventProvider transformer = executeStyleSheet(v11n, options, null, data,
                     data.getSAXEventProvider(), displayMode);
 
             String[] languages = new String[books.length];
@@ -1163,40 +1342,29 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param displayMode         the display mode
      * @return a Transforming SAX event provider, from which can be transformed into HTML
      * @throws TransformerException an exception in the stylesheet that is being executed
+     * @throws SAXException         the passage could not be read to look up its vocabulary
      */
-    private TransformingSAXEventProvider executeStyleSheet(
+    private TemplatesSAXEventProvider executeStyleSheet(
             final Versification masterVersification,
             final List<LookupOption> options,
             final String interlinearVersion, final BookData bookData, final SAXEventProvider osissep,
-            final InterlinearMode displayMode) throws TransformerException {
+            final InterlinearMode displayMode) throws TransformerException, SAXException {
         final XslConversionType requiredTransformation = identifyStyleSheet(options, displayMode);
 
-        return (TransformingSAXEventProvider) new Converter() {
-            @Override
-            public SAXEventProvider convert(final SAXEventProvider provider) throws TransformerException {
-                try {
-                    final String file = requiredTransformation.getFile();
-                    final URI resourceURI = getClass().getResource(file).toURI();
-
-                    final TransformingSAXEventProvider tsep = new TransformingSAXEventProvider(resourceURI,
-                            osissep);
-
-                    // set parameters here
-                    setOptions(tsep, options, bookData.getBooks());
-                    setInterlinearOptions(tsep,
-                            bookData.getBooks()[0].getInitials(),
-                            masterVersification,
-                            getInterlinearVersion(interlinearVersion),
-                            bookData.getKey()
-                                    .getOsisID(), displayMode, bookData.getKey(), options);
-                    setInterleavingOptions(tsep, displayMode, bookData);
-                    return tsep;
-                } catch (final URISyntaxException e) {
-                    throw new StepInternalException("Failed to load resource correctly", e);
-                }
-            }
-        }.convert(osissep);
-
+        final TemplatesSAXEventProvider tsep = new TemplatesSAXEventProvider(
+                this.stylesheets.getTemplates(requiredTransformation), osissep);
+
+        // set parameters here
+        setOptions(tsep, options, bookData.getBooks());
+        setLexiconProviders(tsep, options, bookData.getBooks(), osissep);
+        setInterlinearOptions(tsep,
+                bookData.getBooks()[0].getInitials(),
+                masterVersification,
+                getInterlinearVersion(interlinearVersion),
+                bookData.getKey()
+                        .getOsisID(), displayMode, bookData.getKey(), options);
+        setInterleavingOptions(tsep, displayMode, bookData);
+        return tsep;
     }
 
     /**
@@ -1244,7 +1412,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param key                 the key to the passage
      * @param options             the list of options to be applied (used to determine accenting
      */
-    private MultiInterlinearProvider setInterlinearOptions(final TransformingSAXEventProvider tsep,
+    private MultiInterlinearProvider setInterlinearOptions(final TemplatesSAXEventProvider tsep,
                                                            final String masterVersion,
                                                            final Versification masterVersification,
                                                            final String interlinearVersion,
@@ -1281,7 +1449,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
             }
 
             final MultiInterlinearProviderImpl multiInterlinear = new MultiInterlinearProviderImpl(masterVersion, masterVersification,
-                    interlinearVersion, reference, this.versificationService, this.vocabProvider, stripGreekAccents, stripHebrewAccents, stripVowels);
+                    interlinearVersion, reference, this.versificationService, this.vocabProvider, this.osisCache, stripGreekAccents, stripHebrewAccents, stripVowels);
             tsep.setParameter("interlinearProvider", multiInterlinear);
             return multiInterlinear;
         }
@@ -1295,7 +1463,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param bookData    the book data object containing the list of books we are interested in.
      * @param displayMode the display mode that we are interested in
      */
-    private void setInterleavingOptions(final TransformingSAXEventProvider tsep,
+    private void setInterleavingOptions(final TemplatesSAXEventProvider tsep,
                                         final InterlinearMode displayMode, final BookData bookData) {
         // so long as we're not NONE or INTERLINEAR, we almost always need an InterlinearProvider
         final Book[] books = bookData.getBooks();
@@ -1321,6 +1489,55 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
 
     }
 
+    /**
+     * Sets up the vocabulary and morphology providers, if any of the options need them. The vocabulary and morphology
+     * of every word of the passage are looked up in one go, rather than by the stylesheet word by word.
+     *
+     * @param tsep    the xslt transformer
+     * @param options the options available
+     * @param books   the books of the passage
+     * @param osissep the passage
+     * @throws SAXException the passage could not be read
+     */
+    private void setLexiconProviders(final TemplatesSAXEventProvider tsep, final List<LookupOption> options,
+                                     final Book[] books, final SAXEventProvider osissep) throws SAXException {
+        boolean vocab = false;
+        boolean prefetchVocab = false;
+        boolean morphology = false;
+        for (final LookupOption lookupOption : options) {
+            switch (lookupOption) {
+                case MORPHOLOGY:
+                    morphology = true;
+                    break;
+                case ENGLISH_VOCAB:
+                case TRANSLITERATION:
+                case GREEK_VOCAB:
+                    prefetchVocab = true;
+                    vocab = true;
+                    break;
+                case TRANSLITERATE_ORIGINAL:
+                    vocab = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (!vocab && !morphology) {
+            return;
+        }
+
+        final PassageLexiconProvider lexiconProvider = PassageLexiconProvider.prefetch(osissep,
+                this.resolver.getShortName(books[0].getInitials()), this.vocabProvider, this.morphologyProvider,
+                prefetchVocab, morphology);
+        if (morphology) {
+            tsep.setParameter("morphologyProvider", lexiconProvider);
+        }
+        if (vocab) {
+            tsep.setParameter("vocabProvider", lexiconProvider);
+        }
+    }
+
     /**
      * This method sets up the options for the XSLT transformation. Note: the set of options is trimmed to those
      * actually available
@@ -1329,7 +1546,7 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
      * @param options the options available
      * @param books   the version to initialise a potential interlinear with
      */
-    protected void setOptions(final TransformingSAXEventProvider tsep, final List<LookupOption> options,
+    protected void setOptions(final TemplatesSAXEventProvider tsep, final List<LookupOption> options,
                               final Book[] books) {
         final boolean isHebrew = JSwordUtils.isAncientHebrewBook(books);
         final boolean isGreek = JSwordUtils.isAncientGreekBook(books);
@@ -1346,15 +1563,6 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
                     case CHAPTER_BOOK_VERSE_NUMBER:
                         tsep.setParameter(LookupOption.VERSE_NUMBERS.getXsltParameterName(), true);
                         break;
-                    case MORPHOLOGY:
-                        tsep.setParameter("morphologyProvider", this.morphologyProvider);
-                        break;
-                    case ENGLISH_VOCAB:
-                    case TRANSLITERATION:
-                    case GREEK_VOCAB:
-                    case TRANSLITERATE_ORIGINAL:
-                        tsep.setParameter("vocabProvider", this.vocabProvider);
-                        break;
                     case COLOUR_CODE:
                         tsep.setParameter("colorCodingProvider", this.colorCoder);
                         break;
@@ -1410,21 +1618,25 @@ public class JSwordPassageServiceImpl implements JSwordPassageService {
     @Override
     public StringAndCount getAllReferencesAndCounts(final String references, final String version) {
         int count = 0;
-        //TODO - can be refactored to optimize the reference query when used in subject searches...
+        final StringBuilder referenceString = new StringBuilder(1024);
+        final Key k = getAllReferencesKey(references, version);
+        final Iterator<Key> iterator = k.iterator();
+        while (iterator.hasNext()) {
+            referenceString.append(iterator.next().getOsisID());
+            count++;
+            if (iterator.hasNext()) {
+                referenceString.append(' ');
+            }
+        }
+        return new StringAndCount(referenceString.toString(), count);
+    }
+
+    @Override
+    public Key getAllReferencesKey(final String references, final String version) {
         final PassageKeyFactory keyFactory = PassageKeyFactory.instance();
         final Versification av11n = this.versificationService.getVersificationForVersion(version);
-        final StringBuilder referenceString = new StringBuilder(1024);
         try {
-            final Key k = keyFactory.getKey(av11n, references);
-            final Iterator<Key> iterator = k.iterator();
-            while (iterator.hasNext()) {
-                referenceString.append(iterator.next().getOsisID());
-                count++;
-                if (iterator.hasNext()) {
-                    referenceString.append(' ');
-                }
-            }
-            return new StringAndCount(referenceString.toString(), count);
+            return keyFactory.getKey(av11n, references);
         } catch (final NoSuchKeyException e) {
             throw new TranslatedException(e, "invalid_reference_in_book", references, version);
         }
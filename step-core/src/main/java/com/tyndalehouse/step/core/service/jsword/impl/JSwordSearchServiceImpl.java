@@ -35,9 +35,16 @@ package com.tyndalehouse.step.core.service.jsword.impl;
 import java.awt.image.LookupOp;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import com.tyndalehouse.step.core.exceptions.LuceneSearchException;
@@ -71,6 +78,10 @@ import com.tyndalehouse.step.core.service.impl.SearchQuery;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.helpers.VerseBitSet;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
+import com.tyndalehouse.step.core.utils.RequestTrace;
+import com.tyndalehouse.step.core.utils.StringUtils;
 
 /**
  * API to search across the data
@@ -82,54 +93,90 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
     private static final Logger LOGGER = LoggerFactory.getLogger(JSwordSearchServiceImpl.class);
     private static final int MAX_RESULTS = 50000;
     private static final Pattern GEN_REV_RANGE = Pattern.compile("(\\+)\\[Gen-Rev\\]");
+    private static final Pattern SINGLE_TERM = Pattern.compile("[^\\s\\[\\]{}()~+\\-&|!\"]+");
     private final JSwordVersificationService av11nService;
     private final JSwordMetadataService metadataService;
     private final JSwordPassageService jsword;
+    private final ExecutorService executor;
 
     /**
      * @param av11nService the versification service
      * @param jsword       the jsword lookup service to retrieve the references
+     * @param executors    creates the pool used to search several versions at once
+     * @param threads      the number of threads used to search several versions at once, or 0 to search them one
+     *                     after the other on the calling thread
      */
     @Inject
     public JSwordSearchServiceImpl(final JSwordVersificationService av11nService,
                                    final JSwordMetadataService metadataService,
-                                   final JSwordPassageService jsword) {
+                                   final JSwordPassageService jsword,
+                                   final BoundedExecutors executors,
+                                   @Named("app.search.threads") final int threads) {
         this.av11nService = av11nService;
         this.metadataService = metadataService;
         this.jsword = jsword;
-
+        this.executor = executors.create("step-search", threads);
     }
 
     @Override
     public int estimateSearchResults(final SearchQuery sq) {
         final long start = System.currentTimeMillis();
 
-        final Key k = searchKeys(sq);
+        // an unranked search counts every hit, whatever the shape of the query, without scoring them
+        final Key k = searchKeys(sq, false, MAX_RESULTS);
         LOGGER.trace("Took [{}]ms", System.currentTimeMillis() - start);
 
-        return k.getCardinality();
+        return getTotal(k);
     }
-    
+
     @Override
     public Key searchKeys(final SearchQuery sq) {
+        return searchKeys(sq, sq.isRanked(), MAX_RESULTS);
+    }
+
+    /**
+     * Searches each version for the keys
+     *
+     * @param sq         the search query
+     * @param ranked     true to rank the results, keeping only the best maxResults hits of each version
+     * @param maxResults the maximum number of hits to keep for each version, when ranked
+     * @return the key to all the results
+     */
+    private Key searchKeys(final SearchQuery sq, final boolean ranked, final int maxResults) {
         final DefaultSearchModifier modifier = new DefaultSearchModifier();
+        modifier.setRanked(ranked);
+
+        // need to set to something sensible, other we may experience a
+        // "Requested array size exceeds VM limit"
+        modifier.setMaxResults(maxResults);
+
+        final IndividualSearch currentSearch = sq.getCurrentSearch();
+        final List<Book> bibles = getBiblesToSearch(currentSearch);
+        if (this.executor != null && bibles.size() > 1) {
+            return searchInParallel(modifier, currentSearch, bibles);
+        }
 
         // we have a linked hashmap, because we want to preserve the order of the versions we're looking up
         // this was we end up with the results in the correct versification
         final Map<String, Key> resultsPerVersion = new LinkedHashMap<String, Key>();
-        modifier.setRanked(sq.isRanked());
+        for (final Book bible : bibles) {
+            resultsPerVersion.put(bible.getInitials(), doSearch(modifier, currentSearch, bible));
+        }
 
-        // need to set to something sensible, other we may experience a
-        // "Requested array size exceeds VM limit"
-        modifier.setMaxResults(MAX_RESULTS);
+        // we then need to merge the keys together
+        // otherwise, we are into the realm of searching across multiple versions
+        // no need to rank, since it won't be possible to rank accurately across versions
+        return mergeSearches(resultsPerVersion);
+    }
 
-        final IndividualSearch currentSearch = sq.getCurrentSearch();
+    /**
+     * @param currentSearch the search
+     * @return the bibles to search, in the order of the versions of the search
+     */
+    private List<Book> getBiblesToSearch(final IndividualSearch currentSearch) {
         final boolean searchOnTaggedText = currentSearch.getType().isOriginalSearch();
-        
-        
-        boolean searchExecuted = false;
+        final List<Book> bibles = new ArrayList<Book>(currentSearch.getVersions().length);
         for (final String version : currentSearch.getVersions()) {
-            // now for each version, we do the search and store it in a map
             final Book bible = this.av11nService.getBookFromVersion(version);
         
             //if we're looking at only running searches on tagged texts, then we skip those 
@@ -141,24 +188,110 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
                     continue;
                 }
             }
-
-            doSearch(modifier, resultsPerVersion, currentSearch, bible);
-            searchExecuted = true;
+            bibles.add(bible);
         }
         
-        if(searchOnTaggedText && !searchExecuted) {
-            Book bible = this.av11nService.getBookFromVersion(JSwordPassageService.REFERENCE_BOOK);
-            doSearch(modifier, resultsPerVersion, currentSearch, bible);
+        if(searchOnTaggedText && bibles.isEmpty()) {
+            bibles.add(this.av11nService.getBookFromVersion(JSwordPassageService.REFERENCE_BOOK));
         }
+        return bibles;
+    }
 
-        // we then need to merge the keys together
-        // otherwise, we are into the realm of searching across multiple versions
-        // no need to rank, since it won't be possible to rank accurately across versions
-        return mergeSearches(resultsPerVersion);
+    /**
+     * Searches the first version on the calling thread and the others on the executor, combining the verses of
+     * each version as they are found. Each search maps its own verses into the versification of the first
+     * version, so the calling thread only has to add them up. Results that can't be held as verses, such as the
+     * ranked results, are merged once all the versions have been searched.
+     *
+     * @param modifier      the search modifier, which is only read
+     * @param currentSearch the search
+     * @param bibles        the bibles to search, at least two of them
+     * @return the key to all the results
+     */
+    private Key searchInParallel(final DefaultSearchModifier modifier, final IndividualSearch currentSearch,
+                                 final List<Book> bibles) {
+        final Versification versification = this.av11nService.getVersificationForVersion(bibles.get(0));
+        final CompletionService<VersionResults> completionService = new ExecutorCompletionService<VersionResults>(
+                this.executor);
+        final List<Future<VersionResults>> pending = new ArrayList<Future<VersionResults>>(bibles.size() - 1);
+        final RequestTrace trace = RequestTrace.current();
+        try {
+            for (final Book bible : bibles.subList(1, bibles.size())) {
+                pending.add(completionService.submit(new Callable<VersionResults>() {
+                    @Override
+                    public VersionResults call() {
+                        final RequestTrace previous = RequestTrace.attach(trace);
+                        try {
+                            return searchVersion(modifier, currentSearch, bible, versification);
+                        } finally {
+                            RequestTrace.attach(previous);
+                        }
+                    }
+                }));
+            }
+
+            final Map<String, VersionResults> resultsPerVersion = new HashMap<String, VersionResults>(
+                    bibles.size() * 2);
+            final VersionResults first = searchVersion(modifier, currentSearch, bibles.get(0), versification);
+            resultsPerVersion.put(first.version, first);
+            VerseBitSet allVerses = first.verses;
+            for (int ii = 0; ii < pending.size(); ii++) {
+                final VersionResults results = completionService.take().get();
+                resultsPerVersion.put(results.version, results);
+                if (allVerses != null && results.verses != null) {
+                    allVerses.addAll(results.verses);
+                } else {
+                    allVerses = null;
+                }
+            }
+
+            if (allVerses != null) {
+                return allVerses.toPassage();
+            }
+
+            final Map<String, Key> keysPerVersion = new LinkedHashMap<String, Key>();
+            for (final Book bible : bibles) {
+                keysPerVersion.put(bible.getInitials(), resultsPerVersion.get(bible.getInitials()).key);
+            }
+            return mergeSearches(keysPerVersion);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StepInternalException("Interrupted while searching " + currentSearch.getQuery(), e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new StepInternalException(e.getMessage(), e);
+        } finally {
+            // searches that have not started are not needed any more, and running ones are left to finish
+            for (final Future<VersionResults> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @param modifier      the search modifier
+     * @param currentSearch the search
+     * @param bible         the bible to search
+     * @param versification the versification the verses are wanted in
+     * @return the results of the bible
+     */
+    private VersionResults searchVersion(final DefaultSearchModifier modifier, final IndividualSearch currentSearch,
+                                         final Book bible, final Versification versification) {
+        final Key key = doSearch(modifier, currentSearch, bible);
+        LOGGER.debug("Sub-result-set [{}] has [{}] entries", bible.getInitials(), key.getCardinality());
+
+        VerseBitSet verses = null;
+        if (VerseBitSet.canCombine(key)) {
+            verses = new VerseBitSet(versification);
+            verses.addAll(key);
+        }
+        return new VersionResults(bible.getInitials(), key, verses);
     }
 
-    private void doSearch(final DefaultSearchModifier modifier, final Map<String, Key> resultsPerVersion, 
-                          final IndividualSearch currentSearch, final Book bible) {
+    private Key doSearch(final DefaultSearchModifier modifier, final IndividualSearch currentSearch,
+                         final Book bible) {
         String version = bible.getInitials();
         if (bible.getIndexStatus().equals(IndexStatus.DONE)) {
             final Key luceneSearchResults;
@@ -166,66 +299,115 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
                 String query = currentSearch.getQuery();
                 //small optimization and cater for versions that don't support Gen-Rev as a range:
                 query = GEN_REV_RANGE.matcher(query).replaceAll("");
-                luceneSearchResults = bible.find(new DefaultSearchRequest(query, modifier));
+                final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.LUCENE);
+                try {
+                    luceneSearchResults = bible.find(new DefaultSearchRequest(query, modifier));
+                } finally {
+                    span.end();
+                }
             } catch (final BookException e) {
                 throw new LuceneSearchException("Unable to search for " + currentSearch.getQuery()
                         + " with Bible " + version, e);
             }
 
-            resultsPerVersion.put(version, luceneSearchResults);
+            return luceneSearchResults;
         } else {
             LOGGER.error("Module [{}] is not indexed.", version);
-            resultsPerVersion.put(version, PassageKeyFactory.instance().createEmptyKeyList(av11nService.getVersificationForVersion(bible)));
+            return PassageKeyFactory.instance().createEmptyKeyList(av11nService.getVersificationForVersion(bible));
         }
     }
 
     /**
-     * merges all search results together
+     * merges all search results together. Versified results are combined as bitsets of verse ordinals, in the
+     * versification of the first version, and only turned back into a passage at the end. Ranked results are
+     * added to the first version's tally instead, so as to keep their ranks.
      *
      * @param resultsPerVersion the results per version
      * @return the list of results
      */
     private Key mergeSearches(final Map<String, Key> resultsPerVersion) {
+        if (resultsPerVersion.size() == 1) {
+            return resultsPerVersion.values().iterator().next();
+        }
+
         Key all = null;
         Versification allVersification = null;
+        VerseBitSet allVerses = null;
 
         for (final Entry<String, Key> entry : resultsPerVersion.entrySet()) {
             final Key value = entry.getValue();
             LOGGER.debug("Sub-result-set [{}] has [{}] entries", entry.getKey(), value.getCardinality());
 
-            if (all == null) {
-                all = value;
-
-                if(all instanceof VerseKey) {
-                    allVersification = ((VerseKey) all).getVersification();
+            if (all == null && allVerses == null) {
+                if (VerseBitSet.canCombine(value)) {
+                    allVerses = VerseBitSet.fromKey(value);
+                } else {
+                    all = value;
+                    if (all instanceof VerseKey) {
+                        allVersification = ((VerseKey) all).getVersification();
+                    }
                 }
             } else {
                 boolean valueIsVerseKey = value instanceof VerseKey;
-                if(valueIsVerseKey && allVersification == null) {
+                if (valueIsVerseKey && allVerses == null && allVersification == null) {
                     throw new StepInternalException("Trying to combine versified key with non-versified key.");
                 }
+                if (!valueIsVerseKey && allVerses != null) {
+                    throw new StepInternalException("Trying to combine non-versified key with versified key.");
+                }
 
-                //i.e. and allVersification != null
-                Key convertedKey = value;
-                if(valueIsVerseKey) {
-                    final VerseKey versifiedResults = (VerseKey) value;
-                    final Passage versifiedPassageResults = KeyUtil.getPassage(versifiedResults);
-                    convertedKey = VersificationsMapper.instance().map(versifiedPassageResults, allVersification);
+                if (allVerses != null) {
+                    allVerses.addAll(value);
+                } else if (valueIsVerseKey) {
+                    final Passage versifiedPassageResults = KeyUtil.getPassage(value);
+                    all.addAll(VersificationsMapper.instance().map(versifiedPassageResults, allVersification));
+                } else {
+                    all.addAll(value);
                 }
+            }
 
-                all.addAll(convertedKey);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Combined result-set has [{}] entries",
+                        allVerses != null ? allVerses.getCardinality() : all.getCardinality());
             }
-            LOGGER.debug("Combined result-set has [{}] entries", all.getCardinality());
         }
 
-        return all;
+        return allVerses != null ? allVerses.toPassage() : all;
     }
+
     @Override
     public SearchResult search(final SearchQuery sq, final String version,  
                                final LookupOption... options) {
+        if (isTopHitsSearch(sq)) {
+            // only the hits up to the end of the requested page are ranked and kept, the rest are only counted
+            final int pageEnd = sq.getPageNumber() * sq.getPageSize();
+            return retrieveResultsFromKeys(sq, searchKeys(sq, true, Math.min(pageEnd, MAX_RESULTS)), version, options);
+        }
         return retrieveResultsFromKeys(sq, searchKeys(sq), version, options);
     }
 
+    /**
+     * The best hits can only be kept by Lucene when they are the final results. A range restriction, a blurred
+     * or joined query, or a merge across versions works on the full set of keys afterwards, and would miss the
+     * hits that fell outside the best few.
+     *
+     * @param sq the search query
+     * @return true if the query is a ranked search of a single term in a single version, without restrictions
+     */
+    boolean isTopHitsSearch(final SearchQuery sq) {
+        if (!sq.isRanked() || sq.isAllKeys() || !sq.isIndividualSearch()) {
+            return false;
+        }
+
+        final IndividualSearch currentSearch = sq.getCurrentSearch();
+        if (currentSearch.getVersions().length != 1 || StringUtils.isNotBlank(currentSearch.getSecondaryRange())) {
+            return false;
+        }
+
+        final String query = GEN_REV_RANGE.matcher(currentSearch.getQuery()).replaceAll("").trim();
+        return SINGLE_TERM.matcher(query).matches();
+    }
+
     @Override
     public SearchResult retrieveResultsFromKeys(final SearchQuery sq, final Key results,
                                                 final String version, final LookupOption... options) {
@@ -268,14 +450,19 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
     }
 
     /**
-     * returns the total or -1 if not available
+     * returns the total. Ranked results may only hold the best few hits, in which case the total is the number of
+     * hits counted by the search.
      *
      * @param results the key to set of results
      * @return the results
      */
     @Override
     public int getTotal(final Key results) {
-        return results.getCardinality();
+        final int cardinality = results.getCardinality();
+        if (results instanceof PassageTally) {
+            return Math.max(cardinality, ((PassageTally) results).getTotal());
+        }
+        return cardinality;
     }
 
     /**
@@ -306,42 +493,35 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
      */
     private void getPassagesForResults(SearchResult result, String[] versions, final Key results, final int context,
                                                     final List<LookupOption> options, String interlinearMode) {
-        final List<SearchEntry> resultPassages = new ArrayList<SearchEntry>();
+        final List<Key> lookupKeys = new ArrayList<Key>();
         final Iterator<Key> iterator = ((Passage) results).iterator();
-        boolean interlinearModeCaptured = false;
-        int count = 0;
         while (iterator.hasNext()) {
             final Key verse = iterator.next();
-            final Key lookupKey;
 
             if (verse instanceof Verse) {
                 // then we need to make it into a verse range
                 final Verse verseAsVerse = (Verse) verse;
                 final VerseRange vr = new VerseRange(verseAsVerse.getVersification(), verseAsVerse);
                 vr.blur(context, RestrictionType.NONE);
-                lookupKey = vr;
+                lookupKeys.add(vr);
             } else {
                 // assume blur is supported
                 verse.blur(context, RestrictionType.NONE);
-                lookupKey = verse;
+                lookupKeys.add(verse);
             }
+        }
 
-            if(count == 1) {
-                options.add(LookupOption.HIDE_COMPARE_HEADERS);
-            }
-            
-            // TODO this is not very efficient so requires refactoring
-            final OsisWrapper peakOsisText = this.jsword.peakOsisText(versions, lookupKey, options, interlinearMode);
+        // the whole page is read and rendered in one go
+        final List<OsisWrapper> passages = this.jsword.peakOsisTexts(versions, lookupKeys, options, interlinearMode);
+        final List<SearchEntry> resultPassages = new ArrayList<SearchEntry>(passages.size());
+        for (final OsisWrapper peakOsisText : passages) {
             resultPassages.add(new VerseSearchEntry(peakOsisText.getReference(), peakOsisText.getValue(),
                     peakOsisText.getOsisId()));
-
-            if(!interlinearModeCaptured) {
-                result.setInterlinearMode(peakOsisText.getInterlinearMode());
-                interlinearModeCaptured = true;
-            }
-            count++;
         }
 
+        if (!passages.isEmpty()) {
+            result.setInterlinearMode(passages.get(0).getInterlinearMode());
+        }
         result.setResults(resultPassages);
     }
 
@@ -369,21 +549,40 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
      */
     private Passage getPage(final int pageNumber, final int pageSize, final Passage passage) {
         Passage results = (Passage) PassageKeyFactory.instance().createEmptyKeyList(passage.getVersification());
-        Iterator<Key> verses = passage.iterator();
-        
+
         //page 1 = 1-60
         //page 2 = 61-120
         int from = (pageNumber-1) * pageSize + 1;
         int to = from + pageSize - 1;
-        int currentCount = 1;
-        while(verses.hasNext()) {
-            final Key verse = verses.next();
-            if(currentCount >= from && currentCount <= to) {
-                results.addAll(verse);
+
+        if (passage instanceof PassageTally) {
+            // ranked results need to be walked verse by verse, in the order of their rank
+            Iterator<Key> verses = passage.iterator();
+            int currentCount = 1;
+            while (verses.hasNext() && currentCount <= to) {
+                final Key verse = verses.next();
+                if (currentCount >= from) {
+                    results.addAll(verse);
+                }
+                currentCount++;
             }
-            currentCount++;
+            return results;
+        }
+
+        // otherwise, whole ranges before the page are skipped, and we stop as soon as the page is full
+        final Iterator<VerseRange> ranges = passage.rangeIterator(RestrictionType.NONE);
+        int rangeStart = 1;
+        while (ranges.hasNext() && rangeStart <= to) {
+            final VerseRange range = ranges.next();
+            final int rangeEnd = rangeStart + range.getCardinality() - 1;
+            if (rangeEnd >= from) {
+                final Versification v11n = range.getVersification();
+                final int startOrdinal = range.getStart().getOrdinal() + Math.max(0, from - rangeStart);
+                final int endOrdinal = range.getEnd().getOrdinal() - Math.max(0, rangeEnd - to);
+                results.add(new VerseRange(v11n, v11n.decodeOrdinal(startOrdinal), v11n.decodeOrdinal(endOrdinal)));
+            }
+            rangeStart = rangeEnd + 1;
         }
-        
         return results;
     }
 
@@ -427,4 +626,25 @@ public class JSwordSearchServiceImpl implements JSwordSearchService {
 
         }
     }
+
+    /**
+     * The results of searching a single version
+     */
+    private static final class VersionResults {
+        private final String version;
+        private final Key key;
+        private final VerseBitSet verses;
+
+        /**
+         * @param version the version
+         * @param key     the results, as found
+         * @param verses  the results in the versification of the merged results, or null if they can't be held
+         *                as verses
+         */
+        private VersionResults(final String version, final Key key, final VerseBitSet verses) {
+            this.version = version;
+            this.key = key;
+            this.verses = verses;
+        }
+    }
 }
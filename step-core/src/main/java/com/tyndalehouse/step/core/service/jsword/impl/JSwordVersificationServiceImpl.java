@@ -49,6 +49,7 @@ import org.crosswire.jsword.versification.system.Versifications;
 import com.tyndalehouse.step.core.exceptions.TranslatedException;
 import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.MappedBookCache;
 
 /**
  * Deals with the versification
@@ -59,15 +60,18 @@ import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
 @Singleton
 public class JSwordVersificationServiceImpl implements JSwordVersificationService {
     private final VersionResolver versionResolver;
+    private final MappedBookCache mappedBooks;
 
     /**
      * Takes a Version resolver to be able to cope with short book abbreviations.
      * 
      * @param versionResolver the version resolver
+     * @param mappedBooks     the copies of the installed books that read their text from memory-mapped files
      */
     @Inject
-    public JSwordVersificationServiceImpl(final VersionResolver versionResolver) {
+    public JSwordVersificationServiceImpl(final VersionResolver versionResolver, final MappedBookCache mappedBooks) {
         this.versionResolver = versionResolver;
+        this.mappedBooks = mappedBooks;
     }
 
     @Override
@@ -132,7 +136,7 @@ public class JSwordVersificationServiceImpl implements JSwordVersificationServic
 
     @Override
     public Book getBookSilently(final String version) {
-        return Books.installed().getBook(this.versionResolver.getLongName(version));
+        return this.mappedBooks.getBook(Books.installed().getBook(this.versionResolver.getLongName(version)));
     }
 
     @Override
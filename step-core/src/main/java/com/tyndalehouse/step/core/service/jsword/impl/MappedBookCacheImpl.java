@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
+import org.crosswire.jsword.book.sword.ConfigEntryType;
+import org.crosswire.jsword.book.sword.SwordBook;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tyndalehouse.step.core.service.jsword.MappedBookCache;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+
+/**
+ * Keeps a memory-mapped copy of each zText and zCom module that is compressed with zip and isn't enciphered. Other
+ * modules are read through JSword as before. The copies, and the decompressed blocks they share, are discarded
+ * whenever a module is installed or removed. A copy is also discarded, and mapped again, if the module's files have
+ * changed since they were mapped. A module that is evicted, because its files are about to change, is read through
+ * JSword until it has been installed or removed.
+ * <p/>
+ * Windows doesn't let a file be deleted while it is mapped, and a mapping is only released once it is garbage
+ * collected, so modules are never mapped there, in order that they can still be removed or updated.
+ *
+ * @author agent
+ */
+@Singleton
+public class MappedBookCacheImpl implements MappedBookCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedBookCacheImpl.class);
+    private static final String DEFAULT_BLOCK_TYPE = "CHAPTER";
+    private final boolean enabled;
+    private final BlockCache blocks;
+    private final ConcurrentMap<String, MappedBook> books = new ConcurrentHashMap<String, MappedBook>(64);
+    private final Set<String> changing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * @param enabled         false to read all modules through JSword, as they are on Windows regardless
+     * @param maxBytes        the approximate number of bytes the decompressed blocks may take
+     * @param numberOfStripes the number of stripes of the block cache, each with its own lock
+     */
+    @Inject
+    public MappedBookCacheImpl(@Named("app.modules.mapped") final boolean enabled,
+                               @Named("app.cache.blocks.maxBytes") final long maxBytes,
+                               @Named("app.cache.blocks.stripes") final int numberOfStripes) {
+        this.enabled = enabled && !isWindows();
+        if (enabled && !this.enabled) {
+            LOGGER.info("Modules can't be deleted while they are mapped on Windows, reading them through JSword");
+        }
+        this.blocks = new BlockCache(maxBytes, numberOfStripes);
+
+        Metrics.newGauge(MappedBookCacheImpl.class, "blockBytes", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return getBlockBytes();
+            }
+        });
+
+        Books.installed().addBooksListener(new BooksListener() {
+            @Override
+            public void bookAdded(final BooksEvent ev) {
+                LOGGER.debug("Module added, discarding the mapped modules");
+                bookChanged(ev.getBook());
+            }
+
+            @Override
+            public void bookRemoved(final BooksEvent ev) {
+                LOGGER.debug("Module removed, discarding the mapped modules");
+                bookChanged(ev.getBook());
+            }
+        });
+    }
+
+    @Override
+    public Book getBook(final Book book) {
+        if (!this.enabled || book == null || !(book.getBookMetaData() instanceof SwordBookMetaData)) {
+            return book;
+        }
+
+        // books whose files are changing are read through JSword until the change is complete
+        final String initials = book.getInitials();
+        if (this.changing.contains(initials)) {
+            return book;
+        }
+
+        // books that can't be mapped are held as they are, so that they are only looked at once
+        MappedBook mapped = this.books.get(initials);
+        if (mapped != null && mapped.backend != null && !mapped.backend.isCurrent()) {
+            LOGGER.info("The files of [{}] have changed since they were mapped, mapping them again", initials);
+            this.books.remove(initials, mapped);
+            mapped.close();
+            mapped = null;
+        }
+
+        if (mapped == null) {
+            mapped = map(book);
+            final MappedBook previous = this.books.putIfAbsent(initials, mapped);
+            if (previous != null) {
+                mapped.close();
+                mapped = previous;
+            } else if (this.changing.contains(initials)) {
+                // the book was evicted while it was being mapped
+                this.books.remove(initials, mapped);
+                mapped.close();
+                return book;
+            }
+        }
+        return mapped.book;
+    }
+
+    @Override
+    public void evict(final String initials) {
+        this.changing.add(initials);
+        final MappedBook mapped = this.books.remove(initials);
+        if (mapped != null) {
+            LOGGER.debug("Discarding the mapped copy of [{}]", initials);
+            mapped.close();
+        }
+    }
+
+    /**
+     * Lets a module that was evicted be mapped again, now that it has been installed or removed, and discards the
+     * mapped modules
+     *
+     * @param book the module that was installed or removed
+     */
+    void bookChanged(final Book book) {
+        if (book != null) {
+            this.changing.remove(book.getInitials());
+        }
+        clear();
+    }
+
+    /**
+     * Discards the mapped modules, and the blocks read from them
+     */
+    public void clear() {
+        final Iterator<MappedBook> mapped = this.books.values().iterator();
+        while (mapped.hasNext()) {
+            mapped.next().close();
+            mapped.remove();
+        }
+        this.blocks.clear();
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the decompressed blocks
+     */
+    long getBlockBytes() {
+        return this.blocks.getWeight();
+    }
+
+    /**
+     * @param book the installed book
+     * @return a copy of the book, reading from memory-mapped files, or the book itself if it can't be mapped
+     */
+    private MappedBook map(final Book book) {
+        final SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
+        final String driver = getProperty(sbmd, ConfigEntryType.MOD_DRV);
+        if (!("zText".equalsIgnoreCase(driver) || "zCom".equalsIgnoreCase(driver))
+                || !"ZIP".equalsIgnoreCase(getProperty(sbmd, ConfigEntryType.COMPRESS_TYPE))
+                || getProperty(sbmd, ConfigEntryType.CIPHER_KEY) != null) {
+            return new MappedBook(book, null);
+        }
+
+        final String blockType = getProperty(sbmd, ConfigEntryType.BLOCK_TYPE);
+        try {
+            final MappedVerseBackend backend = new MappedVerseBackend(sbmd,
+                    blockType != null ? blockType : DEFAULT_BLOCK_TYPE, getVersification(sbmd), this.blocks);
+            return new MappedBook(new SwordBook(sbmd, backend), backend);
+        } catch (final BookException ex) {
+            LOGGER.warn("Unable to map [{}], reading it through JSword", book.getInitials(), ex);
+        } catch (final IOException ex) {
+            LOGGER.warn("Unable to map [{}], reading it through JSword", book.getInitials(), ex);
+        }
+        return new MappedBook(book, null);
+    }
+
+    /**
+     * @return true if running on Windows
+     */
+    private static boolean isWindows() {
+        return File.separatorChar == '\\';
+    }
+
+    /**
+     * @param sbmd the module
+     * @param type the entry of its configuration
+     * @return the value of the entry, or null if absent
+     */
+    private static String getProperty(final SwordBookMetaData sbmd, final ConfigEntryType type) {
+        final Object value = sbmd.getProperty(type);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * @param sbmd the module
+     * @return the versification of the module
+     */
+    private static Versification getVersification(final SwordBookMetaData sbmd) {
+        final Versification versification = Versifications.instance().getVersification(
+                (String) sbmd.getProperty(BookMetaData.KEY_VERSIFICATION));
+        return versification != null ? versification
+                : Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+    }
+
+    /**
+     * The copy of a book, and the backend reading its mapped files, if it is mapped
+     */
+    private static final class MappedBook {
+        private final Book book;
+        private final MappedVerseBackend backend;
+
+        /**
+         * @param book    the copy of the book, or the book itself if it isn't mapped
+         * @param backend the backend reading the mapped files, or null if the book isn't mapped
+         */
+        private MappedBook(final Book book, final MappedVerseBackend backend) {
+            this.book = book;
+            this.backend = backend;
+        }
+
+        /**
+         * Stops the mapped files being read
+         */
+        private void close() {
+            if (this.backend != null) {
+                this.backend.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.BlockType;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.book.sword.SwordUtil;
+import org.crosswire.jsword.book.sword.ZVerseBackend;
+import org.crosswire.jsword.book.sword.state.ZVerseBackendState;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.RangedPassage;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * Reads the verses of a zText or zCom module from memory-mapped copies of its files, in place of the random access
+ * files JSword keeps in its pool of open files. The index and text files of each testament are mapped once, and read
+ * under the read lock of the module, so that any number of threads can read the module at the same time. Decompressed
+ * blocks are kept in a cache shared by all modules, and each thread decompresses with an inflater of its own.
+ * <p/>
+ * As nothing is ever taken from the pool of open files, {@link #initState()} returns null, and every method reading
+ * from the state is overridden. The module is read-only.
+ * <p/>
+ * Touching a mapping whose file has since been truncated or replaced can crash the JVM, so the backend must be
+ * {@link #close() closed} before the module's files are changed. Closing takes the write lock, so waits for threads
+ * that are part way through reading. Once closed, reading a verse fails with an {@link IOException}, and the module
+ * appears to have no verses.
+ *
+ * @author agent
+ */
+final class MappedVerseBackend extends ZVerseBackend {
+    /**
+     * start, size and decompressed size of each block, as little-endian integers
+     */
+    private static final int BLOCK_ENTRY_SIZE = 12;
+
+    /**
+     * block number and start of each verse, as little-endian integers, followed by its size as a short
+     */
+    private static final int VERSE_ENTRY_SIZE = 10;
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+    private final Versification v11n;
+    private final String initials;
+    private final String charset;
+    private final MappedTestament oldTestament;
+    private final MappedTestament newTestament;
+    private final BlockCache blocks;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    /**
+     * Maps the files of the module
+     *
+     * @param sbmd          the module
+     * @param blockTypeName the block type of the module, as given in its configuration
+     * @param v11n          the versification of the module
+     * @param blocks        the decompressed blocks of all modules
+     * @throws BookException if the location of the module's files cannot be worked out
+     * @throws IOException   if the module's files cannot be mapped
+     */
+    MappedVerseBackend(final SwordBookMetaData sbmd, final String blockTypeName, final Versification v11n,
+                       final BlockCache blocks) throws BookException, IOException {
+        super(sbmd, BlockType.fromString(blockTypeName));
+        this.v11n = v11n;
+        this.initials = sbmd.getInitials();
+        this.charset = sbmd.getBookCharset();
+        this.blocks = blocks;
+
+        final File dataPath = new File(SwordUtil.getExpandedDataPath(sbmd));
+        final char indicator = Character.toLowerCase(blockTypeName.charAt(0));
+        this.oldTestament = MappedTestament.map(dataPath, "ot." + indicator);
+        this.newTestament = MappedTestament.map(dataPath, "nt." + indicator);
+    }
+
+    /**
+     * Stops the mapped files being read, once the threads reading them have finished, so that they can be changed,
+     * and discards the blocks read from them. The mappings themselves are released once they are garbage collected.
+     */
+    void close() {
+        this.lock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            removeBlocks(this.oldTestament);
+            removeBlocks(this.newTestament);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param testament the mapped files of a testament, or null if the module doesn't have the testament
+     */
+    private void removeBlocks(final MappedTestament testament) {
+        if (testament != null) {
+            this.blocks.remove(testament, testament.blocks.limit() / BLOCK_ENTRY_SIZE);
+        }
+    }
+
+    /**
+     * @return true if the backend is open, and none of the files it mapped has been changed since
+     */
+    boolean isCurrent() {
+        return !this.closed && (this.oldTestament == null || this.oldTestament.isUnchanged())
+                && (this.newTestament == null || this.newTestament.isUnchanged());
+    }
+
+    @Override
+    public ZVerseBackendState initState() {
+        return null;
+    }
+
+    @Override
+    public String readRawContent(final ZVerseBackendState state, final Key key) throws IOException {
+        final byte[] text;
+        this.lock.readLock().lock();
+        try {
+            if (this.closed) {
+                throw new IOException("Module [" + this.initials + "] has been changed since it was mapped");
+            }
+            text = readVerse(KeyUtil.getVerse(key).getOrdinal());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return text == null ? "" : SwordUtil.decode(key.getName(), text, this.charset);
+    }
+
+    @Override
+    public boolean contains(final Key key) {
+        return getRawTextLength(key) > 0;
+    }
+
+    @Override
+    public int getRawTextLength(final Key key) {
+        final int ordinal = KeyUtil.getVerse(key).getOrdinal();
+        this.lock.readLock().lock();
+        try {
+            final MappedTestament testament = getTestament(ordinal);
+            return testament == null ? 0 : testament.getVerseSize(this.v11n.getTestamentOrdinal(ordinal));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Key getGlobalKeyList() {
+        final Passage verses = new RangedPassage(this.v11n);
+        verses.raiseNormalizeProtection();
+        this.lock.readLock().lock();
+        try {
+            for (int ordinal = 0; ordinal <= this.v11n.maximumOrdinal(); ordinal++) {
+                final MappedTestament testament = getTestament(ordinal);
+                if (testament != null && testament.getVerseSize(this.v11n.getTestamentOrdinal(ordinal)) > 0) {
+                    verses.add(this.v11n.decodeOrdinal(ordinal));
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        verses.lowerNormalizeProtection();
+        return verses;
+    }
+
+    /**
+     * Must be called with the read lock held
+     *
+     * @param ordinal the ordinal of the verse, in the versification of the module
+     * @return the raw bytes of the verse, or null if the module doesn't have the verse
+     * @throws IOException if the block holding the verse cannot be decompressed
+     */
+    private byte[] readVerse(final int ordinal) throws IOException {
+        final MappedTestament testament = getTestament(ordinal);
+        if (testament == null) {
+            return null;
+        }
+
+        final int verseEntry = this.v11n.getTestamentOrdinal(ordinal) * VERSE_ENTRY_SIZE;
+        if (verseEntry < 0 || verseEntry + VERSE_ENTRY_SIZE > testament.verses.limit()) {
+            return null;
+        }
+
+        final int blockNumber = testament.verses.getInt(verseEntry);
+        final int verseStart = testament.verses.getInt(verseEntry + 4);
+        final int verseSize = testament.verses.getShort(verseEntry + 8) & 0xFFFF;
+        if (verseSize == 0) {
+            return null;
+        }
+
+        final byte[] block = getBlock(testament, blockNumber);
+        if (block == null || verseStart < 0 || verseStart + verseSize > block.length) {
+            return null;
+        }
+        return Arrays.copyOfRange(block, verseStart, verseStart + verseSize);
+    }
+
+    /**
+     * @param testament   the testament
+     * @param blockNumber the number of the block
+     * @return the decompressed block, or null if the module doesn't have the block
+     * @throws IOException if the block cannot be decompressed
+     */
+    private byte[] getBlock(final MappedTestament testament, final int blockNumber) throws IOException {
+        final BlockCache.BlockKey key = new BlockCache.BlockKey(testament, blockNumber);
+        final byte[] cached = this.blocks.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final int blockEntry = blockNumber * BLOCK_ENTRY_SIZE;
+        if (blockEntry < 0 || blockEntry + BLOCK_ENTRY_SIZE > testament.blocks.limit()) {
+            return null;
+        }
+
+        final int blockStart = testament.blocks.getInt(blockEntry);
+        final int blockSize = testament.blocks.getInt(blockEntry + 4);
+        final int uncompressedSize = testament.blocks.getInt(blockEntry + 8);
+        if (blockStart < 0 || blockSize < 0 || blockStart + blockSize > testament.text.limit()) {
+            return null;
+        }
+
+        // the position of the shared buffer is left alone, so that other threads can read it at the same time
+        final byte[] compressed = new byte[blockSize];
+        final ByteBuffer text = testament.text.duplicate();
+        text.position(blockStart);
+        text.get(compressed);
+
+        // two threads may both decompress the same block, but they'll come to the same answer
+        final byte[] block = inflate(compressed, uncompressedSize, blockNumber);
+        this.blocks.put(key, block);
+        return block;
+    }
+
+    /**
+     * @param compressed       the compressed block
+     * @param uncompressedSize the size of the block once decompressed, as given in the index
+     * @param blockNumber      the number of the block, for reporting errors
+     * @return the decompressed block
+     * @throws IOException if the block cannot be decompressed
+     */
+    private static byte[] inflate(final byte[] compressed, final int uncompressedSize, final int blockNumber)
+            throws IOException {
+        final Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+
+        // some modules don't record the decompressed size, so the buffer grows as needed
+        byte[] block = new byte[uncompressedSize > 0 ? uncompressedSize : compressed.length * 4 + 64];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == block.length) {
+                    block = Arrays.copyOf(block, block.length << 1);
+                }
+                final int inflated = inflater.inflate(block, length, block.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+        } catch (final DataFormatException ex) {
+            throw new IOException("Unable to decompress block " + blockNumber, ex);
+        }
+        return length == block.length ? block : Arrays.copyOf(block, length);
+    }
+
+    /**
+     * Must be called with the read lock held, as the files may only be read until the backend is closed
+     *
+     * @param ordinal the ordinal of a verse
+     * @return the files of the testament the verse belongs to, or null if the module doesn't have that testament or
+     *         the backend is closed
+     */
+    private MappedTestament getTestament(final int ordinal) {
+        if (this.closed) {
+            return null;
+        }
+        return this.v11n.getTestament(ordinal) == Testament.OLD ? this.oldTestament : this.newTestament;
+    }
+
+    /**
+     * The mapped files of a single testament
+     */
+    private static final class MappedTestament {
+        private final ByteBuffer verses;
+        private final ByteBuffer blocks;
+        private final ByteBuffer text;
+        private final File[] files;
+        private final long[] lengths;
+        private final long[] lastModified;
+
+        /**
+         * @param files the index of verses, the index of blocks and the compressed text, in that order
+         * @throws IOException if the files cannot be mapped
+         */
+        private MappedTestament(final File... files) throws IOException {
+            this.files = files;
+            this.lengths = new long[files.length];
+            this.lastModified = new long[files.length];
+            for (int ii = 0; ii < files.length; ii++) {
+                this.lengths[ii] = files[ii].length();
+                this.lastModified[ii] = files[ii].lastModified();
+            }
+            this.verses = map(files[0]);
+            this.blocks = map(files[1]);
+            this.text = map(files[2]);
+        }
+
+        /**
+         * @param dataPath the directory of the module
+         * @param prefix   the start of the name of the testament's files
+         * @return the mapped files, or null if the module doesn't have this testament
+         * @throws IOException if the files cannot be mapped
+         */
+        private static MappedTestament map(final File dataPath, final String prefix) throws IOException {
+            final File verses = new File(dataPath, prefix + "zv");
+            final File blocks = new File(dataPath, prefix + "zs");
+            final File text = new File(dataPath, prefix + "zz");
+            if (!verses.isFile() || !blocks.isFile() || !text.isFile()) {
+                return null;
+            }
+            return new MappedTestament(verses, blocks, text);
+        }
+
+        /**
+         * @return true if the files have the same size and modification time as when they were mapped
+         */
+        private boolean isUnchanged() {
+            for (int ii = 0; ii < this.files.length; ii++) {
+                if (this.files[ii].length() != this.lengths[ii]
+                        || this.files[ii].lastModified() != this.lastModified[ii]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Maps a file, which may be closed straight away, as the mapping stays valid until it is garbage collected
+         *
+         * @param file the file
+         * @return the mapped file, read as little-endian
+         * @throws IOException if the file cannot be mapped
+         */
+        private static ByteBuffer map(final File file) throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                return buffer.order(ByteOrder.LITTLE_ENDIAN);
+            } finally {
+                raf.close();
+            }
+        }
+
+        /**
+         * @param testamentOrdinal the ordinal of the verse within the testament
+         * @return the size of the verse, or 0 if the module doesn't have it
+         */
+        private int getVerseSize(final int testamentOrdinal) {
+            final int verseEntry = testamentOrdinal * VERSE_ENTRY_SIZE;
+            if (verseEntry < 0 || verseEntry + VERSE_ENTRY_SIZE > this.verses.limit()) {
+                return 0;
+            }
+            return this.verses.getShort(verseEntry + 8) & 0xFFFF;
+        }
+    }
+}
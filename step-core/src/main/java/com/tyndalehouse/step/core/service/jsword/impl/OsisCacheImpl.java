@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import java.util.Iterator;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseKey;
+import org.crosswire.jsword.passage.VerseRange;
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
+import com.tyndalehouse.step.core.utils.StripedLruCache;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+
+/**
+ * A bounded cache of parsed OSIS, keyed by book initials, versification and passage, held in a
+ * {@link StripedLruCache} bounded by the approximate number of bytes the OSIS takes. Everything is discarded whenever
+ * a module is installed or removed.
+ * <p/>
+ * JDOM has no read-only elements, so the fragments handed out are the cached ones themselves. Callers only ever read
+ * them, through {@link org.crosswire.jsword.book.OSISUtil} and
+ * {@link com.tyndalehouse.step.core.utils.JSwordUtils#getOsisElements(Element)}, which returns an unmodifiable list.
+ * Anything that needs to change the OSIS must work on a clone of it.
+ *
+ * @author agent
+ */
+@Singleton
+public class OsisCacheImpl implements OsisCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OsisCacheImpl.class);
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int ELEMENT_OVERHEAD = 96;
+    private static final int ATTRIBUTE_OVERHEAD = 64;
+    private final StripedLruCache<String, ParsedOsis> cache;
+
+    /**
+     * @param maxBytes        the approximate number of bytes the cache may take
+     * @param numberOfStripes the number of stripes, each with its own lock
+     */
+    @Inject
+    public OsisCacheImpl(@Named("app.cache.osis.maxBytes") final long maxBytes,
+                         @Named("app.cache.osis.stripes") final int numberOfStripes) {
+        this.cache = new StripedLruCache<String, ParsedOsis>(OsisCacheImpl.class, maxBytes, numberOfStripes);
+
+        Metrics.newGauge(OsisCacheImpl.class, "passages", new Gauge<Integer>() {
+            @Override
+            public Integer value() {
+                return getSize();
+            }
+        });
+        Metrics.newGauge(OsisCacheImpl.class, "bytes", new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return getWeight();
+            }
+        });
+
+        Books.installed().addBooksListener(new BooksListener() {
+            @Override
+            public void bookAdded(final BooksEvent ev) {
+                LOGGER.debug("Module added, discarding the parsed OSIS");
+                clear();
+            }
+
+            @Override
+            public void bookRemoved(final BooksEvent ev) {
+                LOGGER.debug("Module removed, discarding the parsed OSIS");
+                clear();
+            }
+        });
+    }
+
+    @Override
+    public Element getOsisFragment(final BookData bookData) throws BookException {
+        final ParsedOsis osis = get(bookData);
+        return osis != null ? osis.fragment : bookData.getOsisFragment();
+    }
+
+    @Override
+    public SAXEventProvider getSAXEventProvider(final BookData bookData) throws BookException {
+        final ParsedOsis osis = get(bookData);
+        return osis != null ? osis.provider : bookData.getSAXEventProvider();
+    }
+
+    /**
+     * @return the number of passages held in the cache
+     */
+    public int getSize() {
+        return this.cache.getSize();
+    }
+
+    /**
+     * @return the approximate number of bytes taken by the cache
+     */
+    public long getWeight() {
+        return this.cache.getWeight();
+    }
+
+    /**
+     * Discards all the parsed OSIS
+     */
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * @param bookData the book and passage
+     * @return the parsed OSIS of the passage, read now if it isn't held yet, or null if the passage can't be held
+     * @throws BookException if the passage cannot be read
+     */
+    private ParsedOsis get(final BookData bookData) throws BookException {
+        final String chapter = getChapter(bookData);
+        if (chapter == null) {
+            return null;
+        }
+
+        final String passage = chapter + '/' + bookData.getKey().getOsisRef();
+        final ParsedOsis cached = this.cache.get(passage);
+        if (cached != null) {
+            return cached;
+        }
+
+        // two threads may both read the same passage, but they'll parse the same OSIS. The passage is read into a
+        // book data of its own, so that nothing the caller does to its book data can change what is shared
+        final BookData ownBookData = new BookData(bookData.getFirstBook(), bookData.getKey().clone());
+        final SAXEventProvider provider = ownBookData.getSAXEventProvider();
+        final Element fragment = ownBookData.getOsisFragment();
+        final ParsedOsis osis = new ParsedOsis(fragment, provider);
+        this.cache.put(passage, osis, weigh(fragment));
+        return osis;
+    }
+
+    /**
+     * @param bookData the book and passage
+     * @return the book initials, versification and chapter the passage sits in, or null if it spans several chapters
+     *         or several books
+     */
+    private static String getChapter(final BookData bookData) {
+        final Key key = bookData.getKey();
+        if (bookData.getBooks().length != 1 || !(key instanceof VerseKey) || key instanceof PassageTally) {
+            return null;
+        }
+
+        final Passage passage = KeyUtil.getPassage(key);
+        final Iterator<VerseRange> ranges = passage.rangeIterator(RestrictionType.NONE);
+        if (!ranges.hasNext()) {
+            return null;
+        }
+
+        final Verse start = ranges.next().getStart();
+        Verse end = start;
+        while (ranges.hasNext()) {
+            end = ranges.next().getEnd();
+        }
+        if (start.getBook() != end.getBook() || start.getChapter() != end.getChapter()) {
+            return null;
+        }
+
+        return new StringBuilder(32).append(bookData.getFirstBook().getInitials()).append('/')
+                .append(((VerseKey) key).getVersification().getName()).append('/')
+                .append(start.getBook().getOSIS()).append('.').append(start.getChapter()).toString();
+    }
+
+    /**
+     * @param fragment the OSIS fragment
+     * @return the approximate number of bytes the fragment takes
+     */
+    private static int weigh(final Element fragment) {
+        int weight = ENTRY_OVERHEAD;
+        final Iterator<Content> descendants = fragment.getDescendants();
+        while (descendants.hasNext()) {
+            final Content content = descendants.next();
+            if (content instanceof Text) {
+                weight += ((Text) content).getText().length() * 2;
+            } else if (content instanceof Element) {
+                final Element element = (Element) content;
+                weight += ELEMENT_OVERHEAD;
+                for (final Attribute attribute : element.getAttributes()) {
+                    weight += ATTRIBUTE_OVERHEAD + attribute.getValue().length() * 2;
+                }
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * The OSIS of a passage, parsed once
+     */
+    private static final class ParsedOsis {
+        private final Element fragment;
+        private final SAXEventProvider provider;
+
+        /**
+         * @param fragment the OSIS fragment
+         * @param provider the whole OSIS document
+         */
+        private ParsedOsis(final Element fragment, final SAXEventProvider provider) {
+            this.fragment = fragment;
+            this.provider = provider;
+        }
+    }
+}
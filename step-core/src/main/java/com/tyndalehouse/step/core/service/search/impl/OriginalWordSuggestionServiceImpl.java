@@ -1,14 +1,17 @@
 package com.tyndalehouse.step.core.service.search.impl;
 
+import com.tyndalehouse.step.core.data.DefinitionCache;
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.data.EntityIndexReader;
 import com.tyndalehouse.step.core.data.EntityManager;
+import com.tyndalehouse.step.core.data.TermsFilter;
 import com.tyndalehouse.step.core.models.LexiconSuggestion;
 import com.tyndalehouse.step.core.service.SearchService;
 import com.tyndalehouse.step.core.service.search.OriginalWordSuggestionService;
 import com.tyndalehouse.step.core.utils.language.GreekUtils;
-import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationOption;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.slf4j.Logger;
@@ -18,11 +21,13 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.STRONG_NUMBER_FIELD;
 import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.getFilter;
-import static com.tyndalehouse.step.core.utils.StringConversionUtils.adaptTransliterationForQuerying;
+import static com.tyndalehouse.step.core.utils.StringConversionUtils.adaptForTransliterationForIndexing;
+import static com.tyndalehouse.step.core.utils.StringConversionUtils.getTransliterationAutomaton;
 import static com.tyndalehouse.step.core.utils.StringUtils.isEmpty;
 import static com.tyndalehouse.step.core.utils.language.HebrewUtils.isHebrewText;
 
@@ -34,19 +39,20 @@ import static com.tyndalehouse.step.core.utils.language.HebrewUtils.isHebrewText
 @Singleton
 public class OriginalWordSuggestionServiceImpl implements OriginalWordSuggestionService {
     private static final Logger LOGGER = LoggerFactory.getLogger(OriginalWordSuggestionServiceImpl.class);
-    private static final String SIMPLIFIED_TRANSLITERATION = "simplifiedStepTransliteration:";
+    private static final String SIMPLIFIED_TRANSLITERATION = "simplifiedStepTransliteration";
     private static final Sort TRANSLITERATION_SORT = new Sort(new SortField("stepTransliteration",
             SortField.STRING_VAL));
     private static final Pattern PART_STRONG = Pattern.compile("(g|h)\\d\\d+");
-    private final EntityIndexReader definitions;
+    private final DefinitionCache definitions;
     private final EntityIndexReader specificForms;
 
     /**
      * @param entityManager the manager of all kinds of entities
+     * @param definitions   the cache of lexicon definitions
      */
     @Inject
-    public OriginalWordSuggestionServiceImpl(final EntityManager entityManager) {
-        this.definitions = entityManager.getReader("definition");
+    public OriginalWordSuggestionServiceImpl(final EntityManager entityManager, final DefinitionCache definitions) {
+        this.definitions = definitions;
         this.specificForms = entityManager.getReader("specificForm");
     }
 
@@ -59,29 +65,20 @@ public class OriginalWordSuggestionServiceImpl implements OriginalWordSuggestion
     }
 
     /**
+     * Matches the form against the simplified transliterations held in the index, following the transliteration
+     * rules alongside the terms of the index, so that every spelling the rules allow is found.
+     *
+     * @param reader  the reader of the entities holding simplified transliterations
      * @param isGreek true if greek, false for hebrew
      * @param form    the form
-     * @param prefix  true to append '*' on each field
-     * @return a clause to use in the query
+     * @param prefix  true to match transliterations starting with the form
+     * @return a query matching the entities with a simplified transliteration that matches the form
      */
-    public static String getSimplifiedTransliterationClause(final boolean isGreek, final String form,
-                                                            final boolean prefix) {
-        final List<TransliterationOption> translits = adaptTransliterationForQuerying(form, isGreek);
-        final StringBuilder simplifiedTransliteration = new StringBuilder(translits.size()
-                * (form.length() + 3) + SIMPLIFIED_TRANSLITERATION.length() * translits.size() + 2);
-
-        simplifiedTransliteration.append('(');
-        for (final TransliterationOption option : translits) {
-            //we limit to something sensible
-            simplifiedTransliteration.append(SIMPLIFIED_TRANSLITERATION);
-            simplifiedTransliteration.append(QueryParser.escape(option.getOption().toString()));
-            if (prefix) {
-                simplifiedTransliteration.append('*');
-            }
-            simplifiedTransliteration.append(' ');
-        }
-        simplifiedTransliteration.append(')');
-        return simplifiedTransliteration.toString();
+    public static Query getSimplifiedTransliterationQuery(final EntityIndexReader reader, final boolean isGreek,
+                                                          final String form, final boolean prefix) {
+        final Set<String> terms = reader.findTermsAcceptedBy(SIMPLIFIED_TRANSLITERATION,
+                getTransliterationAutomaton(isGreek), adaptForTransliterationForIndexing(form, isGreek), prefix);
+        return new ConstantScoreQuery(new TermsFilter(SIMPLIFIED_TRANSLITERATION, terms));
     }
 
 
@@ -104,12 +101,8 @@ public class OriginalWordSuggestionServiceImpl implements OriginalWordSuggestion
                     true, SearchService.MAX_SUGGESTIONS);
         } else {
             // assume transliteration - at this point suggestionType is not going to be MEANING
-            final String simplifiedTransliteration = getSimplifiedTransliterationClause(
-                    greek, form, true);
-
-            results = this.specificForms.search(new String[]{"simplifiedStepTransliteration"},
-                    simplifiedTransliteration, getFilter(greek), TRANSLITERATION_SORT, true,
-                    simplifiedTransliteration, SearchService.MAX_SUGGESTIONS);
+            results = this.specificForms.search(getSimplifiedTransliterationQuery(this.specificForms, greek, form,
+                    true), SearchService.MAX_SUGGESTIONS, TRANSLITERATION_SORT, getFilter(greek));
         }
 
         for (final EntityDoc f : results) {
@@ -128,13 +121,12 @@ public class OriginalWordSuggestionServiceImpl implements OriginalWordSuggestion
      */
     private LexiconSuggestion convertToSuggestionFromSpecificForm(final EntityDoc specificForm) {
         final String strongNumber = specificForm.get(STRONG_NUMBER_FIELD);
-        final EntityDoc[] results = this.definitions.searchExactTermBySingleField(STRONG_NUMBER_FIELD, 1,
-                strongNumber);
+        final EntityDoc definition = this.definitions.get(strongNumber);
 
-        if (results.length > 0) {
+        if (definition != null) {
             final LexiconSuggestion suggestion = new LexiconSuggestion();
             suggestion.setStrongNumber(strongNumber);
-            suggestion.setGloss(results[0].get("stepGloss"));
+            suggestion.setGloss(definition.get("stepGloss"));
             suggestion.setMatchingForm(specificForm.get("accentedUnicode"));
             suggestion.setStepTransliteration(specificForm.get("stepTransliteration"));
             return suggestion;
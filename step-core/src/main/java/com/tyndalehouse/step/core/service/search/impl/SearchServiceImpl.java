@@ -73,7 +73,9 @@ import com.tyndalehouse.step.core.service.jsword.JSwordMetadataService;
 import com.tyndalehouse.step.core.service.jsword.JSwordPassageService;
 import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.helpers.VerseBitSet;
 import com.tyndalehouse.step.core.service.search.SubjectSearchService;
+import com.tyndalehouse.step.core.utils.RequestTrace;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
 import com.tyndalehouse.step.core.utils.language.GreekUtils;
@@ -106,6 +108,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.STRONG_NUMBER_FIELD;
+import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.STRONG_NUMBER_ONLY;
 import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.convertToSuggestion;
 import static com.tyndalehouse.step.core.service.helpers.OriginalWordUtils.getFilter;
 import static com.tyndalehouse.step.core.service.impl.VocabularyServiceImpl.padStrongNumber;
@@ -562,6 +565,7 @@ public class SearchServiceImpl implements SearchService {
 
         SearchResult result;
         // if we've only got one search, we want to retrieve the keys, the page, etc. all in one go
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.SEARCH);
         try {
 
             if (sq.isIndividualSearch()) {
@@ -571,6 +575,8 @@ public class SearchServiceImpl implements SearchService {
             }
         } catch (final AbortQueryException ex) {
             result = new SearchResult();
+        } finally {
+            span.end();
         }
 
         // we split the query into separate searches
@@ -879,55 +885,76 @@ public class SearchServiceImpl implements SearchService {
     }
 
     /**
-     * Runs each individual search and gives us a key that can be used to retrieve every passage
+     * Runs each individual search and gives us a key that can be used to retrieve every passage. While both sides
+     * are verses, the results are intersected as bitsets of verse ordinals, in the versification of the first
+     * search, and only turned back into a passage at the end. Ranked results are intersected as they are, to keep
+     * their ranks.
      *
      * @param sq the search query
      * @return the key to all the results
      */
     private Key runJoiningSearches(final SearchQuery sq) {
         Key results = null;
+        VerseBitSet verses = null;
         do {
-            switch (sq.getCurrentSearch().getType()) {
-                case TEXT:
-                    results = intersect(results, this.jswordSearch.searchKeys(sq));
-                    break;
-                case ORIGINAL_GREEK_FORMS:
-                case ORIGINAL_HEBREW_FORMS:
-                    adaptQueryForStrongSearch(sq);
-                    results = intersect(results, this.jswordSearch.searchKeys(sq));
-                    break;
-                case ORIGINAL_GREEK_RELATED:
-                case ORIGINAL_HEBREW_RELATED:
-                    Set<String> strongs = adaptQueryForRelatedStrongSearch(sq);
-                    results = intersect(results, this.runStrongTextSearchKeys(sq, strongs));
-                    break;
-                case ORIGINAL_MEANING:
-                    adaptQueryForMeaningSearch(sq);
-                    results = intersect(results, this.jswordSearch.searchKeys(sq));
-                    break;
-                case EXACT_FORM:
-                    results = intersect(results, getKeysFromOriginalText(sq));
-                    break;
-                case SUBJECT_SIMPLE:
-                case SUBJECT_EXTENDED:
-                case SUBJECT_FULL:
-                    sq.getCurrentSearch().setType(SearchType.SUBJECT_FULL);
-                    sq.getCurrentSearch().setQuery(sq.getCurrentSearch().getOriginalQuery());
-                    results = intersect(results, this.subjects.getKeys(sq));
-                    break;
-                case SUBJECT_RELATED:
-                    //no override for related topic searches
-                    results = intersect(results, this.subjects.getKeys(sq));
-                    break;
-                case RELATED_VERSES:
-                    results = intersect(results, this.relatedVerseService.getRelatedVerses(sq.getCurrentSearch().getVersions()[0], sq.getCurrentSearch().getQuery()));
-                    break;
-                default:
-                    throw new TranslatedException("refinement_not_supported", sq.getOriginalQuery(), sq
-                            .getCurrentSearch().getType().getLanguageKey());
+            final Key searchKeys = runJoiningSearch(sq);
+            final boolean searchKeysAreVerses = searchKeys == null || searchKeys instanceof VerseKey;
+            if (verses == null && VerseBitSet.canCombine(results) && searchKeysAreVerses) {
+                verses = VerseBitSet.fromKey(results);
+                results = null;
+            }
+
+            if (verses != null && searchKeysAreVerses) {
+                verses.retainAll(searchKeys);
+            } else {
+                if (verses != null) {
+                    results = verses.toPassage();
+                    verses = null;
+                }
+                results = intersect(results, searchKeys);
             }
         } while (sq.hasMoreSearches());
-        return results;
+        return verses != null ? verses.toPassage() : results;
+    }
+
+    /**
+     * Runs the current search of a set of joined searches
+     *
+     * @param sq the search query
+     * @return the keys matching the current search
+     */
+    private Key runJoiningSearch(final SearchQuery sq) {
+        switch (sq.getCurrentSearch().getType()) {
+            case TEXT:
+                return this.jswordSearch.searchKeys(sq);
+            case ORIGINAL_GREEK_FORMS:
+            case ORIGINAL_HEBREW_FORMS:
+                adaptQueryForStrongSearch(sq);
+                return this.jswordSearch.searchKeys(sq);
+            case ORIGINAL_GREEK_RELATED:
+            case ORIGINAL_HEBREW_RELATED:
+                Set<String> strongs = adaptQueryForRelatedStrongSearch(sq);
+                return this.runStrongTextSearchKeys(sq, strongs);
+            case ORIGINAL_MEANING:
+                adaptQueryForMeaningSearch(sq);
+                return this.jswordSearch.searchKeys(sq);
+            case EXACT_FORM:
+                return getKeysFromOriginalText(sq);
+            case SUBJECT_SIMPLE:
+            case SUBJECT_EXTENDED:
+            case SUBJECT_FULL:
+                sq.getCurrentSearch().setType(SearchType.SUBJECT_FULL);
+                sq.getCurrentSearch().setQuery(sq.getCurrentSearch().getOriginalQuery());
+                return this.subjects.getKeys(sq);
+            case SUBJECT_RELATED:
+                //no override for related topic searches
+                return this.subjects.getKeys(sq);
+            case RELATED_VERSES:
+                return this.relatedVerseService.getRelatedVerses(sq.getCurrentSearch().getVersions()[0], sq.getCurrentSearch().getQuery());
+            default:
+                throw new TranslatedException("refinement_not_supported", sq.getOriginalQuery(), sq
+                        .getCurrentSearch().getType().getLanguageKey());
+        }
     }
 
     /**
@@ -1499,7 +1526,7 @@ public class SearchServiceImpl implements SearchService {
             throw new TranslatedException(e, "search_invalid");
         }
 
-        final EntityDoc[] results = this.definitions.search(parsed);
+        final EntityDoc[] results = this.definitions.search(parsed, STRONG_NUMBER_ONLY);
 
         final Set<String> matchedStrongs = new HashSet<String>();
         for (final EntityDoc d : results) {
@@ -1544,11 +1571,11 @@ public class SearchServiceImpl implements SearchService {
         // first find by transliterations that we have
         final String lowerQuery = query.toLowerCase(Locale.ENGLISH);
 
-        final String simplifiedTransliteration = OriginalWordSuggestionServiceImpl
-                .getSimplifiedTransliterationClause(isGreek, lowerQuery, false);
+        final Query simplifiedTransliteration = OriginalWordSuggestionServiceImpl
+                .getSimplifiedTransliterationQuery(this.specificForms, isGreek, lowerQuery, false);
 
-        final EntityDoc[] specificFormEntities = this.specificForms.searchSingleColumn(
-                "simplifiedTransliteration", simplifiedTransliteration, getFilter(isGreek));
+        final EntityDoc[] specificFormEntities = this.specificForms.search(simplifiedTransliteration,
+                Integer.MAX_VALUE, null, getFilter(isGreek));
 
         // finally, if we haven't found anything, then abort
         if (specificFormEntities.length != 0) {
@@ -1567,7 +1594,7 @@ public class SearchServiceImpl implements SearchService {
 
         try {
             final Query luceneQuery = queryParser.parse("-stopWord:true " + lowerQuery);
-            final EntityDoc[] results = this.definitions.search(luceneQuery);
+            final EntityDoc[] results = this.definitions.search(luceneQuery, STRONG_NUMBER_ONLY);
 
             if (results.length == 0) {
                 throw new AbortQueryException("No definitions found for input");
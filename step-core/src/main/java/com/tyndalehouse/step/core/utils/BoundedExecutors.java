@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Singleton;
+
+/**
+ * Creates the thread pools that services use to run work in parallel, and shuts them all down when the
+ * application stops.
+ * <p/>
+ * Each pool has a fixed number of daemon threads and a bounded queue. Once the queue is full, tasks run on the
+ * thread that submits them, which slows down the callers rather than letting work pile up. Tasks that are no
+ * longer needed should be cancelled without interrupting them, as interrupting a thread that is reading an index
+ * can close the channel to that index.
+ *
+ * @author agent
+ */
+@Singleton
+public class BoundedExecutors {
+    private static final int QUEUED_TASKS_PER_THREAD = 16;
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<ExecutorService>();
+
+    /**
+     * @param name    the name of the pool, which prefixes the names of its threads
+     * @param threads the number of threads, or 0 for no pool
+     * @return a bounded executor, or null if there are no threads, in which case the work should be done on the
+     * calling thread
+     */
+    public ExecutorService create(final String name, final int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        final ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(threads * QUEUED_TASKS_PER_THREAD), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executors.add(executor);
+        return executor;
+    }
+
+    /**
+     * Stops accepting new work in every pool. Tasks that are already running or queued are left to finish.
+     */
+    public void shutdown() {
+        for (final ExecutorService executor : this.executors) {
+            executor.shutdown();
+        }
+        this.executors.clear();
+    }
+}
@@ -46,7 +46,6 @@ import org.crosswire.jsword.book.FeatureType;
 import org.crosswire.jsword.book.basic.AbstractPassageBook;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
-import org.crosswire.jsword.passage.NoSuchKeyException;
 import org.crosswire.jsword.passage.PassageKeyFactory;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.versification.BibleBook;
@@ -209,14 +208,13 @@ public final class JSwordUtils {
     /**
      * Gets the osis elements.
      *
-     * @return the osis elements
-     * @throws org.crosswire.jsword.passage.NoSuchKeyException the no such key exception
-     * @throws org.crosswire.jsword.book.BookException      the book exception
+     * @param fragment the osis fragment, as returned by {@link BookData#getOsisFragment()}
+     * @return the osis elements, as an unmodifiable list since the fragment may be shared
      */
     @SuppressWarnings({"unchecked", "serial"})
-    public static List<Element> getOsisElements(BookData data) throws NoSuchKeyException, BookException {
-        return data.getOsisFragment().getContent(
-                new ElementFilter(OSIS_ELEMENT_VERSE));
+    public static List<Element> getOsisElements(final Element fragment) {
+        return Collections.unmodifiableList(fragment.getContent(
+                new ElementFilter(OSIS_ELEMENT_VERSE)));
     }
 
     /**
@@ -19,7 +19,8 @@ import java.util.Set;
  * @author chrisburrell
  */
 public final class LuceneUtils {
-    private static final int MAX_TRACK = 55;
+    /** when not tracking the total, terms are still counted up to this number */
+    public static final int MAX_TRACK = 55;
     /**
      * no op
      */
@@ -53,14 +54,14 @@ public final class LuceneUtils {
                                                            final String fieldName,
                                                            final String searchTerm,
                                                            final int max) {
-        final String lastTerm = getLastTerm(searchTerm);
-        if (StringUtils.isBlank(lastTerm)) {
+        final String prefix = getPrefixText(searchTerm);
+        if (prefix == null) {
             return getBlankTermsAndMaxCount();
         }
 
         TermEnum termEnum = null;
         try {
-            final Term term = new Term(fieldName, QueryParser.escape(lastTerm.toLowerCase().trim()));
+            final Term term = new Term(fieldName, prefix);
             termEnum = exact ? new SingleTermEnum(searcher.getIndexReader(), term) : new PrefixTermEnum(searcher.getIndexReader(),
                     term);
             int count = 0;
@@ -96,12 +97,27 @@ public final class LuceneUtils {
         }
     }
 
-    private static TermsAndMaxCount getBlankTermsAndMaxCount() {
+    /**
+     * @return an empty set of terms, with a count of 0
+     */
+    public static TermsAndMaxCount getBlankTermsAndMaxCount() {
         TermsAndMaxCount termsAndMaxCount = new TermsAndMaxCount();
         termsAndMaxCount.setTerms(new HashSet<String>());
         return termsAndMaxCount;
     }
 
+    /**
+     * @param searchTerm the full term as entered by the user
+     * @return the text of the term to look up, i.e. the last word lower-cased and escaped, or null if blank
+     */
+    public static String getPrefixText(final String searchTerm) {
+        final String lastTerm = getLastTerm(searchTerm);
+        if (StringUtils.isBlank(lastTerm)) {
+            return null;
+        }
+        return QueryParser.escape(lastTerm.toLowerCase().trim());
+    }
+
     /**
      * Obtains the last word in the list
      *
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Histogram;
+
+/**
+ * Times the stages of a request, such as searching an index, reading OSIS, running the stylesheets or encoding
+ * the response. Each stage is timed by a {@link Span}, whose duration goes into a histogram of that stage in the
+ * metrics registry. When a trace has been started on the thread serving the request, the number and total
+ * duration of the spans of each stage are also added to it, so that a slow request can be broken down by stage.
+ * <p>
+ * A trace is held by the thread serving the request. Work handed to other threads can add to it by attaching the
+ * trace to those threads.
+ *
+ * @author agent
+ */
+public final class RequestTrace {
+    /** searches of a bible's index */
+    public static final String LUCENE = "lucene";
+    /** searches of an entity index */
+    public static final String ENTITIES = "entities";
+    /** reading the OSIS of a passage */
+    public static final String OSIS = "osis";
+    /** running the stylesheets over the OSIS of a passage */
+    public static final String XSLT = "xslt";
+    /** encoding the response */
+    public static final String JSON = "json";
+    /** a search, from the query to its results */
+    public static final String SEARCH = "search";
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<RequestTrace>();
+    private static final ConcurrentMap<String, Histogram> STAGE_HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+    private static final Histogram REQUEST_HISTOGRAM = Metrics.newHistogram(RequestTrace.class, "request-micros",
+            true);
+    private static final Histogram QUERIES_HISTOGRAM = Metrics.newHistogram(RequestTrace.class,
+            "queries-per-request", true);
+    private final long start = System.nanoTime();
+    private final Map<String, long[]> stages = new LinkedHashMap<String, long[]>(8);
+
+    /**
+     * Use {@link #begin()}
+     */
+    private RequestTrace() {
+        // no public constructor
+    }
+
+    /**
+     * Starts tracing the request served by the current thread
+     *
+     * @return the trace
+     */
+    public static RequestTrace begin() {
+        final RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stops tracing the request served by the current thread, recording its duration and the number of index
+     * queries it ran
+     *
+     * @param trace the trace started by {@link #begin()}
+     */
+    public static void end(final RequestTrace trace) {
+        CURRENT.remove();
+        REQUEST_HISTOGRAM.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - trace.start));
+        QUERIES_HISTOGRAM.update(trace.getCount(LUCENE) + trace.getCount(ENTITIES));
+    }
+
+    /**
+     * @return the trace of the current thread, or null if the request is not being traced
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Attaches a trace to the current thread, so that work done on behalf of another thread is added to its
+     * trace. The previous trace should be attached again once the work is done.
+     *
+     * @param trace the trace to attach, or null to detach the current one
+     * @return the trace that was attached before
+     */
+    public static RequestTrace attach(final RequestTrace trace) {
+        final RequestTrace previous = CURRENT.get();
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+        return previous;
+    }
+
+    /**
+     * Starts timing a stage. The span should be ended in a finally block.
+     *
+     * @param stage the stage
+     * @return the span
+     */
+    public static Span startSpan(final String stage) {
+        return new Span(stage, CURRENT.get());
+    }
+
+    /**
+     * @param stage the stage
+     * @return the number of spans of the stage in this trace
+     */
+    public synchronized long getCount(final String stage) {
+        final long[] totals = this.stages.get(stage);
+        return totals == null ? 0 : totals[0];
+    }
+
+    /**
+     * Describes the stages in the format of the Server-Timing header, e.g. lucene;dur=12.5;desc="2", where the
+     * description is the number of spans of the stage
+     *
+     * @return the stages of the trace so far
+     */
+    public synchronized String toServerTiming() {
+        final StringBuilder sb = new StringBuilder(32 * (this.stages.size() + 1));
+        for (final Map.Entry<String, long[]> stage : this.stages.entrySet()) {
+            appendTiming(sb, stage.getKey(), stage.getValue()[1], stage.getValue()[0]);
+        }
+        appendTiming(sb, "total", System.nanoTime() - this.start, 1);
+        return sb.toString();
+    }
+
+    /**
+     * @param sb       the timings so far
+     * @param name     the name of the stage
+     * @param duration the duration of the stage, in nanoseconds
+     * @param count    the number of spans of the stage
+     */
+    private static void appendTiming(final StringBuilder sb, final String name, final long duration,
+            final long count) {
+        if (sb.length() != 0) {
+            sb.append(", ");
+        }
+        sb.append(name);
+        sb.append(";dur=");
+        sb.append(String.format(Locale.ENGLISH, "%.1f", duration / 1000000.0));
+        sb.append(";desc=\"");
+        sb.append(count);
+        sb.append('"');
+    }
+
+    /**
+     * @param stage    the stage
+     * @param duration the duration of the span, in nanoseconds
+     */
+    private synchronized void add(final String stage, final long duration) {
+        long[] totals = this.stages.get(stage);
+        if (totals == null) {
+            totals = new long[2];
+            this.stages.put(stage, totals);
+        }
+        totals[0]++;
+        totals[1] += duration;
+    }
+
+    /**
+     * @param stage the stage
+     * @return the histogram of the durations of the stage, in microseconds
+     */
+    private static Histogram getHistogram(final String stage) {
+        Histogram histogram = STAGE_HISTOGRAMS.get(stage);
+        if (histogram == null) {
+            // the registry hands back the same histogram to threads racing to create it
+            histogram = Metrics.newHistogram(RequestTrace.class, stage + "-micros", true);
+            STAGE_HISTOGRAMS.putIfAbsent(stage, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * The timing of a single stage
+     */
+    public static final class Span {
+        private final String stage;
+        private final RequestTrace trace;
+        private final long start = System.nanoTime();
+
+        /**
+         * @param stage the stage
+         * @param trace the trace to add the span to, or null
+         */
+        private Span(final String stage, final RequestTrace trace) {
+            this.stage = stage;
+            this.trace = trace;
+        }
+
+        /**
+         * Stops timing the stage
+         */
+        public void end() {
+            final long duration = System.nanoTime() - this.start;
+            getHistogram(this.stage).update(TimeUnit.NANOSECONDS.toMicros(duration));
+            if (this.trace != null) {
+                this.trace.add(this.stage, duration);
+            }
+        }
+    }
+}
@@ -36,6 +36,7 @@ package com.tyndalehouse.step.core.utils;
 import com.tyndalehouse.step.core.utils.language.GreekUtils;
 import com.tyndalehouse.step.core.utils.language.HebrewUtils;
 import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationOption;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
 import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -406,6 +407,15 @@ public final class StringConversionUtils {
                 HebrewUtils.getTransliterationRules()));
     }
 
+    /**
+     * @param isGreek true for the Greek rules, false for the Hebrew ones
+     * @return the transliteration rules, compiled to be matched against the terms of an index. The input should
+     *         first be passed through {@link #adaptForTransliterationForIndexing(String, boolean)}.
+     */
+    public static TransliterationAutomaton getTransliterationAutomaton(final boolean isGreek) {
+        return isGreek ? GreekUtils.getTransliterationAutomaton() : HebrewUtils.getTransliterationAutomaton();
+    }
+
     private static List<TransliterationOption> trimmedTranslits(final List<TransliterationOption> transliterationRules) {
         return transliterationRules.subList(0, Math.min(transliterationRules.size(), MAX_TRANSLITERATIONS));
 
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+/**
+ * A bounded cache shared by request threads. Keys are spread over a number of stripes, each of which is a small LRU
+ * map with its own lock, so that threads rarely wait on each other. Each stripe is bounded by the approximate
+ * weight of its values, typically their size in bytes, rather than by their number. The most recently added value
+ * is always kept, however heavy it is.
+ * <p/>
+ * Hits, misses and evictions are counted in the metrics registry, under the class that owns the cache.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author agent
+ */
+public final class StripedLruCache<K, V> {
+    private final Stripe<K, V>[] stripes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /**
+     * @param owner           the class using the cache, under which its metrics are held
+     * @param maxWeight       the approximate weight the cache may hold
+     * @param numberOfStripes the number of stripes, each with its own lock
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(final Class<?> owner, final long maxWeight, final int numberOfStripes) {
+        this.stripes = new Stripe[Math.max(1, numberOfStripes)];
+        for (int ii = 0; ii < this.stripes.length; ii++) {
+            this.stripes[ii] = new Stripe<K, V>(maxWeight / this.stripes.length);
+        }
+        this.hits = Metrics.newCounter(owner, "hits");
+        this.misses = Metrics.newCounter(owner, "misses");
+        this.evictions = Metrics.newCounter(owner, "evictions");
+    }
+
+    /**
+     * @param key the key
+     * @return the value, or null if it is not cached
+     */
+    public V get(final K key) {
+        final V value = getStripe(key).get(key);
+        if (value != null) {
+            this.hits.inc();
+        } else {
+            this.misses.inc();
+        }
+        return value;
+    }
+
+    /**
+     * Caches the value, evicting the least recently used values of its stripe if the stripe is now too heavy
+     *
+     * @param key    the key
+     * @param value  the value
+     * @param weight the approximate weight of the value
+     */
+    public void put(final K key, final V value, final long weight) {
+        final int evicted = getStripe(key).put(key, value, weight);
+        if (evicted > 0) {
+            this.evictions.inc(evicted);
+        }
+    }
+
+    /**
+     * @param key the key of the value to discard
+     */
+    public void remove(final K key) {
+        getStripe(key).remove(key);
+    }
+
+    /**
+     * @return the number of values held in the cache
+     */
+    public int getSize() {
+        int size = 0;
+        for (final Stripe<K, V> stripe : this.stripes) {
+            size += stripe.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return the approximate weight of the values held in the cache
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (final Stripe<K, V> stripe : this.stripes) {
+            weight += stripe.getWeight();
+        }
+        return weight;
+    }
+
+    /**
+     * Discards all the values
+     */
+    public void clear() {
+        for (final Stripe<K, V> stripe : this.stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the stripe holding the key
+     */
+    private Stripe<K, V> getStripe(final K key) {
+        final int hash = key.hashCode();
+        return this.stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.stripes.length];
+    }
+
+    /**
+     * A small LRU map, bounded by the weight of its values
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    private static final class Stripe<K, V> {
+        private final long maxWeight;
+        private final LinkedHashMap<K, Weighed<V>> entries = new LinkedHashMap<K, Weighed<V>>(64, 0.75f, true);
+        private long weight;
+
+        /**
+         * @param maxWeight the maximum weight of the values
+         */
+        private Stripe(final long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * @param key the key
+         * @return the value, or null if not cached
+         */
+        private synchronized V get(final K key) {
+            final Weighed<V> entry = this.entries.get(key);
+            return entry != null ? entry.value : null;
+        }
+
+        /**
+         * @param key    the key
+         * @param value  the value
+         * @param weight the weight of the value
+         * @return the number of values evicted to make room
+         */
+        private synchronized int put(final K key, final V value, final long weight) {
+            final Weighed<V> previous = this.entries.put(key, new Weighed<V>(value, weight));
+            this.weight += weight - (previous != null ? previous.weight : 0);
+
+            // the value that was just added is the most recently used, so goes last
+            int evicted = 0;
+            final Iterator<Weighed<V>> leastRecentlyUsed = this.entries.values().iterator();
+            while (this.weight > this.maxWeight && this.entries.size() > 1 && leastRecentlyUsed.hasNext()) {
+                this.weight -= leastRecentlyUsed.next().weight;
+                leastRecentlyUsed.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        /**
+         * @param key the key of the value to discard
+         */
+        private synchronized void remove(final K key) {
+            final Weighed<V> removed = this.entries.remove(key);
+            if (removed != null) {
+                this.weight -= removed.weight;
+            }
+        }
+
+        /**
+         * @return the number of values
+         */
+        private synchronized int getSize() {
+            return this.entries.size();
+        }
+
+        /**
+         * @return the weight of the values
+         */
+        private synchronized long getWeight() {
+            return this.weight;
+        }
+
+        /**
+         * Discards all the values
+         */
+        private synchronized void clear() {
+            this.entries.clear();
+            this.weight = 0;
+        }
+    }
+
+    /**
+     * A value and its weight
+     *
+     * @param <V> the type of the value
+     */
+    private static final class Weighed<V> {
+        private final V value;
+        private final long weight;
+
+        /**
+         * @param value  the value
+         * @param weight the weight
+         */
+        private Weighed(final V value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import com.tyndalehouse.step.core.utils.language.transliteration.StringToStringRule;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
 import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationRule;
 
 /**
@@ -21,6 +22,7 @@ public final class GreekUtils {
     private static final Pattern BETA_ACCENTS = Pattern.compile("[()/=+|&'*\\\\]");
     private static final String GREEK_BREATHING = "h";
     private static List<TransliterationRule> transliterationRules;
+    private static TransliterationAutomaton transliterationAutomaton;
 
     /** prevent instantiation */
     private GreekUtils() {
@@ -252,6 +254,14 @@ public final class GreekUtils {
         return transliterationRules;
     }
 
+    /**
+     * @return the greek transliteration rules, compiled for matching against a list of terms
+     */
+    public static TransliterationAutomaton getTransliterationAutomaton() {
+        ensureTransliterationRules();
+        return transliterationAutomaton;
+    }
+
     /**
      * creates the transliteration rules lazily, on first time
      */
@@ -289,6 +299,8 @@ public final class GreekUtils {
             rules.add(new StringToStringRule("é", new String[] { "\u0113" }));
             rules.add(new StringToStringRule("h", new String[] { "\u0113" }));
 
+            // compiled first, since the rules being set is what tells other threads that both are ready
+            transliterationAutomaton = TransliterationAutomaton.compile(rules);
             transliterationRules = rules;
         }
     }
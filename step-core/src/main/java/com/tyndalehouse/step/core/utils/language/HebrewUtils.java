@@ -2,6 +2,7 @@ package com.tyndalehouse.step.core.utils.language;
 
 import com.tyndalehouse.step.core.utils.language.hebrew.*;
 import com.tyndalehouse.step.core.utils.language.transliteration.StringToStringRule;
+import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationAutomaton;
 import com.tyndalehouse.step.core.utils.language.transliteration.TransliterationRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +20,7 @@ public final class HebrewUtils {
     public static final char HYPHEN = '.';
     public static final char MAQAF_HYPHEN = '-';
     private static transient List<TransliterationRule> transliterationRules;
+    private static transient TransliterationAutomaton transliterationAutomaton;
 
     private static final char CLOSED_QUOTE = '\u2019';
     private static final char OPEN_QUOTE = '\u2018';
@@ -205,6 +207,14 @@ public final class HebrewUtils {
         return transliterationRules;
     }
 
+    /**
+     * @return the hebrew transliteration rules, compiled for matching against a list of terms
+     */
+    public static TransliterationAutomaton getTransliterationAutomaton() {
+        ensureTransliterationRules();
+        return transliterationAutomaton;
+    }
+
     /**
      * creates the transliteration rules lazily, on first time
      */
@@ -247,6 +257,8 @@ public final class HebrewUtils {
             rules.add(new StringToStringRule("e", new String[]{""}));
             rules.add(new StringToStringRule("é", new String[]{"e"}));
 
+            // compiled first, since the rules being set is what tells other threads that both are ready
+            transliterationAutomaton = TransliterationAutomaton.compile(rules);
             transliterationRules = rules;
         }
     }
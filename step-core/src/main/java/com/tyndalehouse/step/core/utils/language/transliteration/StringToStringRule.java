@@ -48,6 +48,16 @@ public class StringToStringRule implements TransliterationRule {
         }
     }
 
+    @Override
+    public String getMatch() {
+        return new String(this.s);
+    }
+
+    @Override
+    public String[] getReplacements() {
+        return this.options.clone();
+    }
+
     /**
      * @param word the current word
      * @param position the position in the word we're at
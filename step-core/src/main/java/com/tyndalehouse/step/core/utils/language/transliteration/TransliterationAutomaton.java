@@ -0,0 +1,238 @@
+package com.tyndalehouse.step.core.utils.language.transliteration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of transliteration rules, compiled once into a tree keyed on the characters each rule matches. Rather than
+ * listing every spelling the rules allow for a word, which grows exponentially with the length of the word, the
+ * spellings are walked alongside a sorted list of terms, and a spelling is only followed for as long as some term
+ * starts with it. All matching terms are therefore found, in time bounded by the terms that are visited.
+ * <p>
+ * The spellings are cleaned in the same way as the indexed transliterations (see
+ * com.tyndalehouse.step.core.data.filters.TransliterationCleaningFilter), so that they can be compared with the
+ * terms directly.
+ * <p>
+ * Immutable once compiled, and safe to use from several threads.
+ *
+ * @author agent
+ */
+public final class TransliterationAutomaton {
+    private final Node root;
+
+    /**
+     * @param root the root of the tree of rules
+     */
+    private TransliterationAutomaton(final Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param rules the rules to compile
+     * @return the compiled rules
+     */
+    public static TransliterationAutomaton compile(final List<TransliterationRule> rules) {
+        final Node root = new Node();
+        for (final TransliterationRule rule : rules) {
+            Node node = root;
+            for (final char c : rule.getMatch().toCharArray()) {
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.replacements.addAll(Arrays.asList(rule.getReplacements()));
+        }
+        return new TransliterationAutomaton(root);
+    }
+
+    /**
+     * Finds the terms that are a spelling of the word allowed by the rules, or, if prefix is true, that start with
+     * such a spelling.
+     *
+     * @param word        the transliteration, without any mark-up
+     * @param sortedTerms the terms, in their natural order
+     * @param prefix      true to find the terms starting with a spelling of the word
+     * @return the matching terms
+     */
+    public Set<String> intersect(final String word, final String[] sortedTerms, final boolean prefix) {
+        final Walk walk = new Walk(getEdges(word), sortedTerms, prefix);
+        walk.visit(0, "", (char) 0, 0, sortedTerms.length);
+        return walk.matches;
+    }
+
+    /**
+     * Works out, for each position in the word, where one may go next, and with which characters: either the
+     * character at that position, or any replacement of a rule matching there.
+     *
+     * @param word the word
+     * @return the edges leaving each position of the word
+     */
+    private List<List<Edge>> getEdges(final String word) {
+        final char[] chars = word.toCharArray();
+        final List<List<Edge>> edges = new ArrayList<List<Edge>>(chars.length);
+        for (int ii = 0; ii < chars.length; ii++) {
+            final List<Edge> fromHere = new ArrayList<Edge>(4);
+            fromHere.add(new Edge(ii + 1, String.valueOf(chars[ii])));
+
+            Node node = this.root;
+            for (int jj = ii; jj < chars.length && node != null; jj++) {
+                node = node.children.get(chars[jj]);
+                if (node != null) {
+                    for (final String replacement : node.replacements) {
+                        fromHere.add(new Edge(jj + 1, replacement));
+                    }
+                }
+            }
+            edges.add(fromHere);
+        }
+        return edges;
+    }
+
+    /**
+     * A node in the tree of rules
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<Character, Node>(4);
+        private final List<String> replacements = new ArrayList<String>(2);
+    }
+
+    /**
+     * A way forward from a position in the word
+     */
+    private static final class Edge {
+        private final int target;
+        private final String characters;
+
+        /**
+         * @param target     the position in the word that is reached
+         * @param characters the characters added to the spelling on the way
+         */
+        private Edge(final int target, final String characters) {
+            this.target = target;
+            this.characters = characters;
+        }
+    }
+
+    /**
+     * The state of a single walk of a word against a list of terms
+     */
+    private static final class Walk {
+        private final List<List<Edge>> edges;
+        private final String[] terms;
+        private final boolean prefix;
+        private final Set<String> visited = new HashSet<String>();
+        private final Set<String> matches = new HashSet<String>();
+
+        /**
+         * @param edges  the edges leaving each position of the word
+         * @param terms  the sorted terms
+         * @param prefix true to match terms starting with a spelling
+         */
+        private Walk(final List<List<Edge>> edges, final String[] terms, final boolean prefix) {
+            this.edges = edges;
+            this.terms = terms;
+            this.prefix = prefix;
+        }
+
+        /**
+         * @param position the position reached in the word
+         * @param spelling the cleaned spelling so far
+         * @param last     the last character added before cleaning, since repeated characters are dropped
+         * @param start    the index of the first term starting with the spelling
+         * @param end      the index after the last term starting with the spelling
+         */
+        private void visit(final int position, final String spelling, final char last, final int start,
+                           final int end) {
+            if (!this.visited.add(new StringBuilder(spelling.length() + 8).append(position).append(':')
+                    .append(last).append(spelling).toString())) {
+                return;
+            }
+
+            if (position == this.edges.size()) {
+                addMatches(spelling, start, end);
+                return;
+            }
+
+            for (final Edge edge : this.edges.get(position)) {
+                String nextSpelling = spelling;
+                char nextLast = last;
+                int nextStart = start;
+                int nextEnd = end;
+                for (int ii = 0; ii < edge.characters.length() && nextStart < nextEnd; ii++) {
+                    final char c = Character.toLowerCase(edge.characters.charAt(ii));
+                    if (c == nextLast) {
+                        continue;
+                    }
+                    nextLast = c;
+                    if (c == '-' || c == '*' || c == '\'') {
+                        continue;
+                    }
+
+                    nextSpelling = nextSpelling + c;
+                    nextStart = getStart(nextSpelling, nextStart, nextEnd);
+                    nextEnd = getPrefixEnd(nextSpelling, nextStart, nextEnd);
+                }
+
+                if (nextStart < nextEnd) {
+                    visit(edge.target, nextSpelling, nextLast, nextStart, nextEnd);
+                }
+            }
+        }
+
+        /**
+         * @param spelling a complete spelling of the word
+         * @param start    the index of the first term starting with the spelling
+         * @param end      the index after the last term starting with the spelling
+         */
+        private void addMatches(final String spelling, final int start, final int end) {
+            if (spelling.length() == 0) {
+                return;
+            }
+
+            if (this.prefix) {
+                this.matches.addAll(Arrays.asList(this.terms).subList(start, end));
+            } else if (start < end && this.terms[start].equals(spelling)) {
+                this.matches.add(spelling);
+            }
+        }
+
+        /**
+         * @param spelling the spelling
+         * @param from     the first index to look at
+         * @param to       the index after the last index to look at
+         * @return the index of the first term that is not before the spelling
+         */
+        private int getStart(final String spelling, final int from, final int to) {
+            final int position = Arrays.binarySearch(this.terms, from, to, spelling);
+            return position < 0 ? -position - 1 : position;
+        }
+
+        /**
+         * @param spelling the spelling
+         * @param from     the index of the first term that is not before the spelling
+         * @param to       the index after the last index to look at
+         * @return the index after the last term starting with the spelling
+         */
+        private int getPrefixEnd(final String spelling, final int from, final int to) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.terms[middle].startsWith(spelling)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
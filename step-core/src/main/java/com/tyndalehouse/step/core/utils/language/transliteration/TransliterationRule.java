@@ -14,4 +14,14 @@ public interface TransliterationRule {
      * @param position our current position
      */
     void expand(List<TransliterationOption> prefixes, char[] word, int position);
+
+    /**
+     * @return the characters that the rule replaces
+     */
+    String getMatch();
+
+    /**
+     * @return the strings that may be found instead of the characters that are matched
+     */
+    String[] getReplacements();
 }
@@ -36,6 +36,7 @@ import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.service.VocabularyService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.utils.JSwordUtils;
 import com.tyndalehouse.step.core.utils.StringConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
@@ -119,10 +120,12 @@ public class InterlinearProviderImpl implements InterlinearProvider {
      * @param versifiedKey           the text scope reference, defining the bounds of the lookup
      * @param hebrewDirectMapping    the hebrew overriding mappings
      * @param hebrewIndirectMappings the mappings used if no other mapping is found
+     * @param osisCache              the parsed OSIS of recently read passages
      */
     public InterlinearProviderImpl(final String masterVersion, Versification masterVersification, JSwordVersificationService versificationService,
                                    final String version, final Key versifiedKey, final Map<String, String> hebrewDirectMapping,
                                    final Map<String, String> hebrewIndirectMappings, final VocabularyService vocabProvider,
+                                   final OsisCache osisCache,
                                    boolean stripGreekAccents, boolean stripHebrewAccents, boolean stripVowels) {
         this.masterVersion = masterVersion;
         this.masterVersification = masterVersification;
@@ -154,7 +157,7 @@ public class InterlinearProviderImpl implements InterlinearProvider {
             setTestamentType(versifiedKey);
 
             bookData = getBookDataWithVerse0(versifiedKey);
-            scanForTextualInformation(bookData.getOsisFragment(), null);
+            scanForTextualInformation(osisCache.getOsisFragment(bookData), null);
         } catch (final BookException e) {
             throw new StepInternalException(e.getMessage(), e);
         }
@@ -35,6 +35,7 @@ package com.tyndalehouse.step.core.xsl.impl;
 import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.service.VocabularyService;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.service.jsword.OsisCache;
 import com.tyndalehouse.step.core.utils.StringUtils;
 import com.tyndalehouse.step.core.xsl.InterlinearProvider;
 import com.tyndalehouse.step.core.xsl.MultiInterlinearProvider;
@@ -79,6 +80,7 @@ public class MultiInterlinearProviderImpl implements MultiInterlinearProvider {
      *                             interlinear provider
      * @param versificationService the service for working with a book
      * @param vocabProvider        the provider of vocabulary
+     * @param osisCache            the parsed OSIS of recently read passages
      * @param stripGreekAccents    true to ensure Greek accents are stripped off Hebrew texts
      * @param stripHebrewAccents   true to ensure Hebrew accents are stripped off Hebrew texts
      * @param stripVowels          true to ensure accents are stripped off Greek texts
@@ -89,7 +91,7 @@ public class MultiInterlinearProviderImpl implements MultiInterlinearProvider {
             String versions,
             final String textScope,
             final JSwordVersificationService versificationService, final VocabularyService vocabProvider,
-            final boolean stripGreekAccents, final boolean stripHebrewAccents, final boolean stripVowels) {
+            final OsisCache osisCache, final boolean stripGreekAccents, final boolean stripHebrewAccents, final boolean stripVowels) {
         this.versificationService = versificationService;
 
         // first check whether the values passed in are correct
@@ -109,7 +111,7 @@ public class MultiInterlinearProviderImpl implements MultiInterlinearProvider {
                     final String normalisedVersion = version.trim();
                     this.interlinearProviders.put(normalisedVersion, new InterlinearProviderImpl(masterVersion, masterVersification,
                             versificationService, normalisedVersion, versifiedKey, hebrewDirectMapping,
-                            hebrewIndirectMappings, vocabProvider, stripGreekAccents, stripHebrewAccents, stripVowels));
+                            hebrewIndirectMappings, vocabProvider, osisCache, stripGreekAccents, stripHebrewAccents, stripVowels));
                 }
             }
             // CHECKSTYLE:OFF
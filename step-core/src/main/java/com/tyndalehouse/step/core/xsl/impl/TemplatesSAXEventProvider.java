@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.xsl.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.common.xml.SAXEventProviderInputSource;
+import org.crosswire.common.xml.SAXEventProviderXMLReader;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Transforms the events of another provider with a precompiled stylesheet. Only a lightweight
+ * {@link Transformer} is created for each transformation, the stylesheet itself is never parsed again.
+ * 
+ * @author agent
+ */
+public class TemplatesSAXEventProvider implements SAXEventProvider {
+    private final Templates templates;
+    private final SAXEventProvider xmlsep;
+    private final Map<String, Object> parameters = new HashMap<String, Object>();
+
+    /**
+     * @param templates the compiled stylesheet
+     * @param xmlsep the provider of the events to be transformed
+     */
+    public TemplatesSAXEventProvider(final Templates templates, final SAXEventProvider xmlsep) {
+        this.templates = templates;
+        this.xmlsep = xmlsep;
+    }
+
+    /**
+     * @param name the name of the stylesheet parameter
+     * @param value the value of the parameter
+     */
+    public void setParameter(final String name, final Object value) {
+        this.parameters.put(name, value);
+    }
+
+    /**
+     * @param name the name of the stylesheet parameter
+     * @return the value of the parameter, or null if it has not been set
+     */
+    public Object getParameter(final String name) {
+        return this.parameters.get(name);
+    }
+
+    @Override
+    public void provide(final ContentHandler handler) throws SAXException {
+        try {
+            final Transformer transformer = this.templates.newTransformer();
+            for (final Entry<String, Object> parameter : this.parameters.entrySet()) {
+                transformer.setParameter(parameter.getKey(), parameter.getValue());
+            }
+
+            transformer.transform(new SAXSource(new SAXEventProviderXMLReader(this.xmlsep),
+                    new SAXEventProviderInputSource()), new SAXResult(handler));
+        } catch (final TransformerException e) {
+            throw new SAXException(e);
+        }
+    }
+}
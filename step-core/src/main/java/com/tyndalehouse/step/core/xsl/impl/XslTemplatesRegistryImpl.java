@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.xsl.impl;
+
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.inject.Singleton;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tyndalehouse.step.core.exceptions.StepInternalException;
+import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
+import com.tyndalehouse.step.core.xsl.XslConversionType;
+import com.tyndalehouse.step.core.xsl.XslTemplatesRegistry;
+
+/**
+ * Compiles all the stylesheets on start-up. On reload, a new set of templates is compiled and swapped in, so
+ * that requests in flight keep using the set they started with.
+ * 
+ * @author agent
+ */
+@Singleton
+public class XslTemplatesRegistryImpl implements XslTemplatesRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(XslTemplatesRegistryImpl.class);
+    private volatile Map<XslConversionType, Templates> templates;
+
+    /**
+     * Compiles all the stylesheets
+     */
+    public XslTemplatesRegistryImpl() {
+        this.templates = compileAll();
+    }
+
+    @Override
+    public Templates getTemplates(final XslConversionType conversionType) {
+        return this.templates.get(conversionType);
+    }
+
+    @Override
+    public void reload() {
+        LOGGER.info("Recompiling stylesheets");
+        this.templates = compileAll();
+    }
+
+    /**
+     * @return a map containing a compiled stylesheet for each conversion type
+     */
+    private Map<XslConversionType, Templates> compileAll() {
+        final TransformerFactory factory = TransformerFactory.newInstance();
+        final Map<XslConversionType, Templates> compiled = new EnumMap<XslConversionType, Templates>(
+                XslConversionType.class);
+
+        for (final XslConversionType type : XslConversionType.values()) {
+            compiled.put(type, compile(factory, type.getFile()));
+        }
+        return compiled;
+    }
+
+    /**
+     * @param factory the factory used to compile the stylesheet
+     * @param file the stylesheet file, relative to the passage service
+     * @return the compiled stylesheet
+     */
+    private Templates compile(final TransformerFactory factory, final String file) {
+        final URL resource = JSwordPassageServiceImpl.class.getResource(file);
+        if (resource == null) {
+            throw new StepInternalException("Unable to find stylesheet " + file);
+        }
+
+        try {
+            final long start = System.currentTimeMillis();
+            final Templates compiled = factory.newTemplates(new StreamSource(resource.toExternalForm()));
+            LOGGER.debug("Compiled [{}] in [{}]ms", file, System.currentTimeMillis() - start);
+            return compiled;
+        } catch (final TransformerConfigurationException e) {
+            throw new StepInternalException("Unable to compile stylesheet " + file, e);
+        }
+    }
+}
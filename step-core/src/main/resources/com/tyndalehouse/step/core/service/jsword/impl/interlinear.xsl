@@ -34,8 +34,8 @@
   xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
   version="1.0"
   xmlns:jsword="http://xml.apache.org/xalan/java"
-  xmlns:morph="xalan://com.tyndalehouse.step.core.service.impl.MorphologyServiceImpl"
-  xmlns:vocab="xalan://com.tyndalehouse.step.core.service.impl.VocabularyServiceImpl"
+  xmlns:morph="xalan://com.tyndalehouse.step.core.service.impl.PassageLexiconProvider"
+  xmlns:vocab="xalan://com.tyndalehouse.step.core.service.impl.PassageLexiconProvider"
   xmlns:conversion="xalan://com.tyndalehouse.step.core.utils.StringConversionUtils"
   extension-element-prefixes="jsword morph vocab conversion">
 
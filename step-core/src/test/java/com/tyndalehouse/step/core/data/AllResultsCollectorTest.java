@@ -0,0 +1,93 @@
+package com.tyndalehouse.step.core.data;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests collecting results across several segments
+ *
+ * @author agent
+ *
+ */
+public class AllResultsCollectorTest {
+    private static final int DOCS_PER_SEGMENT = 40;
+    private IndexSearcher searcher;
+
+    /**
+     * Writes an index with three segments
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Document[][] segments = new Document[3][DOCS_PER_SEGMENT];
+        for (int segment = 0; segment < segments.length; segment++) {
+            for (int ii = 0; ii < DOCS_PER_SEGMENT; ii++) {
+                segments[segment][ii] = document("id", Integer.toString(segment * DOCS_PER_SEGMENT + ii));
+            }
+        }
+        this.searcher = new IndexSearcher(TestEntityIndex.writeSegments(segments), true);
+    }
+
+    /**
+     * @throws IOException an uncaught exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        this.searcher.close();
+    }
+
+    /**
+     * Document ids from later segments are offset by their base
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testCollectsAcrossSegments() throws IOException {
+        assertTrue(this.searcher.getIndexReader().getSequentialSubReaders().length > 1);
+
+        final AllResultsCollector collector = new AllResultsCollector();
+        this.searcher.search(new MatchAllDocsQuery(), collector);
+
+        final int[] docIds = collector.getDocIds();
+        Arrays.sort(docIds);
+        final int[] expected = new int[DOCS_PER_SEGMENT * 3];
+        for (int ii = 0; ii < expected.length; ii++) {
+            expected[ii] = ii;
+        }
+        assertArrayEquals(expected, docIds);
+        assertEquals(String.valueOf(DOCS_PER_SEGMENT * 2 + 1),
+                this.searcher.doc(DOCS_PER_SEGMENT * 2 + 1).get("id"));
+    }
+
+    /**
+     * Collection stops once the maximum is reached
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testStopsEarly() throws IOException {
+        final AllResultsCollector collector = new AllResultsCollector(5);
+        boolean terminated = false;
+        try {
+            this.searcher.search(new MatchAllDocsQuery(), collector);
+        } catch (final AllResultsCollector.CollectionTerminatedException e) {
+            terminated = true;
+        }
+
+        assertTrue(terminated);
+        assertEquals(5, collector.getSize());
+    }
+}
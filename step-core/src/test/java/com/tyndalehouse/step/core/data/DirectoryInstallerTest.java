@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordModuleServiceImpl;
+import com.tyndalehouse.step.core.service.jsword.impl.MappedBookCacheImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
 
 /**
@@ -51,7 +52,8 @@ public class DirectoryInstallerTest {
         }
 
         final JSwordModuleServiceImpl jSwordModuleServiceImpl = new JSwordModuleServiceImpl(null, installers,
-                TestUtils.mockVersificationService(), TestUtils.mockVersionResolver());
+                TestUtils.mockVersificationService(), TestUtils.mockVersionResolver(),
+                new MappedBookCacheImpl(true, 1 << 20, 1));
         jSwordModuleServiceImpl.setOffline(true);
         jSwordModuleServiceImpl.reloadInstallers();
 
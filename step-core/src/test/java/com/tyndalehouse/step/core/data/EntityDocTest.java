@@ -0,0 +1,95 @@
+package com.tyndalehouse.step.core.data;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+/**
+ * Tests the projection and serialization of entities
+ *
+ * @author agent
+ *
+ */
+public class EntityDocTest {
+
+    /**
+     * Only the projected fields are read, fields in the off-heap store are read from there, and the entity is
+     * written out as a flat object of its fields
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testProjectionAndSerialization() throws IOException {
+        final IndexReader reader = IndexReader.open(TestEntityIndex.write(document("strongNumber", "G0025",
+                "mediumDefinition", "to love")), true);
+        final StoredFieldStore store = StoredFieldStore.build(reader, "strongNumber");
+        final MapFieldSelector definitionOnly = new MapFieldSelector("mediumDefinition");
+
+        final EntityDoc projected = new EntityDoc(store, 0, reader.document(0, definitionOnly), definitionOnly);
+        assertEquals("to love", projected.get("mediumDefinition"));
+        assertNull(projected.get("strongNumber"));
+
+        final EntityDoc full = new EntityDoc(store, 0, reader.document(0, definitionOnly), null);
+        assertEquals("G0025", full.get("strongNumber"));
+        assertEquals("{\"mediumDefinition\":\"to love\",\"strongNumber\":\"G0025\"}",
+                new ObjectMapper().writeValueAsString(full));
+        reader.close();
+    }
+
+    /**
+     * Only the fields held on the heap count towards the size of the entity
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testHeapSizeLeavesOutStoredFields() throws IOException {
+        final IndexReader reader = IndexReader.open(TestEntityIndex.write(document("strongNumber", "G0025",
+                "mediumDefinition", "to love")), true);
+        final StoredFieldStore store = StoredFieldStore.build(reader, "strongNumber");
+        final MapFieldSelector definitionOnly = new MapFieldSelector("mediumDefinition");
+
+        final EntityDoc offHeap = new EntityDoc(store, 0, reader.document(0, definitionOnly), null);
+        final EntityDoc onHeap = new EntityDoc(reader.document(0));
+        assertEquals(new EntityDoc(reader.document(0, definitionOnly)).getHeapSize(), offHeap.getHeapSize());
+        assertTrue(onHeap.getHeapSize() > offHeap.getHeapSize());
+        reader.close();
+    }
+
+    /**
+     * Fields held in the off-heap store are kept when the entity is serialized
+     *
+     * @throws IOException an uncaught exception
+     * @throws ClassNotFoundException an uncaught exception
+     */
+    @Test
+    public void testJavaSerializationKeepsStoredFields() throws IOException, ClassNotFoundException {
+        final IndexReader reader = IndexReader.open(TestEntityIndex.write(document("strongNumber", "G0025",
+                "mediumDefinition", "to love")), true);
+        final StoredFieldStore store = StoredFieldStore.build(reader, "strongNumber");
+        final EntityDoc doc = new EntityDoc(store, 0,
+                reader.document(0, new MapFieldSelector("mediumDefinition")), null);
+        reader.close();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(doc);
+        out.close();
+        final EntityDoc copy = (EntityDoc) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+                .readObject();
+
+        assertEquals("G0025", copy.get("strongNumber"));
+        assertEquals("to love", copy.get("mediumDefinition"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.tyndalehouse.step.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests finding documents by the verses they refer to
+ *
+ * @author agent
+ *
+ */
+public class ReferenceIndexTest {
+    private static final String[] REFERENCES = new String[] { "Gen.1.1 Gen.1.2 Gen.1.3", "Gen.2.4 Exod.1.1",
+            "Matt.1.1", "", "Gen.1.3 Gen.1.4 Gen.1.5 Matt.1.2 notAVerse" };
+    private final Versification kjv = Versifications.instance().getVersification("KJV");
+    private IndexReader reader;
+    private ReferenceIndex index;
+
+    /**
+     * Indexes a few documents with references
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Document[] documents = new Document[REFERENCES.length];
+        for (int ii = 0; ii < REFERENCES.length; ii++) {
+            documents[ii] = new Document();
+            documents[ii].add(new Field("references", REFERENCES[ii], Field.Store.NO, Field.Index.ANALYZED));
+        }
+
+        this.reader = IndexReader.open(TestEntityIndex.write(new WhitespaceAnalyzer(), documents), true);
+        this.index = ReferenceIndex.build(this.reader, "references", this.kjv);
+    }
+
+    /**
+     * @throws IOException an uncaught exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Documents are found when any of their verses overlap the key
+     *
+     * @throws NoSuchKeyException an uncaught exception
+     */
+    @Test
+    public void testOverlappingRanges() throws NoSuchKeyException {
+        assertArrayEquals(new int[] { 0, 4 }, getDocIds("Gen.1.3"));
+        assertArrayEquals(new int[] { 0, 1, 4 }, getDocIds("Gen 1-2"));
+        assertArrayEquals(new int[] { 1, 2, 4 }, getDocIds("Exod 1:1; Matt 1"));
+        assertArrayEquals(new int[] { 4 }, getDocIds("Gen.1.5"));
+        assertArrayEquals(new int[0], getDocIds("Gen.3"));
+    }
+
+    /**
+     * @param reference the reference
+     * @return the documents referring to it
+     * @throws NoSuchKeyException an uncaught exception
+     */
+    private int[] getDocIds(final String reference) throws NoSuchKeyException {
+        return this.index.getDocIds(PassageKeyFactory.instance().getKey(this.kjv, reference));
+    }
+}
@@ -0,0 +1,50 @@
+package com.tyndalehouse.step.core.data;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.junit.Test;
+
+/**
+ * Tests the off-heap copy of stored fields
+ *
+ * @author agent
+ *
+ */
+public class StoredFieldStoreTest {
+
+    /**
+     * Fields in the store are read from it, missing values stay missing, and other fields come from the document
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testReadsStoredFields() throws IOException {
+        final IndexReader reader = IndexReader.open(TestEntityIndex.write(
+                document("strongNumber", "G0025", "accentedUnicode", "ἀγαπάω", "mediumDefinition",
+                        "a long definition"),
+                document("strongNumber", "H0157", "accentedUnicode", null, "mediumDefinition",
+                        "another long definition")), true);
+        final StoredFieldStore store = StoredFieldStore.build(reader, "strongNumber", "accentedUnicode");
+
+        assertTrue(store.hasField("strongNumber"));
+        assertFalse(store.hasField("mediumDefinition"));
+        assertEquals("G0025", store.get(0, "strongNumber"));
+        assertEquals("ἀγαπάω", store.get(0, "accentedUnicode"));
+        assertEquals("H0157", store.get(1, "strongNumber"));
+        assertNull(store.get(1, "accentedUnicode"));
+        assertNull(store.get(2, "strongNumber"));
+        assertTrue(store.getSizeInBytes() > 0);
+
+        final EntityDoc doc = new EntityDoc(store, 1, reader.document(1), null);
+        assertEquals("H0157", doc.get("strongNumber"));
+        assertEquals("another long definition", doc.get("mediumDefinition"));
+        reader.close();
+    }
+}
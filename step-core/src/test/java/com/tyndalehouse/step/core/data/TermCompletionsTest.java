@@ -0,0 +1,90 @@
+package com.tyndalehouse.step.core.data;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
+import com.tyndalehouse.step.core.utils.LuceneUtils;
+
+/**
+ * Tests that completions from memory match those read from the index
+ *
+ * @author agent
+ *
+ */
+public class TermCompletionsTest {
+    private static final String[] GLOSSES = new String[] { "love", "love", "love", "loved", "lover", "lovely",
+            "lovely", "loving", "law", "light", "lamb", "lamb" };
+    private IndexSearcher searcher;
+    private TermCompletions completions;
+
+    /**
+     * Indexes a few glosses
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Document[] documents = new Document[GLOSSES.length];
+        for (int ii = 0; ii < GLOSSES.length; ii++) {
+            documents[ii] = document("stepGloss", GLOSSES[ii]);
+        }
+
+        this.searcher = new IndexSearcher(TestEntityIndex.write(documents), true);
+        this.completions = TermCompletions.build(this.searcher.getIndexReader(), "stepGloss");
+    }
+
+    /**
+     * @throws IOException an uncaught exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        this.searcher.close();
+    }
+
+    /**
+     * The same terms and counts come back as when enumerating the index
+     */
+    @Test
+    public void testMatchesIndex() {
+        for (final String input : new String[] { "l", "lo", "love", "god lov", "lovez", "", "x" }) {
+            for (final int max : new int[] { 0, 1, 2, 10 }) {
+                for (final boolean exact : new boolean[] { true, false }) {
+                    for (final boolean trackMax : new boolean[] { true, false }) {
+                        final TermsAndMaxCount expected = LuceneUtils.getAllTermsPrefixedWith(exact, trackMax,
+                                this.searcher, "stepGloss", input, max);
+                        final TermsAndMaxCount actual = this.completions.getAllTermsPrefixedWith(exact,
+                                trackMax, "stepGloss", input, max);
+                        final String message = input + "/" + max + "/" + exact + "/" + trackMax;
+                        assertEquals(message, expected.getTerms(), actual.getTerms());
+                        assertEquals(message, expected.getTotalCount(), actual.getTotalCount());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The most popular completions are returned first, without the term itself
+     */
+    @Test
+    public void testPopularTerms() {
+        final TermsAndMaxCount popular = this.completions.getPopularTermsPrefixedWith("stepGloss", "lov", 2);
+        assertEquals(new HashSet<String>(Arrays.asList("love", "lovely")), popular.getTerms());
+        assertEquals(5, popular.getTotalCount());
+
+        final TermsAndMaxCount withoutSelf = this.completions.getPopularTermsPrefixedWith("stepGloss", "love", 1);
+        assertEquals(new HashSet<String>(Arrays.asList("lovely")), withoutSelf.getTerms());
+        assertEquals(3, withoutSelf.getTotalCount());
+    }
+}
@@ -0,0 +1,88 @@
+package com.tyndalehouse.step.core.data;
+
+import static org.apache.lucene.util.Version.LUCENE_30;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.MaxFieldLength;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * Builds small in-memory entity indexes for the tests that read entities back
+ *
+ * @author agent
+ *
+ */
+public final class TestEntityIndex {
+    /**
+     * no implementation
+     */
+    private TestEntityIndex() {
+        // no op
+    }
+
+    /**
+     * @param documents the documents, in doc id order
+     * @return an in-memory index holding the documents
+     * @throws IOException an uncaught exception
+     */
+    public static RAMDirectory write(final Document... documents) throws IOException {
+        return write(new StandardAnalyzer(LUCENE_30), documents);
+    }
+
+    /**
+     * @param analyzer  the analyzer for the analyzed fields
+     * @param documents the documents, in doc id order
+     * @return an in-memory index holding the documents
+     * @throws IOException an uncaught exception
+     */
+    public static RAMDirectory write(final Analyzer analyzer, final Document... documents) throws IOException {
+        final RAMDirectory directory = new RAMDirectory();
+        final IndexWriter writer = new IndexWriter(directory, analyzer, true, MaxFieldLength.UNLIMITED);
+        for (final Document document : documents) {
+            writer.addDocument(document);
+        }
+        writer.close();
+        return directory;
+    }
+
+    /**
+     * @param segments the documents of each segment, in doc id order
+     * @return an in-memory index with a segment for each array of documents
+     * @throws IOException an uncaught exception
+     */
+    public static RAMDirectory writeSegments(final Document[]... segments) throws IOException {
+        final RAMDirectory directory = new RAMDirectory();
+        final IndexWriter writer = new IndexWriter(directory, new StandardAnalyzer(LUCENE_30), true,
+                MaxFieldLength.UNLIMITED);
+        writer.setMergeFactor(segments.length + 1);
+        for (final Document[] segment : segments) {
+            for (final Document document : segment) {
+                writer.addDocument(document);
+            }
+            writer.commit();
+        }
+        writer.close();
+        return directory;
+    }
+
+    /**
+     * @param namesAndValues pairs of field names and values, null values being left out
+     * @return a document with each field stored and indexed as a single term
+     */
+    public static Document document(final String... namesAndValues) {
+        final Document document = new Document();
+        for (int ii = 0; ii + 1 < namesAndValues.length; ii += 2) {
+            if (namesAndValues[ii + 1] != null) {
+                document.add(new Field(namesAndValues[ii], namesAndValues[ii + 1], Field.Store.YES,
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+        return document;
+    }
+}
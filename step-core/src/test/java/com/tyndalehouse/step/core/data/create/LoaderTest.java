@@ -61,6 +61,8 @@ import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.service.jsword.impl.OsisCacheImpl;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 /**
  * Tests the loading of the all loaders
@@ -242,7 +244,7 @@ public class LoaderTest {
         coreProperties.put(key, file);
         final JSwordVersificationService versificationService = TestUtils.mockVersificationService();
         return new Loader(new JSwordPassageServiceImpl(versificationService, null, null, null,
-                mock(VersionResolver.class), null), null, coreProperties, this.entityManager,
+                mock(VersionResolver.class), null, new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1)), null, coreProperties, this.entityManager,
                 this.clientSessionProvider, mock(AppManagerService.class));
     }
 
@@ -0,0 +1,129 @@
+package com.tyndalehouse.step.core.data.entities.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.EntityManager;
+
+/**
+ * Tests the definition cache
+ *
+ * @author agent
+ *
+ */
+public class DefinitionCacheImplTest {
+    private EntityIndexReader reader;
+    private EntityManager manager;
+    private EntityDoc g0025;
+
+    /**
+     * Sets up a reader with a single definition
+     */
+    @Before
+    public void setUp() {
+        this.reader = mock(EntityIndexReader.class);
+        this.manager = mock(EntityManager.class);
+        when(this.manager.getReader("definition")).thenReturn(this.reader);
+
+        this.g0025 = definition("G0025");
+        when(this.reader.searchExactTermBySingleField("strongNumber", 1, "G0025")).thenReturn(
+                new EntityDoc[] { this.g0025 });
+        when(this.reader.searchExactTermBySingleField("strongNumber", 1, "G9999")).thenReturn(new EntityDoc[0]);
+    }
+
+    /**
+     * Definitions, and the lack of them, are only looked up once
+     */
+    @Test
+    public void testGetLooksUpOnce() {
+        final DefinitionCacheImpl cache = new DefinitionCacheImpl(this.manager, 1 << 20, 4);
+        assertSame(this.g0025, cache.get("G0025"));
+        assertSame(this.g0025, cache.get("G0025"));
+        assertNull(cache.get("G9999"));
+        assertNull(cache.get("G9999"));
+
+        verify(this.reader, times(1)).searchExactTermBySingleField("strongNumber", 1, "G0025");
+        verify(this.reader, times(1)).searchExactTermBySingleField("strongNumber", 1, "G9999");
+        assertEquals(2, cache.getSize());
+    }
+
+    /**
+     * Only the missing definitions are looked up, and results come back in the order asked for
+     */
+    @Test
+    public void testGetAllLooksUpMissing() {
+        final EntityDoc h0001 = definition("H0001");
+        when(this.reader.searchUniqueBySingleField("strongNumber", "H0001", "G9999")).thenReturn(
+                new EntityDoc[] { h0001 });
+
+        final DefinitionCacheImpl cache = new DefinitionCacheImpl(this.manager, 1 << 20, 4);
+        cache.get("G0025");
+        final Map<String, EntityDoc> results = cache.getAll(Arrays.asList("H0001", "G0025", "G9999"));
+        assertEquals(Arrays.asList("H0001", "G0025"), Arrays.asList(results.keySet().toArray()));
+        assertSame(h0001, results.get("H0001"));
+
+        cache.getAll(Arrays.asList("H0001", "G9999"));
+        verify(this.reader, times(1)).searchUniqueBySingleField("strongNumber", "H0001", "G9999");
+    }
+
+    /**
+     * The least recently used definitions are evicted once the cache is full
+     */
+    @Test
+    public void testEvictsByWeight() {
+        final DefinitionCacheImpl cache = new DefinitionCacheImpl(this.manager, 1, 1);
+        cache.get("G0025");
+        cache.get("G9999");
+        assertEquals(1, cache.getSize());
+        assertTrue(cache.getWeight() > 0);
+
+        cache.get("G0025");
+        verify(this.reader, times(2)).searchExactTermBySingleField("strongNumber", 1, "G0025");
+    }
+
+    /**
+     * Definitions are looked up again once the definition index has been refreshed
+     */
+    @Test
+    public void testRefreshEmptiesCache() {
+        final DefinitionCacheImpl cache = new DefinitionCacheImpl(this.manager, 1 << 20, 4);
+        cache.get("G0025");
+        cache.getAll(Arrays.asList("G0025"));
+        verify(this.reader, times(1)).searchExactTermBySingleField("strongNumber", 1, "G0025");
+
+        final EntityDoc refreshed = definition("G0025");
+        when(this.reader.getGeneration()).thenReturn(1);
+        when(this.reader.searchExactTermBySingleField("strongNumber", 1, "G0025")).thenReturn(
+                new EntityDoc[] { refreshed });
+        assertSame(refreshed, cache.get("G0025"));
+        assertSame(refreshed, cache.get("G0025"));
+        assertEquals(1, cache.getSize());
+    }
+
+    /**
+     * @param strongNumber the strong number
+     * @return a definition for the strong number
+     */
+    private static EntityDoc definition(final String strongNumber) {
+        final Document doc = new Document();
+        doc.add(new Field("strongNumber", strongNumber, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        doc.add(new Field("stepGloss", "gloss", Field.Store.YES, Field.Index.NO));
+        return new EntityDoc(doc);
+    }
+}
@@ -0,0 +1,79 @@
+package com.tyndalehouse.step.core.data.entities.impl;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.apache.lucene.util.Version.LUCENE_30;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.tyndalehouse.step.core.data.EntityConfiguration;
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.TestEntityIndex;
+
+/**
+ * Tests reading entities from an index on disk
+ *
+ * @author agent
+ *
+ */
+public class EntityIndexReaderImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Entities that were found before a refresh can still be read after it, whether or not some of their fields
+     * are held in the off-heap store
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Test
+    public void testEntitiesAreReadableAfterRefresh() throws IOException {
+        final File location = this.folder.newFolder("definition");
+        final Directory directory = FSDirectory.open(location);
+        Directory.copy(TestEntityIndex.write(document("strongNumber", "G0025", "mediumDefinition", "to love")),
+                directory, true);
+        directory.close();
+
+        for (final boolean memoryMapped : new boolean[] { false, true }) {
+            final EntityIndexReaderImpl reader = new EntityIndexReaderImpl(getConfiguration(location),
+                    memoryMapped);
+            final EntityDoc full = reader.searchUniqueBySingleField("strongNumber", "G0025")[0];
+            final EntityDoc projected = reader.search(new TermQuery(new Term("strongNumber", "G0025")),
+                    new MapFieldSelector("mediumDefinition"))[0];
+
+            reader.refresh();
+
+            assertEquals("G0025", full.get("strongNumber"));
+            assertEquals("to love", full.get("mediumDefinition"));
+            assertEquals("to love", projected.get("mediumDefinition"));
+            reader.close();
+        }
+    }
+
+    /**
+     * @param location the directory holding the index
+     * @return a configuration keeping the strong number off-heap when memory mapped
+     */
+    private EntityConfiguration getConfiguration(final File location) {
+        final EntityConfiguration config = mock(EntityConfiguration.class);
+        when(config.getLocation()).thenReturn(location.toURI());
+        when(config.getOffHeapFields()).thenReturn(new String[] { "strongNumber" });
+        when(config.getCompletionFields()).thenReturn(new String[0]);
+        when(config.getAnalyzerInstance()).thenReturn(new StandardAnalyzer(LUCENE_30));
+        when(config.getName()).thenReturn("definition");
+        return config;
+    }
+}
@@ -96,6 +96,11 @@ public class MockJSwordPassageServiceImpl implements JSwordPassageService {
         return null;
     }
 
+    @Override
+    public List<OsisWrapper> peakOsisTexts(final String[] versions, final List<Key> lookupKeys, final List<LookupOption> options, final String interlinearMode) {
+        return null;
+    }
+
     /**
      * Gets the osis text by verse numbers.
      * 
@@ -205,6 +210,11 @@ public class MockJSwordPassageServiceImpl implements JSwordPassageService {
         return null;
     }
 
+    @Override
+    public Key getAllReferencesKey(final String references, final String version) {
+        return null;
+    }
+
      /**
      * Gets the first verse excluding zero.
      * 
@@ -47,6 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordModuleServiceImpl;
+import com.tyndalehouse.step.core.service.jsword.impl.MappedBookCacheImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
 
 /**
@@ -71,7 +72,8 @@ public class DownloadJSwordBiblesPreReq {
                 "ASV", "Montgomery", "FreCrampon", "SBLGNT", "TR", "WHNU", "OSMHB", "Chiuns" };
 
         final JSwordModuleServiceImpl jsword = new JSwordModuleServiceImpl(getInstallers(),
-                new ArrayList<Installer>(0), TestUtils.mockVersificationService(), TestUtils.mockVersionResolver());
+                new ArrayList<Installer>(0), TestUtils.mockVersificationService(), TestUtils.mockVersionResolver(),
+                new MappedBookCacheImpl(true, 1 << 20, 1));
 
         for (final String moduleInitials : modules) {
             LOGGER.debug("Checking [{}] for install", moduleInitials);
@@ -0,0 +1,92 @@
+package com.tyndalehouse.step.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.search.Query;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.service.jsword.helpers.VerseBitSet;
+
+/**
+ * Tests {@link AugmentedStrongsTable}
+ *
+ * @author agent
+ *
+ */
+public class AugmentedStrongsTableTest {
+    private final Versification v11n = Versifications.instance().getVersification("KJV");
+
+    /**
+     * Only the augmented strongs used in the verses are found, and all of them are found by augmented strong
+     *
+     * @throws NoSuchKeyException an uncaught exception
+     */
+    @Test
+    public void testFind() throws NoSuchKeyException {
+        final EntityDoc a = augmentedStrong("H0001A", "Gen.1.1 Gen.1.3-Gen.1.5");
+        final EntityDoc b = augmentedStrong("H0001B", "Gen.2.1");
+        final EntityDoc other = augmentedStrong("H0002A", "Gen.1.1");
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[] { a, b, other });
+
+        final AugmentedStrongsTable table = AugmentedStrongsTable.build(reader, this.v11n, 0);
+        final List<AugmentedStrongsTable.Entry> inChapter = table.find("h0001", verses("Gen.1"));
+        assertEquals(1, inChapter.size());
+        assertSame(a, inChapter.get(0).getDoc());
+        assertEquals("H0001A", inChapter.get(0).getAugmentedStrong());
+
+        assertEquals(2, table.find("h0001", verses("Gen.1.4-Gen.2.1")).size());
+        assertTrue(table.find("h0001", verses("Gen.1.2")).isEmpty());
+        assertTrue(table.find("h0003", verses("Gen.1.1")).isEmpty());
+
+        assertEquals(4, table.get("h0001a").getVerses().getCardinality());
+        assertNull(table.get("H0001C"));
+    }
+
+    /**
+     * An empty index gives an empty table
+     */
+    @Test
+    public void testEmpty() {
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[0]);
+        assertTrue(AugmentedStrongsTable.build(reader, this.v11n, 0).isEmpty());
+    }
+
+    /**
+     * @param reference the reference
+     * @return the verses of the reference
+     * @throws NoSuchKeyException an uncaught exception
+     */
+    private VerseBitSet verses(final String reference) throws NoSuchKeyException {
+        return VerseBitSet.fromKey(PassageKeyFactory.instance().getKey(this.v11n, reference));
+    }
+
+    /**
+     * @param augmentedStrong the augmented strong number
+     * @param references      the verses it is used in
+     * @return an augmented strong
+     */
+    private static EntityDoc augmentedStrong(final String augmentedStrong, final String references) {
+        final Document doc = new Document();
+        doc.add(new Field("augmentedStrong", augmentedStrong, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        doc.add(new Field("references", references, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        return new EntityDoc(doc);
+    }
+}
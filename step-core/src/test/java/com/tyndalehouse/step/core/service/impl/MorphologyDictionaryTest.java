@@ -0,0 +1,90 @@
+package com.tyndalehouse.step.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.search.Query;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.EntityManager;
+
+/**
+ * Tests {@link MorphologyDictionary}
+ *
+ * @author agent
+ *
+ */
+public class MorphologyDictionaryTest {
+    /**
+     * Codes are found by exact match, and the first item of a code is kept
+     */
+    @Test
+    public void testLookup() {
+        final EntityDoc first = morphology("V-PAI-3S", "verb");
+        final EntityDoc n = morphology("N-NSM", "noun");
+        final EntityDoc duplicate = morphology("V-PAI-3S", "duplicate");
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[] { first, n, duplicate });
+
+        final MorphologyDictionary dictionary = MorphologyDictionary.build(reader, 0);
+        assertSame(first, dictionary.get("V-PAI-3S"));
+        assertEquals("verb", dictionary.getInlineHtml("V-PAI-3S"));
+        assertEquals("noun", dictionary.getInlineHtml("N-NSM"));
+        assertNull(dictionary.get("n-nsm"));
+        assertNull(dictionary.getInlineHtml("A-NSM"));
+    }
+
+    /**
+     * An empty index gives an empty dictionary
+     */
+    @Test
+    public void testEmpty() {
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[0]);
+        assertTrue(MorphologyDictionary.build(reader, 0).isEmpty());
+    }
+
+    /**
+     * The service reads the index again once it has been refreshed
+     */
+    @Test
+    public void testRebuiltAfterRefresh() {
+        final EntityDoc before = morphology("V-PAI-3S", "verb");
+        final EntityDoc after = morphology("V-PAI-3S", "refreshed verb");
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        final EntityManager manager = mock(EntityManager.class);
+        when(manager.getReader("morphology")).thenReturn(reader);
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[] { before });
+        when(reader.getGeneration()).thenReturn(1);
+
+        final MorphologyServiceImpl service = new MorphologyServiceImpl(manager);
+        assertSame(before, service.getMorphology("robinson:V-PAI-3S").get(0));
+
+        when(reader.search(any(Query.class))).thenReturn(new EntityDoc[] { after });
+        assertSame(before, service.getMorphology("robinson:V-PAI-3S").get(0));
+
+        when(reader.getGeneration()).thenReturn(2);
+        assertSame(after, service.getMorphology("robinson:V-PAI-3S").get(0));
+    }
+
+    /**
+     * @param code       the code
+     * @param inlineHtml the html
+     * @return a morphology item
+     */
+    private static EntityDoc morphology(final String code, final String inlineHtml) {
+        final Document doc = new Document();
+        doc.add(new Field("code", code, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        doc.add(new Field("inlineHtml", inlineHtml, Field.Store.YES, Field.Index.NO));
+        return new EntityDoc(doc);
+    }
+}
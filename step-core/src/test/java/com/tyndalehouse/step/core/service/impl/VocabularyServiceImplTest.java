@@ -1,13 +1,41 @@
 package com.tyndalehouse.step.core.service.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
-import com.tyndalehouse.step.core.service.StrongAugmentationService;
-import com.tyndalehouse.step.core.service.jsword.JSwordSearchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.crosswire.common.xml.JDOMSAXEventProvider;
+import org.jdom2.Element;
 import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xml.sax.SAXException;
 
-import com.tyndalehouse.step.core.data.entities.impl.EntityManagerImpl;
+import com.tyndalehouse.step.core.data.DefinitionCache;
+import com.tyndalehouse.step.core.data.EntityDoc;
+import com.tyndalehouse.step.core.data.EntityIndexReader;
+import com.tyndalehouse.step.core.data.EntityManager;
+import com.tyndalehouse.step.core.data.entities.impl.DefinitionCacheImpl;
+import com.tyndalehouse.step.core.service.StrongAugmentationService;
+import com.tyndalehouse.step.core.service.StrongAugmentationService.AugmentedStrongs;
+import com.tyndalehouse.step.core.service.VocabularyService;
 
 /**
  * Tests {@link VocabularyServiceImpl}
@@ -16,12 +44,15 @@ import com.tyndalehouse.step.core.data.entities.impl.EntityManagerImpl;
  * 
  */
 public class VocabularyServiceImplTest {
+    private static final String VERSION = "ESV_th";
+    private static final String AUGMENTED_REFERENCE = "Gen.1.1";
+
     /**
      * Test key extraction
      */
     @Test
     public void testKeyExtraction() {
-        final VocabularyServiceImpl vocab = new VocabularyServiceImpl(mock(EntityManagerImpl.class), mock(StrongAugmentationService.class));
+        final VocabularyServiceImpl vocab = new VocabularyServiceImpl(mock(DefinitionCache.class), mock(StrongAugmentationService.class));
         assertEquals("G0016", vocab.getKeys("strong:G16")[0]);
         assertEquals("G0016", vocab.getKeys("strong:G16,strong:G019")[0]);
 
@@ -32,11 +63,217 @@ public class VocabularyServiceImplTest {
      */
     @Test
     public void testMultipleKeyExtraction() {
-        final VocabularyServiceImpl vocab = new VocabularyServiceImpl(mock(EntityManagerImpl.class), mock(StrongAugmentationService.class));
+        final VocabularyServiceImpl vocab = new VocabularyServiceImpl(mock(DefinitionCache.class), mock(StrongAugmentationService.class));
         final String[] keys = vocab.getKeys("strong:G16,strong:G09");
         assertEquals("G0016", keys[0]);
         assertEquals("G0009", keys[1]);
 
     }
 
+    /**
+     * Looking up the words of a whole passage at once finds the same definitions as looking them up verse by verse,
+     * including augmented Hebrew strong numbers, words without definitions, and more strong numbers than fit in a
+     * single query
+     */
+    @Test
+    public void testPassageLookupMatchesVerseLookups() {
+        final Map<String, Set<String>> identifiersByReference = new HashMap<String, Set<String>>();
+        addIdentifier(identifiersByReference, AUGMENTED_REFERENCE, "strong:H1");
+        addIdentifier(identifiersByReference, AUGMENTED_REFERENCE, "strong:H2 strong:G3");
+        addIdentifier(identifiersByReference, "Gen.1.2", "strong:H1");
+        for (int ii = 1; ii <= 600; ii++) {
+            addIdentifier(identifiersByReference, "Rom.1." + (ii % 30 + 1),
+                    ii % 5 == 0 ? "strong:G" + ii + " strong:G" + (ii + 1000) : "strong:G" + ii);
+        }
+
+        final DefinitionIndex passageIndex = new DefinitionIndex();
+        final Map<String, Map<String, EntityDoc[]>> passage = createService(passageIndex).getLexiconDefinitions(
+                VERSION, identifiersByReference);
+        assertTrue(passageIndex.largestBatch <= 512);
+        assertTrue(passageIndex.batches > 1);
+
+        final VocabularyServiceImpl verses = createService(new DefinitionIndex());
+        assertEquals(identifiersByReference.keySet(), passage.keySet());
+        for (final Map.Entry<String, Set<String>> identifiersAtReference : identifiersByReference.entrySet()) {
+            final String reference = identifiersAtReference.getKey();
+            for (final String identifiers : identifiersAtReference.getValue()) {
+                assertEquals(reference + " " + identifiers,
+                        getStrongNumbers(verses.getLexiconDefinitions(identifiers, VERSION, reference)),
+                        getStrongNumbers(passage.get(reference).get(identifiers)));
+            }
+        }
+
+        assertEquals("[H0001a]", getStrongNumbers(passage.get(AUGMENTED_REFERENCE).get("strong:H1")).toString());
+        assertEquals("[H0001]", getStrongNumbers(passage.get("Gen.1.2").get("strong:H1")).toString());
+        assertEquals("[]", getStrongNumbers(passage.get("Rom.1.8").get("strong:G7")).toString());
+    }
+
+    /**
+     * The lexicon provider given to the stylesheet finds the words of the passage without going back to the
+     * vocabulary service, gives the same text as the vocabulary service would, and still looks up words that were
+     * not in the passage
+     *
+     * @throws SAXException uncaught exception
+     */
+    @Test
+    public void testPassageLexiconProviderMatchesVocabularyService() throws SAXException {
+        final Element passage = new Element("div");
+        passage.addContent(verse(AUGMENTED_REFERENCE, "strong:H1", "strong:H2 strong:G3", "strong:H7"));
+        passage.addContent(verse("Rom.1.1", "strong:G16", "strong:G16 strong:G19"));
+
+        final VocabularyServiceImpl vocab = spy(createService(new DefinitionIndex()));
+        final PassageLexiconProvider provider = PassageLexiconProvider.prefetch(new JDOMSAXEventProvider(
+                new org.jdom2.Document(passage)), VERSION, vocab, null, true, false);
+
+        final VocabularyService verses = createService(new DefinitionIndex());
+        for (final String[] word : new String[][] { { AUGMENTED_REFERENCE, "strong:H1" },
+                { AUGMENTED_REFERENCE, "strong:H2 strong:G3" }, { AUGMENTED_REFERENCE, "strong:H7" },
+                { "Rom.1.1", "strong:G16" }, { "Rom.1.1", "strong:G16 strong:G19" } }) {
+            assertEquals(verses.getEnglishVocab(VERSION, word[0], word[1]),
+                    provider.getEnglishVocab(VERSION, word[0], word[1]));
+            assertEquals(verses.getDefaultTransliteration(VERSION, word[0], word[1]),
+                    provider.getDefaultTransliteration(VERSION, word[0], word[1]));
+        }
+        verify(vocab, never()).getLexiconDefinitions(anyString(), anyString(), anyString());
+
+        assertEquals("gloss of G0020", provider.getEnglishVocab(VERSION, "Rom.1.2", "strong:G20"));
+        verify(vocab).getLexiconDefinitions("strong:G20", VERSION, "Rom.1.2");
+    }
+
+    /**
+     * @param definitions the definitions to look words up in
+     * @return a vocabulary service with its own cache of the definitions, augmenting Hebrew strong numbers in
+     *         {@link #AUGMENTED_REFERENCE} only
+     */
+    private VocabularyServiceImpl createService(final DefinitionIndex definitions) {
+        final EntityIndexReader reader = mock(EntityIndexReader.class);
+        when(reader.searchUniqueBySingleField(anyString(), Matchers.<String> anyVararg())).thenAnswer(definitions);
+        when(reader.searchExactTermBySingleField(anyString(), anyInt(), Matchers.<String> anyVararg())).thenAnswer(definitions);
+        final EntityManager manager = mock(EntityManager.class);
+        when(manager.getReader("definition")).thenReturn(reader);
+
+        final StrongAugmentationService augmentation = mock(StrongAugmentationService.class);
+        when(augmentation.augment(anyString(), anyString(), any(String[].class))).thenAnswer(
+                new Answer<AugmentedStrongs>() {
+                    @Override
+                    public AugmentedStrongs answer(final InvocationOnMock invocation) {
+                        final boolean augment = AUGMENTED_REFERENCE.equals(invocation.getArguments()[1]);
+                        final List<String> keys = getValues(invocation.getArguments(), 2);
+                        final List<String> strongs = new ArrayList<String>(keys.size());
+                        final List<EntityDoc> docs = new ArrayList<EntityDoc>();
+                        for (final String key : keys) {
+                            if (augment && key.startsWith("H")) {
+                                strongs.add(key + "a");
+                                docs.add(entity("augmentedStrong", key + "a"));
+                            } else {
+                                strongs.add(key);
+                            }
+                        }
+                        return new AugmentedStrongs(strongs.toArray(new String[strongs.size()]),
+                                docs.toArray(new EntityDoc[docs.size()]));
+                    }
+                });
+        return new VocabularyServiceImpl(new DefinitionCacheImpl(manager, 1 << 24, 4), augmentation);
+    }
+
+    /**
+     * @param identifiersByReference the identifiers of the words of each verse
+     * @param reference              the verse
+     * @param identifiers            the identifiers of one word
+     */
+    private static void addIdentifier(final Map<String, Set<String>> identifiersByReference, final String reference,
+                                      final String identifiers) {
+        Set<String> identifiersAtReference = identifiersByReference.get(reference);
+        if (identifiersAtReference == null) {
+            identifiersAtReference = new LinkedHashSet<String>();
+            identifiersByReference.put(reference, identifiersAtReference);
+        }
+        identifiersAtReference.add(identifiers);
+    }
+
+    /**
+     * @param reference the osisID of the verse
+     * @param lemmas    the lemma of each word
+     * @return the verse, as it comes out of JSword
+     */
+    private static Element verse(final String reference, final String... lemmas) {
+        final Element verse = new Element("verse");
+        verse.setAttribute("osisID", reference);
+        for (final String lemma : lemmas) {
+            final Element word = new Element("w");
+            word.setAttribute("lemma", lemma);
+            word.setText("word");
+            verse.addContent(word);
+        }
+        return verse;
+    }
+
+    /**
+     * @param definitions the definitions
+     * @return the strong number of each definition, in order
+     */
+    private static List<String> getStrongNumbers(final EntityDoc[] definitions) {
+        final List<String> strongNumbers = new ArrayList<String>(definitions.length);
+        for (final EntityDoc definition : definitions) {
+            strongNumbers.add(definition.get("strongNumber"));
+        }
+        return strongNumbers;
+    }
+
+    /**
+     * @param arguments the arguments of a call, whose varargs may or may not have been expanded
+     * @param start     the first of the varargs
+     * @return the values passed as varargs
+     */
+    private static List<String> getValues(final Object[] arguments, final int start) {
+        final List<String> values = new ArrayList<String>();
+        for (int ii = start; ii < arguments.length; ii++) {
+            if (arguments[ii] instanceof String[]) {
+                for (final String value : (String[]) arguments[ii]) {
+                    values.add(value);
+                }
+            } else {
+                values.add((String) arguments[ii]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param nameValues the names and values of the fields
+     * @return the entity
+     */
+    private static EntityDoc entity(final String... nameValues) {
+        final Document doc = new Document();
+        for (int ii = 0; ii < nameValues.length; ii += 2) {
+            doc.add(new Field(nameValues[ii], nameValues[ii + 1], Field.Store.YES, Field.Index.NOT_ANALYZED));
+        }
+        return new EntityDoc(doc);
+    }
+
+    /**
+     * Finds the definition of every strong number but those whose number divides by 7, remembering how many were
+     * asked for at once
+     */
+    private static final class DefinitionIndex implements Answer<EntityDoc[]> {
+        private int batches;
+        private int largestBatch;
+
+        @Override
+        public EntityDoc[] answer(final InvocationOnMock invocation) {
+            final boolean exact = "searchExactTermBySingleField".equals(invocation.getMethod().getName());
+            final List<String> strongNumbers = getValues(invocation.getArguments(), exact ? 2 : 1);
+            this.batches++;
+            this.largestBatch = Math.max(this.largestBatch, strongNumbers.size());
+
+            final List<EntityDoc> found = new ArrayList<EntityDoc>(strongNumbers.size());
+            for (final String strongNumber : strongNumbers) {
+                if (Integer.parseInt(strongNumber.replaceAll("[^0-9]", "")) % 7 != 0) {
+                    found.add(entity("strongNumber", strongNumber, "stepGloss", "gloss of " + strongNumber,
+                            "stepTransliteration", "translit of " + strongNumber));
+                }
+            }
+            return found.toArray(new EntityDoc[found.size()]);
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package com.tyndalehouse.step.core.service.impl.suggestion;
+
+import com.tyndalehouse.step.core.data.common.TermsAndMaxCount;
+import com.tyndalehouse.step.core.models.SearchToken;
+import com.tyndalehouse.step.core.models.SingleSuggestionsSummary;
+import com.tyndalehouse.step.core.models.SuggestionsSummary;
+import com.tyndalehouse.step.core.service.helpers.SuggestionContext;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
+import com.tyndalehouse.step.core.utils.RequestTrace;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopFieldCollector;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests running the suggestion providers in parallel
+ *
+ * @author agent
+ */
+public class SuggestionServiceImplTest {
+    private final BoundedExecutors executors = new BoundedExecutors();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Provider reference = new Provider(null);
+    private final Provider greekMeanings = new Provider(null);
+    private final Provider hebrewMeanings = new Provider(null);
+    private final Provider greek = new Provider(null);
+    private final Provider hebrew = new Provider(null);
+    private final Provider meanings = new Provider(null);
+    private final Provider subject = new Provider(this.release);
+    private final Provider text = new Provider(null);
+
+    /**
+     * lets any blocked provider finish and stops the threads
+     */
+    @After
+    public void tearDown() {
+        this.release.countDown();
+        this.executors.shutdown();
+    }
+
+    /**
+     * Each group of providers runs on its own thread, apart from the reference provider which runs on the calling
+     * thread, and the results come back in the order of the providers
+     */
+    @Test
+    public void testRunsGroupsInParallel() {
+        this.release.countDown();
+        final SuggestionsSummary summary = createService(4, 5000).getTopSuggestions(new SuggestionContext());
+
+        assertFalse(summary.isPartial());
+        assertEquals(Arrays.asList(SearchToken.REFERENCE, SearchToken.GREEK_MEANINGS, SearchToken.HEBREW_MEANINGS,
+                SearchToken.GREEK, SearchToken.HEBREW, SearchToken.MEANINGS, SearchToken.SUBJECT_SEARCH,
+                SearchToken.TEXT_SEARCH), getSearchTypes(summary));
+
+        assertSame(Thread.currentThread(), this.reference.thread);
+        assertNotSame(Thread.currentThread(), this.subject.thread);
+        assertTrue(this.subject.thread.getName().startsWith("step-suggestions-"));
+
+        // providers that depend on each other run one after the other, on the same thread
+        assertSame(this.greekMeanings.thread, this.hebrewMeanings.thread);
+        assertSame(this.greekMeanings.thread, this.greek.thread);
+        assertSame(this.greekMeanings.thread, this.hebrew.thread);
+    }
+
+    /**
+     * Providers running on other threads add their work to the trace of the request, and the threads are left
+     * untraced afterwards
+     */
+    @Test
+    public void testProvidersAddToTheRequestTrace() {
+        this.release.countDown();
+        final SuggestionServiceImpl service = createService(4, 5000);
+        final RequestTrace trace = RequestTrace.begin();
+        try {
+            service.getTopSuggestions(new SuggestionContext());
+        } finally {
+            RequestTrace.end(trace);
+        }
+
+        assertSame(trace, this.reference.trace);
+        assertSame(trace, this.subject.trace);
+        assertSame(trace, this.text.trace);
+
+        service.getTopSuggestions(new SuggestionContext());
+        assertNull(this.subject.trace);
+        assertNull(this.text.trace);
+    }
+
+    /**
+     * Providers that have not finished by the deadline are left out, and the suggestions are marked as partial
+     */
+    @Test
+    public void testReturnsPartialSuggestionsAfterDeadline() {
+        final long start = System.currentTimeMillis();
+        final SuggestionsSummary summary = createService(4, 100).getTopSuggestions(new SuggestionContext());
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(summary.isPartial());
+        final List<String> searchTypes = getSearchTypes(summary);
+        assertTrue(searchTypes.contains(SearchToken.REFERENCE));
+        assertFalse(searchTypes.contains(SearchToken.SUBJECT_SEARCH));
+    }
+
+    /**
+     * Without threads, all providers run on the calling thread and nothing is left out
+     */
+    @Test
+    public void testRunsOnCallingThreadWithoutThreads() {
+        this.release.countDown();
+        final SuggestionsSummary summary = createService(0, 0).getTopSuggestions(new SuggestionContext());
+
+        assertFalse(summary.isPartial());
+        assertEquals(8, summary.getSuggestionsSummaries().size());
+        assertSame(Thread.currentThread(), this.reference.thread);
+        assertSame(Thread.currentThread(), this.subject.thread);
+    }
+
+    /**
+     * @param threads        the number of threads
+     * @param deadlineMillis how long to wait for the providers
+     * @return the service, with a mock for each provider
+     */
+    private SuggestionServiceImpl createService(final int threads, final long deadlineMillis) {
+        return new SuggestionServiceImpl(
+                mock(HebrewAncientMeaningServiceImpl.class, this.hebrewMeanings),
+                mock(GreekAncientMeaningServiceImpl.class, this.greekMeanings),
+                mock(HebrewAncientLanguageServiceImpl.class, this.hebrew),
+                mock(GreekAncientLanguageServiceImpl.class, this.greek),
+                mock(MeaningSuggestionServiceImpl.class, this.meanings),
+                mock(SubjectSuggestionServiceImpl.class, this.subject),
+                mock(ReferenceSuggestionServiceImpl.class, this.reference),
+                mock(TextSuggestionServiceImpl.class, this.text),
+                this.executors, threads, deadlineMillis);
+    }
+
+    /**
+     * @param summary the suggestions
+     * @return the search type of each set of suggestions, in order
+     */
+    private List<String> getSearchTypes(final SuggestionsSummary summary) {
+        final List<String> searchTypes = new ArrayList<String>();
+        for (final SingleSuggestionsSummary single : summary.getSuggestionsSummaries()) {
+            searchTypes.add(single.getSearchType());
+        }
+        return searchTypes;
+    }
+
+    /**
+     * A provider that finds nothing, remembering the thread it ran on
+     */
+    private static final class Provider implements Answer<Object> {
+        private final CountDownLatch release;
+        private volatile Thread thread;
+        private volatile RequestTrace trace;
+
+        /**
+         * @param release the latch to wait on before finding anything, or null to find nothing straight away
+         */
+        private Provider(final CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public Object answer(final InvocationOnMock invocation) throws Throwable {
+            final String name = invocation.getMethod().getName();
+            final Class<?> returnType = invocation.getMethod().getReturnType();
+            if ("getNewCollector".equals(name)) {
+                this.thread = Thread.currentThread();
+                this.trace = RequestTrace.current();
+                if (this.release != null) {
+                    this.release.await(5, TimeUnit.SECONDS);
+                }
+                if (TopFieldCollector.class.equals(returnType)) {
+                    return TopFieldCollector.create(new Sort(), 1, false, false, false, false);
+                }
+                return new TermsAndMaxCount();
+            }
+            if ("getExactTerms".equals(name) || "collectNonExactMatches".equals(name)) {
+                return Array.newInstance(returnType.isArray() ? returnType.getComponentType() : Object.class, 0);
+            }
+            if ("convertToSuggestions".equals(name)) {
+                return new ArrayList<Object>();
+            }
+            return null;
+        }
+    }
+}
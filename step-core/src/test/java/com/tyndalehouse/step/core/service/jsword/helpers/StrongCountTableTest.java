@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.helpers;
+
+import static com.tyndalehouse.step.core.data.TestEntityIndex.document;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.crosswire.jsword.index.lucene.LuceneIndex;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.data.TestEntityIndex;
+import com.tyndalehouse.step.core.models.search.BookAndBibleCount;
+
+/**
+ * Tests counting strong numbers from the table read out of a Bible's index
+ *
+ * @author agent
+ */
+public class StrongCountTableTest {
+    private static final String[][] VERSES = new String[][] { { "Gen.1.1", "H0001 H0001 H0430" },
+            { "Gen.1.2", "H0430" }, { "Exod.1.1", "H0001" }, { "Matt.1.1", "G0976" } };
+    private final Versification kjv = Versifications.instance().getVersification("KJV");
+    private IndexReader reader;
+    private StrongCountTable table;
+
+    /**
+     * Indexes a few verses with their strong numbers
+     *
+     * @throws IOException an uncaught exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Document[] documents = new Document[VERSES.length];
+        for (int ii = 0; ii < VERSES.length; ii++) {
+            documents[ii] = document(LuceneIndex.FIELD_KEY, VERSES[ii][0]);
+            documents[ii].add(new Field(LuceneIndex.FIELD_STRONG, VERSES[ii][1], Field.Store.NO,
+                    Field.Index.ANALYZED));
+        }
+
+        this.reader = IndexReader.open(TestEntityIndex.write(new WhitespaceAnalyzer(), documents), true);
+        this.table = StrongCountTable.build(this.reader, this.kjv);
+    }
+
+    /**
+     * @throws IOException an uncaught exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Occurrences are counted in the whole Bible and in the book, including repeats within a verse
+     */
+    @Test
+    public void testCountsInBibleAndBook() {
+        assertCounts("H0001", null, 3, 2);
+        assertCounts("H0430", null, 2, 2);
+        assertCounts("G0976", null, 1, 0);
+        assertCounts("H9999", null, 0, 0);
+        assertTrue(this.table.isReadFrom(this.reader));
+    }
+
+    /**
+     * Only the given verses are counted when some are given
+     */
+    @Test
+    public void testCountsInVerses() {
+        final int[] verses = new int[] { getOrdinal("Gen.1.2"), getOrdinal("Exod.1.1"), getOrdinal("Exod.1.1") };
+        assertCounts("H0001", verses, 1, 0);
+        assertCounts("H0430", verses, 1, 1);
+        assertEquals(-1, StrongCountTable.getOrdinal(this.kjv, "notAVerse"));
+    }
+
+    /**
+     * @param strong          the strong number
+     * @param verses          the verses to count, or null
+     * @param expectedBible   the expected count in the Bible
+     * @param expectedGenesis the expected count in Genesis
+     */
+    private void assertCounts(final String strong, final int[] verses, final int expectedBible,
+            final int expectedGenesis) {
+        final BookAndBibleCount counts = new BookAndBibleCount();
+        this.table.applyCounts(strong, getOrdinal("Gen.1.1"), getOrdinal("Gen.50.26"), verses, counts);
+        assertEquals(expectedBible, counts.getBible());
+        assertEquals(expectedGenesis, counts.getBook());
+    }
+
+    /**
+     * @param osisId the verse
+     * @return its ordinal in the KJV
+     */
+    private int getOrdinal(final String osisId) {
+        return StrongCountTable.getOrdinal(this.kjv, osisId);
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Test;
+
+/**
+ * Tests combining verses as bitsets
+ *
+ * @author agent
+ */
+public class VerseBitSetTest {
+    private final Versification kjv = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+    private final Versification nrsv = Versifications.instance().getVersification("NRSV");
+
+    /**
+     * Intersections and unions give the same verses as the passages would
+     *
+     * @throws NoSuchKeyException an unhandled exception
+     */
+    @Test
+    public void testIntersectAndUnion() throws NoSuchKeyException {
+        final VerseBitSet verses = VerseBitSet.fromKey(get(this.kjv, "Gen 1:1-10"));
+        verses.retainAll(get(this.kjv, "Gen 1:5-12;Exo 1:1"));
+        assertEquals(6, verses.getCardinality());
+        assertEquals("Gen.1.5-Gen.1.10", verses.toPassage().getOsisRef());
+
+        verses.addAll(get(this.kjv, "Gen 1:11;Rev 1:1"));
+        assertEquals("Gen.1.5-Gen.1.11 Rev.1.1", verses.toPassage().getOsisRef());
+
+        verses.retainAll(null);
+        assertEquals(0, verses.getCardinality());
+    }
+
+    /**
+     * Verses from another versification are mapped before being combined
+     *
+     * @throws NoSuchKeyException an unhandled exception
+     */
+    @Test
+    public void testMapsOtherVersifications() throws NoSuchKeyException {
+        final VerseBitSet verses = VerseBitSet.fromKey(get(this.kjv, "Gen 1:1-3"));
+        verses.addAll(get(this.nrsv, "Gen 1:4"));
+        assertEquals("Gen.1.1-Gen.1.4", verses.toPassage().getOsisRef());
+    }
+
+    /**
+     * @param v11n the versification
+     * @param key  the key
+     * @return the passage
+     * @throws NoSuchKeyException an unhandled exception
+     */
+    private Passage get(final Versification v11n, final String key) throws NoSuchKeyException {
+        return PassageKeyFactory.instance().getKey(v11n, key);
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BookWordCounts}
+ *
+ * @author agent
+ */
+public class BookWordCountsTest {
+    /**
+     * The counts of a range of chapters are added up, and added to the counts so far
+     */
+    @Test
+    public void testAddCounts() {
+        final BookWordCounts.Builder builder = new BookWordCounts.Builder(3);
+        builder.addChapter(1, counts("love", 2, "light", 1));
+        builder.addChapter(2, counts("love", 1, "lamb", 4));
+        builder.addChapter(3, counts("law", 1));
+        final BookWordCounts book = builder.build();
+
+        final Map<String, Integer> firstTwo = new HashMap<String, Integer>();
+        book.addCounts(1, 2, firstTwo);
+        assertEquals(counts("love", 3, "light", 1, "lamb", 4), firstTwo);
+
+        final Map<String, Integer> soFar = counts("law", 2);
+        book.addCounts(0, 10, soFar);
+        assertEquals(counts("love", 3, "light", 1, "lamb", 4, "law", 3), soFar);
+
+        final Map<String, Integer> introduction = new HashMap<String, Integer>();
+        book.addCounts(0, 0, introduction);
+        assertTrue(introduction.isEmpty());
+    }
+
+    /**
+     * @param wordsAndCounts each word followed by its count
+     * @return the counts
+     */
+    private static Map<String, Integer> counts(final Object... wordsAndCounts) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int ii = 0; ii < wordsAndCounts.length; ii += 2) {
+            counts.put((String) wordsAndCounts[ii], (Integer) wordsAndCounts[ii + 1]);
+        }
+        return counts;
+    }
+}
@@ -60,7 +60,8 @@ public class JSwordAnalysisServiceImplTest {
 
     @Test
     public void testExpand() throws NoSuchKeyException {
-        JSwordAnalysisServiceImpl impl = new JSwordAnalysisServiceImpl(TestUtils.mockVersificationService(), null, null, mock(StrongAugmentationService.class));
+        JSwordAnalysisServiceImpl impl = new JSwordAnalysisServiceImpl(TestUtils.mockVersificationService(), null, null, mock(StrongAugmentationService.class), 0,
+                new OsisCacheImpl(1 << 20, 1));
 
         //normal use cases
         assertEquals("Gen.3", impl.getExpandedBookData(get("Gen.3.3"), ScopeType.CHAPTER, impl.getStrongsV11n(), impl.getStrongsBook()).getKey().getOsisRef());
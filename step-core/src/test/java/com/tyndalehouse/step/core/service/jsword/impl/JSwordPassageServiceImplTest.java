@@ -32,11 +32,14 @@
  ******************************************************************************/
 package com.tyndalehouse.step.core.service.jsword.impl;
 
+import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.models.BookName;
+import com.tyndalehouse.step.core.models.ClientSession;
 import com.tyndalehouse.step.core.models.InterlinearMode;
 import com.tyndalehouse.step.core.models.LookupOption;
 import com.tyndalehouse.step.core.models.OsisWrapper;
 import com.tyndalehouse.step.core.service.VocabularyService;
+import com.tyndalehouse.step.core.service.impl.PassageOptionsValidationServiceImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
 import com.tyndalehouse.step.core.xsl.impl.ColorCoderProviderImpl;
 import org.crosswire.jsword.book.Book;
@@ -56,16 +59,33 @@ import org.jdom2.output.XMLOutputter;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
+
+import javax.inject.Provider;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * a service providing a wrapper around JSword
@@ -82,7 +102,8 @@ public class JSwordPassageServiceImplTest {
     @Before
     public void setUp() {
         this.jsi = new JSwordPassageServiceImpl(TestUtils.mockVersificationService(), null, mock(VocabularyService.class),
-                mock(ColorCoderProviderImpl.class), TestUtils.mockVersionResolver(), null);
+                mock(ColorCoderProviderImpl.class), TestUtils.mockVersionResolver(), null,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
     }
 
     /**
@@ -536,6 +557,143 @@ public class JSwordPassageServiceImplTest {
         assertEquals("ESV_th,KJV,AV", this.jsi.getInterlinearVersion(",,ESV_th,,KJV,,,AV"));
     }
 
+    /**
+     * Passages read in one pass are the same as passages read one at a time, across several keys and versions
+     *
+     * @throws NoSuchKeyException uncaught exception
+     */
+    @Test
+    public void testPeakOsisTextsMatchesIndividualLookups() throws NoSuchKeyException {
+        final JSwordPassageServiceImpl service = createServiceWithOptions();
+        for (final String version : new String[]{"KJV", "ESV_th"}) {
+            final Book book = Books.installed().getBook(version);
+            final List<Key> keys = Arrays.asList(book.getKey("Gen.1.1"), book.getKey("John.3.16-17"),
+                    book.getKey("Rom.8.28"), book.getKey("Ps.23"), book.getKey("Gen.1.1"));
+
+            assertSamePassages(service, new String[]{version}, keys, new ArrayList<LookupOption>());
+            assertSamePassages(service, new String[]{version}, keys,
+                    new ArrayList<LookupOption>(Arrays.asList(LookupOption.VERSE_NUMBERS, LookupOption.NOTES)));
+        }
+    }
+
+    /**
+     * Headings and passages of a single key are not read in one pass, so both are read one passage at a time
+     *
+     * @throws NoSuchKeyException uncaught exception
+     */
+    @Test
+    public void testPeakOsisTextsReadsIndividuallyWhenItCannotShare() throws NoSuchKeyException {
+        final JSwordPassageServiceImpl service = createServiceWithOptions();
+        final Book book = Books.installed().getBook("KJV");
+
+        assertSamePassages(service, new String[]{"KJV"}, Arrays.asList(book.getKey("Gen.1.1"), book.getKey("Ps.23")),
+                new ArrayList<LookupOption>(Collections.singletonList(LookupOption.HEADINGS)));
+        assertSamePassages(service, new String[]{"KJV"}, Collections.singletonList(book.getKey("John.3.16")),
+                new ArrayList<LookupOption>());
+    }
+
+    /**
+     * A passage whose verses were not all read in the one pass is left to be looked up on its own
+     *
+     * @throws NoSuchKeyException uncaught exception
+     */
+    @Test
+    public void testPassageFromVersesFallsBackWhenVersesAreMissing() throws NoSuchKeyException {
+        final JSwordPassageServiceImpl service = createServiceWithOptions();
+        final Book book = Books.installed().getBook("KJV");
+        final Versification v11n = Versifications.instance().getVersification("KJV");
+
+        assertNull(service.getPassageFromVerses(book, v11n, book.getKey("Gen.1.1-2"),
+                new HashMap<String, Element>(), new ArrayList<LookupOption>(), ""));
+    }
+
+    /**
+     * Checks that reading all the passages in one pass gives the same passages as reading them one at a time
+     *
+     * @param service  the service under test
+     * @param versions the versions to read
+     * @param keys     the keys of the passages
+     * @param options  the options to read them with
+     */
+    private void assertSamePassages(final JSwordPassageServiceImpl service, final String[] versions,
+                                    final List<Key> keys, final List<LookupOption> options) {
+        final List<OsisWrapper> shared = service.peakOsisTexts(versions, keys, options, null);
+
+        final List<LookupOption> individualOptions = new ArrayList<LookupOption>(options);
+        individualOptions.add(LookupOption.HIDE_XGEN);
+        final List<OsisWrapper> individual = service.peakOsisTextsIndividually(versions, keys, individualOptions, null);
+
+        assertEquals(individual.size(), shared.size());
+        for (int ii = 0; ii < individual.size(); ii++) {
+            assertEquals(individual.get(ii).getReference(), shared.get(ii).getReference());
+            assertEquals(individual.get(ii).getOsisId(), shared.get(ii).getOsisId());
+            assertEquals(individual.get(ii).getStartRange(), shared.get(ii).getStartRange());
+            assertEquals(individual.get(ii).getEndRange(), shared.get(ii).getEndRange());
+            assertEquals(individual.get(ii).getValue(), shared.get(ii).getValue());
+        }
+    }
+
+    /**
+     * The vocabulary of every word of the passage is looked up in one go before the stylesheet runs, under the
+     * references the stylesheet then asks for, so that no word is looked up on its own
+     */
+    @Test
+    public void testLexiconProvidersLookUpPassageVocabularyAtOnce() {
+        final VocabularyService vocab = mock(VocabularyService.class);
+        when(vocab.getLexiconDefinitions(anyString(), Matchers.<Map<String, Set<String>>> anyObject())).thenAnswer(
+                new Answer<Map<String, Map<String, EntityDoc[]>>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map<String, Map<String, EntityDoc[]>> answer(final InvocationOnMock invocation) {
+                        final org.apache.lucene.document.Document gloss = new org.apache.lucene.document.Document();
+                        gloss.add(new org.apache.lucene.document.Field("stepGloss", "passage gloss",
+                                org.apache.lucene.document.Field.Store.YES,
+                                org.apache.lucene.document.Field.Index.NO));
+
+                        final Map<String, Map<String, EntityDoc[]>> definitions =
+                                new HashMap<String, Map<String, EntityDoc[]>>();
+                        for (final Map.Entry<String, Set<String>> lemmas :
+                                ((Map<String, Set<String>>) invocation.getArguments()[1]).entrySet()) {
+                            final Map<String, EntityDoc[]> definitionsAtReference = new HashMap<String, EntityDoc[]>();
+                            for (final String lemma : lemmas.getValue()) {
+                                definitionsAtReference.put(lemma, new EntityDoc[]{new EntityDoc(gloss)});
+                            }
+                            definitions.put(lemmas.getKey(), definitionsAtReference);
+                        }
+                        return definitions;
+                    }
+                });
+        final JSwordPassageServiceImpl service = new JSwordPassageServiceImpl(TestUtils.mockVersificationService(),
+                null, vocab, mock(ColorCoderProviderImpl.class), TestUtils.mockVersionResolver(), null,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
+
+        final String osisText = service.getOsisText("KJV", "Rom.1.4",
+                new ArrayList<LookupOption>(Collections.singletonList(LookupOption.ENGLISH_VOCAB)), "",
+                InterlinearMode.NONE).getValue();
+
+        assertTrue(osisText.contains("passage gloss"));
+        verify(vocab).getLexiconDefinitions(eq("KJV"), Matchers.<Map<String, Set<String>>> anyObject());
+        verify(vocab, never()).getLexiconDefinitions(anyString(), anyString(), anyString());
+    }
+
+    /**
+     * @return a passage service that can validate the options it is given
+     */
+    @SuppressWarnings("unchecked")
+    private JSwordPassageServiceImpl createServiceWithOptions() {
+        final ClientSession clientSession = mock(ClientSession.class);
+        when(clientSession.getLocale()).thenReturn(Locale.ENGLISH);
+        final Provider<ClientSession> clientSessionProvider = mock(Provider.class);
+        when(clientSessionProvider.get()).thenReturn(clientSession);
+
+        final JSwordMetadataServiceImpl metadata = new JSwordMetadataServiceImpl(
+                TestUtils.mockVersificationService(), TestUtils.mockVersionResolver());
+        return new JSwordPassageServiceImpl(TestUtils.mockVersificationService(), null, mock(VocabularyService.class),
+                mock(ColorCoderProviderImpl.class), TestUtils.mockVersionResolver(),
+                new PassageOptionsValidationServiceImpl(metadata, clientSessionProvider),
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
+    }
+
     /**
      * Reducing the key size to something appropriate for the UI and acceptable for copyright holders.
      *
@@ -1,27 +1,49 @@
 package com.tyndalehouse.step.core.service.jsword.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.tyndalehouse.step.core.exceptions.LuceneSearchException;
 import com.tyndalehouse.step.core.models.AvailableFeatures;
 import com.tyndalehouse.step.core.models.InterlinearMode;
 import com.tyndalehouse.step.core.service.PassageOptionsValidationService;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.IndexStatus;
+import org.crosswire.jsword.index.search.SearchRequest;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.tyndalehouse.step.core.models.search.SearchEntry;
+import com.tyndalehouse.step.core.models.search.SearchResult;
 import com.tyndalehouse.step.core.models.search.VerseSearchEntry;
 import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.impl.SearchQuery;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 /**
  * Tests the various searches
@@ -43,7 +65,8 @@ public class JSwordSearchServiceImplTest {
         when(mockOptionsService.getAvailableFeaturesForVersion(any(String.class), any(List.class), any(String.class), any(InterlinearMode.class)))
                 .thenReturn(new AvailableFeatures());
         this.search = new JSwordSearchServiceImpl(mockVersificationService, null, new JSwordPassageServiceImpl(
-                mockVersificationService, null, null, null, TestUtils.mockVersionResolver(), mockOptionsService));
+                mockVersificationService, null, null, null, TestUtils.mockVersionResolver(), mockOptionsService,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1)), new BoundedExecutors(), 0);
     }
 
     /**
@@ -54,6 +77,130 @@ public class JSwordSearchServiceImplTest {
         assertTrue(this.search.estimateSearchResults(new SearchQuery("John", new String[] {"ESV_th"}, "false", 0, 0, 0, null)) > 100);
     }
 
+    /**
+     * A ranked search of a single term only keeps the hits up to the end of the page, and should return the same
+     * page and total as ranking every hit
+     */
+    @Test
+    public void testTopHitsMatchFullSearch() {
+        for (int page = 1; page <= 2; page++) {
+            final SearchQuery sq = new SearchQuery("love", new String[] {"ESV_th"}, "true", 0, page, 10, null);
+            assertTrue(this.search.isTopHitsSearch(sq));
+
+            final SearchResult topHits = this.search.search(sq, "ESV_th");
+            final SearchResult allHits = this.search.retrieveResultsFromKeys(sq, this.search.searchKeys(sq),
+                    "ESV_th");
+            assertEquals(allHits.getTotal(), topHits.getTotal());
+            assertEquals(getKeys(allHits), getKeys(topHits));
+        }
+    }
+
+    /**
+     * A restricted search filters the hits after Lucene has found them, so has to rank all of them
+     */
+    @Test
+    public void testRestrictedRankedSearchKeepsAllHits() {
+        final SearchQuery sq = new SearchQuery("+[Mat-Jhn] love", new String[] {"ESV_th"}, "true", 0, 1, 10, null);
+        assertFalse(this.search.isTopHitsSearch(sq));
+        assertFalse(this.search.isTopHitsSearch(new SearchQuery("love~", new String[] {"ESV_th"}, "true", 0, 1,
+                10, null)));
+        assertFalse(this.search.isTopHitsSearch(new SearchQuery("love", new String[] {"ESV_th", "KJV"}, "true", 0,
+                1, 10, null)));
+
+        assertEquals(this.search.estimateSearchResults(sq), this.search.search(sq, "ESV_th").getTotal());
+    }
+
+    /**
+     * When the search of one version fails, the searches of the versions that have not started yet are cancelled,
+     * and the running ones are left to finish without being interrupted
+     *
+     * @throws Exception an uncaught exception
+     */
+    @Test
+    public void testFailedParallelSearchCancelsPendingVersions() throws Exception {
+        final Versification kjv = Versifications.instance().getVersification("KJV");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+
+        final Book failing = mockBible("A", new Answer<Key>() {
+            @Override
+            public Key answer(final InvocationOnMock invocation) throws Throwable {
+                started.await(5, TimeUnit.SECONDS);
+                throw new BookException("Unable to search");
+            }
+        });
+        final Book running = mockBible("B", new Answer<Key>() {
+            @Override
+            public Key answer(final InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                interrupted.set(Thread.currentThread().isInterrupted());
+                finished.countDown();
+                return PassageKeyFactory.instance().createEmptyKeyList(kjv);
+            }
+        });
+        final Book queued = mockBible("C", null);
+        final Book alsoQueued = mockBible("D", null);
+
+        final JSwordVersificationService versificationService = mock(JSwordVersificationService.class);
+        when(versificationService.getVersificationForVersion(any(Book.class))).thenReturn(kjv);
+        for (final Book bible : new Book[] { failing, running, queued, alsoQueued }) {
+            when(versificationService.getBookFromVersion(bible.getInitials())).thenReturn(bible);
+        }
+
+        // a single thread, so that C and D wait in the queue behind B
+        final BoundedExecutors executors = new BoundedExecutors();
+        final JSwordSearchServiceImpl parallelSearch = new JSwordSearchServiceImpl(versificationService, null, null,
+                executors, 1);
+        try {
+            parallelSearch.searchKeys(new SearchQuery("love", new String[] { "A", "B", "C", "D" }, "false", 0, 1,
+                    10, null));
+            fail("The failure of version A should have been reported");
+        } catch (final LuceneSearchException e) {
+            // expected
+        }
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+
+        // give the pool a chance to pick up anything that wasn't cancelled
+        Thread.sleep(100);
+        verify(queued, never()).find(any(SearchRequest.class));
+        verify(alsoQueued, never()).find(any(SearchRequest.class));
+        executors.shutdown();
+    }
+
+    /**
+     * @param initials the initials of the bible
+     * @param search   what happens when the bible is searched, or null for nothing
+     * @return an indexed bible
+     * @throws BookException an uncaught exception
+     */
+    private Book mockBible(final String initials, final Answer<Key> search) throws BookException {
+        final Book bible = mock(Book.class);
+        when(bible.getInitials()).thenReturn(initials);
+        when(bible.getIndexStatus()).thenReturn(IndexStatus.DONE);
+        if (search != null) {
+            when(bible.find(any(SearchRequest.class))).thenAnswer(search);
+        }
+        return bible;
+    }
+
+    /**
+     * @param result the search result
+     * @return the keys of the verses found, in order
+     */
+    private List<String> getKeys(final SearchResult result) {
+        final List<String> keys = new ArrayList<String>();
+        for (final SearchEntry entry : result.getResults()) {
+            keys.add(((VerseSearchEntry) entry).getKey());
+        }
+        return keys;
+    }
+
     /**
      * Random tests
      */
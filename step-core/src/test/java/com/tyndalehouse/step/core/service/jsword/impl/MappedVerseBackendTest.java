@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that modules read through memory-mapped files read as they do through JSword
+ *
+ * @author agent
+ */
+public class MappedVerseBackendTest {
+    private final Book kjv = Books.installed().getBook("KJV");
+    private MappedBookCacheImpl cache;
+
+    /**
+     * Modules are never mapped on Windows
+     */
+    @Before
+    public void setUp() {
+        assumeTrue(File.separatorChar != '\\');
+        this.cache = new MappedBookCacheImpl(true, 1 << 24, 4);
+    }
+
+    /**
+     * Every verse of the old testament reads the same through the mapped files as through JSword
+     *
+     * @throws BookException uncaught exceptions
+     */
+    @Test
+    public void testOldTestamentReadsAsJSword() throws BookException {
+        assertTestamentReadsAsJSword(Testament.OLD);
+    }
+
+    /**
+     * Every verse of the new testament reads the same through the mapped files as through JSword
+     *
+     * @throws BookException uncaught exceptions
+     */
+    @Test
+    public void testNewTestamentReadsAsJSword() throws BookException {
+        assertTestamentReadsAsJSword(Testament.NEW);
+    }
+
+    /**
+     * A copy that was evicted, because the module is about to change, can't be read any more. The module is read
+     * through JSword until it has been installed or removed, and is then mapped afresh.
+     *
+     * @throws BookException uncaught exceptions
+     */
+    @Test
+    public void testEvictedCopyFailsToRead() throws BookException {
+        final Book mapped = this.cache.getBook(this.kjv);
+        final Verse verse = getVersification().decodeOrdinal(getVersification().maximumOrdinal());
+        final String expected = this.kjv.getRawText(verse);
+
+        this.cache.evict(this.kjv.getInitials());
+        try {
+            mapped.getRawText(verse);
+            fail("An evicted module can still be read");
+        } catch (final BookException ex) {
+            // expected
+        }
+        assertSame(this.kjv, this.cache.getBook(this.kjv));
+
+        this.cache.bookChanged(this.kjv);
+        final Book remapped = this.cache.getBook(this.kjv);
+        assertNotSame(mapped, remapped);
+        assertNotSame(this.kjv, remapped);
+        assertEquals(expected, remapped.getRawText(verse));
+    }
+
+    /**
+     * Evicting a module discards the blocks read from it
+     *
+     * @throws BookException uncaught exceptions
+     */
+    @Test
+    public void testEvictionDiscardsBlocks() throws BookException {
+        final Book mapped = this.cache.getBook(this.kjv);
+        final Versification v11n = getVersification();
+        mapped.getRawText(v11n.decodeOrdinal(v11n.maximumOrdinal()));
+        mapped.getRawText(v11n.decodeOrdinal(10));
+        assertTrue(this.cache.getBlockBytes() > 0);
+
+        this.cache.evict(this.kjv.getInitials());
+        assertEquals(0, this.cache.getBlockBytes());
+    }
+
+    /**
+     * @param testament the testament to compare
+     * @throws BookException if a verse cannot be read
+     */
+    private void assertTestamentReadsAsJSword(final Testament testament) throws BookException {
+        final Book mapped = this.cache.getBook(this.kjv);
+        assertNotSame("KJV should be mapped", this.kjv, mapped);
+
+        final Versification v11n = getVersification();
+        int versesWithText = 0;
+        for (int ordinal = 0; ordinal <= v11n.maximumOrdinal(); ordinal++) {
+            if (v11n.getTestament(ordinal) != testament) {
+                continue;
+            }
+
+            final Verse verse = v11n.decodeOrdinal(ordinal);
+            final String expected = this.kjv.getRawText(verse);
+            assertEquals(verse.getOsisID(), expected, mapped.getRawText(verse));
+            assertEquals(verse.getOsisID(), this.kjv.contains(verse), mapped.contains(verse));
+            if (expected.length() > 0) {
+                versesWithText++;
+            }
+        }
+        assertTrue(versesWithText > 0);
+    }
+
+    /**
+     * @return the versification of the KJV
+     */
+    private Versification getVersification() {
+        final String name = (String) this.kjv.getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
+        return Versifications.instance().getVersification(name != null ? name : Versifications.DEFAULT_V11N);
+    }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.service.jsword.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.jdom2.Element;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.utils.JSwordUtils;
+
+/**
+ * Tests the cache of parsed OSIS
+ *
+ * @author agent
+ */
+public class OsisCacheImplTest {
+    private final Book kjv = Books.installed().getBook("KJV");
+
+    /**
+     * Reading the same passage twice parses it once
+     *
+     * @throws Exception uncaught exceptions
+     */
+    @Test
+    public void testPassageIsParsedOnce() throws Exception {
+        final OsisCacheImpl cache = new OsisCacheImpl(1 << 20, 4);
+        final Element first = cache.getOsisFragment(getBookData("Gen.1.1-3"));
+
+        assertSame(first, cache.getOsisFragment(getBookData("Gen.1.1-3")));
+        assertNotSame(first, cache.getOsisFragment(getBookData("Gen.1.4")));
+        assertEquals(2, cache.getSize());
+    }
+
+    /**
+     * Passages over several chapters are read every time
+     *
+     * @throws Exception uncaught exceptions
+     */
+    @Test
+    public void testPassageOverSeveralChaptersIsNotKept() throws Exception {
+        final OsisCacheImpl cache = new OsisCacheImpl(1 << 20, 4);
+        final BookData bookData = getBookData("Gen.1.31-Gen.2.2");
+
+        assertEquals(new XMLOutputter().outputString(bookData.getOsisFragment()),
+                new XMLOutputter().outputString(cache.getOsisFragment(bookData)));
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Reading a cached fragment, as the services do, leaves it as it was, and the verses can't be changed through
+     * the list of elements
+     *
+     * @throws Exception uncaught exceptions
+     */
+    @Test
+    public void testSharedFragmentIsNotModified() throws Exception {
+        final OsisCacheImpl cache = new OsisCacheImpl(1 << 20, 4);
+        final Element fragment = cache.getOsisFragment(getBookData("Gen.1"));
+        final String original = new XMLOutputter().outputString(fragment);
+
+        OSISUtil.getCanonicalText(fragment);
+        final List<Element> verses = JSwordUtils.getOsisElements(fragment);
+        for (final Element verse : verses) {
+            OSISUtil.getStrongsNumbers(verse);
+        }
+        try {
+            verses.clear();
+            fail("The verses of a shared fragment can be removed");
+        } catch (final UnsupportedOperationException ex) {
+            // expected
+        }
+
+        final Element again = cache.getOsisFragment(getBookData("Gen.1"));
+        assertSame(fragment, again);
+        assertEquals(original, new XMLOutputter().outputString(again));
+    }
+
+    /**
+     * Removing or adding a module discards everything that was parsed
+     *
+     * @throws Exception uncaught exceptions
+     */
+    @Test
+    public void testModuleChangesDiscardParsedOsis() throws Exception {
+        final OsisCacheImpl cache = new OsisCacheImpl(1 << 20, 4);
+        cache.getOsisFragment(getBookData("Gen.1.1"));
+        assertEquals(1, cache.getSize());
+
+        Books.installed().removeBook(this.kjv);
+        try {
+            assertEquals(0, cache.getSize());
+            cache.getOsisFragment(getBookData("Gen.1.1"));
+            assertEquals(1, cache.getSize());
+        } finally {
+            Books.installed().addBook(this.kjv);
+        }
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Heavy passages evict the least recently read ones, but the last one is always kept
+     *
+     * @throws Exception uncaught exceptions
+     */
+    @Test
+    public void testBoundedByWeight() throws Exception {
+        final OsisCacheImpl cache = new OsisCacheImpl(1, 1);
+        cache.getOsisFragment(getBookData("Gen.1"));
+        final Element kept = cache.getOsisFragment(getBookData("Gen.2"));
+
+        assertEquals(1, cache.getSize());
+        assertSame(kept, cache.getOsisFragment(getBookData("Gen.2")));
+    }
+
+    /**
+     * @param reference the reference
+     * @return the book data for the reference in the KJV
+     * @throws NoSuchKeyException if the reference is invalid
+     */
+    private BookData getBookData(final String reference) throws NoSuchKeyException {
+        return new BookData(this.kjv, this.kjv.getKey(reference));
+    }
+}
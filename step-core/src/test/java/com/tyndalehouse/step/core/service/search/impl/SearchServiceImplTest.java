@@ -33,7 +33,10 @@ import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordSearchServiceImpl;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.service.jsword.impl.OsisCacheImpl;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 /**
  * Search service testing
@@ -114,7 +117,8 @@ public class SearchServiceImplTest {
         final JSwordVersificationService versificationService = TestUtils.mockVersificationService();
         final PassageOptionsValidationService optionsValidationService = mock(PassageOptionsValidationService.class);
         final JSwordPassageServiceImpl jsword = new JSwordPassageServiceImpl(versificationService, null,
-                null, null, TestUtils.mockVersionResolver(), optionsValidationService);
+                null, null, TestUtils.mockVersionResolver(), optionsValidationService,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
 
         when(optionsValidationService.getAvailableFeaturesForVersion(any(String.class), any(List.class), any(String.class), any(InterlinearMode.class)))
                 .thenReturn(new AvailableFeatures());
@@ -123,7 +127,8 @@ public class SearchServiceImplTest {
         when(module.isIndexed(any(String.class))).thenReturn(true);
         when(meta.supportsFeature(any(String.class), any(LookupOption.class))).thenReturn(true);
 
-        final JSwordSearchServiceImpl jswordSearch = new JSwordSearchServiceImpl(versificationService, null, jsword);
+        final JSwordSearchServiceImpl jswordSearch = new JSwordSearchServiceImpl(versificationService, null, jsword,
+                new BoundedExecutors(), 0);
         subjects = new SubjectSearchServiceImpl(entityManager,
                 jswordSearch, meta, module, versificationService);
         return new SearchServiceImpl(jswordSearch, meta, versificationService, subjects, new TimelineServiceImpl(entityManager, jsword), null, entityManager, TestUtils.mockVersionResolver(),
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RequestTrace}
+ *
+ * @author agent
+ */
+public class RequestTraceTest {
+    /**
+     * Spans are added to the trace of the thread, including those of work attached to it
+     *
+     * @throws InterruptedException an uncaught exception
+     */
+    @Test
+    public void testSpansAddToTrace() throws InterruptedException {
+        final RequestTrace trace = RequestTrace.begin();
+        try {
+            RequestTrace.startSpan(RequestTrace.LUCENE).end();
+            RequestTrace.startSpan(RequestTrace.XSLT).end();
+
+            final Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final RequestTrace previous = RequestTrace.attach(trace);
+                    try {
+                        RequestTrace.startSpan(RequestTrace.LUCENE).end();
+                    } finally {
+                        RequestTrace.attach(previous);
+                    }
+                }
+            });
+            worker.start();
+            worker.join();
+
+            assertSame(trace, RequestTrace.current());
+            assertEquals(2, trace.getCount(RequestTrace.LUCENE));
+            assertEquals(1, trace.getCount(RequestTrace.XSLT));
+            assertEquals(0, trace.getCount(RequestTrace.OSIS));
+
+            final String timing = trace.toServerTiming();
+            assertTrue(timing, timing.matches("lucene;dur=[0-9.]+;desc=\"2\", xslt;dur=[0-9.]+;desc=\"1\", "
+                    + "total;dur=[0-9.]+;desc=\"1\""));
+        } finally {
+            RequestTrace.end(trace);
+        }
+        assertNull(RequestTrace.current());
+    }
+
+    /**
+     * Spans outside a trace are only recorded in the histograms
+     */
+    @Test
+    public void testSpanWithoutTrace() {
+        RequestTrace.startSpan(RequestTrace.JSON).end();
+        assertNull(RequestTrace.current());
+    }
+}
@@ -44,6 +44,7 @@ import com.tyndalehouse.step.core.data.entities.impl.TestEntityManager;
 import com.tyndalehouse.step.core.service.helpers.VersionResolver;
 import com.tyndalehouse.step.core.service.jsword.JSwordVersificationService;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordVersificationServiceImpl;
+import com.tyndalehouse.step.core.service.jsword.impl.MappedBookCacheImpl;
 
 /**
  * static utilities for testing, creating entities, etc.
@@ -84,10 +85,21 @@ public final class TestUtils {
      */
     public static JSwordVersificationService mockVersificationService() {
         final VersionResolver resolver = mockVersionResolver();
-        final JSwordVersificationService versification = new JSwordVersificationServiceImpl(resolver);
+        final JSwordVersificationService versification = new JSwordVersificationServiceImpl(resolver,
+                new MappedBookCacheImpl(false, 0, 1));
         return versification;
     }
 
+    /**
+     * Mock versification service, such that it always returns a book, reading zText and zCom modules through
+     * memory-mapped files as the application does
+     *
+     * @return the j sword versification service
+     */
+    public static JSwordVersificationService mockMappedVersificationService() {
+        return new JSwordVersificationServiceImpl(mockVersionResolver(), new MappedBookCacheImpl(true, 1 << 24, 4));
+    }
+
     /**
      * Mocks a version resolver.
      * 
@@ -0,0 +1,105 @@
+package com.tyndalehouse.step.core.utils.language.transliteration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.tyndalehouse.step.core.utils.StringConversionUtils;
+import com.tyndalehouse.step.core.utils.language.GreekUtils;
+import com.tyndalehouse.step.core.utils.language.HebrewUtils;
+
+/**
+ * Tests that walking the rules alongside the terms finds the same terms as listing every spelling
+ *
+ * @author agent
+ *
+ */
+public class TransliterationAutomatonTest {
+    private static final String[] HEBREW_WORDS = new String[] { "hesed", "achab", "atzad", "shalom", "yehoshua",
+            "a+a", "ab-ba" };
+    private static final String[] GREEK_WORDS = new String[] { "aggphab", "arhop", "logos", "oo", "pneuma" };
+
+    /**
+     * Every spelling of the word is found, and nothing else
+     */
+    @Test
+    public void testMatchesAllSpellings() {
+        assertMatchesAllSpellings(HEBREW_WORDS, HebrewUtils.getTransliterationRules(),
+                HebrewUtils.getTransliterationAutomaton());
+        assertMatchesAllSpellings(GREEK_WORDS, GreekUtils.getTransliterationRules(),
+                GreekUtils.getTransliterationAutomaton());
+    }
+
+    /**
+     * Spellings are cleaned as the index does, and prefixes find longer terms
+     */
+    @Test
+    public void testCleansSpellingsAndMatchesPrefixes() {
+        final String[] terms = new String[] { "aba", "abah", "abba", "b", "ba" };
+        final TransliterationAutomaton automaton = HebrewUtils.getTransliterationAutomaton();
+
+        // the 'a's may be dropped, giving abba, bba, abb and bb, which the index would hold as aba, ba, ab and b
+        assertEquals(new HashSet<String>(Arrays.asList("aba", "b", "ba")), automaton.intersect("abba", terms,
+                false));
+        assertEquals(new HashSet<String>(Arrays.asList(terms)), automaton.intersect("abba", terms, true));
+    }
+
+    /**
+     * @param words the words to try
+     * @param rules the rules, as used to list every spelling
+     * @param automaton the same rules, compiled
+     */
+    private void assertMatchesAllSpellings(final String[] words, final List<TransliterationRule> rules,
+            final TransliterationAutomaton automaton) {
+        for (final String word : words) {
+            final Set<String> spellings = new TreeSet<String>();
+            for (final TransliterationOption option : StringConversionUtils.multiplyTranslitOptions(word, rules)) {
+                final String spelling = clean(option.toString());
+                if (spelling.length() != 0) {
+                    spellings.add(spelling);
+                }
+            }
+
+            // keep every other spelling, along with a longer term and a few that should never match
+            final Set<String> terms = new TreeSet<String>(Arrays.asList("zzz", "q", "mmm"));
+            final Set<String> expected = new HashSet<String>();
+            int ii = 0;
+            for (final String spelling : spellings) {
+                if (ii++ % 2 == 0) {
+                    terms.add(spelling);
+                    expected.add(spelling);
+                }
+                terms.add(spelling + "z");
+            }
+
+            final String[] sortedTerms = new ArrayList<String>(terms).toArray(new String[terms.size()]);
+            assertEquals(word, expected, automaton.intersect(word, sortedTerms, false));
+        }
+    }
+
+    /**
+     * @param spelling the spelling
+     * @return the spelling as the index would hold it
+     */
+    private String clean(final String spelling) {
+        final StringBuilder cleaned = new StringBuilder(spelling.length());
+        char last = 0;
+        for (final char c : spelling.toCharArray()) {
+            if (c == last) {
+                continue;
+            }
+            last = c;
+            if (c != '-' && c != '*' && c != '\'') {
+                cleaned.append(c);
+            }
+        }
+        return cleaned.toString();
+    }
+}
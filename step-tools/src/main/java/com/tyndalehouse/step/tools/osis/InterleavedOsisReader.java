@@ -19,6 +19,8 @@ import com.tyndalehouse.step.core.models.InterlinearMode;
 import com.tyndalehouse.step.core.models.LookupOption;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.service.jsword.impl.OsisCacheImpl;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 /**
  * Reads an osis ref in a module
@@ -63,7 +65,8 @@ public class InterleavedOsisReader {
 
         // do the test
         final JSwordPassageServiceImpl jsi = new JSwordPassageServiceImpl(
-                TestUtils.mockVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null);
+                TestUtils.mockVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
         final List<LookupOption> options = new ArrayList<LookupOption>();
         options.add(LookupOption.CHAPTER_BOOK_VERSE_NUMBER);
 //        options.add(LookupOption.HEADINGS_ONLY);
@@ -25,6 +25,8 @@ import com.tyndalehouse.step.core.models.InterlinearMode;
 import com.tyndalehouse.step.core.models.LookupOption;
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.service.jsword.impl.OsisCacheImpl;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 /**
  * Reads an osis ref in a module
@@ -56,7 +58,8 @@ public class OsisReader {
 
         // do the test
         final JSwordPassageServiceImpl jsi = new JSwordPassageServiceImpl(
-                TestUtils.mockVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null);
+                TestUtils.mockVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
         final List<LookupOption> options = new ArrayList<LookupOption>();
 
 //        options.add(LookupOption.DIVIDE_HEBREW);
@@ -14,6 +14,8 @@ import org.crosswire.jsword.passage.NoSuchKeyException;
 
 import com.tyndalehouse.step.core.service.jsword.impl.JSwordPassageServiceImpl;
 import com.tyndalehouse.step.core.utils.TestUtils;
+import com.tyndalehouse.step.core.service.jsword.impl.OsisCacheImpl;
+import com.tyndalehouse.step.core.xsl.impl.XslTemplatesRegistryImpl;
 
 public class PerformancePassageRetrieval {
     /**
@@ -32,7 +34,8 @@ public class PerformancePassageRetrieval {
         final ThreadMXBean thbean = ManagementFactory.getThreadMXBean();
         thbean.setThreadContentionMonitoringEnabled(true);
         final JSwordPassageServiceImpl jsi = new JSwordPassageServiceImpl(
-                TestUtils.mockVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null);
+                TestUtils.mockMappedVersificationService(), null, null, null, TestUtils.mockVersionResolver(), null,
+                new XslTemplatesRegistryImpl(), new OsisCacheImpl(1 << 20, 1));
 
         final Queue<Long> times = new ConcurrentLinkedQueue<Long>();
         final AtomicLong iterations = new AtomicLong();
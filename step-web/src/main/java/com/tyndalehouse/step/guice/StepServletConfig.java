@@ -42,6 +42,7 @@ import com.tyndalehouse.step.core.data.EntityManager;
 import com.tyndalehouse.step.core.data.create.Loader;
 import com.tyndalehouse.step.core.guice.StepCoreModule;
 import com.tyndalehouse.step.core.models.ClientSession;
+import com.tyndalehouse.step.core.utils.BoundedExecutors;
 import com.tyndalehouse.step.rest.controllers.ImageController;
 import com.tyndalehouse.step.rest.controllers.IndexRedirect;
 import com.tyndalehouse.step.rest.controllers.InternationalJsonController;
@@ -49,6 +50,7 @@ import com.tyndalehouse.step.rest.controllers.SearchPageController;
 import com.tyndalehouse.step.rest.controllers.SetupPageController;
 import com.tyndalehouse.step.rest.controllers.SiteMapController;
 import com.tyndalehouse.step.rest.framework.FrontController;
+import com.tyndalehouse.step.rest.framework.ResponseCache;
 import org.crosswire.common.util.CWProject;
 import org.crosswire.common.util.Reporter;
 import org.crosswire.common.util.ReporterEvent;
@@ -201,6 +203,8 @@ public class StepServletConfig extends GuiceServletContextListener {
 
         sc.removeAttribute(Injector.class.getName());
         getInjector().getInstance(EntityManager.class).close();
+        getInjector().getInstance(ResponseCache.class).close();
+        getInjector().getInstance(BoundedExecutors.class).shutdown();
 
         super.contextDestroyed(servletContextEvent);
     }
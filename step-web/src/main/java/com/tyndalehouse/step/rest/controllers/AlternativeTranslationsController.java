@@ -32,16 +32,20 @@
  ******************************************************************************/
 package com.tyndalehouse.step.rest.controllers;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.tyndalehouse.step.core.models.meanings.VersionsData;
 import com.tyndalehouse.step.core.service.impl.AlternativeTranslationsServiceImpl;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
 
 /**
  * The Class AlternativeTranslationsController.
  */
 @Singleton
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class AlternativeTranslationsController {
     private final AlternativeTranslationsServiceImpl alternativeTranslations;
 
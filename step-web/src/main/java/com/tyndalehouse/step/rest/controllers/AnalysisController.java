@@ -38,6 +38,7 @@ import com.tyndalehouse.step.core.models.stats.ScopeType;
 import com.tyndalehouse.step.core.models.stats.StatType;
 import com.tyndalehouse.step.core.models.stats.CombinedPassageStats;
 import com.tyndalehouse.step.core.service.AnalysisService;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
 import com.yammer.metrics.annotation.Timed;
 
 import java.util.concurrent.TimeUnit;
@@ -45,6 +46,7 @@ import java.util.concurrent.TimeUnit;
 /**
  * Exposes various analytical tools
  */
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class AnalysisController {
     private final AnalysisService analysis;
 
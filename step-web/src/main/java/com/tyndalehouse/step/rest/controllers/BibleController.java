@@ -66,6 +66,7 @@ import com.tyndalehouse.step.core.service.BibleInformationService;
 import com.tyndalehouse.step.core.utils.language.ContemporaryLanguageUtils;
 import com.tyndalehouse.step.models.ModulesForLanguageUser;
 import com.yammer.metrics.annotation.Timed;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
 
 /**
  * The controller for retrieving information on the bible or texts from the bible.
@@ -73,6 +74,7 @@ import com.yammer.metrics.annotation.Timed;
  * @author chrisburrell
  */
 @Singleton
+@CachedResponse(timeToLive = 1, unit = TimeUnit.DAYS)
 public class BibleController {
     private static final Logger LOGGER = LoggerFactory.getLogger(BibleController.class);
     private final BibleInformationService bibleInformation;
@@ -39,12 +39,14 @@ import static com.tyndalehouse.step.core.utils.ValidateUtils.notNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.service.GeographyService;
 import com.tyndalehouse.step.models.Place;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
 
 /**
  * Getting some geographical data to display
@@ -53,6 +55,7 @@ import com.tyndalehouse.step.models.Place;
  * 
  */
 @Singleton
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class GeographyController {
 
     private final GeographyService geoService;
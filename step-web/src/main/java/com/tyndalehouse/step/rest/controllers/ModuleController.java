@@ -36,7 +36,9 @@ import com.google.inject.Inject;
 import com.tyndalehouse.step.core.data.EntityDoc;
 import com.tyndalehouse.step.core.exceptions.UserExceptionType;
 import com.tyndalehouse.step.core.models.BibleInstaller;
+import com.tyndalehouse.step.core.exceptions.StepInternalException;
 import com.tyndalehouse.step.core.models.BibleVersion;
+import com.tyndalehouse.step.core.models.ClientSession;
 import com.tyndalehouse.step.core.models.VocabResponse;
 import com.tyndalehouse.step.core.service.ModuleService;
 import com.tyndalehouse.step.core.service.MorphologyService;
@@ -45,13 +47,20 @@ import com.tyndalehouse.step.core.service.VocabularyService;
 import com.tyndalehouse.step.models.info.Info;
 import com.tyndalehouse.step.models.info.MorphInfo;
 import com.tyndalehouse.step.models.info.VocabInfo;
+import com.tyndalehouse.step.rest.framework.EncodedJsonResponse;
 import com.yammer.metrics.annotation.Timed;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.crosswire.jsword.book.BookCategory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Provider;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import static com.tyndalehouse.step.core.exceptions.UserExceptionType.CONTROLLER_INITIALISATION_ERROR;
@@ -60,29 +69,39 @@ import static com.tyndalehouse.step.core.utils.StringUtils.isNotBlank;
 import static com.tyndalehouse.step.core.utils.StringUtils.split;
 import static com.tyndalehouse.step.core.utils.ValidateUtils.notEmpty;
 import static com.tyndalehouse.step.core.utils.ValidateUtils.notNull;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
+import com.tyndalehouse.step.rest.framework.UncachedResponse;
 
 /**
  * The Module Controller servicing requests for module information
  */
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class ModuleController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ModuleController.class);
     private final ModuleService moduleService;
     private final MorphologyService morphology;
     private final VocabularyService vocab;
     private final SwingService swingService;
+    private final Provider<ObjectMapper> objectMapper;
+    private final Provider<ClientSession> clientSessionProvider;
+    private final ConcurrentMap<Locale, ModuleCatalog> catalogs = new ConcurrentHashMap<Locale, ModuleCatalog>();
 
     /**
      * sets up the controller to access module information
      *
-     * @param moduleService the service allowing access to module information
-     * @param morphology    the morphology service
-     * @param vocabulary    the vocabulary service
+     * @param moduleService         the service allowing access to module information
+     * @param morphology            the morphology service
+     * @param vocabulary            the vocabulary service
+     * @param objectMapper          the mapper used to encode the list of modules
+     * @param clientSessionProvider the client session provider
      */
     @Inject
     public ModuleController(final ModuleService moduleService,
                             final MorphologyService morphology,
                             final VocabularyService vocabulary,
-                            final SwingService swingService) {
+                            final SwingService swingService,
+                            final Provider<ObjectMapper> objectMapper,
+                            final Provider<ClientSession> clientSessionProvider) {
         notNull(moduleService,
                 "Intialising the module service in the module administration controller failed",
                 CONTROLLER_INITIALISATION_ERROR);
@@ -96,14 +115,42 @@ public class ModuleController {
         this.moduleService = moduleService;
         this.morphology = morphology;
         this.vocab = vocabulary;
+        this.objectMapper = objectMapper;
+        this.clientSessionProvider = clientSessionProvider;
     }
 
     /**
-     * a REST method that returns version of the Bible that are available
+     * a REST method that returns version of the Bible that are available. The list is encoded once per locale,
+     * and again only once modules are installed or removed, and is sent with an entity tag so that clients
+     * holding the current list are not sent it again. It is therefore kept out of the response cache.
      *
-     * @return all versions of modules that are considered to be Bibles.
+     * @return all versions of modules that are considered to be Bibles, already encoded
      */
-    public List<BibleVersion> getAllModules() {
+    @UncachedResponse
+    public EncodedJsonResponse getAllModules() {
+        final List<BibleVersion> versions = getAvailableModules();
+        final Locale locale = this.clientSessionProvider.get().getLocale();
+        final ModuleCatalog catalog = this.catalogs.get(locale);
+
+        // the module service hands back the same list until modules change
+        if (catalog != null && catalog.versions == versions) {
+            return catalog.response;
+        }
+
+        final EncodedJsonResponse response;
+        try {
+            response = new EncodedJsonResponse(this.objectMapper.get().writeValueAsBytes(versions));
+        } catch (final IOException e) {
+            throw new StepInternalException("Unable to encode the list of modules", e);
+        }
+        this.catalogs.put(locale, new ModuleCatalog(versions, response));
+        return response;
+    }
+
+    /**
+     * @return all versions of modules that are considered to be Bibles, for use by the page controllers
+     */
+    List<BibleVersion> getAvailableModules() {
         return this.moduleService.getAvailableModules();
     }
 
@@ -114,6 +161,7 @@ public class ModuleController {
      * @param types          a comma-delimited list of categories of modules to include
      * @return all versions of modules that are considered to be modules and usable by STEP.
      */
+    @UncachedResponse
     public List<BibleVersion> getAllInstallableModules(final String installerIndex, final String types) {
         notNull(types, "No types of modules were provided", UserExceptionType.SERVICE_VALIDATION_ERROR);
         notNull(installerIndex, "No index to installer", UserExceptionType.SERVICE_VALIDATION_ERROR);
@@ -132,6 +180,7 @@ public class ModuleController {
      *
      * @return the bible installer that was created
      */
+    @UncachedResponse
     public BibleInstaller addDirectoryInstaller() {
         return this.swingService.addDirectoryInstaller();
     }
@@ -244,4 +293,21 @@ public class ModuleController {
         }
         return morphologyInfos;
     }
+
+    /**
+     * The list of modules for a locale, alongside its encoded form
+     */
+    private static final class ModuleCatalog {
+        private final List<BibleVersion> versions;
+        private final EncodedJsonResponse response;
+
+        /**
+         * @param versions the list of modules
+         * @param response the encoded list
+         */
+        private ModuleCatalog(final List<BibleVersion> versions, final EncodedJsonResponse response) {
+            this.versions = versions;
+            this.response = response;
+        }
+    }
 }
@@ -10,12 +10,14 @@ import javax.inject.Singleton;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import com.tyndalehouse.step.rest.framework.UncachedResponse;
 
 /**
  * Caters for persisting notes in the system
  *
  * @author chrisburrell
  */
+@UncachedResponse
 @Singleton
 public class NotesController {
     private static final Logger LOGGER = LoggerFactory.getLogger(NotesController.class);
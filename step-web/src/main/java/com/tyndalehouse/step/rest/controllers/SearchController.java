@@ -18,6 +18,8 @@ import com.tyndalehouse.step.core.service.search.OriginalWordSuggestionService;
 import com.tyndalehouse.step.core.service.search.SubjectEntrySearchService;
 import com.tyndalehouse.step.core.utils.ConversionUtils;
 import com.tyndalehouse.step.core.utils.StringUtils;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
+import com.tyndalehouse.step.rest.framework.PartialResponse;
 import com.yammer.metrics.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +41,7 @@ import static com.tyndalehouse.step.core.utils.ValidateUtils.notBlank;
  * @author chrisburrell
  */
 @Singleton
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class SearchController {
     private static final Pattern SPLIT_TOKENS = Pattern.compile("\\|");
     private static final Logger LOGGER = LoggerFactory.getLogger(SearchController.class);
@@ -49,6 +52,20 @@ public class SearchController {
     private final SubjectEntrySearchService subjectEntries;
     private final BibleInformationService bibleInformationService;
 
+    /**
+     * Suggestions that were cut short because some of the providers did not answer in time
+     */
+    private static final class PartialSuggestions extends ArrayList<AutoSuggestion> implements PartialResponse {
+        private static final long serialVersionUID = -3958411920356243615L;
+
+        /**
+         * @param suggestions the suggestions found in time
+         */
+        private PartialSuggestions(final List<AutoSuggestion> suggestions) {
+            super(suggestions);
+        }
+    }
+
     /**
      * @param search                  the search service
      * @param originalWordSuggestions the original word suggestions
@@ -133,8 +150,9 @@ public class SearchController {
 
         if (onlyReferences || referenceContext != null) {
             addReferenceSuggestions(limitType, input, autoSuggestions, bookContext, referenceContext);
-        } else {
-            addDefaultSuggestions(input, autoSuggestions, limitType, bookContext, exampleData);
+        } else if (!addDefaultSuggestions(input, autoSuggestions, limitType, bookContext, exampleData)) {
+            // so that the truncated list isn't served from the response cache
+            return new PartialSuggestions(autoSuggestions);
         }
         return autoSuggestions;
     }
@@ -145,22 +163,26 @@ public class SearchController {
      * @param limitType            only one type of data is requested
      * @param referenceBookContext the reference book (i..e master book) that has already been selected by the user.
      * @param exampleData          example data is requested
+     * @return false if the suggestions were cut short
      */
-    private void addDefaultSuggestions(final String input, final List<AutoSuggestion> autoSuggestions, final String limitType, final String referenceBookContext, final boolean exampleData) {
+    private boolean addDefaultSuggestions(final String input, final List<AutoSuggestion> autoSuggestions, final String limitType, final String referenceBookContext, final boolean exampleData) {
         SuggestionContext context = new SuggestionContext();
         context.setMasterBook(referenceBookContext);
         context.setInput(StringUtils.trim(input));
         context.setSearchType(limitType);
         context.setExampleData(exampleData);
 
+        final SuggestionsSummary suggestions;
         if (exampleData) {
-            convert(autoSuggestions, this.suggestionService.getFirstNSuggestions(context));
+            suggestions = this.suggestionService.getFirstNSuggestions(context);
         } else if (StringUtils.isBlank(limitType)) {
             // we only return the right set of suggestions if there is a limit type
-            convert(autoSuggestions, this.suggestionService.getTopSuggestions(context));
+            suggestions = this.suggestionService.getTopSuggestions(context);
         } else {
-            convert(autoSuggestions, this.suggestionService.getFirstNSuggestions(context));
+            suggestions = this.suggestionService.getFirstNSuggestions(context);
         }
+        convert(autoSuggestions, suggestions);
+        return !suggestions.isPartial();
     }
 
     private void convert(final List<AutoSuggestion> autoSuggestions, final SuggestionsSummary topSuggestions) {
@@ -54,6 +54,9 @@ import com.tyndalehouse.step.core.data.create.Loader;
 import com.tyndalehouse.step.core.models.ClientSession;
 import com.tyndalehouse.step.core.service.BibleInformationService;
 import com.tyndalehouse.step.core.utils.StringUtils;
+import com.tyndalehouse.step.core.xsl.XslTemplatesRegistry;
+import com.tyndalehouse.step.rest.framework.UncachedResponse;
+import com.tyndalehouse.step.rest.framework.ResponseCache;
 
 /**
  * The controller that will deal with any requests changing the behaviour of the application
@@ -61,6 +64,7 @@ import com.tyndalehouse.step.core.utils.StringUtils;
  * @author chrisburrell
  * 
  */
+@UncachedResponse
 @RequestScoped
 public class SetupController {
     private static final Logger LOGGER = LoggerFactory.getLogger(SetupController.class);
@@ -68,6 +72,8 @@ public class SetupController {
     private final Loader loader;
     private final Provider<ClientSession> sessionProvider;
     private final InternationalJsonController internationalJsonController;
+    private final ResponseCache responseCache;
+    private final XslTemplatesRegistry stylesheets;
 
     /**
      * creates the controller
@@ -75,13 +81,19 @@ public class SetupController {
      * @param bibleInformationService the service that allows access to biblical material
      * @param loader service which is able to load the data into the database
      * @param sessionProvider the provider of the user session
+     * @param responseCache the cache of encoded responses served by the front controller
+     * @param stylesheets the compiled stylesheets used to render passages
      */
     @Inject
     public SetupController(final BibleInformationService bibleInformationService, 
                             final Loader loader,
                             final InternationalJsonController internationalJsonController,
-                            final Provider<ClientSession> sessionProvider) {
+                            final Provider<ClientSession> sessionProvider,
+                            final ResponseCache responseCache,
+                            final XslTemplatesRegistry stylesheets) {
         this.internationalJsonController = internationalJsonController;
+        this.responseCache = responseCache;
+        this.stylesheets = stylesheets;
         notNull(bibleInformationService, "No bible information service was provided",
                 CONTROLLER_INITIALISATION_ERROR);
         notNull(loader, "No loader module was provided", CONTROLLER_INITIALISATION_ERROR);
@@ -231,12 +243,14 @@ public class SetupController {
     }
 
     /**
-     * Reloads the international JSON files
+     * Reloads the international JSON files and stylesheets, and flushes the cached responses
      *
      */
     public void invalidateCache() {
         validateSession(this.sessionProvider);
         internationalJsonController.resetCache();
+        stylesheets.reload();
+        responseCache.clear();
     }
 
     /**
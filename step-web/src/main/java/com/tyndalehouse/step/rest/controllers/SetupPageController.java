@@ -52,7 +52,7 @@ public class SetupPageController extends HttpServlet {
 
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
-        request.setAttribute("installedVersions", this.modules.getAllModules());
+        request.setAttribute("installedVersions", this.modules.getAvailableModules());
         request.getRequestDispatcher("/setup.jsp").forward(request, response);
 
     }
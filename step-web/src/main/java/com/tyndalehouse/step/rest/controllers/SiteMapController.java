@@ -242,7 +242,7 @@ public class SiteMapController extends HttpServlet {
      * @param specifier the letter that should be included
      */
     private void addVersions(final StringBuilder siteMap, final BookCategory category, final char specifier) {
-        final List<BibleVersion> allModules = this.modules.getAllModules();
+        final List<BibleVersion> allModules = this.modules.getAvailableModules();
 
         if (specifier == 'A') {
             addUrl(siteMap, null, null, null, "versions.jsp");
@@ -11,10 +11,12 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.util.concurrent.TimeUnit;
+import com.tyndalehouse.step.rest.framework.UncachedResponse;
 
 /**
  * @author chrisburrell
  */
+@UncachedResponse
 @Singleton
 public class SupportController {
     private final SupportRequestService supportRequestService;
@@ -42,12 +42,14 @@ import com.tyndalehouse.step.models.TimelineTranslator;
 import com.tyndalehouse.step.models.timeline.DigestableTimeline;
 import com.tyndalehouse.step.models.timeline.simile.EnhancedSimileEvent;
 import com.tyndalehouse.step.models.timeline.simile.SimileEvent;
+import com.tyndalehouse.step.rest.framework.CachedResponse;
 import org.joda.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.tyndalehouse.step.core.exceptions.UserExceptionType.CONTROLLER_INITIALISATION_ERROR;
 import static com.tyndalehouse.step.core.utils.ValidateUtils.notNull;
@@ -58,6 +60,7 @@ import static com.tyndalehouse.step.core.utils.ValidateUtils.notNull;
  * @author chrisburrell
  */
 @Singleton
+@CachedResponse(timeToLive = 1, unit = TimeUnit.HOURS)
 public class TimelineController {
     private static final Logger LOGGER = LoggerFactory.getLogger(TimelineController.class);
     private final TimelineService timelineService;
@@ -42,6 +42,7 @@ import com.google.inject.Inject;
 import com.google.inject.servlet.RequestScoped;
 import com.tyndalehouse.step.core.models.ClientSession;
 import com.tyndalehouse.step.core.service.UserService;
+import com.tyndalehouse.step.rest.framework.UncachedResponse;
 
 /**
  * Checking user is registered
@@ -49,6 +50,7 @@ import com.tyndalehouse.step.core.service.UserService;
  * @author chrisburrell
  * 
  */
+@UncachedResponse
 @RequestScoped
 public class UserController {
     private final UserService userService;
@@ -6,6 +6,7 @@ import com.tyndalehouse.step.core.exceptions.TranslatedException;
 import com.tyndalehouse.step.core.exceptions.ValidationException;
 import com.tyndalehouse.step.core.models.ClientSession;
 import com.tyndalehouse.step.core.service.AppManagerService;
+import com.tyndalehouse.step.core.utils.RequestTrace;
 import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -18,8 +19,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.zip.GZIPOutputStream;
 
 import static java.lang.String.format;
 
@@ -29,33 +32,51 @@ import static java.lang.String.format;
 @MultipartConfig
 public abstract class AbstractAjaxController extends HttpServlet {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractAjaxController.class);
+    private static final String TRACE_HEADER = "Server-Timing";
+    private static final String GZIP_ENCODING = "gzip";
+    private static final int MIN_GZIP_LENGTH = 1024;
     private final ObjectMapper jsonMapper;
     private final transient ClientErrorResolver errorResolver;
     private final AppManagerService appManagerService;
     private final Provider<ClientSession> clientSessionProvider;
+    private final boolean traceHeader;
+    private final boolean gzipResponses;
 
+    /**
+     * @param traceHeader   true to return the time spent in each stage of the request in a Server-Timing header
+     * @param gzipResponses true to compress responses for clients that accept gzip
+     */
     public AbstractAjaxController(final AppManagerService appManagerService,
                                   final Provider<ClientSession> clientSessionProvider,
                                   final ClientErrorResolver errorResolver,
-                                  final Provider<ObjectMapper> objectMapperProvider) {
+                                  final Provider<ObjectMapper> objectMapperProvider,
+                                  final boolean traceHeader,
+                                  final boolean gzipResponses) {
         this.appManagerService = appManagerService;
         this.clientSessionProvider = clientSessionProvider;
         this.errorResolver = errorResolver;
         this.jsonMapper = objectMapperProvider.get();
+        this.traceHeader = traceHeader;
+        this.gzipResponses = gzipResponses;
     }
 
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
         // CHECKSTYLE:ON
+        final RequestTrace trace = RequestTrace.begin();
         try {
-            Object returnVal = executeRestMethod(request);
-            byte[] jsonEncoded = getEncodedJsonResponse(returnVal);
-            setupHeaders(response, jsonEncoded.length);
-            response.getOutputStream().write(jsonEncoded);
+            final byte[] jsonEncoded = getJsonResponse(request);
+            if (jsonEncoded != null) {
+                writeEncodedResponse(request, response, trace, jsonEncoded);
+            } else {
+                writeJsonResponse(request, response, trace, executeRestMethod(request));
+            }
             // CHECKSTYLE:OFF We allow catching errors here, since we are at the top of the structure
         } catch (final Exception e) {
             // CHECKSTYLE:ON
             handleError(response, e, request);
+        } finally {
+            RequestTrace.end(trace);
         }
     }
 
@@ -64,7 +85,141 @@ public abstract class AbstractAjaxController extends HttpServlet {
         this.doGet(request, response);
     }
 
-    private Object executeRestMethod(final HttpServletRequest request) {
+    /**
+     * Sub-classes may override this to serve an already encoded response, such as one held in a cache. By default,
+     * nothing is encoded up front, and the value returned by the method is written straight to the response.
+     *
+     * @param request the request
+     * @return the encoded form of the JSON response, or null if the response should be streamed instead
+     */
+    protected byte[] getJsonResponse(final HttpServletRequest request) {
+        return null;
+    }
+
+    /**
+     * Writes a response that has already been encoded. Small responses, or those going to clients that do not
+     * accept gzip, are sent as they are, with their length.
+     *
+     * @param request     the request
+     * @param response    the response
+     * @param trace       the trace of the current request
+     * @param jsonEncoded the encoded form of the JSON response
+     * @throws IOException if the response cannot be written
+     */
+    private void writeEncodedResponse(final HttpServletRequest request, final HttpServletResponse response,
+                                      final RequestTrace trace, final byte[] jsonEncoded) throws IOException {
+        setTraceHeader(response, trace);
+        if (jsonEncoded.length < MIN_GZIP_LENGTH || !useGzip(request, response)) {
+            setupHeaders(response, jsonEncoded.length);
+            response.getOutputStream().write(jsonEncoded);
+            return;
+        }
+
+        setupHeaders(response);
+        final OutputStream out = new GZIPOutputStream(response.getOutputStream());
+        try {
+            out.write(jsonEncoded);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Serialises the value straight to the response, compressing it on the way if the client accepts gzip. The
+     * length is not known up front, so none is sent.
+     *
+     * @param request       the request
+     * @param response      the response
+     * @param trace         the trace of the current request
+     * @param responseValue the value that should be encoded
+     * @throws IOException if the response cannot be written
+     */
+    private void writeJsonResponse(final HttpServletRequest request, final HttpServletResponse response,
+                                   final RequestTrace trace, final Object responseValue) throws IOException {
+        LOGGER.debug("Streaming the following response [{}]", responseValue);
+        if (responseValue instanceof EncodedJsonResponse) {
+            writeTaggedResponse(request, response, trace, (EncodedJsonResponse) responseValue);
+            return;
+        }
+
+        setTraceHeader(response, trace);
+        if (responseValue == null) {
+            setupHeaders(response, 0);
+            return;
+        }
+
+        setupHeaders(response);
+        final OutputStream out = useGzip(request, response) ? new GZIPOutputStream(response.getOutputStream())
+                : response.getOutputStream();
+
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.JSON);
+        try {
+            // the mapper closes the stream once done, which also writes out the end of the gzip stream
+            this.jsonMapper.writeValue(out, responseValue);
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Writes a response that carries its own entity tag, or only its headers if the client already has it.
+     *
+     * @param request  the request
+     * @param response the response
+     * @param trace    the trace of the current request
+     * @param encoded  the encoded response
+     * @throws IOException if the response cannot be written
+     */
+    private void writeTaggedResponse(final HttpServletRequest request, final HttpServletResponse response,
+                                     final RequestTrace trace, final EncodedJsonResponse encoded)
+            throws IOException {
+        response.setHeader("ETag", encoded.getEntityTag());
+        if (encoded.matches(request.getHeader("If-None-Match"))) {
+            setTraceHeader(response, trace);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        writeEncodedResponse(request, response, trace, encoded.getJson());
+    }
+
+    /**
+     * @param response the response
+     * @param trace    the trace of the current request, so far
+     */
+    private void setTraceHeader(final HttpServletResponse response, final RequestTrace trace) {
+        if (this.traceHeader) {
+            response.setHeader(TRACE_HEADER, trace.toServerTiming());
+        }
+    }
+
+    /**
+     * Works out whether the response should be compressed, marking it as such if so.
+     *
+     * @param request  the request
+     * @param response the response
+     * @return true if the response should be written through a gzip stream
+     */
+    private boolean useGzip(final HttpServletRequest request, final HttpServletResponse response) {
+        if (!this.gzipResponses) {
+            return false;
+        }
+
+        response.setHeader("Vary", "Accept-Encoding");
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null || !acceptEncoding.contains(GZIP_ENCODING)) {
+            return false;
+        }
+        response.setHeader("Content-Encoding", GZIP_ENCODING);
+        return true;
+    }
+
+    /**
+     * Invokes the method, converting any exception into an issue that the client can display
+     *
+     * @param request the request
+     * @return the value returned by the method, or a {@link ClientHandledIssue}
+     */
+    protected Object executeRestMethod(final HttpServletRequest request) {
         Object returnVal;
         try {
             returnVal = invokeMethod(request);
@@ -104,10 +259,13 @@ public abstract class AbstractAjaxController extends HttpServlet {
     byte[] getEncodedJsonResponse(final Object responseValue) {
         LOGGER.debug("Encoding the following response [{}]", responseValue);
 
+        final RequestTrace.Span span = RequestTrace.startSpan(RequestTrace.JSON);
         try {
             String response;
             if (responseValue == null) {
                 return new byte[0];
+            } else if (responseValue instanceof EncodedJsonResponse) {
+                return ((EncodedJsonResponse) responseValue).getJson();
             } else {
                 response = this.jsonMapper.writeValueAsString(responseValue);
             }
@@ -119,6 +277,8 @@ public abstract class AbstractAjaxController extends HttpServlet {
             throw new StepInternalException(e.getMessage(), e);
         } catch (final IOException e) {
             throw new StepInternalException(e.getMessage(), e);
+        } finally {
+            span.end();
         }
     }
 
@@ -129,17 +289,35 @@ public abstract class AbstractAjaxController extends HttpServlet {
      * @param length   the length of the message
      */
     void setupHeaders(final HttpServletResponse response, final int length) {
+        setupHeaders(response);
+        response.setContentLength(length);
+    }
+
+    /**
+     * sets up the headers of a message whose length is not known up front
+     *
+     * @param response the response
+     */
+    void setupHeaders(final HttpServletResponse response) {
         // we ensure that headers are set up appropriately
         response.addDateHeader("Date", System.currentTimeMillis());
         response.setCharacterEncoding(FrontController.UTF_8_ENCODING);
         response.setContentType("application/json");
-        response.setContentLength(length);
         response.setHeader("step-language", this.clientSessionProvider.get().getLocale().getLanguage());
         response.setHeader("step-version", this.appManagerService.getAppVersion());
     }
 
     /**
-     * deals with an error whilst executing the request
+     * @return the locale of the user making the current request
+     */
+    protected Locale getUserLocale() {
+        return this.clientSessionProvider.get().getLocale();
+    }
+
+    /**
+     * deals with an error whilst executing the request. A streamed response may already have been partly written,
+     * perhaps through gzip, so whatever has been buffered is dropped along with the headers before the error is
+     * written. If some of the response has already gone to the client, there is nothing more we can send.
      *
      * @param response the response
      * @param e        the exception
@@ -148,10 +326,17 @@ public abstract class AbstractAjaxController extends HttpServlet {
         LOGGER.debug("Handling error...");
         try {
             if (e != null) {
+                if (response.isCommitted()) {
+                    LOGGER.error("Unable to output error for request " + request.getRequestURI()
+                            + " as the response has already been committed", e);
+                    return;
+                }
+
+                response.reset();
                 final ClientHandledIssue issue = new ClientHandledIssue(getExceptionMessageAndLog(e));
                 final byte[] errorMessage = this.getEncodedJsonResponse(issue);
-                response.getOutputStream().write(errorMessage);
                 setupHeaders(response, errorMessage.length);
+                response.getOutputStream().write(errorMessage);
             }
             // CHECKSTYLE:OFF We allow catching errors here, since we are at the top of the structure
         } catch (final Exception unableToSendError) {
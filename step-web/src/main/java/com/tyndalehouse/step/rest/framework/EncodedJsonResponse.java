@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.rest.framework;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.tyndalehouse.step.core.exceptions.StepInternalException;
+
+/**
+ * A JSON response that has already been encoded, along with an entity tag worked out from its content. Clients
+ * sending back the same tag in an If-None-Match header are told that their copy is still current, rather than
+ * being sent the whole response again.
+ * <p />
+ * The tag is a weak one, as the same content may be sent compressed or not.
+ * 
+ * @author agent
+ */
+public final class EncodedJsonResponse {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String WEAK_PREFIX = "W/";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private final byte[] json;
+    private final String entityTag;
+    private volatile String text;
+
+    /**
+     * @param json the encoded form of the JSON response, which must not be modified afterwards
+     */
+    public EncodedJsonResponse(final byte[] json) {
+        this.json = json;
+        this.entityTag = WEAK_PREFIX + '"' + digest(json) + '"';
+    }
+
+    /**
+     * @param json the encoded response
+     * @return the hex form of the digest of the response
+     */
+    private static String digest(final byte[] json) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(json);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new StepInternalException("Unable to compute the entity tag of a response", e);
+        }
+
+        final char[] hex = new char[digest.length * 2];
+        for (int ii = 0; ii < digest.length; ii++) {
+            hex[ii * 2] = HEX_DIGITS[(digest[ii] >> 4) & 0xF];
+            hex[ii * 2 + 1] = HEX_DIGITS[digest[ii] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @param ifNoneMatch the value of the If-None-Match header, possibly null
+     * @return true if one of the tags held by the client is the tag of this response
+     */
+    public boolean matches(final String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        final String tag = this.entityTag.substring(WEAK_PREFIX.length());
+        for (final String clientTag : ifNoneMatch.split(",")) {
+            final String trimmed = clientTag.trim();
+            if ("*".equals(trimmed) || tag.equals(trimmed.startsWith(WEAK_PREFIX) ? trimmed.substring(WEAK_PREFIX
+                    .length()) : trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the encoded form of the JSON response, which must not be modified
+     */
+    public byte[] getJson() {
+        return this.json;
+    }
+
+    /**
+     * Decodes the response the first time it is asked for, for pages that embed it rather than send it as is
+     *
+     * @return the JSON response as text
+     */
+    public String getJsonText() {
+        String decoded = this.text;
+        if (decoded == null) {
+            decoded = new String(this.json, UTF8);
+            this.text = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the entity tag, ready to be sent in an ETag header
+     */
+    public String getEntityTag() {
+        return this.entityTag;
+    }
+}
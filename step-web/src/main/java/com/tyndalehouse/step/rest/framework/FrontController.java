@@ -42,6 +42,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.servlet.annotation.MultipartConfig;
 import javax.servlet.http.HttpServletRequest;
@@ -69,7 +70,10 @@ public class FrontController extends AbstractAjaxController {
     private static final char PACKAGE_SEPARATOR = '.';
     private static final long serialVersionUID = 7898656504631346047L;
     private static final String CONTROLLER_SUFFIX = "Controller";
+    private static final String CACHEABLE_HTTP_METHOD = "GET";
+    private static final String RESOLVED_REQUEST_ATTRIBUTE = FrontController.class.getName() + ".resolvedRequest";
     private final transient Injector guiceInjector;
+    private final transient ResponseCache responseCache;
 
     private final transient Map<String, Method> methodNames = new HashMap<String, Method>();
     private final transient Map<String, Object> controllers = new HashMap<String, Object>();
@@ -81,15 +85,69 @@ public class FrontController extends AbstractAjaxController {
      * @param guiceInjector         the injector used to call the relevant controllers
      * @param errorResolver         the error resolver is the object that helps us translate errors for the client
      * @param clientSessionProvider the client session provider
+     * @param responseCache         the cache of encoded responses
+     * @param traceHeader           true to return the time spent in each stage of the request in a header
+     * @param gzipResponses         true to compress responses for clients that accept gzip
      */
     @Inject
     public FrontController(final Injector guiceInjector,
                            final AppManagerService appManagerService,
                            final ClientErrorResolver errorResolver,
                            final Provider<ClientSession> clientSessionProvider,
-                           final Provider<ObjectMapper> objectMapperProvider) {
-        super(appManagerService, clientSessionProvider, errorResolver, objectMapperProvider);
+                           final Provider<ObjectMapper> objectMapperProvider,
+                           final ResponseCache responseCache,
+                           @Named("app.trace.header") final boolean traceHeader,
+                           @Named("app.response.gzip") final boolean gzipResponses) {
+        super(appManagerService, clientSessionProvider, errorResolver, objectMapperProvider, traceHeader,
+                gzipResponses);
         this.guiceInjector = guiceInjector;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Serves the response from the {@link ResponseCache} where possible, otherwise invokes the method and caches
+     * the encoded response for the next request. Responses that are not cached are streamed instead. The controller
+     * and method are resolved once, here, and kept on the request for when the method is invoked.
+     *
+     * @param request the request
+     * @return the encoded form of the JSON response, or null if it is not to be cached
+     */
+    @Override
+    protected byte[] getJsonResponse(final HttpServletRequest request) {
+        if (!CACHEABLE_HTTP_METHOD.equals(request.getMethod())) {
+            return super.getJsonResponse(request);
+        }
+
+        final ResolvedRequest resolvedRequest;
+        try {
+            resolvedRequest = resolve(new StepRequest(request, UTF_8_ENCODING));
+            // CHECKSTYLE:OFF requests we cannot resolve are reported back to the client in the usual way
+        } catch (final RuntimeException e) {
+            // CHECKSTYLE:ON
+            return super.getJsonResponse(request);
+        }
+        request.setAttribute(RESOLVED_REQUEST_ATTRIBUTE, resolvedRequest);
+
+        final long timeToLive = this.responseCache.getTimeToLive(resolvedRequest.controllerMethod);
+        if (timeToLive <= 0) {
+            return super.getJsonResponse(request);
+        }
+
+        final String cacheKey = this.responseCache.getKey(
+                resolvedRequest.stepRequest.getCacheKey().getResultsKey(), getUserLocale());
+
+        final byte[] cachedResponse = this.responseCache.get(cacheKey);
+        if (cachedResponse != null) {
+            LOGGER.debug("Serving [{}] from the response cache", cacheKey);
+            return cachedResponse;
+        }
+
+        final Object returnVal = executeRestMethod(request);
+        final byte[] jsonEncoded = getEncodedJsonResponse(returnVal);
+        if (!(returnVal instanceof ClientHandledIssue) && !(returnVal instanceof PartialResponse)) {
+            this.responseCache.put(cacheKey, jsonEncoded, timeToLive);
+        }
+        return jsonEncoded;
     }
 
     /**
@@ -99,6 +157,11 @@ public class FrontController extends AbstractAjaxController {
      */
     @Override
     protected Object invokeMethod(HttpServletRequest servletRequest) throws Exception {
+        final Object resolvedRequest = servletRequest.getAttribute(RESOLVED_REQUEST_ATTRIBUTE);
+        if (resolvedRequest instanceof ResolvedRequest) {
+            return ((ResolvedRequest) resolvedRequest).invoke();
+        }
+
         StepRequest sr = new StepRequest(servletRequest, UTF_8_ENCODING);
         return invokeMethodWithStepRequest(sr);
     }
@@ -111,16 +174,21 @@ public class FrontController extends AbstractAjaxController {
      */
     Object invokeMethodWithStepRequest(final StepRequest sr) throws IllegalAccessException, InvocationTargetException {
         LOGGER.debug("The cache was missed so invoking method now...");
+        return resolve(sr).invoke();
+    }
 
+    /**
+     * @param sr the request
+     * @return the controller instance and the method to invoke on it
+     */
+    private ResolvedRequest resolve(final StepRequest sr) {
         // controller instance on which to call a method
         final Object controllerInstance = getController(sr.getControllerName(), sr.isExternal());
 
         // resolve method
         final Method controllerMethod = getControllerMethod(sr.getMethodName(), controllerInstance,
                 sr.getArgs(), sr.getCacheKey().getMethodKey());
-
-        // invoke the three together
-        return controllerMethod.invoke(controllerInstance, (Object[]) sr.getArgs());
+        return new ResolvedRequest(sr, controllerInstance, controllerMethod);
     }
 
 
@@ -213,4 +281,35 @@ public class FrontController extends AbstractAjaxController {
 
         return classes;
     }
+
+    /**
+     * A request, with the controller and the method it resolved to
+     */
+    private static final class ResolvedRequest {
+        private final StepRequest stepRequest;
+        private final Object controllerInstance;
+        private final Method controllerMethod;
+
+        /**
+         * @param stepRequest        the request
+         * @param controllerInstance the controller
+         * @param controllerMethod   the method to invoke on the controller
+         */
+        private ResolvedRequest(final StepRequest stepRequest, final Object controllerInstance,
+                                final Method controllerMethod) {
+            this.stepRequest = stepRequest;
+            this.controllerInstance = controllerInstance;
+            this.controllerMethod = controllerMethod;
+        }
+
+        /**
+         * @return the value returned by the method
+         * @throws IllegalAccessException    if the method cannot be accessed
+         * @throws InvocationTargetException if the method throws an exception
+         */
+        private Object invoke() throws IllegalAccessException, InvocationTargetException {
+            // invoke the three together
+            return this.controllerMethod.invoke(this.controllerInstance, (Object[]) this.stepRequest.getArgs());
+        }
+    }
 }
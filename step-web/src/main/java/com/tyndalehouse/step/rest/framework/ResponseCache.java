@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.rest.framework;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Singleton;
+
+/**
+ * A bounded cache of encoded JSON responses, keyed on the results key of a request (see
+ * {@link ControllerCacheKey#getResultsKey()}) and the user's locale. Once the total size of the cached
+ * responses exceeds the configured maximum, the least recently used responses are evicted first.
+ * <p />
+ * Only the responses of controllers, or controller methods, annotated with {@link CachedResponse} are cached, for
+ * the time-to-live given there. A method may opt out of its controller's caching with {@link UncachedResponse}.
+ * The whole cache is flushed whenever a module is installed or removed, and stops listening for modules once it is
+ * {@link #close() closed}.
+ * 
+ * @author agent
+ */
+@Singleton
+public class ResponseCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final char KEY_SEPARATOR = '|';
+    private static final Long NOT_CACHED = Long.valueOf(0);
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Map<Method, Long> timesToLive = new ConcurrentHashMap<Method, Long>();
+    private final LinkedHashMap<String, CachedEntry> entries = new LinkedHashMap<String, CachedEntry>(
+            INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final BooksListener booksListener = new BooksListener() {
+        @Override
+        public void bookAdded(final BooksEvent ev) {
+            LOGGER.debug("Module added, flushing response cache");
+            clear();
+        }
+
+        @Override
+        public void bookRemoved(final BooksEvent ev) {
+            LOGGER.debug("Module removed, flushing response cache");
+            clear();
+        }
+    };
+    private long currentBytes;
+
+    /**
+     * A single response held in the cache
+     */
+    private static final class CachedEntry {
+        private final byte[] response;
+        private final long expiresAt;
+        private final long weight;
+
+        /**
+         * @param key the key under which the entry is stored
+         * @param response the encoded response
+         * @param expiresAt the time at which the entry is no longer valid
+         */
+        private CachedEntry(final String key, final byte[] response, final long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+            this.weight = response.length + 2L * key.length();
+        }
+    }
+
+    /**
+     * @param enabled true to cache responses at all
+     * @param maxBytes the maximum number of bytes held across all cached responses
+     * @param maxEntryBytes the size above which a response is never cached
+     */
+    @Inject
+    public ResponseCache(@Named("app.responseCache.enabled") final boolean enabled,
+            @Named("app.responseCache.maxBytes") final long maxBytes,
+            @Named("app.responseCache.maxEntryBytes") final long maxEntryBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+
+        if (enabled) {
+            Books.installed().addBooksListener(this.booksListener);
+        }
+    }
+
+    /**
+     * Stops listening for modules being installed or removed, and flushes the cache, when the application stops
+     */
+    public void close() {
+        Books.installed().removeBooksListener(this.booksListener);
+        clear();
+    }
+
+    /**
+     * @param resultsKey the results key of the request
+     * @param locale the locale of the user, since responses are translated
+     * @return the key under which the response is cached
+     */
+    public String getKey(final String resultsKey, final Locale locale) {
+        final String language = locale == null ? "" : locale.toString();
+        return new StringBuilder(language.length() + resultsKey.length() + 1).append(language)
+                .append(KEY_SEPARATOR).append(resultsKey).toString();
+    }
+
+    /**
+     * @param controllerMethod the method that will be invoked on the controller
+     * @return the time-to-live in milliseconds of the responses of this method, or 0 if they should not be
+     *         cached, as is the case for methods without a {@link CachedResponse} annotation
+     */
+    public long getTimeToLive(final Method controllerMethod) {
+        if (!this.enabled) {
+            return 0;
+        }
+
+        Long timeToLive = this.timesToLive.get(controllerMethod);
+        if (timeToLive == null) {
+            timeToLive = resolveTimeToLive(controllerMethod);
+            this.timesToLive.put(controllerMethod, timeToLive);
+        }
+        return timeToLive;
+    }
+
+    /**
+     * Resolves the time-to-live from annotations on the method, or failing that on the controller. We walk up
+     * the hierarchy, since Guice may have handed us a sub-class of the controller.
+     * 
+     * @param controllerMethod the controller method
+     * @return the time-to-live in milliseconds, or 0 if the method isn't to be cached
+     */
+    private Long resolveTimeToLive(final Method controllerMethod) {
+        for (Class<?> c = controllerMethod.getDeclaringClass(); c != null && c != Object.class; c = c
+                .getSuperclass()) {
+            final Method declaredMethod = getDeclaredMethod(c, controllerMethod);
+            if (declaredMethod != null) {
+                if (declaredMethod.isAnnotationPresent(UncachedResponse.class)) {
+                    return NOT_CACHED;
+                }
+
+                final CachedResponse cachedResponse = declaredMethod.getAnnotation(CachedResponse.class);
+                if (cachedResponse != null) {
+                    return cachedResponse.unit().toMillis(cachedResponse.timeToLive());
+                }
+            }
+        }
+
+        for (Class<?> c = controllerMethod.getDeclaringClass(); c != null && c != Object.class; c = c
+                .getSuperclass()) {
+            if (c.isAnnotationPresent(UncachedResponse.class)) {
+                return NOT_CACHED;
+            }
+
+            final CachedResponse cachedResponse = c.getAnnotation(CachedResponse.class);
+            if (cachedResponse != null) {
+                return cachedResponse.unit().toMillis(cachedResponse.timeToLive());
+            }
+        }
+        return NOT_CACHED;
+    }
+
+    /**
+     * @param declaringClass the class to inspect
+     * @param method the method we are looking for
+     * @return the method with the same signature declared on the class, or null if there isn't one
+     */
+    private Method getDeclaredMethod(final Class<?> declaringClass, final Method method) {
+        try {
+            return declaringClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key obtained from {@link #getKey(String, Locale)}
+     * @return the encoded response, or null if it is absent or has expired
+     */
+    public byte[] get(final String key) {
+        synchronized (this.entries) {
+            final CachedEntry entry = this.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                this.entries.remove(key);
+                this.currentBytes -= entry.weight;
+                return null;
+            }
+            return entry.response;
+        }
+    }
+
+    /**
+     * Caches a response, evicting the least recently used responses if the cache is now too large.
+     * 
+     * @param key the key obtained from {@link #getKey(String, Locale)}
+     * @param response the encoded response
+     * @param timeToLive the time-to-live in milliseconds, as obtained from {@link #getTimeToLive(Method)}
+     */
+    public void put(final String key, final byte[] response, final long timeToLive) {
+        if (timeToLive <= 0 || response == null || response.length == 0 || response.length > this.maxEntryBytes) {
+            return;
+        }
+
+        final CachedEntry entry = new CachedEntry(key, response, System.currentTimeMillis() + timeToLive);
+        synchronized (this.entries) {
+            final CachedEntry previous = this.entries.put(key, entry);
+            if (previous != null) {
+                this.currentBytes -= previous.weight;
+            }
+            this.currentBytes += entry.weight;
+
+            final Iterator<CachedEntry> eldest = this.entries.values().iterator();
+            while (this.currentBytes > this.maxBytes && eldest.hasNext()) {
+                this.currentBytes -= eldest.next().weight;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Flushes all responses from the cache
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.currentBytes = 0;
+        }
+    }
+
+    /**
+     * @return the number of bytes currently held in the cache
+     */
+    public long getCurrentBytes() {
+        synchronized (this.entries) {
+            return this.currentBytes;
+        }
+    }
+}
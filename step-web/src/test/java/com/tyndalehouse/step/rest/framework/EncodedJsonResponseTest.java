@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.rest.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+/**
+ * Tests the entity tags of encoded responses
+ * 
+ * @author agent
+ */
+public class EncodedJsonResponseTest {
+    /**
+     * The same content gives the same tag, which is matched whether the client sends it weak or not
+     * 
+     * @throws UnsupportedEncodingException uncaught exception
+     */
+    @Test
+    public void testMatchesOwnTag() throws UnsupportedEncodingException {
+        final EncodedJsonResponse response = new EncodedJsonResponse("[{\"initials\":\"ESV\"}]".getBytes("UTF-8"));
+        final EncodedJsonResponse same = new EncodedJsonResponse("[{\"initials\":\"ESV\"}]".getBytes("UTF-8"));
+        final String tag = response.getEntityTag();
+
+        assertEquals(tag, same.getEntityTag());
+        assertTrue(tag.startsWith("W/\""));
+        assertTrue(response.matches(tag));
+        assertTrue(response.matches(tag.substring(2)));
+        assertTrue(response.matches("\"other\", " + tag));
+        assertTrue(response.matches("*"));
+    }
+
+    /**
+     * Different content, or no tag at all, does not match
+     * 
+     * @throws UnsupportedEncodingException uncaught exception
+     */
+    @Test
+    public void testDoesNotMatchOtherTags() throws UnsupportedEncodingException {
+        final EncodedJsonResponse response = new EncodedJsonResponse("[]".getBytes("UTF-8"));
+        final EncodedJsonResponse other = new EncodedJsonResponse("[{}]".getBytes("UTF-8"));
+
+        assertFalse(response.matches(other.getEntityTag()));
+        assertFalse(response.matches(null));
+        assertFalse(response.matches(""));
+    }
+
+    /**
+     * The response is decoded once, however many pages embed it
+     * 
+     * @throws UnsupportedEncodingException uncaught exception
+     */
+    @Test
+    public void testDecodesOnce() throws UnsupportedEncodingException {
+        final EncodedJsonResponse response = new EncodedJsonResponse("[{\"name\":\"\u03bb\u03cc\u03b3\u03bf\u03c2\"}]"
+                .getBytes("UTF-8"));
+
+        assertEquals("[{\"name\":\"\u03bb\u03cc\u03b3\u03bf\u03c2\"}]", response.getJsonText());
+        assertSame(response.getJsonText(), response.getJsonText());
+    }
+}
@@ -39,12 +39,16 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Locale;
@@ -56,10 +60,12 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.tyndalehouse.step.core.service.AppManagerService;
 import org.codehaus.jackson.JsonGenerationException;
+import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -107,7 +113,7 @@ public class FrontControllerTest {
         when(this.objectMapper.get()).thenReturn(mockMapper);
         
         this.fcUnderTest = new FrontController(this.guiceInjector, mock(AppManagerService.class), this.errorResolver,
-                this.clientSessionProvider, objectMapper);
+                this.clientSessionProvider, objectMapper, mock(ResponseCache.class), false, false);
     }
 
     /**
@@ -244,6 +250,60 @@ public class FrontControllerTest {
         verify(outputStream).write(any(byte[].class));
     }
 
+    /**
+     * A response that fails while it is being streamed through gzip is reset, so that the error is sent as plain
+     * JSON rather than onto the compressed stream
+     *
+     * @throws Exception uncaught exception
+     */
+    @Test
+    public void testStreamingErrorResetsCompressedResponse() throws Exception {
+        final ObjectMapper failingMapper = mock(ObjectMapper.class);
+        when(failingMapper.writeValueAsString(any(Object.class))).thenReturn("{}");
+        doThrow(new JsonMappingException("Unable to serialise")).when(failingMapper).writeValue(
+                any(OutputStream.class), any(Object.class));
+        when(this.objectMapper.get()).thenReturn(failingMapper);
+        final FrontController fc = spy(new FrontController(this.guiceInjector, mock(AppManagerService.class),
+                this.errorResolver, this.clientSessionProvider, this.objectMapper, mock(ResponseCache.class), false,
+                true));
+
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        doReturn("a value").when(fc).invokeMethod(request);
+
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final ServletOutputStream outputStream = mock(ServletOutputStream.class);
+        when(response.getOutputStream()).thenReturn(outputStream);
+
+        fc.doGet(request, response);
+
+        final InOrder inOrder = inOrder(response, outputStream);
+        inOrder.verify(response).setHeader("Content-Encoding", "gzip");
+        inOrder.verify(response).reset();
+        inOrder.verify(response).setContentType("application/json");
+        inOrder.verify(outputStream).write("{}".getBytes(FrontController.UTF_8_ENCODING));
+        inOrder.verify(response, never()).setHeader("Content-Encoding", "gzip");
+    }
+
+    /**
+     * Nothing more is written once the response has been committed
+     *
+     * @throws IOException uncaught exception
+     */
+    @Test
+    public void testErrorOnCommittedResponseIsNotWritten() throws IOException {
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final ServletOutputStream outputStream = mock(ServletOutputStream.class);
+        when(response.getOutputStream()).thenReturn(outputStream);
+        when(response.isCommitted()).thenReturn(true);
+
+        this.fcUnderTest.handleError(response, new Exception(), mock(HttpServletRequest.class));
+
+        verify(response, never()).reset();
+        verify(outputStream, never()).write(any(byte[].class));
+    }
+
     /**
      * We check that invoke method calls the correct controller and method with the right arguments
      */
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2012, Directors of the Tyndale STEP Project
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions 
+ * are met:
+ * 
+ * Redistributions of source code must retain the above copyright 
+ * notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright 
+ * notice, this list of conditions and the following disclaimer in 
+ * the documentation and/or other materials provided with the 
+ * distribution.
+ * Neither the name of the Tyndale House, Cambridge (www.TyndaleHouse.com)  
+ * nor the names of its contributors may be used to endorse or promote 
+ * products derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS 
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT 
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE 
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, 
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, 
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT 
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING 
+ * IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package com.tyndalehouse.step.rest.framework;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the eviction and time-to-live rules of the response cache
+ * 
+ * @author agent
+ */
+public class ResponseCacheTest {
+    /**
+     * A test controller with a default time-to-live
+     */
+    @CachedResponse(timeToLive = 1, unit = TimeUnit.MINUTES)
+    public static class TestController {
+        /**
+         * a method inheriting the controller's time-to-live
+         */
+        public void inherited() {
+            // nothing to do
+        }
+
+        /**
+         * a method that must never be cached
+         */
+        @UncachedResponse
+        public void uncached() {
+            // nothing to do
+        }
+    }
+
+    /**
+     * the least recently used response is evicted when the cache is full
+     */
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        final ResponseCache cache = new ResponseCache(false, 30, 30);
+        cache.put("a", new byte[10], 1000);
+        cache.put("b", new byte[10], 1000);
+
+        // touch a, so that b is now the eldest
+        cache.get("a");
+        cache.put("c", new byte[10], 1000);
+
+        assertNull(cache.get("b"));
+        assertArrayEquals(new byte[10], cache.get("a"));
+        assertArrayEquals(new byte[10], cache.get("c"));
+        assertEquals(24, cache.getCurrentBytes());
+    }
+
+    /**
+     * responses that are too large, or already expired, are not returned
+     */
+    @Test
+    public void testLargeAndExpiredResponsesAreNotServed() {
+        final ResponseCache cache = new ResponseCache(false, 100, 20);
+        cache.put("large", new byte[21], 1000);
+        cache.put("expired", new byte[1], 1);
+        cache.put("uncached", new byte[1], 0);
+
+        sleep();
+        assertNull(cache.get("large"));
+        assertNull(cache.get("expired"));
+        assertNull(cache.get("uncached"));
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    /**
+     * annotations on methods take precedence over annotations on the controller, and methods without any
+     * annotation are not cached
+     * 
+     * @throws NoSuchMethodException uncaught exception
+     */
+    @Test
+    public void testTimeToLiveFromAnnotations() throws NoSuchMethodException {
+        final ResponseCache cache = new ResponseCache(true, 100, 100);
+        final Method inherited = TestController.class.getMethod("inherited");
+        final Method uncached = TestController.class.getMethod("uncached");
+        final Method notAController = Object.class.getMethod("toString");
+
+        assertEquals(TimeUnit.MINUTES.toMillis(1), cache.getTimeToLive(inherited));
+        assertEquals(0, cache.getTimeToLive(uncached));
+        assertEquals(0, cache.getTimeToLive(notAController));
+        cache.close();
+    }
+
+    /**
+     * keys are specific to the user's locale
+     */
+    @Test
+    public void testKeyIncludesLocale() {
+        final ResponseCache cache = new ResponseCache(false, 100, 100);
+        assertEquals("fr|/rest/bible/getBibleText/ESV/Gen.1", cache.getKey("/rest/bible/getBibleText/ESV/Gen.1",
+                Locale.FRENCH));
+    }
+
+    /**
+     * waits long enough for a short-lived entry to expire
+     */
+    private void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}